@@ -39,6 +39,7 @@ import java.util.Arrays;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import javax.swing.JOptionPane;
@@ -337,6 +338,11 @@ public class TinyMediaManager {
             UpgradeTasks.performUpgradeTasksAfterDatabaseLoading(oldVersion);
           }
 
+          // measure the fragmentation of the DB in the background (decides about the compaction on shutdown); periodic DB snapshots (the first one
+          // after a day)
+          TmmModuleManager.getInstance().getDatabaseMaintenance().measureFragmentation(new File("backup"));
+          TmmModuleManager.getInstance().getDatabaseMaintenance().schedulePeriodicSnapshots(new File("backup"), 1, TimeUnit.DAYS);
+
           // clean cache ////////////////////////////////////////////////////
           if (g2 != null) {
             updateProgress(g2, "cleaning cache", 70);
@@ -15,21 +15,29 @@
  */
 package org.tinymediamanager;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
 import javax.swing.SwingWorker;
 
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.LibraryIntegrityChecker;
+import org.tinymediamanager.core.TmmModuleManager;
 import org.tinymediamanager.core.UpdaterTask;
 import org.tinymediamanager.core.Utils;
-import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieModuleManager;
 import org.tinymediamanager.core.movie.MovieSearchAndScrapeOptions;
 import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.movie.tasks.MovieBatchPipelineTask;
 import org.tinymediamanager.core.movie.tasks.MovieRenameTask;
 import org.tinymediamanager.core.movie.tasks.MovieScrapeTask;
 import org.tinymediamanager.core.movie.tasks.MovieUpdateDatasourceTask;
@@ -50,17 +58,21 @@ import org.tinymediamanager.scraper.util.StrgUtils;
  * @author Manuel Laggner
  */
 public class TinyMediaManagerCMD {
-  private static final Logger     LOGGER          = LoggerFactory.getLogger(TinyMediaManagerCMD.class);
-  private static boolean          updateMovies    = false;
-  private static boolean          updateTv        = false;
-  private static boolean          scrapeNew       = false;
-  private static boolean          scrapeUnscraped = false;
-  private static boolean          renameNew       = false;
-  private static boolean          checkFiles      = false;
+  private static final Logger     LOGGER              = LoggerFactory.getLogger(TinyMediaManagerCMD.class);
+  private static final int        CHECK_FILES_THREADS = 8;
+  private static final String     CHECK_FILES_REPORT  = "checkFiles.txt";
+  private static boolean          updateMovies        = false;
+  private static boolean          updateTv            = false;
+  private static boolean          scrapeNew           = false;
+  private static boolean          scrapeUnscraped     = false;
+  private static boolean          renameNew           = false;
+  private static boolean          checkFiles          = false;
+  private static boolean          batch               = false;
+  private static boolean          compactDb           = false;
 
   // datasource IDs
-  private static HashSet<Integer> updateMovieDs   = new HashSet<Integer>();
-  private static HashSet<Integer> updateTvDs      = new HashSet<Integer>();
+  private static HashSet<Integer> updateMovieDs       = new HashSet<Integer>();
+  private static HashSet<Integer> updateTvDs          = new HashSet<Integer>();
 
   /**
    * parse command line params
@@ -99,6 +111,12 @@ public class TinyMediaManagerCMD {
       else if (cmd.equalsIgnoreCase("-renameNew")) {
         renameNew = true;
       }
+      else if (cmd.equalsIgnoreCase("-batch")) {
+        batch = true;
+      }
+      else if (cmd.equalsIgnoreCase("-compactDb")) {
+        compactDb = true;
+      }
       else if (cmd.toLowerCase().contains("help")) { // -help, --help, help ...
         printSyntax();
         System.exit(0);
@@ -134,8 +152,12 @@ public class TinyMediaManagerCMD {
         "    -scrapeNew           auto-scrape (force best match) new found movies/TvShows/episodes from former update(s)\n" +
         "    -scrapeUnscraped     auto-scrape (force best match) all movies, which have not yet been scraped (not for TV/episodes!)\n" +
         "    -renameNew           rename & cleanup of the new found movies/TvShows/episodes\n" +
+        "    -batch               movies only: scrape/rename new movies while the update is still running (instead of one step after another)\n" +
         "\n" +
         "    -checkFiles          does a physical check, if all files in DB are existent on filesystem (might take long!)\n" +
+        "                         a tab separated report (missing/changed/new files) is written to logs/checkFiles.txt\n" +
+        "\n" +
+        "    -compactDb           compact the database on exit (otherwise only done if too much of the database file is unused)\n" +
         "\n");
     // @formatter:on
   }
@@ -168,7 +190,21 @@ public class TinyMediaManagerCMD {
       }
 
       // update movies //////////////////////////////////////////////
-      if (updateMovies) {
+      if (updateMovies && batch) {
+        LOGGER.info("Commandline - updating, scraping and renaming movies in batch mode...");
+        List<String> dataSources = new ArrayList<String>();
+        List<String> allDataSources = new ArrayList<String>(MovieModuleManager.MOVIE_SETTINGS.getMovieDataSource());
+        for (Integer i : updateMovieDs) {
+          if (allDataSources.size() >= i) {
+            dataSources.add(allDataSources.get(i - 1));
+          }
+        }
+        if (updateMovieDs.isEmpty() || !dataSources.isEmpty()) {
+          task = new MovieBatchPipelineTask(dataSources, scrapeNew, renameNew);
+          task.run(); // blocking
+        }
+      }
+      else if (updateMovies) {
         LOGGER.info("Commandline - updating movies...");
         if (updateMovieDs.isEmpty()) {
           task = new MovieUpdateDatasourceTask();
@@ -184,6 +220,7 @@ public class TinyMediaManagerCMD {
           }
         }
         List<Movie> newMovies = MovieList.getInstance().getNewMovies();
+        LOGGER.info("Commandline - movie statistics: " + MovieList.getInstance().getStatistics());
 
         if (scrapeNew) {
           LOGGER.info("Commandline - scraping new movies...");
@@ -194,9 +231,7 @@ public class TinyMediaManagerCMD {
             task.run(); // blocking
 
             // wait for other tmm threads (artwork download et all)
-            while (TmmTaskManager.getInstance().poolRunning()) {
-              Thread.sleep(2000);
-            }
+            TmmTaskManager.getInstance().awaitIdle();
           }
           else {
             LOGGER.info("No new movies found to scrape - skipping");
@@ -221,9 +256,7 @@ public class TinyMediaManagerCMD {
           task.run(); // blocking
 
           // wait for other tmm threads (artwork download et all)
-          while (TmmTaskManager.getInstance().poolRunning()) {
-            Thread.sleep(2000);
-          }
+          TmmTaskManager.getInstance().awaitIdle();
         }
         if (renameNew) {
           LOGGER.info("Commandline - rename & cleanup new movies...");
@@ -253,6 +286,7 @@ public class TinyMediaManagerCMD {
         List<TvShow> newTv = TvShowList.getInstance().getNewTvShows();
         List<TvShowEpisode> newEp = TvShowList.getInstance().getNewEpisodes();
         LOGGER.info("Commandline - found " + newTv.size() + " TvShow(s) containing " + newEp.size() + " new episode(s)");
+        LOGGER.info("Commandline - episode statistics: " + TvShowList.getInstance().getEpisodeStatistics());
 
         if (scrapeNew) {
           LOGGER.info("Commandline - scraping new TvShows...");
@@ -278,44 +312,63 @@ public class TinyMediaManagerCMD {
       }
 
       if (checkFiles) {
-        boolean allOk = true;
         // check db
         LOGGER.info("Check all files if existing");
+        LibraryIntegrityChecker checker = new LibraryIntegrityChecker(CHECK_FILES_THREADS);
         for (Movie m : MovieList.getInstance().getMovies()) {
-          System.out.print(".");
-          for (MediaFile mf : m.getMediaFiles()) {
-            if (!mf.exists()) {
-              System.out.println();
-              LOGGER.warn("MediaFile not found! " + mf.getFile().getAbsolutePath());
-              allOk = false;
-            }
-          }
+          checker.addMediaFiles(m.getMediaFiles());
         }
         for (TvShow s : TvShowList.getInstance().getTvShows()) {
-          System.out.print(".");
-          for (MediaFile mf : s.getMediaFiles()) { // show MFs
-            if (!mf.exists()) {
-              System.out.println();
-              LOGGER.warn("MediaFile not found! " + mf.getFile().getAbsolutePath());
-              allOk = false;
-            }
-          }
+          checker.addMediaFiles(s.getMediaFiles()); // show MFs
           for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(s.getEpisodes())) {
-            for (MediaFile mf : episode.getMediaFiles()) { // episode MFs
-              if (!mf.exists()) {
-                System.out.println();
-                LOGGER.warn("MediaFile not found! " + mf.getFile().getAbsolutePath());
-                allOk = false;
-              }
-            }
+            checker.addMediaFiles(episode.getMediaFiles()); // episode MFs
+          }
+        }
+
+        boolean allOk = true;
+        List<LibraryIntegrityChecker.Result> results = checker.check();
+        for (LibraryIntegrityChecker.Result result : results) {
+          switch (result.getStatus()) {
+            case MISSING:
+              LOGGER.warn("MediaFile not found! " + result.getFile().getAbsolutePath());
+              allOk = false;
+              break;
+
+            case CHANGED:
+              LOGGER.warn("MediaFile changed! " + result.getFile().getAbsolutePath());
+              allOk = false;
+              break;
+
+            default:
+              LOGGER.info("new file found: " + result.getFile().getAbsolutePath());
+              break;
           }
         }
-        System.out.println();
+
+        // write a machine readable report
+        File report = new File("logs", CHECK_FILES_REPORT);
+        Writer writer = null;
+        try {
+          writer = new OutputStreamWriter(new FileOutputStream(report), "UTF-8");
+          LibraryIntegrityChecker.writeReport(results, writer);
+          LOGGER.info("report written to " + report.getAbsolutePath());
+        }
+        catch (IOException e) {
+          LOGGER.error("could not write report " + report.getAbsolutePath() + ": " + e.getMessage());
+        }
+        finally {
+          IOUtils.closeQuietly(writer);
+        }
+
         if (allOk) {
           LOGGER.info("no problems found - everything ok :)");
         }
       }
 
+      if (compactDb) {
+        TmmModuleManager.getInstance().getDatabaseMaintenance().setCompactOnShutdown(true);
+      }
+
       if (updateAvailable) {
         LOGGER.warn("=====================================================");
         LOGGER.warn("There's a new TMM version available! Please update!");
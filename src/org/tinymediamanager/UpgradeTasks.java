@@ -219,6 +219,8 @@ public class UpgradeTasks {
       for (Movie movie : movieList.getMovies()) {
         for (MediaFile mf : movie.getMediaFiles(MediaFileType.THUMB)) {
           mf.setType(MediaFileType.EXTRATHUMB);
+          // re-index the changed media file
+          movie.addToMediaFiles(mf);
         }
       }
       entityManager.getTransaction().commit();
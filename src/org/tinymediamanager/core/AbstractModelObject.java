@@ -33,6 +33,9 @@ public abstract class AbstractModelObject {
 
   private final PropertyChangeSupport propertyChangeSupport = new SwingPropertyChangeSupport(this, true);
 
+  // listeners which are notified in the firing thread; created on demand
+  private volatile PropertyChangeSupport synchronousPropertyChangeSupport;
+
   /**
    * Adds the property change listener.
    * 
@@ -81,6 +84,35 @@ public abstract class AbstractModelObject {
     }
   }
 
+  /**
+   * Adds a property change listener which is notified in the thread firing the change (the other listeners are notified on the EDT). The listener
+   * must be fast and must not wait for the EDT or for locks held while firing changes (i.e. the monitor of an entity).
+   * 
+   * @param listener
+   *          the listener
+   */
+  public void addSynchronousPropertyChangeListener(PropertyChangeListener listener) {
+    synchronized (propertyChangeSupport) {
+      if (synchronousPropertyChangeSupport == null) {
+        synchronousPropertyChangeSupport = new PropertyChangeSupport(this);
+      }
+    }
+    synchronousPropertyChangeSupport.addPropertyChangeListener(listener);
+  }
+
+  /**
+   * Removes a property change listener added with addSynchronousPropertyChangeListener().
+   * 
+   * @param listener
+   *          the listener
+   */
+  public void removeSynchronousPropertyChangeListener(PropertyChangeListener listener) {
+    PropertyChangeSupport support = synchronousPropertyChangeSupport;
+    if (support != null) {
+      support.removePropertyChangeListener(listener);
+    }
+  }
+
   /**
    * Fire property change.
    * 
@@ -92,6 +124,10 @@ public abstract class AbstractModelObject {
    *          the new value
    */
   protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    PropertyChangeSupport support = synchronousPropertyChangeSupport;
+    if (support != null) {
+      support.firePropertyChange(propertyName, oldValue, newValue);
+    }
     try {
       propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
@@ -106,6 +142,10 @@ public abstract class AbstractModelObject {
    *          the evt
    */
   protected void firePropertyChange(PropertyChangeEvent evt) {
+    PropertyChangeSupport support = synchronousPropertyChangeSupport;
+    if (support != null) {
+      support.firePropertyChange(evt);
+    }
     propertyChangeSupport.firePropertyChange(evt);
   }
 }
\ No newline at end of file
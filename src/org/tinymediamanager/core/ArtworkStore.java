@@ -0,0 +1,328 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.tinymediamanager.scraper.util.Url;
+
+/**
+ * The class ArtworkStore - a content addressed store for downloaded artwork. An url is downloaded only once within a few minutes (the same image
+ * is usually written with several names or for several entities in one go) and refetched afterwards, so changed images on the server are picked
+ * up. The images are stored by the hash of their content (so the same image from different urls is only stored once, too). The files in the
+ * movie/TV show folders are independent copies of the stored file.
+ * 
+ * @author Manuel Laggner
+ */
+public class ArtworkStore {
+  public static final String                 STORE_DIR      = "cache/artwork";
+  private static final long                  MAX_AGE        = 1000L * 60 * 60 * 24 * 7;
+  // a downloaded url is reused for this time; afterwards it is downloaded again
+  private static final long                  DOWNLOAD_TTL   = 1000L * 60 * 10;
+  private static final int                   MAX_DOWNLOADS  = 1000;
+  private static final int                   MAX_HASHES     = 5000;
+
+  // url -> (pending) download of the url into the store
+  private static final LruCache<Download>    DOWNLOADS      = new LruCache<Download>(MAX_DOWNLOADS);
+  // absolute path of a file -> the hash of its content (valid as long as the size and the date of the file do not change)
+  private static final LruCache<ContentHash> CONTENT_HASHES = new LruCache<ContentHash>(MAX_HASHES);
+
+  private ArtworkStore() {
+  }
+
+  /**
+   * Gets the store dir. If it is not on the disk - it will also create it
+   * 
+   * @return the store dir
+   */
+  public static File getStoreDir() {
+    File storeDir = new File(STORE_DIR);
+    if (!storeDir.exists()) {
+      storeDir.mkdirs();
+    }
+    return storeDir;
+  }
+
+  /**
+   * get the stored file for the given url; the url is downloaded if it has not been downloaded in the last minutes. Parallel requests for the same
+   * url wait for the same download
+   * 
+   * @param url
+   *          the url of the artwork
+   * @return the file in the store
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   * @throws InterruptedException
+   */
+  public static File getArtwork(final String url) throws IOException, InterruptedException {
+    Download download;
+    boolean start = false;
+    synchronized (DOWNLOADS) {
+      download = DOWNLOADS.get(url);
+      if (download == null || download.isExpired()) {
+        download = new Download(url);
+        DOWNLOADS.put(url, download);
+        start = true;
+      }
+    }
+    if (start) {
+      download.run();
+    }
+
+    try {
+      File storedFile = download.get();
+      if (storedFile.exists()) {
+        return storedFile;
+      }
+      // the store has been cleaned in the meantime
+      removeDownload(url, download);
+      return getArtwork(url);
+    }
+    catch (ExecutionException e) {
+      // do not remember failed downloads
+      removeDownload(url, download);
+      if (e.getCause() instanceof InterruptedException) {
+        throw (InterruptedException) e.getCause();
+      }
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private static void removeDownload(String url, Download download) {
+    synchronized (DOWNLOADS) {
+      if (DOWNLOADS.get(url) == download) {
+        DOWNLOADS.remove(url);
+      }
+    }
+  }
+
+  /**
+   * write the artwork of the given url to the destination (as a copy of the stored file); an existing destination file is replaced
+   * 
+   * @param url
+   *          the url of the artwork
+   * @param destination
+   *          the file to write
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   * @throws InterruptedException
+   */
+  public static void writeArtwork(String url, File destination) throws IOException, InterruptedException {
+    // get the artwork before touching the destination, so a failed download does not destroy the old file
+    File storedFile = getArtwork(url);
+    FileUtils.deleteQuietly(destination);
+    FileUtils.copyFile(storedFile, destination);
+    // the copy has the content of the stored file, whose name is its hash
+    synchronized (CONTENT_HASHES) {
+      CONTENT_HASHES.put(destination.getAbsolutePath(), new ContentHash(destination, storedFile.getName()));
+    }
+  }
+
+  /**
+   * get the hash of the content of a file; the hash is cached as long as the size and the date of the file do not change
+   * 
+   * @param file
+   *          the file
+   * @return the content hash or null if the file could not be read
+   */
+  public static String getContentHash(File file) {
+    String path = file.getAbsolutePath();
+    synchronized (CONTENT_HASHES) {
+      ContentHash contentHash = CONTENT_HASHES.get(path);
+      if (contentHash != null && contentHash.isValid(file)) {
+        return contentHash.hash;
+      }
+    }
+
+    InputStream is = null;
+    try {
+      ContentHash contentHash = new ContentHash(file, null);
+      MessageDigest digest = createDigest();
+      is = new DigestInputStream(new FileInputStream(file), digest);
+      byte[] buffer = new byte[8192];
+      while (is.read(buffer) != -1) {
+        // just read the content for the digest
+      }
+      contentHash = new ContentHash(contentHash, new String(Hex.encodeHex(digest.digest())));
+      // the file has been changed while it was read
+      if (!contentHash.isValid(file)) {
+        return null;
+      }
+      synchronized (CONTENT_HASHES) {
+        CONTENT_HASHES.put(path, contentHash);
+      }
+      return contentHash.hash;
+    }
+    catch (IOException e) {
+      return null;
+    }
+    finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  /**
+   * remove all files from the store which have not been used for a week; the files in the media folders are not affected
+   */
+  public static void cleanup() {
+    File[] files = new File(STORE_DIR).listFiles();
+    if (files == null) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    for (File file : files) {
+      if (file.isFile() && now - file.lastModified() > MAX_AGE) {
+        FileUtils.deleteQuietly(file);
+      }
+    }
+  }
+
+  private static File download(String url) throws Exception {
+    File storeDir = getStoreDir();
+    File tempFile = File.createTempFile("artwork", ".part", storeDir);
+    MessageDigest digest = createDigest();
+
+    InputStream is = null;
+    OutputStream os = null;
+    try {
+      Url url1 = new Url(url);
+      url1.setBulkTransfer(true);
+      is = url1.getInputStream(true);
+      if (is == null || url1.isFault()) {
+        throw new IOException("could not download " + url + " " + url1.getStatusLine());
+      }
+      is = new DigestInputStream(is, digest);
+      os = new FileOutputStream(tempFile);
+      IOUtils.copy(is, os);
+    }
+    catch (Exception e) {
+      IOUtils.closeQuietly(os);
+      FileUtils.deleteQuietly(tempFile);
+      throw e;
+    }
+    finally {
+      IOUtils.closeQuietly(os);
+      IOUtils.closeQuietly(is);
+    }
+
+    if (tempFile.length() == 0) {
+      FileUtils.deleteQuietly(tempFile);
+      throw new IOException("0byte file downloaded: " + url);
+    }
+
+    File storedFile = new File(storeDir, new String(Hex.encodeHex(digest.digest())));
+    synchronized (ArtworkStore.class) {
+      if (storedFile.exists()) {
+        // same content from an other url (or unchanged since the last download)
+        FileUtils.deleteQuietly(tempFile);
+        storedFile.setLastModified(System.currentTimeMillis());
+      }
+      else if (!tempFile.renameTo(storedFile)) {
+        FileUtils.deleteQuietly(tempFile);
+        throw new IOException("could not store " + url);
+      }
+    }
+    return storedFile;
+  }
+
+  private static MessageDigest createDigest() throws IOException {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /******************************************************************************************
+   * helper classes
+   ******************************************************************************************/
+  private static class Download extends FutureTask<File> {
+    private final long created = System.currentTimeMillis();
+
+    public Download(final String url) {
+      super(new Callable<File>() {
+        @Override
+        public File call() throws Exception {
+          return download(url);
+        }
+      });
+    }
+
+    /**
+     * a finished download is reused for a few minutes only
+     */
+    public boolean isExpired() {
+      return isDone() && System.currentTimeMillis() - created > DOWNLOAD_TTL;
+    }
+  }
+
+  private static class ContentHash {
+    private final long   length;
+    private final long   lastModified;
+    private final String hash;
+
+    public ContentHash(File file, String hash) {
+      this.length = file.length();
+      this.lastModified = file.lastModified();
+      this.hash = hash;
+    }
+
+    public ContentHash(ContentHash contentHash, String hash) {
+      this.length = contentHash.length;
+      this.lastModified = contentHash.lastModified;
+      this.hash = hash;
+    }
+
+    public boolean isValid(File file) {
+      return file.length() == length && file.lastModified() == lastModified;
+    }
+  }
+
+  private static class LruCache<V> extends LinkedHashMap<String, V> {
+    private static final long serialVersionUID = 1L;
+    private final int         maxSize;
+
+    public LruCache(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+      return size() > maxSize;
+    }
+  }
+}
@@ -0,0 +1,615 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.Query;
+import javax.persistence.metamodel.EntityType;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class DatabaseMaintenance. Online maintenance of the ObjectDB database file: the database file only grows (free pages are reused, but the
+ * file is never shrunk), so this service
+ * <ul>
+ * <li>reports the file size, the growth since the start, the entity counts and the fragmentation</li>
+ * <li>takes periodic consistent snapshots (ObjectDB online backup) in a background thread; the snapshot is compacted and zipped into the backup
+ * folder</li>
+ * <li>compacts the database into a fresh file when tmm shuts down and swaps the files afterwards (if requested or if too much of the file is
+ * unused)</li>
+ * </ul>
+ * The fragmentation is measured with every snapshot (the compacted snapshot shows how much of the database file is really in use) or with
+ * {@link #measureFragmentation(File)} after the startup. If it is still unknown on shutdown, the database is compacted into a fresh file anyway
+ * and the files are only swapped if the fresh file is small enough.<br>
+ * The snapshots do not replace the backup of the raw database file which is taken at startup (before the database is opened or upgraded).
+ * 
+ * @author Manuel Laggner
+ */
+public class DatabaseMaintenance {
+  private static final Logger        LOGGER                  = LoggerFactory.getLogger(DatabaseMaintenance.class);
+  // ObjectDB opens only files with the extension .odb (needed for the verification)
+  private static final String        COMPACT_SUFFIX          = ".compact.odb";
+  private static final String        OLD_SUFFIX              = ".old";
+  private static final String        SNAPSHOT_INFIX          = ".snapshot.";
+  private static final int           SNAPSHOTS_TO_KEEP       = 15;
+  // compact on shutdown if more than this part of the database file is unused
+  private static final double        FRAGMENTATION_THRESHOLD = 0.3;
+
+  private final File                 dbFile;
+  private final EntityManagerFactory entityManagerFactory;
+  private final long                 sizeAtStartup;
+  // the backup query must not run while the database is being closed
+  private final ReentrantLock        databaseLock            = new ReentrantLock();
+  private volatile boolean           compactOnShutdown       = false;
+  private volatile double            fragmentation           = -1;
+  private volatile Date              lastSnapshot            = null;
+  private FutureTask<File>           snapshotTask            = null;
+  private ScheduledExecutorService   snapshotScheduler       = null;
+
+  /**
+   * create the maintenance service for an opened database
+   * 
+   * @param dbFile
+   *          the database file
+   * @param entityManagerFactory
+   *          the entity manager factory of the database
+   */
+  public DatabaseMaintenance(File dbFile, EntityManagerFactory entityManagerFactory) {
+    this.dbFile = dbFile;
+    this.entityManagerFactory = entityManagerFactory;
+    this.sizeAtStartup = dbFile.length();
+  }
+
+  /**
+   * get the current statistics of the database
+   * 
+   * @return the statistics
+   */
+  public DatabaseStatistics getStatistics() {
+    Map<String, Long> counts = new LinkedHashMap<String, Long>();
+    databaseLock.lock();
+    try {
+      if (entityManagerFactory.isOpen()) {
+        counts = countEntities(entityManagerFactory);
+      }
+    }
+    catch (Exception e) {
+      LOGGER.warn("could not count the entities: " + e.getMessage());
+    }
+    finally {
+      databaseLock.unlock();
+    }
+    return new DatabaseStatistics(dbFile.length(), new File(dbFile.getPath() + "$").length(), sizeAtStartup, counts, fragmentation, lastSnapshot);
+  }
+
+  /**
+   * compact the database when tmm shuts down, regardless of the fragmentation (the next shutdown only)
+   * 
+   * @param compactOnShutdown
+   *          true/false
+   */
+  public void setCompactOnShutdown(boolean compactOnShutdown) {
+    this.compactOnShutdown = compactOnShutdown;
+  }
+
+  /**
+   * will the database be compacted on shutdown? Either requested or the last measurement found too many unused pages. If the fragmentation has
+   * not been measured yet, it is measured on shutdown (and the database is compacted if needed)
+   * 
+   * @return true/false
+   */
+  public boolean isCompactOnShutdown() {
+    return compactOnShutdown || fragmentation > FRAGMENTATION_THRESHOLD;
+  }
+
+  /**
+   * take a snapshot every period, the first one after one period (so it never runs along with the startup and the upgrade tasks)
+   * 
+   * @param backupFolder
+   *          the backup folder
+   * @param period
+   *          the time between two snapshots
+   * @param unit
+   *          the unit of the period
+   */
+  public synchronized void schedulePeriodicSnapshots(final File backupFolder, long period, TimeUnit unit) {
+    if (snapshotScheduler != null) {
+      snapshotScheduler.shutdownNow();
+    }
+    snapshotScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "tmm-db-snapshot-scheduler");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    snapshotScheduler.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        createSnapshot(backupFolder, true);
+      }
+    }, period, period, unit);
+  }
+
+  /**
+   * take a consistent snapshot of the database in a background thread; the UI and all other database access are not blocked. The snapshot is
+   * compacted and stored as &lt;db&gt;.snapshot.yyyy-MM-dd.zip in the backup folder (the last 15 snapshots are kept)
+   * 
+   * @param backupFolder
+   *          the backup folder
+   * @param overwrite
+   *          replace a snapshot from today
+   * @return the future of the zip file (its value is null if the snapshot failed) or null if there is already a snapshot from today
+   */
+  public synchronized Future<File> createSnapshot(final File backupFolder, boolean overwrite) {
+    if (snapshotTask != null && !snapshotTask.isDone()) {
+      // there is already one running
+      return snapshotTask;
+    }
+    if (!overwrite && getSnapshotFile(backupFolder).exists()) {
+      return null;
+    }
+
+    return startSnapshotTask(backupFolder, true);
+  }
+
+  /**
+   * measure the fragmentation in a background thread: like a snapshot, but the compacted snapshot is not kept. The UI and all other database
+   * access are not blocked
+   * 
+   * @param backupFolder
+   *          the folder for the temporary files
+   * @return the future of the measurement (its value is always null)
+   */
+  public synchronized Future<File> measureFragmentation(final File backupFolder) {
+    if (snapshotTask != null && !snapshotTask.isDone()) {
+      // a running snapshot measures it too
+      return snapshotTask;
+    }
+    return startSnapshotTask(backupFolder, false);
+  }
+
+  private Future<File> startSnapshotTask(final File backupFolder, final boolean keep) {
+    snapshotTask = new FutureTask<File>(new Callable<File>() {
+      @Override
+      public File call() throws Exception {
+        return snapshot(backupFolder, keep);
+      }
+    });
+    Thread thread = new Thread(snapshotTask, "tmm-db-snapshot");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+    return snapshotTask;
+  }
+
+  /**
+   * the snapshot of today (not named like the backups of Utils.createBackupFile, so a snapshot never replaces the backup of the raw file)
+   */
+  private File getSnapshotFile(File backupFolder) {
+    return new File(backupFolder, dbFile.getName() + SNAPSHOT_INFIX + new SimpleDateFormat("yyyy-MM-dd").format(new Date()) + ".zip");
+  }
+
+  private void deleteOldSnapshots(File backupFolder) {
+    File[] files = backupFolder.listFiles();
+    if (files == null) {
+      return;
+    }
+    List<String> snapshots = new ArrayList<String>();
+    for (File file : files) {
+      if (file.getName().matches(Pattern.quote(dbFile.getName() + SNAPSHOT_INFIX) + "\\d{4}\\-\\d{2}\\-\\d{2}\\.zip")) {
+        snapshots.add(file.getName());
+      }
+    }
+    Collections.sort(snapshots);
+    for (int i = 0; i < snapshots.size() - SNAPSHOTS_TO_KEEP; i++) {
+      FileUtils.deleteQuietly(new File(backupFolder, snapshots.get(i)));
+    }
+  }
+
+  private File snapshot(File backupFolder, boolean keep) {
+    long start = System.currentTimeMillis();
+    File tempFolder = new File(backupFolder, "snapshot.tmp");
+    try {
+      FileUtils.deleteQuietly(tempFolder);
+      tempFolder.mkdirs();
+      long sizeAtSnapshot;
+      Object backupTask;
+
+      // 1. online backup; ObjectDB creates a sub folder with the timestamp
+      databaseLock.lock();
+      try {
+        if (!entityManagerFactory.isOpen()) {
+          return null;
+        }
+        sizeAtSnapshot = dbFile.length();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+          Query query = entityManager.createQuery("objectdb backup");
+          query.setParameter("target", tempFolder.getAbsoluteFile());
+          backupTask = query.getSingleResult();
+        }
+        finally {
+          entityManager.close();
+        }
+      }
+      finally {
+        databaseLock.unlock();
+      }
+      // the backup is written by a thread of ObjectDB
+      if (backupTask instanceof Thread) {
+        ((Thread) backupTask).join();
+      }
+      File backup = findFile(tempFolder, dbFile.getName());
+      if (backup == null) {
+        LOGGER.warn("database snapshot not found in " + tempFolder);
+        return null;
+      }
+
+      // 2. compact the snapshot (does not touch the live database) - this measures the fragmentation too
+      File compacted = new File(tempFolder, dbFile.getName());
+      if (!compact(backup, compacted)) {
+        compacted = backup;
+      }
+      else {
+        fragmentation = computeFragmentation(compacted.length(), sizeAtSnapshot);
+      }
+      if (!keep) {
+        LOGGER.info("database fragmentation measured in " + (System.currentTimeMillis() - start) + "ms: " + formatFragmentation(fragmentation));
+        return null;
+      }
+
+      // 3. zip it; the zip is written to a temporary file first, so an interrupted snapshot never replaces a good one
+      File zip = getSnapshotFile(backupFolder);
+      File tempZip = new File(tempFolder, zip.getName());
+      zip(compacted, tempZip, "snapshot from " + new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date()));
+      FileUtils.deleteQuietly(zip);
+      if (!tempZip.renameTo(zip)) {
+        FileUtils.moveFile(tempZip, zip);
+      }
+      lastSnapshot = new Date();
+      deleteOldSnapshots(backupFolder);
+
+      LOGGER.info("database snapshot " + zip + " created in " + (System.currentTimeMillis() - start) + "ms; fragmentation "
+          + formatFragmentation(fragmentation));
+      return zip;
+    }
+    catch (Exception e) {
+      LOGGER.error("could not create a database snapshot", e);
+      return null;
+    }
+    finally {
+      FileUtils.deleteQuietly(tempFolder);
+    }
+  }
+
+  /**
+   * the unused part of a database file
+   * 
+   * @param compactedSize
+   *          the size of the compacted copy
+   * @param size
+   *          the size of the database file
+   * @return the fragmentation (0..1) or -1 if the size is unknown
+   */
+  static double computeFragmentation(long compactedSize, long size) {
+    if (size <= 0) {
+      return -1;
+    }
+    return Math.max(0, 1 - (double) compactedSize / size);
+  }
+
+  private static String formatFragmentation(double fragmentation) {
+    return fragmentation < 0 ? "unknown" : String.format("%.0f%%", fragmentation * 100);
+  }
+
+  /**
+   * close the database; no snapshot will be taken afterwards. If the compaction is needed (or the fragmentation is unknown), the database is
+   * compacted into a fresh file which replaces the database file if it contains the same amount of entities (and the fragmentation was high
+   * enough, if the compaction has not been requested)
+   */
+  public void shutDown() {
+    synchronized (this) {
+      if (snapshotScheduler != null) {
+        snapshotScheduler.shutdownNow();
+        snapshotScheduler = null;
+      }
+    }
+    Map<String, Long> counts = null;
+    boolean required = isCompactOnShutdown();
+    // without a measurement the fresh file shows whether the compaction is worth it
+    boolean compact = required || fragmentation < 0;
+    databaseLock.lock();
+    try {
+      if (compact) {
+        counts = countEntities(entityManagerFactory);
+      }
+      entityManagerFactory.close();
+    }
+    catch (Exception e) {
+      LOGGER.warn("could not close the database: " + e.getMessage());
+      return;
+    }
+    finally {
+      databaseLock.unlock();
+    }
+
+    if (compact) {
+      compactDatabase(counts, required);
+    }
+  }
+
+  private void compactDatabase(Map<String, Long> expectedCounts, boolean required) {
+    long start = System.currentTimeMillis();
+    long oldSize = dbFile.length();
+    File compacted = new File(dbFile.getPath() + COMPACT_SUFFIX);
+    File old = new File(dbFile.getPath() + OLD_SUFFIX);
+    FileUtils.deleteQuietly(compacted);
+
+    if (!compact(dbFile, compacted)) {
+      FileUtils.deleteQuietly(compacted);
+      return;
+    }
+    if (!required) {
+      fragmentation = computeFragmentation(compacted.length(), oldSize);
+      if (fragmentation <= FRAGMENTATION_THRESHOLD) {
+        LOGGER.info("database fragmentation " + formatFragmentation(fragmentation) + " - no compaction needed");
+        FileUtils.deleteQuietly(compacted);
+        return;
+      }
+    }
+
+    // verify the new file before replacing the old one
+    try {
+      EntityManagerFactory emf = Persistence.createEntityManagerFactory(compacted.getPath());
+      try {
+        Map<String, Long> counts = countEntities(emf);
+        if (!counts.equals(expectedCounts)) {
+          LOGGER.error("compacted database differs (" + counts + " instead of " + expectedCounts + ") - keeping the old one");
+          FileUtils.deleteQuietly(compacted);
+          return;
+        }
+      }
+      finally {
+        emf.close();
+      }
+    }
+    catch (Exception e) {
+      LOGGER.error("could not verify the compacted database - keeping the old one", e);
+      FileUtils.deleteQuietly(compacted);
+      return;
+    }
+
+    // swap: db -> db.old, db.compact.odb -> db; the compacted file has been verified, so an interrupted swap is finished on the next start (see
+    // recover)
+    FileUtils.deleteQuietly(old);
+    if (!dbFile.renameTo(old)) {
+      LOGGER.error("could not swap the database file - keeping the old one");
+      FileUtils.deleteQuietly(compacted);
+      return;
+    }
+    if (!compacted.renameTo(dbFile)) {
+      LOGGER.error("could not swap the database file - restoring the old one");
+      old.renameTo(dbFile);
+      return;
+    }
+    FileUtils.deleteQuietly(old);
+    LOGGER.info("database compacted from " + FileUtils.byteCountToDisplaySize(oldSize) + " to " + FileUtils.byteCountToDisplaySize(dbFile.length())
+        + " in " + (System.currentTimeMillis() - start) + "ms");
+  }
+
+  /**
+   * finish/roll back an interrupted swap of the compacted database (to be called before the database is opened)
+   * <ul>
+   * <li>the database file exists: the compaction or its verification has been interrupted (or the swap has been finished) - the compacted file
+   * is dropped</li>
+   * <li>the database file is missing, but the compacted one exists: the swap has been interrupted after the old file has been moved away - the
+   * compacted file has been verified before, so the swap is finished</li>
+   * <li>only the old file exists: it is restored</li>
+   * </ul>
+   * 
+   * @param dbFile
+   *          the database file
+   */
+  public static void recover(File dbFile) {
+    File old = new File(dbFile.getPath() + OLD_SUFFIX);
+    File compacted = new File(dbFile.getPath() + COMPACT_SUFFIX);
+    if (!dbFile.exists() && old.exists()) {
+      if (compacted.exists() && compacted.renameTo(dbFile)) {
+        LOGGER.info("finishing an interrupted swap of the compacted database");
+      }
+      else {
+        LOGGER.warn("restoring the database file after an interrupted compaction");
+        old.renameTo(dbFile);
+      }
+    }
+    FileUtils.deleteQuietly(compacted);
+    if (dbFile.exists()) {
+      FileUtils.deleteQuietly(old);
+    }
+  }
+
+  /**
+   * copy the database into a fresh (compacted) file with the ObjectDB doctor
+   */
+  private static boolean compact(File source, File target) {
+    // the doctor writes its report to the console
+    try {
+      com.objectdb.Doctor.main(new String[] { source.getAbsolutePath(), target.getAbsolutePath() });
+    }
+    catch (Exception e) {
+      LOGGER.error("could not compact " + source, e);
+    }
+    return target.exists() && target.length() > 0;
+  }
+
+  private static Map<String, Long> countEntities(EntityManagerFactory emf) {
+    Map<String, Long> counts = new LinkedHashMap<String, Long>();
+    EntityManager entityManager = emf.createEntityManager();
+    try {
+      for (EntityType<?> type : emf.getMetamodel().getEntities()) {
+        Object count = entityManager.createQuery("SELECT COUNT(e) FROM " + type.getName() + " e").getSingleResult();
+        counts.put(type.getName(), ((Number) count).longValue());
+      }
+    }
+    finally {
+      entityManager.close();
+    }
+    return counts;
+  }
+
+  private static File findFile(File folder, String name) {
+    File[] files = folder.listFiles();
+    if (files == null) {
+      return null;
+    }
+    for (File file : files) {
+      if (file.isDirectory()) {
+        File found = findFile(file, name);
+        if (found != null) {
+          return found;
+        }
+      }
+      else if (file.getName().equals(name)) {
+        return file;
+      }
+    }
+    return null;
+  }
+
+  private static void zip(File file, File zip, String comment) throws IOException {
+    ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip));
+    InputStream in = null;
+    try {
+      zos.setComment(comment);
+      zos.putNextEntry(new ZipEntry(file.getName()));
+      in = new FileInputStream(file);
+      IOUtils.copy(in, zos);
+      zos.closeEntry();
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+      zos.close();
+    }
+  }
+
+  /**
+   * The class DatabaseStatistics. The size, growth, entity counts and fragmentation of the database.
+   * 
+   * @author Manuel Laggner
+   */
+  public static class DatabaseStatistics {
+    private final long              fileSize;
+    private final long              recoveryFileSize;
+    private final long              sizeAtStartup;
+    private final Map<String, Long> entityCounts;
+    private final double            fragmentation;
+    private final Date              lastSnapshot;
+
+    DatabaseStatistics(long fileSize, long recoveryFileSize, long sizeAtStartup, Map<String, Long> entityCounts, double fragmentation,
+        Date lastSnapshot) {
+      this.fileSize = fileSize;
+      this.recoveryFileSize = recoveryFileSize;
+      this.sizeAtStartup = sizeAtStartup;
+      this.entityCounts = entityCounts;
+      this.fragmentation = fragmentation;
+      this.lastSnapshot = lastSnapshot;
+    }
+
+    public long getFileSize() {
+      return fileSize;
+    }
+
+    public long getRecoveryFileSize() {
+      return recoveryFileSize;
+    }
+
+    /**
+     * the growth of the database file since tmm has been started
+     * 
+     * @return the growth in bytes
+     */
+    public long getGrowth() {
+      return fileSize - sizeAtStartup;
+    }
+
+    /**
+     * the amount of entities per entity class
+     * 
+     * @return the counts (empty if the database is closed)
+     */
+    public Map<String, Long> getEntityCounts() {
+      return entityCounts;
+    }
+
+    /**
+     * the unused part of the database file, measured with the last snapshot/measurement
+     * 
+     * @return the fragmentation (0..1) or -1 if it has not been measured yet
+     */
+    public double getFragmentation() {
+      return fragmentation;
+    }
+
+    public Date getLastSnapshot() {
+      return lastSnapshot;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append("size ").append(FileUtils.byteCountToDisplaySize(fileSize));
+      sb.append(" (growth ").append(getGrowth() / 1024).append("KB; recovery file ").append(recoveryFileSize / 1024).append("KB)");
+      sb.append("; fragmentation ").append(formatFragmentation(fragmentation));
+      sb.append("; entities:");
+      for (Entry<String, Long> entry : entityCounts.entrySet()) {
+        sb.append(" ").append(entry.getKey()).append("=").append(entry.getValue());
+      }
+      return sb.toString();
+    }
+  }
+}
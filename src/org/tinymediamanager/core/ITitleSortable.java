@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.text.CollationKey;
+
+/**
+ * The ITitleSortable interface for all entities which can be sorted by their sortable title
+ * 
+ * @author Manuel Laggner
+ */
+public interface ITitleSortable {
+
+  /**
+   * Returns the sortable variant of title<br>
+   * eg "The Bourne Legacy" -> "Bourne Legacy, The".
+   * 
+   * @return the title in its sortable format
+   */
+  public String getTitleSortable();
+
+  /**
+   * Returns the (cached) collation key of the sortable title; comparing two keys is the same as comparing the sortable titles with the collator
+   * 
+   * @return the collation key
+   */
+  public CollationKey getTitleSortKey();
+
+  /**
+   * clear the cached sortable title and collation key
+   */
+  public void clearTitleSortable();
+}
@@ -26,6 +26,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -55,8 +57,13 @@ import org.tinymediamanager.scraper.util.Url;
  * @author Manuel Laggner
  */
 public class ImageCache {
-  private static final Logger LOGGER    = LoggerFactory.getLogger(ImageCache.class);
-  public static final String  CACHE_DIR = "cache/image";
+  private static final Logger LOGGER            = LoggerFactory.getLogger(ImageCache.class);
+  public static final String  CACHE_DIR         = "cache/image";
+  public static final String  PREVIEW_CACHE_DIR = CACHE_DIR + "/preview";
+
+  private static Method       toPath            = null;
+  private static Method       createLink        = null;
+  private static boolean      linkChecked       = false;
 
   public enum CacheType {
     FAST, SMOOTH
@@ -97,6 +104,44 @@ public class ImageCache {
     }
   }
 
+  /**
+   * Gets the preview image (as shown in the image chooser) for the given url. Previews are cached on disk, so they only have to be downloaded once.
+   * 
+   * @param imageUrl
+   *          the url of the preview image
+   * @return the bytes of the preview image
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   * @throws InterruptedException
+   */
+  public static byte[] getPreviewImage(String imageUrl) throws IOException, InterruptedException {
+    File cacheDir = new File(PREVIEW_CACHE_DIR);
+    File cachedFile = new File(cacheDir, getCachedFileName(imageUrl));
+    if (cachedFile.exists() && cachedFile.length() > 0) {
+      return FileUtils.readFileToByteArray(cachedFile);
+    }
+
+    Url url = new Url(imageUrl);
+    byte[] bytes = url.getBytes();
+    if (bytes.length > 0 && !url.isFault()) {
+      // write to a temp file first, so that parallel readers never see a half written preview
+      try {
+        if (!cacheDir.exists()) {
+          cacheDir.mkdirs();
+        }
+        File tempFile = File.createTempFile(cachedFile.getName(), ".part", cacheDir);
+        FileUtils.writeByteArrayToFile(tempFile, bytes);
+        if (!tempFile.renameTo(cachedFile)) {
+          FileUtils.deleteQuietly(tempFile);
+        }
+      }
+      catch (IOException e) {
+        LOGGER.warn("could not cache preview image " + imageUrl + ": " + e.getMessage());
+      }
+    }
+    return bytes;
+  }
+
   /**
    * Scale image to fit in the given width.
    * 
@@ -177,6 +222,19 @@ public class ImageCache {
     File originalFile = mf.getFile();
     String cacheFilename = ImageCache.getCachedFileName(originalFile.getPath());
     File cachedFile = new File(ImageCache.getCacheDir(), cacheFilename + ".jpg");
+
+    // images with the same content share one thumbnail (per variant); the content is only hashed if the thumbnail has to be created
+    File sharedFile = null;
+    if (!cachedFile.exists()) {
+      String contentHash = ArtworkStore.getContentHash(originalFile);
+      if (contentHash != null) {
+        sharedFile = new File(ImageCache.getCacheDir(), contentHash + "-" + getThumbnailVariant(mf) + ".jpg");
+        if (sharedFile.exists()) {
+          linkOrCopy(sharedFile, cachedFile);
+        }
+      }
+    }
+
     if (!cachedFile.exists()) {
       // check if the original file exists && size > 0
       if (!originalFile.exists()) {
@@ -220,7 +278,7 @@ public class ImageCache {
       }
 
       // special handling for movieset-fanart or movieset-poster
-      if (mf.getFilename().startsWith("movieset-fanart") || mf.getFilename().startsWith("movieset-poster")) {
+      if (isMovieSetArtwork(mf)) {
         if (originalImage.getWidth() > 1000) {
           desiredWidth = 1000;
         }
@@ -273,6 +331,10 @@ public class ImageCache {
       output.flush();
       output.close();
       scaledImage = null;
+
+      if (sharedFile != null && !sharedFile.exists()) {
+        linkOrCopy(cachedFile, sharedFile);
+      }
     }
 
     if (!cachedFile.exists()) {
@@ -282,6 +344,67 @@ public class ImageCache {
     return cachedFile;
   }
 
+  /**
+   * the variant of the thumbnail of the given image; images with the same content and the same variant share one thumbnail
+   */
+  private static String getThumbnailVariant(MediaFile mf) {
+    String variant = mf.getType().name().toLowerCase();
+    if (isMovieSetArtwork(mf)) {
+      variant = "movieset-" + variant;
+    }
+    return variant;
+  }
+
+  private static boolean isMovieSetArtwork(MediaFile mf) {
+    return mf.getFilename().startsWith("movieset-fanart") || mf.getFilename().startsWith("movieset-poster");
+  }
+
+  /**
+   * link the thumbnail to the destination (copy it if hard links are not possible). Thumbnails are never modified - they are deleted and
+   * recreated - so a shared thumbnail is stored only once on disk
+   */
+  private static void linkOrCopy(File source, File destination) throws IOException {
+    if (!createHardLink(source, destination)) {
+      FileUtils.copyFile(source, destination);
+    }
+  }
+
+  /**
+   * hard links are available since Java 7 (java.nio.file.Files.createLink); we are compiled for Java 6, so use reflection
+   */
+  private static boolean createHardLink(File source, File destination) {
+    synchronized (ImageCache.class) {
+      if (!linkChecked) {
+        linkChecked = true;
+        try {
+          Class<?> pathClass = Class.forName("java.nio.file.Path");
+          Class<?> filesClass = Class.forName("java.nio.file.Files");
+          toPath = File.class.getMethod("toPath");
+          createLink = filesClass.getMethod("createLink", pathClass, pathClass);
+        }
+        catch (Exception e) {
+          LOGGER.debug("hard links are not supported by this JRE - copying thumbnails");
+        }
+      }
+    }
+    if (createLink == null) {
+      return false;
+    }
+
+    try {
+      createLink.invoke(null, toPath.invoke(destination), toPath.invoke(source));
+      return true;
+    }
+    catch (InvocationTargetException e) {
+      // not supported by the filesystem
+      LOGGER.trace("could not create hard link " + destination + ": " + e.getCause());
+    }
+    catch (Exception e) {
+      LOGGER.trace("could not create hard link " + destination + ": " + e.getMessage());
+    }
+    return false;
+  }
+
   private static boolean hasTransparentPixels(BufferedImage image) {
     for (int x = 0; x < image.getWidth(); x++) {
       for (int y = 0; y < image.getHeight(); y++) {
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.entities.MediaFile;
+
+/**
+ * The class LibraryIntegrityChecker. Checks whether the media files in the database are still on the filesystem. The media files are grouped by
+ * their directory, so every directory is only listed once (which makes a huge difference on network shares); the directories are checked in
+ * parallel.
+ * 
+ * @author Manuel Laggner
+ */
+public class LibraryIntegrityChecker {
+  private static final Logger              LOGGER      = LoggerFactory.getLogger(LibraryIntegrityChecker.class);
+
+  private final int                        threads;
+  private final Map<File, List<MediaFile>> directories = new LinkedHashMap<File, List<MediaFile>>();
+
+  public enum Status {
+    MISSING, // in the database, but not on the filesystem
+    CHANGED, // size or date on the filesystem differs from the database
+    NEW // on the filesystem (in a known directory), but not in the database
+  }
+
+  /**
+   * one finding of the integrity check
+   */
+  public static class Result {
+    private final Status    status;
+    private final File      file;
+    private final MediaFile mediaFile;
+
+    public Result(Status status, File file, MediaFile mediaFile) {
+      this.status = status;
+      this.file = file;
+      this.mediaFile = mediaFile;
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    /**
+     * the media file from the database (null for new files)
+     * 
+     * @return the media file or null
+     */
+    public MediaFile getMediaFile() {
+      return mediaFile;
+    }
+  }
+
+  /**
+   * create a new checker
+   * 
+   * @param threads
+   *          the maximum amount of directories to be checked in parallel
+   */
+  public LibraryIntegrityChecker(int threads) {
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * add media files to be checked
+   * 
+   * @param mediaFiles
+   *          the media files
+   */
+  public void addMediaFiles(Collection<MediaFile> mediaFiles) {
+    for (MediaFile mf : mediaFiles) {
+      File dir = mf.getFile().getAbsoluteFile().getParentFile();
+      List<MediaFile> mfs = directories.get(dir);
+      if (mfs == null) {
+        mfs = new ArrayList<MediaFile>();
+        directories.put(dir, mfs);
+      }
+      mfs.add(mf);
+    }
+  }
+
+  /**
+   * check all added media files against the filesystem
+   * 
+   * @return all findings (sorted by file)
+   * @throws InterruptedException
+   */
+  public List<Result> check() throws InterruptedException {
+    List<Result> results = new ArrayList<Result>();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, directories.size())));
+    try {
+      List<Future<List<Result>>> futures = new ArrayList<Future<List<Result>>>(directories.size());
+      for (final Map.Entry<File, List<MediaFile>> entry : directories.entrySet()) {
+        futures.add(executor.submit(new Callable<List<Result>>() {
+          @Override
+          public List<Result> call() throws Exception {
+            return checkDirectory(entry.getKey(), entry.getValue());
+          }
+        }));
+      }
+      for (Future<List<Result>> future : futures) {
+        try {
+          results.addAll(future.get());
+        }
+        catch (ExecutionException e) {
+          LOGGER.error("could not check directory", e.getCause());
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    Collections.sort(results, new Comparator<Result>() {
+      @Override
+      public int compare(Result o1, Result o2) {
+        return o1.getFile().compareTo(o2.getFile());
+      }
+    });
+    return results;
+  }
+
+  /**
+   * check all media files of one directory; the directory is only listed once. Unknown files are only reported if tmm would import them as media
+   * files
+   */
+  static List<Result> checkDirectory(File dir, List<MediaFile> mediaFiles) {
+    List<Result> results = new ArrayList<Result>();
+
+    Set<File> filesOnDisk = new HashSet<File>();
+    File[] list = dir.listFiles();
+    if (list != null) {
+      Collections.addAll(filesOnDisk, list);
+    }
+
+    for (MediaFile mf : mediaFiles) {
+      File file = new File(dir, mf.getFilename());
+      if (!filesOnDisk.remove(file)) {
+        results.add(new Result(Status.MISSING, mf.getFile(), mf));
+      }
+      else if (isChanged(mf, file)) {
+        results.add(new Result(Status.CHANGED, file, mf));
+      }
+    }
+
+    // everything left is unknown to the database
+    for (File file : filesOnDisk) {
+      if (file.isFile() && !file.isHidden() && new MediaFile(file).getType() != MediaFileType.UNKNOWN) {
+        results.add(new Result(Status.NEW, file, null));
+      }
+    }
+
+    return results;
+  }
+
+  /**
+   * compare size and date (if we know them); the date from mediainfo has only a resolution of seconds
+   */
+  private static boolean isChanged(MediaFile mf, File file) {
+    if (mf.getFilesize() > 0 && mf.getFilesize() != file.length()) {
+      return true;
+    }
+    if (mf.getFiledate() > 0 && mf.getFiledate() / 1000 != file.lastModified() / 1000) {
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * write the results as a tab separated report (status, path, size in db, size on disk, date in db, date on disk)
+   * 
+   * @param results
+   *          the results of the check
+   * @param writer
+   *          the writer to write the report to
+   * @throws IOException
+   */
+  public static void writeReport(List<Result> results, Writer writer) throws IOException {
+    writer.write("status\tpath\tdb_size\tfs_size\tdb_date\tfs_date\n");
+    for (Result result : results) {
+      MediaFile mf = result.getMediaFile();
+      File file = result.getFile();
+      boolean onDisk = result.getStatus() != Status.MISSING;
+
+      writer.write(result.getStatus().name());
+      writer.write("\t" + file.getAbsolutePath());
+      writer.write("\t" + (mf != null ? mf.getFilesize() : ""));
+      writer.write("\t" + (onDisk ? file.length() : ""));
+      writer.write("\t" + (mf != null ? mf.getFiledate() : ""));
+      writer.write("\t" + (onDisk ? file.lastModified() : ""));
+      writer.write("\n");
+    }
+    writer.flush();
+  }
+}
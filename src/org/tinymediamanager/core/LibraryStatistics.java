@@ -0,0 +1,386 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The class LibraryStatistics. Maintains the aggregates of a library (counts, flags, counts by value and the size on disk) incrementally: every
+ * entity contributes a sample which is taken again when the entity changes; only the difference to the former sample is applied. So all queries
+ * are independent of the size of the library.<br>
+ * <br>
+ * Threading: the statistics observe the entities with synchronous property change listeners, so a change is applied in the thread firing it
+ * (guarded by the lock of the statistics) and every query from any thread sees all changes fired before. Neither updates nor queries wait for
+ * the EDT; taking a sample must not take any other lock.
+ * 
+ * @author Manuel Laggner
+ */
+public abstract class LibraryStatistics<T extends AbstractModelObject> {
+  /** the entity has not been scraped yet */
+  public static final String                      UNSCRAPED       = "unscraped";
+  /** the entity has been added by the last update of the data sources */
+  public static final String                      NEWLY_ADDED     = "newlyAdded";
+  /** the entity misses artwork (poster/fanart of a movie, thumb of an episode) */
+  public static final String                      MISSING_ARTWORK = "missingArtwork";
+  /** the entity has been watched */
+  public static final String                      WATCHED         = "watched";
+  /** counts by video format (i.e. 720p) */
+  public static final String                      VIDEO_FORMAT    = "videoFormat";
+  /** counts by video codec */
+  public static final String                      VIDEO_CODEC     = "videoCodec";
+  /** counts by audio codec */
+  public static final String                      AUDIO_CODEC     = "audioCodec";
+
+  private final Map<T, Sample>                    samples         = new IdentityHashMap<T, Sample>();
+  private final Map<String, Set<T>>               flagged         = new HashMap<String, Set<T>>();
+  private final Map<String, Map<String, Integer>> counts          = new HashMap<String, Map<String, Integer>>();
+  private final PropertyChangeListener            listener;
+  private long                                    totalSize       = 0;
+
+  /**
+   * create new (empty) statistics
+   */
+  public LibraryStatistics() {
+    listener = new PropertyChangeListener() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        update((T) evt.getSource());
+      }
+    };
+  }
+
+  /**
+   * take the sample of an entity
+   * 
+   * @param entity
+   *          the entity
+   * @param sample
+   *          the sample to fill
+   */
+  protected abstract void collect(T entity, Sample sample);
+
+  /**
+   * add an entity; it is observed for changes until it is removed
+   * 
+   * @param entity
+   *          the entity
+   */
+  public void add(T entity) {
+    synchronized (this) {
+      if (samples.containsKey(entity)) {
+        return;
+      }
+      // observe before sampling: a change in between is either in the sample or updates it
+      entity.addSynchronousPropertyChangeListener(listener);
+      Sample sample = sample(entity);
+      samples.put(entity, sample);
+      apply(entity, sample, 1);
+    }
+  }
+
+  /**
+   * remove an entity
+   * 
+   * @param entity
+   *          the entity
+   */
+  public void remove(T entity) {
+    entity.removeSynchronousPropertyChangeListener(listener);
+    synchronized (this) {
+      Sample sample = samples.remove(entity);
+      if (sample != null) {
+        apply(entity, sample, -1);
+      }
+    }
+  }
+
+  /**
+   * take the sample of an entity again (entities are updated automatically on every property change)
+   * 
+   * @param entity
+   *          the entity
+   */
+  public synchronized void update(T entity) {
+    Sample oldSample = samples.get(entity);
+    if (oldSample == null) {
+      // already removed
+      return;
+    }
+    Sample newSample = sample(entity);
+    if (newSample.equals(oldSample)) {
+      return;
+    }
+    samples.put(entity, newSample);
+    apply(entity, oldSample, -1);
+    apply(entity, newSample, 1);
+  }
+
+  /**
+   * remove all entities
+   */
+  public void clear() {
+    List<T> entities;
+    synchronized (this) {
+      entities = new ArrayList<T>(samples.keySet());
+      samples.clear();
+      flagged.clear();
+      counts.clear();
+      totalSize = 0;
+    }
+    for (T entity : entities) {
+      entity.removeSynchronousPropertyChangeListener(listener);
+    }
+  }
+
+  /**
+   * get the amount of entities
+   * 
+   * @return the amount of entities
+   */
+  public int getCount() {
+    synchronized (this) {
+      return samples.size();
+    }
+  }
+
+  /**
+   * get the amount of entities with the given flag
+   * 
+   * @param flag
+   *          the flag (i.e. UNSCRAPED)
+   * @return the amount of entities
+   */
+  public int getCount(String flag) {
+    synchronized (this) {
+      Set<T> entities = flagged.get(flag);
+      return entities == null ? 0 : entities.size();
+    }
+  }
+
+  /**
+   * get the entities with the given flag
+   * 
+   * @param flag
+   *          the flag (i.e. NEWLY_ADDED)
+   * @return a new list of the entities (in the order they got the flag)
+   */
+  public List<T> getEntities(String flag) {
+    synchronized (this) {
+      Set<T> entities = flagged.get(flag);
+      return entities == null ? new ArrayList<T>(0) : new ArrayList<T>(entities);
+    }
+  }
+
+  /**
+   * has the given entity the given flag
+   * 
+   * @param entity
+   *          the entity
+   * @param flag
+   *          the flag (i.e. MISSING_ARTWORK)
+   * @return true/false (false for entities which are not in the statistics)
+   */
+  public boolean isFlagged(T entity, String flag) {
+    synchronized (this) {
+      Sample sample = samples.get(entity);
+      return sample != null && sample.flags.contains(flag);
+    }
+  }
+
+  /**
+   * has the given entity the given value in a group
+   * 
+   * @param entity
+   *          the entity
+   * @param group
+   *          the group (i.e. AUDIO_CODEC)
+   * @param value
+   *          the value
+   * @return true/false (false for entities which are not in the statistics)
+   */
+  public boolean hasValue(T entity, String group, String value) {
+    synchronized (this) {
+      Sample sample = samples.get(entity);
+      if (sample == null) {
+        return false;
+      }
+      Set<String> values = sample.values.get(group);
+      return values != null && values.contains(StringUtils.defaultString(value));
+    }
+  }
+
+  /**
+   * get the counts by value of a group
+   * 
+   * @param group
+   *          the group (i.e. VIDEO_FORMAT)
+   * @return a new sorted map value -> amount of entities with this value (entities without a value are counted as "")
+   */
+  public Map<String, Integer> getCounts(String group) {
+    synchronized (this) {
+      Map<String, Integer> values = counts.get(group);
+      return values == null ? new TreeMap<String, Integer>() : new TreeMap<String, Integer>(values);
+    }
+  }
+
+  /**
+   * get the size of all files of all entities
+   * 
+   * @return the size in bytes
+   */
+  public long getTotalSize() {
+    synchronized (this) {
+      return totalSize;
+    }
+  }
+
+  /**
+   * the aggregates as a human readable string (for tooltips and logging)
+   */
+  @Override
+  public String toString() {
+    synchronized (this) {
+      StringBuilder sb = new StringBuilder();
+      sb.append(samples.size()).append(" entities; ").append(FileUtils.byteCountToDisplaySize(totalSize));
+      for (Entry<String, Set<T>> entry : new TreeMap<String, Set<T>>(flagged).entrySet()) {
+        sb.append("; ").append(entry.getKey()).append(": ").append(entry.getValue().size());
+      }
+      for (Entry<String, Map<String, Integer>> entry : new TreeMap<String, Map<String, Integer>>(counts).entrySet()) {
+        sb.append("; ").append(entry.getKey()).append(": ").append(new TreeMap<String, Integer>(entry.getValue()));
+      }
+      return sb.toString();
+    }
+  }
+
+  private Sample sample(T entity) {
+    Sample sample = new Sample();
+    collect(entity, sample);
+    return sample;
+  }
+
+  private void apply(T entity, Sample sample, int sign) {
+    totalSize += sign * sample.size;
+
+    for (String flag : sample.flags) {
+      Set<T> entities = flagged.get(flag);
+      if (entities == null) {
+        entities = new LinkedHashSet<T>();
+        flagged.put(flag, entities);
+      }
+      if (sign > 0) {
+        entities.add(entity);
+      }
+      else {
+        entities.remove(entity);
+      }
+    }
+
+    for (Entry<String, Set<String>> entry : sample.values.entrySet()) {
+      Map<String, Integer> values = counts.get(entry.getKey());
+      if (values == null) {
+        values = new HashMap<String, Integer>();
+        counts.put(entry.getKey(), values);
+      }
+      for (String value : entry.getValue()) {
+        Integer count = values.get(value);
+        int newCount = (count == null ? 0 : count) + sign;
+        if (newCount > 0) {
+          values.put(value, newCount);
+        }
+        else {
+          values.remove(value);
+        }
+      }
+    }
+  }
+
+  /**
+   * The class Sample. The contribution of one entity to the aggregates.
+   * 
+   * @author Manuel Laggner
+   */
+  public static class Sample {
+    private final Set<String>              flags  = new LinkedHashSet<String>(4);
+    private final Map<String, Set<String>> values = new HashMap<String, Set<String>>(4);
+    private long                           size   = 0;
+
+    /**
+     * set a flag
+     * 
+     * @param flag
+     *          the flag
+     */
+    public void flag(String flag) {
+      flags.add(flag);
+    }
+
+    /**
+     * add a value of a group; an entity may have several values in a group (i.e. the codecs of all audio streams)
+     * 
+     * @param group
+     *          the group
+     * @param value
+     *          the value (null is counted as "")
+     */
+    public void value(String group, String value) {
+      Set<String> groupValues = values.get(group);
+      if (groupValues == null) {
+        groupValues = new LinkedHashSet<String>(2);
+        values.put(group, groupValues);
+      }
+      groupValues.add(StringUtils.defaultString(value));
+    }
+
+    /**
+     * add to the size on disk
+     * 
+     * @param size
+     *          the size in bytes
+     */
+    public void addSize(long size) {
+      this.size += size;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Sample)) {
+        return false;
+      }
+      Sample other = (Sample) obj;
+      return size == other.size && flags.equals(other.flags) && values.equals(other.values);
+    }
+
+    @Override
+    public int hashCode() {
+      return flags.hashCode() ^ values.hashCode() ^ (int) size;
+    }
+  }
+}
@@ -91,21 +91,34 @@ public class MediaEntityImageFetcherTask implements Runnable {
         }
 
         // fetch and store images
-        if (!sameFile) {
+        if (!sameFile && url.startsWith("http")) {
+          // the same image is often written with several names (or for several entities) - download it only once
+          ArtworkStore.writeArtwork(url, new File(entity.getPath(), filename));
+        }
+        else if (!sameFile) {
           Url url1 = new Url(url);
+          url1.setBulkTransfer(true);
           File tempFile = new File(entity.getPath(), filename + ".part");
-          FileOutputStream outputStream = new FileOutputStream(tempFile);
-          InputStream is = url1.getInputStream();
-          IOUtils.copy(is, outputStream);
-          outputStream.flush();
+          // stream the image directly to the disk
+          InputStream is = url1.getInputStream(true);
+          FileOutputStream outputStream = null;
           try {
-            outputStream.getFD().sync(); // wait until file has been completely written
+            outputStream = new FileOutputStream(tempFile);
+            if (is != null) {
+              IOUtils.copy(is, outputStream);
+            }
+            outputStream.flush();
+            try {
+              outputStream.getFD().sync(); // wait until file has been completely written
+            }
+            catch (Exception e) {
+              // empty here -> just not let the thread crash
+            }
           }
-          catch (Exception e) {
-            // empty here -> just not let the thread crash
+          finally {
+            IOUtils.closeQuietly(outputStream);
+            IOUtils.closeQuietly(is);
           }
-          outputStream.close();
-          is.close();
 
           // check if the file has been downloaded
           if (!tempFile.exists() || tempFile.length() == 0) {
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.entities.MediaEntity;
+import org.tinymediamanager.core.entities.MediaFile;
+
+/**
+ * The class MediaFileInformationReloader. Reloads the media information of many media entities. In the change aware mode only the files which
+ * have been changed since the last analysis are analyzed again (see MediaFile.isMediaInformationOutdated()). The entities of one device are
+ * processed one after another (parallel access to the same disk only causes seeks); different devices are processed in parallel.
+ * 
+ * @author Manuel Laggner
+ */
+public class MediaFileInformationReloader {
+  private static final Logger                  LOGGER           = LoggerFactory.getLogger(MediaFileInformationReloader.class);
+  /** the maximum amount of devices which are processed in parallel */
+  public static final int                      MAX_THREADS      = 4;
+  private static List<String>                  mountPoints      = null;
+
+  private final boolean                        onlyChanged;
+  private final Map<String, List<MediaEntity>> entitiesByDevice = new LinkedHashMap<String, List<MediaEntity>>();
+  private final AtomicInteger                  analyzedFiles    = new AtomicInteger();
+  private final AtomicInteger                  unchangedFiles   = new AtomicInteger();
+
+  /**
+   * create a new reloader
+   * 
+   * @param onlyChanged
+   *          analyze only files which have been changed since the last analysis (otherwise all files are analyzed)
+   */
+  public MediaFileInformationReloader(boolean onlyChanged) {
+    this.onlyChanged = onlyChanged;
+  }
+
+  /**
+   * add an entity whose media files should be reloaded
+   * 
+   * @param entity
+   *          the entity
+   */
+  public void add(MediaEntity entity) {
+    String device = getDevice(new File(entity.getPath()));
+    List<MediaEntity> entities = entitiesByDevice.get(device);
+    if (entities == null) {
+      entities = new ArrayList<MediaEntity>();
+      entitiesByDevice.put(device, entities);
+    }
+    entities.add(entity);
+  }
+
+  /**
+   * the amount of threads needed: one per device (but not more than MAX_THREADS)
+   * 
+   * @return the amount of threads
+   */
+  public int getThreadCount() {
+    return Math.max(1, Math.min(MAX_THREADS, entitiesByDevice.size()));
+  }
+
+  /**
+   * create the tasks (one per entity) in the order they should be submitted: the devices take turns, so the worker threads process different
+   * devices. A task waits if another task of the same device is running
+   * 
+   * @return the tasks
+   */
+  public List<Callable<Object>> createTasks() {
+    List<Iterator<MediaEntity>> devices = new ArrayList<Iterator<MediaEntity>>();
+    List<Lock> locks = new ArrayList<Lock>();
+    for (List<MediaEntity> entities : entitiesByDevice.values()) {
+      // in the order of the paths - the files of one folder are usually stored close together
+      Collections.sort(entities, new Comparator<MediaEntity>() {
+        @Override
+        public int compare(MediaEntity o1, MediaEntity o2) {
+          return o1.getPath().compareTo(o2.getPath());
+        }
+      });
+      devices.add(entities.iterator());
+      locks.add(new ReentrantLock(true));
+    }
+
+    List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+    boolean added = true;
+    while (added) {
+      added = false;
+      for (int i = 0; i < devices.size(); i++) {
+        if (devices.get(i).hasNext()) {
+          tasks.add(new ReloadTask(devices.get(i).next(), locks.get(i)));
+          added = true;
+        }
+      }
+    }
+
+    LOGGER.debug("reloading media information of " + tasks.size() + " entities on " + entitiesByDevice.size() + " device(s): "
+        + entitiesByDevice.keySet());
+    return tasks;
+  }
+
+  /**
+   * get the amount of analyzed and skipped files as a human readable string
+   * 
+   * @return the summary
+   */
+  public String getSummary() {
+    return analyzedFiles.get() + " files analyzed, " + unchangedFiles.get() + " unchanged files skipped";
+  }
+
+  /**
+   * get the device (drive, share or mount point) a file is stored on
+   * 
+   * @param file
+   *          the file
+   * @return the name of the device
+   */
+  public static String getDevice(File file) {
+    return getDevice(file.getAbsolutePath(), getMountPoints());
+  }
+
+  static String getDevice(String path, List<String> mountPoints) {
+    // windows: UNC share or drive letter
+    if (path.startsWith("\\\\")) {
+      String[] parts = path.substring(2).split("\\\\");
+      return "\\\\" + parts[0] + (parts.length > 1 ? "\\" + parts[1] : "");
+    }
+    if (path.length() >= 2 && path.charAt(1) == ':') {
+      return path.substring(0, 2).toUpperCase(Locale.ROOT);
+    }
+
+    // unix: the longest mount point which contains the file
+    for (String mountPoint : mountPoints) {
+      if (path.equals(mountPoint) || path.startsWith(mountPoint.endsWith("/") ? mountPoint : mountPoint + "/")) {
+        return mountPoint;
+      }
+    }
+
+    // OSX (no mount table): the volumes are mounted in /Volumes
+    if (path.startsWith("/Volumes/")) {
+      int index = path.indexOf('/', 9);
+      return index > 0 ? path.substring(0, index) : path;
+    }
+    return "/";
+  }
+
+  /**
+   * the mount points of the system (longest first); empty if there is no mount table
+   */
+  private static synchronized List<String> getMountPoints() {
+    if (mountPoints == null) {
+      mountPoints = new ArrayList<String>();
+      File mounts = new File("/proc/mounts");
+      if (mounts.exists()) {
+        try {
+          for (String line : FileUtils.readLines(mounts, "UTF-8")) {
+            String[] fields = line.split(" ");
+            if (fields.length > 1) {
+              // spaces and tabs are escaped octal
+              mountPoints.add(fields[1].replace("\\040", " ").replace("\\011", "\t"));
+            }
+          }
+        }
+        catch (IOException e) {
+          LOGGER.warn("could not read the mount points: " + e.getMessage());
+        }
+      }
+      Collections.sort(mountPoints, new Comparator<String>() {
+        @Override
+        public int compare(String o1, String o2) {
+          return o2.length() - o1.length();
+        }
+      });
+    }
+    return mountPoints;
+  }
+
+  private class ReloadTask implements Callable<Object> {
+    private final MediaEntity entity;
+    private final Lock        deviceLock;
+
+    private ReloadTask(MediaEntity entity, Lock deviceLock) {
+      this.entity = entity;
+      this.deviceLock = deviceLock;
+    }
+
+    @Override
+    public Object call() throws Exception {
+      deviceLock.lock();
+      try {
+        List<MediaFile> mediaFiles = new ArrayList<MediaFile>(entity.getMediaFiles());
+        if (onlyChanged) {
+          boolean fingerprinted = false;
+          for (Iterator<MediaFile> it = mediaFiles.iterator(); it.hasNext();) {
+            MediaFile mediaFile = it.next();
+            if (!mediaFile.isMediaInformationOutdated()) {
+              it.remove();
+              unchangedFiles.incrementAndGet();
+              // the first check after gathering takes the fingerprint, so the next reload detects a change with the same size/date too
+              fingerprinted |= mediaFile.recordMediaInformationFingerprint();
+            }
+          }
+          if (mediaFiles.isEmpty()) {
+            if (fingerprinted) {
+              entity.saveToDb();
+            }
+            return "unchanged: " + entity.getTitle();
+          }
+        }
+        analyzedFiles.addAndGet(mediaFiles.size());
+        return new MediaFileInformationFetcherTask(mediaFiles, entity, true).call();
+      }
+      finally {
+        deviceLock.unlock();
+      }
+    }
+  }
+}
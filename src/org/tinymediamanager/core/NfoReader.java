@@ -0,0 +1,397 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.scraper.util.ParserUtils;
+
+/**
+ * The class NfoReader. Reads NFO files with a streaming (StAX) parser in one pass: only the wanted elements below the root element are kept;
+ * everything else is skipped. Malformed documents do not fail the read - all elements up to the first error are kept. Bare ampersands (e.g. in
+ * trailer urls) and unknown entities are escaped before parsing, since they are the most common reason for broken NFOs. The parser factories are
+ * kept per thread, so many NFOs can be read in parallel without creating a new factory for every file.
+ * 
+ * @author Manuel Laggner
+ */
+public class NfoReader {
+  private static final Logger                       LOGGER   = LoggerFactory.getLogger(NfoReader.class);
+  private static final Set<String>                  ENTITIES = new HashSet<String>(Arrays.asList("amp", "lt", "gt", "quot", "apos"));
+  private static final ThreadLocal<XMLInputFactory> FACTORY  = new ThreadLocal<XMLInputFactory>() {
+                                                               @Override
+                                                               protected XMLInputFactory initialValue() {
+                                                                 return createFactory();
+                                                               }
+                                                             };
+
+  private NfoReader() {
+  }
+
+  private static XMLInputFactory createFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    return factory;
+  }
+
+  /**
+   * read the NFO file
+   * 
+   * @param nfoFile
+   *          the NFO file (read as UTF-8)
+   * @param elements
+   *          the names of the elements below the root element which should be kept (null for all)
+   * @return the document (never null; the root element is null if the file does not contain any XML)
+   * @throws IOException
+   *           if the file could not be read
+   */
+  public static Document read(File nfoFile, Set<String> elements) throws IOException {
+    return parse(FileUtils.readFileToString(nfoFile, "UTF-8"), elements, nfoFile.getAbsolutePath());
+  }
+
+  /**
+   * parse the content of a NFO file
+   * 
+   * @param content
+   *          the content
+   * @param elements
+   *          the names of the elements below the root element which should be kept (null for all)
+   * @param name
+   *          the name of the NFO (for logging)
+   * @return the document (never null; the root element is null if the content does not contain any XML)
+   */
+  public static Document parse(String content, Set<String> elements, String name) {
+    Document document = new Document(content, name);
+
+    // skip everything before the first tag (BOM, garbage, links, ...)
+    int start = content.indexOf('<');
+    if (start < 0) {
+      return document;
+    }
+
+    XMLStreamReader reader = null;
+    List<Element> stack = new ArrayList<Element>();
+    int skipDepth = 0;
+    try {
+      reader = FACTORY.get().createXMLStreamReader(new StringReader(escapeAmpersands(content, start)));
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          if (skipDepth > 0 || (stack.size() == 1 && elements != null && !elements.contains(reader.getLocalName()))) {
+            skipDepth++;
+            continue;
+          }
+          Element element = new Element(reader.getLocalName());
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+          }
+          stack.add(element);
+        }
+        else if (event == XMLStreamConstants.END_ELEMENT) {
+          if (skipDepth > 0) {
+            skipDepth--;
+            continue;
+          }
+          Element element = stack.remove(stack.size() - 1);
+          if (stack.isEmpty()) {
+            // the root element is complete; ignore everything after it
+            document.root = element;
+            document.complete = true;
+            break;
+          }
+          stack.get(stack.size() - 1).addChild(element);
+        }
+        else if (skipDepth == 0 && !stack.isEmpty()
+            && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE)) {
+          stack.get(stack.size() - 1).appendText(reader.getText());
+        }
+      }
+    }
+    catch (XMLStreamException e) {
+      LOGGER.debug("malformed NFO " + name + " - using all elements before: " + e.getMessage());
+    }
+    finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        }
+        catch (XMLStreamException ignored) {
+        }
+      }
+    }
+
+    // malformed: keep all completed elements of the root element
+    if (document.root == null && !stack.isEmpty()) {
+      document.root = stack.get(0);
+    }
+    return document;
+  }
+
+  /**
+   * read a map which has been written by JAXB (entry elements with a key and a value; the type of the value is in the xsi:type attribute)
+   * 
+   * @param element
+   *          the element containing the entries
+   * @return the map (only int and string values are supported)
+   */
+  public static Map<String, Object> readMap(Element element) {
+    Map<String, Object> map = new HashMap<String, Object>();
+    for (Element entry : element.getChildren()) {
+      Element key = entry.getChild("key");
+      Element value = entry.getChild("value");
+      if (key == null || value == null) {
+        continue;
+      }
+      String type = value.getAttribute("type");
+      if (type != null && (type.endsWith(":int") || type.endsWith(":integer"))) {
+        try {
+          map.put(key.getText().trim(), Integer.valueOf(value.getText().trim()));
+        }
+        catch (NumberFormatException e) {
+          LOGGER.debug("invalid int value for " + key.getText() + ": " + value.getText());
+        }
+      }
+      else {
+        map.put(key.getText().trim(), value.getText());
+      }
+    }
+    return map;
+  }
+
+  /**
+   * escape all ampersands which do not start a character reference or one of the predefined entities
+   */
+  private static String escapeAmpersands(String content, int start) {
+    StringBuilder sb = null;
+    int copied = start;
+    int index = content.indexOf('&', start);
+    while (index >= 0) {
+      if (!isReference(content, index)) {
+        if (sb == null) {
+          sb = new StringBuilder(content.length() + 16);
+        }
+        sb.append(content, copied, index + 1).append("amp;");
+        copied = index + 1;
+      }
+      index = content.indexOf('&', index + 1);
+    }
+    if (sb == null) {
+      return start == 0 ? content : content.substring(start);
+    }
+    sb.append(content, copied, content.length());
+    return sb.toString();
+  }
+
+  private static boolean isReference(String content, int index) {
+    int end = content.indexOf(';', index);
+    if (end < 0 || end - index > 10) {
+      return false;
+    }
+    String reference = content.substring(index + 1, end);
+    if (reference.startsWith("#x")) {
+      return reference.length() > 2 && reference.substring(2).matches("[0-9a-fA-F]+");
+    }
+    if (reference.startsWith("#")) {
+      return reference.length() > 1 && reference.substring(1).matches("[0-9]+");
+    }
+    return ENTITIES.contains(reference);
+  }
+
+  /**
+   * The class Document. The result of reading a NFO file.
+   * 
+   * @author Manuel Laggner
+   */
+  public static class Document {
+    private final String content;
+    private final String name;
+    private Element      root     = null;
+    private boolean      complete = false;
+
+    private Document(String content, String name) {
+      this.content = content;
+      this.name = name;
+    }
+
+    /**
+     * get the name of the NFO (for logging)
+     * 
+     * @return the name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * get the root element
+     * 
+     * @return the root element or null if the content does not contain any XML
+     */
+    public Element getRoot() {
+      return root;
+    }
+
+    /**
+     * was the whole root element parsed without any error
+     * 
+     * @return true/false
+     */
+    public boolean isComplete() {
+      return complete;
+    }
+
+    /**
+     * get the raw content of the NFO
+     * 
+     * @return the content
+     */
+    public String getContent() {
+      return content;
+    }
+
+    /**
+     * search an IMDB id anywhere in the content (for NFOs which are no valid XML)
+     * 
+     * @return the IMDB id or an empty string
+     */
+    public String detectImdbId() {
+      return ParserUtils.detectImdbId(content);
+    }
+  }
+
+  /**
+   * The class Element. One element of a NFO file with its attributes, text and child elements.
+   * 
+   * @author Manuel Laggner
+   */
+  public static class Element {
+    private final String        name;
+    private StringBuilder       text       = null;
+    private Map<String, String> attributes = null;
+    private List<Element>       children   = null;
+
+    private Element(String name) {
+      this.name = name;
+    }
+
+    private void appendText(String value) {
+      if (text == null) {
+        text = new StringBuilder(value.length());
+      }
+      text.append(value);
+    }
+
+    private void setAttribute(String key, String value) {
+      if (attributes == null) {
+        attributes = new HashMap<String, String>(2);
+      }
+      // namespaces are not resolved; strip the prefix (e.g. xsi:type)
+      attributes.put(key.substring(key.indexOf(':') + 1), value);
+    }
+
+    private void addChild(Element child) {
+      if (children == null) {
+        children = new ArrayList<Element>();
+      }
+      children.add(child);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * get the text of this element (without the text of the child elements)
+     * 
+     * @return the text (empty string if there is no text)
+     */
+    public String getText() {
+      return text == null ? "" : text.toString();
+    }
+
+    /**
+     * get the value of an attribute
+     * 
+     * @param key
+     *          the name of the attribute (without a namespace prefix)
+     * @return the value or null
+     */
+    public String getAttribute(String key) {
+      return attributes == null ? null : attributes.get(key);
+    }
+
+    /**
+     * get all child elements in document order
+     * 
+     * @return the child elements (may be empty, but never null)
+     */
+    public List<Element> getChildren() {
+      if (children == null) {
+        return Collections.emptyList();
+      }
+      return children;
+    }
+
+    /**
+     * get the last child element with the given name
+     * 
+     * @param childName
+     *          the name of the child element
+     * @return the child element or null
+     */
+    public Element getChild(String childName) {
+      Element element = null;
+      for (Element child : getChildren()) {
+        if (child.name.equals(childName)) {
+          element = child;
+        }
+      }
+      return element;
+    }
+
+    /**
+     * get the text of the last child element with the given name (a repeated single value element overwrites the former ones)
+     * 
+     * @param childName
+     *          the name of the child element
+     * @return the text or null if there is no such child
+     */
+    public String getChildText(String childName) {
+      Element child = getChild(childName);
+      return child == null ? null : child.getText();
+    }
+  }
+}
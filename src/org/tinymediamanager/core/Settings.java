@@ -146,6 +146,9 @@ public class Settings extends AbstractModelObject {
   private String                      fontFamily                  = "Dialog";
 
   private boolean                     deleteTrashOnExit           = false;
+  private boolean                     compactDatabaseOnExit       = false;
+  // kB/s; 0 = unlimited
+  private int                         maximumDownloadSpeed        = 0;
 
   private PropertyChangeListener      propertyChangeListener;
 
@@ -1077,4 +1080,41 @@ public class Settings extends AbstractModelObject {
   public boolean isDeleteTrashOnExit() {
     return deleteTrashOnExit;
   }
+
+  /**
+   * compact the database on every exit (otherwise only if too much of the database file is unused)
+   * 
+   * @param newValue
+   *          true/false
+   */
+  public void setCompactDatabaseOnExit(boolean newValue) {
+    boolean oldValue = compactDatabaseOnExit;
+    compactDatabaseOnExit = newValue;
+    firePropertyChange("compactDatabaseOnExit", oldValue, newValue);
+  }
+
+  public boolean isCompactDatabaseOnExit() {
+    return compactDatabaseOnExit;
+  }
+
+  /**
+   * set the maximum transfer rate of all (trailer) downloads
+   * 
+   * @param newValue
+   *          the maximum transfer rate in kB/s (0 for no limit)
+   */
+  public void setMaximumDownloadSpeed(int newValue) {
+    int oldValue = maximumDownloadSpeed;
+    maximumDownloadSpeed = newValue;
+    firePropertyChange("maximumDownloadSpeed", oldValue, newValue);
+  }
+
+  /**
+   * get the maximum transfer rate of all (trailer) downloads
+   * 
+   * @return the maximum transfer rate in kB/s (0 for no limit)
+   */
+  public int getMaximumDownloadSpeed() {
+    return maximumDownloadSpeed;
+  }
 }
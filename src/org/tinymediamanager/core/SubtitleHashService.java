@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.entities.MediaFile;
+
+/**
+ * The class SubtitleHashService. Computes the OpenSubtitles and SubDB hashes of many video files in parallel. The hashes are stored in the media
+ * files and only computed again if the size or date of a file changes.
+ * 
+ * @author Manuel Laggner
+ */
+public class SubtitleHashService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SubtitleHashService.class);
+
+  private final int           threads;
+
+  /**
+   * create a new hash service
+   * 
+   * @param threads
+   *          the maximum amount of files to be hashed in parallel
+   */
+  public SubtitleHashService(int threads) {
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * compute the hashes of all video files which have no up to date hashes yet
+   * 
+   * @param mediaFiles
+   *          the media files (other than video files are ignored)
+   * @return the amount of files which have been hashed
+   * @throws InterruptedException
+   */
+  public int computeHashes(Collection<MediaFile> mediaFiles) throws InterruptedException {
+    List<MediaFile> toHash = new ArrayList<MediaFile>();
+    for (MediaFile mf : mediaFiles) {
+      if (mf.getType() == MediaFileType.VIDEO && !mf.isSubtitleHashUpToDate()) {
+        toHash.add(mf);
+      }
+    }
+    if (toHash.isEmpty()) {
+      return 0;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, toHash.size()));
+    try {
+      List<Future<Object>> futures = new ArrayList<Future<Object>>(toHash.size());
+      for (final MediaFile mf : toHash) {
+        futures.add(executor.submit(new Callable<Object>() {
+          @Override
+          public Object call() throws Exception {
+            mf.computeSubtitleHashes();
+            return null;
+          }
+        }));
+      }
+      for (Future<Object> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          LOGGER.error("could not hash file", e.getCause());
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    LOGGER.debug("computed subtitle hashes of " + toHash.size() + " files");
+    return toHash.size();
+  }
+}
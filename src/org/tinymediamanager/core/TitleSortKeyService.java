@@ -0,0 +1,248 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class TitleSortKeyService. Creates the sortable titles and their collation keys. The regular expressions for the title prefixes are only
+ * compiled once (and again if the prefixes in the settings change); the collation keys are cached in the entities, so sorting is a pure
+ * comparison of the precomputed keys.
+ * 
+ * @author Manuel Laggner
+ */
+public class TitleSortKeyService {
+  private static final Logger                    LOGGER       = LoggerFactory.getLogger(TitleSortKeyService.class);
+  private static final Pattern                   DIE_HARD     = Pattern.compile("^die hard$|^die hard[:\\s].*");
+  private static final Pattern                   PREFIX_DELIM = Pattern.compile(".*['`´]$");
+  private static final Pattern                   LITERAL      = Pattern.compile("[\\p{L}\\p{N}'`´ ]+");
+  private static final int                       CHUNK_SIZE   = 1000;
+  private static final Collator                  COLLATOR     = Collator.getInstance();
+  private static final ThreadLocal<Collator>     COLLATORS    = new CollatorThreadLocal();
+  public static final Comparator<ITitleSortable> COMPARATOR   = new TitleSortKeyComparator();
+
+  private static volatile PrefixRules            rules;
+
+  private TitleSortKeyService() {
+  }
+
+  /**
+   * Returns the sortable variant of title/originaltitle<br>
+   * eg "The Bourne Legacy" -> "Bourne Legacy, The".
+   * 
+   * @param title
+   *          the title
+   * @return the title/originaltitle in its sortable format
+   */
+  public static String getSortableName(String title) {
+    if (title == null || title.isEmpty()) {
+      return "";
+    }
+    if (title.regionMatches(true, 0, "die hard", 0, 8) && DIE_HARD.matcher(title.toLowerCase()).matches()) {
+      return title;
+    }
+    PrefixRules prefixRules = getRules();
+    for (int i = 0; i < prefixRules.sortablePatterns.length; i++) {
+      // cheap pre check for prefixes without any regular expression
+      String literal = prefixRules.literalPrefixes[i];
+      if (literal != null && !title.regionMatches(true, 0, literal, 0, literal.length())) {
+        continue;
+      }
+      title = prefixRules.sortablePatterns[i].matcher(title).replaceAll(prefixRules.sortableReplacements[i]);
+    }
+    return title.trim();
+  }
+
+  /**
+   * Returns the common name of title/originaltitle when it is named sortable<br>
+   * eg "Bourne Legacy, The" -> "The Bourne Legacy".
+   * 
+   * @param title
+   *          the title
+   * @return the original title
+   */
+  public static String removeSortableName(String title) {
+    if (title == null || title.isEmpty()) {
+      return "";
+    }
+    if (!title.contains(", ")) {
+      return title.trim();
+    }
+    PrefixRules prefixRules = getRules();
+    for (int i = 0; i < prefixRules.commonPatterns.length; i++) {
+      title = prefixRules.commonPatterns[i].matcher(title).replaceAll(prefixRules.commonReplacements[i]);
+    }
+    return title.trim();
+  }
+
+  /**
+   * get the collation key of a sortable title (the comparison is case insensitive)
+   * 
+   * @param titleSortable
+   *          the sortable title
+   * @return the collation key
+   */
+  public static CollationKey getSortKey(String titleSortable) {
+    if (titleSortable == null) {
+      titleSortable = "";
+    }
+    return COLLATORS.get().getCollationKey(titleSortable.toLowerCase());
+  }
+
+  /**
+   * clear and rebuild the sortable titles and collation keys of all given entities in parallel (e.g. after the title prefixes have been
+   * changed)
+   * 
+   * @param entities
+   *          the entities
+   */
+  public static void rebuildSortKeys(List<? extends ITitleSortable> entities) {
+    long start = System.currentTimeMillis();
+    final List<? extends ITitleSortable> copy = new ArrayList<ITitleSortable>(entities);
+    if (copy.size() <= CHUNK_SIZE) {
+      rebuildSortKeys(copy, 0, copy.size());
+      return;
+    }
+
+    int chunks = (copy.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(chunks, Runtime.getRuntime().availableProcessors()));
+    try {
+      List<Future<Object>> futures = new ArrayList<Future<Object>>(chunks);
+      for (int i = 0; i < copy.size(); i += CHUNK_SIZE) {
+        final int from = i;
+        final int to = Math.min(i + CHUNK_SIZE, copy.size());
+        futures.add(executor.submit(new Callable<Object>() {
+          @Override
+          public Object call() throws Exception {
+            rebuildSortKeys(copy, from, to);
+            return null;
+          }
+        }));
+      }
+      for (Future<Object> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          LOGGER.error("could not rebuild sort keys", e.getCause());
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    LOGGER.debug("rebuilt " + copy.size() + " sort keys in " + (System.currentTimeMillis() - start) + "ms");
+  }
+
+  private static void rebuildSortKeys(List<? extends ITitleSortable> entities, int from, int to) {
+    for (int i = from; i < to; i++) {
+      ITitleSortable entity = entities.get(i);
+      entity.clearTitleSortable();
+      entity.getTitleSortKey();
+    }
+  }
+
+  /**
+   * get the compiled rules for the current title prefixes; they are compiled again if the prefixes have been changed
+   * 
+   * @return the rules
+   */
+  private static PrefixRules getRules() {
+    List<String> prefixes = Settings.getInstance().getTitlePrefix();
+    PrefixRules prefixRules = rules;
+    if (prefixRules == null || !prefixRules.prefixes.equals(prefixes)) {
+      prefixRules = new PrefixRules(prefixes);
+      rules = prefixRules;
+    }
+    return prefixRules;
+  }
+
+  /**
+   * the compiled regular expressions of all title prefixes
+   */
+  private static class PrefixRules {
+    private final List<String> prefixes;
+    private final String[]     literalPrefixes;
+    private final Pattern[]    sortablePatterns;
+    private final String[]     sortableReplacements;
+    private final Pattern[]    commonPatterns;
+    private final String[]     commonReplacements;
+
+    private PrefixRules(List<String> prefixes) {
+      this.prefixes = new ArrayList<String>(prefixes);
+      int size = this.prefixes.size();
+      literalPrefixes = new String[size];
+      sortablePatterns = new Pattern[size];
+      sortableReplacements = new String[size];
+      commonPatterns = new Pattern[size];
+      commonReplacements = new String[size];
+
+      for (int i = 0; i < size; i++) {
+        String prfx = this.prefixes.get(i);
+        // ends with hand-picked delim, so no space might be possible
+        boolean ownDelim = PREFIX_DELIM.matcher(prfx).matches();
+        if (LITERAL.matcher(prfx).matches()) {
+          literalPrefixes[i] = prfx;
+        }
+
+        // one or more spaces needed
+        sortablePatterns[i] = Pattern.compile("(?i)^" + prfx + (ownDelim ? "" : "\\s+") + "(.*)");
+        sortableReplacements[i] = "$1, " + prfx;
+
+        // one space as delim
+        commonPatterns[i] = Pattern.compile("(?i)(.*), " + prfx);
+        commonReplacements[i] = prfx + (ownDelim ? "" : " ") + "$1";
+      }
+    }
+  }
+
+  /**
+   * a collator is synchronized; every thread gets its own clone (the collation keys of clones are comparable)
+   */
+  private static class CollatorThreadLocal extends ThreadLocal<Collator> {
+    @Override
+    protected Collator initialValue() {
+      return (Collator) COLLATOR.clone();
+    }
+  }
+
+  /**
+   * compares the precomputed collation keys of the sortable titles
+   */
+  private static class TitleSortKeyComparator implements Comparator<ITitleSortable> {
+    @Override
+    public int compare(ITitleSortable o1, ITitleSortable o2) {
+      return o1.getTitleSortKey().compareTo(o2.getTitleSortKey());
+    }
+  }
+}
@@ -27,6 +27,9 @@ import javax.persistence.PersistenceException;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.Globals;
+import org.tinymediamanager.scraper.util.CachedUrl;
+import org.tinymediamanager.scraper.util.TmmHttpClient;
 
 /**
  * The class TmmModuleManager. Used to manage all modules inside tmm
@@ -39,6 +42,7 @@ public class TmmModuleManager {
   private static TmmModuleManager instance;
 
   private EntityManager           entityManager;
+  private DatabaseMaintenance     databaseMaintenance;
   private Set<ITmmModule>         modules;
 
   private TmmModuleManager() {
@@ -86,6 +90,9 @@ public class TmmModuleManager {
       // com.objectdb.Enhancer.enhance("org.tinymediamanager.scraper.MediaTrailer");
     }
 
+    // finish an interrupted compaction of the database
+    DatabaseMaintenance.recover(new File(TMM_DB));
+
     // get a connection to the database
     EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(TMM_DB);
     try {
@@ -102,12 +109,18 @@ public class TmmModuleManager {
         throw (e);
       }
     }
+    databaseMaintenance = new DatabaseMaintenance(new File(TMM_DB), entityManagerFactory);
+    LOGGER.info("database statistics - " + databaseMaintenance.getStatistics());
   }
 
   /**
    * shutdown tmm - forces all registered modules to shut down
    */
   public void shutDown() {
+    LOGGER.info("url cache statistics - " + CachedUrl.getCacheStatistics());
+    LOGGER.info("http connection pool statistics - " + TmmHttpClient.getPoolStatistics());
+    ArtworkStore.cleanup();
+
     for (ITmmModule module : modules) {
       if (module.isEnabled()) {
         try {
@@ -119,16 +132,24 @@ public class TmmModuleManager {
       }
     }
 
+    LOGGER.info("database statistics - " + databaseMaintenance.getStatistics());
+    if (Globals.settings.isCompactDatabaseOnExit()) {
+      databaseMaintenance.setCompactOnShutdown(true);
+    }
     try {
-      EntityManagerFactory emf = entityManager.getEntityManagerFactory();
       entityManager.close();
-      emf.close();
     }
     catch (Exception e) {
     }
+    // closes the database (and compacts it if needed)
+    databaseMaintenance.shutDown();
   }
 
   public EntityManager getEntityManager() {
     return entityManager;
   }
+
+  public DatabaseMaintenance getDatabaseMaintenance() {
+    return databaseMaintenance;
+  }
 }
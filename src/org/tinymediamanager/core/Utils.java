@@ -200,20 +200,7 @@ public class Utils {
    * @return the title/originaltitle in its sortable format
    */
   public static String getSortableName(String title) {
-    if (title == null || title.isEmpty()) {
-      return "";
-    }
-    if (title.toLowerCase().matches("^die hard$") || title.toLowerCase().matches("^die hard[:\\s].*")) {
-      return title;
-    }
-    for (String prfx : Settings.getInstance().getTitlePrefix()) {
-      String delim = "\\s+"; // one or more spaces needed
-      if (prfx.matches(".*['`´]$")) { // ends with hand-picked delim, so no space might be possible
-        delim = "";
-      }
-      title = title.replaceAll("(?i)^" + prfx + delim + "(.*)", "$1, " + prfx);
-    }
-    return title.trim();
+    return TitleSortKeyService.getSortableName(title);
   }
 
   /**
@@ -225,17 +212,7 @@ public class Utils {
    * @return the original title
    */
   public static String removeSortableName(String title) {
-    if (title == null || title.isEmpty()) {
-      return "";
-    }
-    for (String prfx : Settings.getInstance().getTitlePrefix()) {
-      String delim = " "; // one spaces as delim
-      if (prfx.matches(".*['`´]$")) { // ends with hand-picked delim, so no space between prefix and title
-        delim = "";
-      }
-      title = title.replaceAll("(?i)(.*), " + prfx, prfx + delim + "$1");
-    }
-    return title.trim();
+    return TitleSortKeyService.removeSortableName(title);
   }
 
   /**
@@ -109,6 +109,12 @@ public abstract class MediaEntity extends AbstractModelObject {
   @Transient
   protected ReadWriteLock                 readWriteLock          = new ReentrantReadWriteLock();
 
+  @Transient
+  private volatile MediaFileStore         mediaFileStore;
+
+  @Transient
+  private volatile boolean                mediaFilesDirty        = false;
+
   public MediaEntity() {
     // add this ME to the dirty listener
     addPropertyChangeListener(propertyChangeListener);
@@ -123,11 +129,13 @@ public abstract class MediaEntity extends AbstractModelObject {
   }
 
   protected void sortMediaFiles() {
-    if (mediaFileComparator != null) {
-      Collections.sort(mediaFiles, mediaFileComparator);
+    // the snapshot is always sorted; just build it from the loaded media files
+    readWriteLock.writeLock().lock();
+    try {
+      mediaFileStore = new MediaFileStore(mediaFileStore != null ? mediaFileStore.getMediaFiles() : mediaFiles, mediaFileComparator);
     }
-    else {
-      Collections.sort(mediaFiles);
+    finally {
+      readWriteLock.writeLock().unlock();
     }
   }
 
@@ -537,54 +545,104 @@ public abstract class MediaEntity extends AbstractModelObject {
     return id;
   }
 
-  public void addToMediaFiles(MediaFile mediaFile) {
-    // synchronized (mediaFiles) {
+  /**
+   * get the current snapshot of the media files; built from the persisted list on first access
+   * 
+   * @return the media file store
+   */
+  private MediaFileStore getMediaFileStore() {
+    MediaFileStore store = mediaFileStore;
+    if (store == null) {
+      readWriteLock.writeLock().lock();
+      try {
+        if (mediaFileStore == null) {
+          mediaFileStore = new MediaFileStore(mediaFiles, mediaFileComparator);
+        }
+        store = mediaFileStore;
+      }
+      finally {
+        readWriteLock.writeLock().unlock();
+      }
+    }
+    return store;
+  }
+
+  /**
+   * replace the snapshot of the media files; the caller has to hold the write lock
+   * 
+   * @param newMediaFiles
+   *          the new media files
+   */
+  private void setMediaFileStore(List<MediaFile> newMediaFiles) {
+    mediaFileStore = new MediaFileStore(newMediaFiles, mediaFileComparator);
+    mediaFilesDirty = true;
+  }
 
-    final EntityManager entityManager = getEntityManager();
+  /**
+   * Write changed media files to the persisted list. Changes of the media files only need the lock of this entity; they are transferred to the
+   * database list here. Needs to be called inside the synchronized block of the entity manager right before persisting the entity.
+   */
+  protected void reconcileMediaFiles() {
+    if (!mediaFilesDirty) {
+      return;
+    }
+    // reset the flag first: a concurrent change sets it again
+    mediaFilesDirty = false;
+    // the flag is only set together with a new snapshot
+    List<MediaFile> current = mediaFileStore.getMediaFiles();
+    mediaFiles.clear();
+    mediaFiles.addAll(current);
+  }
+
+  public void addToMediaFiles(MediaFile mediaFile) {
+    MediaFileStore store;
     readWriteLock.writeLock().lock();
-    // need to synchronize on the entitymanager :(
-    synchronized (entityManager) {
+    try {
+      List<MediaFile> newMediaFiles = new ArrayList<MediaFile>(getMediaFileStore().getMediaFiles());
       // only store the MF if it is not in the list or if the type has been changed
-      if (mediaFiles.contains(mediaFile)) {
-        int i = mediaFiles.indexOf(mediaFile);
-        if (i >= 0) {
-          MediaFile oldMf = mediaFiles.get(i);
-          if (oldMf.getType() != mediaFile.getType()) {
-            mediaFiles.remove(i);
-          }
+      int i = newMediaFiles.indexOf(mediaFile);
+      if (i >= 0) {
+        MediaFile oldMf = newMediaFiles.get(i);
+        if (oldMf.getType() != mediaFile.getType()) {
+          newMediaFiles.remove(i);
+          newMediaFiles.add(mediaFile);
         }
+        // the same instance might have been changed (e.g. the type) - index it again
+        setMediaFileStore(newMediaFiles);
       }
-      if (!mediaFiles.contains(mediaFile)) {
-        mediaFiles.add(mediaFile);
-        sortMediaFiles();
+      else {
+        newMediaFiles.add(mediaFile);
+        setMediaFileStore(newMediaFiles);
       }
+      store = mediaFileStore;
+    }
+    finally {
+      readWriteLock.writeLock().unlock();
     }
-    // }
-    readWriteLock.writeLock().unlock();
 
-    firePropertyChange(MEDIA_FILES, null, mediaFiles);
+    firePropertyChange(MEDIA_FILES, null, store.getMediaFiles());
     fireAddedEventForMediaFile(mediaFile);
   }
 
   public void addToMediaFiles(List<MediaFile> mediaFiles) {
-    // synchronized (this.mediaFiles) {
-
-    final EntityManager entityManager = getEntityManager();
+    MediaFileStore store;
     readWriteLock.writeLock().lock();
-    // need to synchronize on the entitymanager :(
-    synchronized (entityManager) {
-      this.mediaFiles.addAll(mediaFiles);
-      sortMediaFiles();
-      // }
+    try {
+      List<MediaFile> newMediaFiles = new ArrayList<MediaFile>(getMediaFileStore().getMediaFiles());
+      newMediaFiles.addAll(mediaFiles);
+      setMediaFileStore(newMediaFiles);
+      store = mediaFileStore;
+    }
+    finally {
+      readWriteLock.writeLock().unlock();
     }
-    readWriteLock.writeLock().unlock();
 
     // fire the right events
     for (MediaFile mediaFile : mediaFiles) {
       fireAddedEventForMediaFile(mediaFile);
     }
 
-    firePropertyChange(MEDIA_FILES, null, mediaFiles);
+    firePropertyChange(MEDIA_FILES, null, store.getMediaFiles());
   }
 
   private void fireAddedEventForMediaFile(MediaFile mediaFile) {
@@ -641,16 +699,13 @@ public abstract class MediaEntity extends AbstractModelObject {
     }
   }
 
+  /**
+   * gets all MediaFiles
+   * 
+   * @return an unmodifiable snapshot of all MF (may be empty, but never null)
+   */
   public List<MediaFile> getMediaFiles() {
-    List<MediaFile> mf = new ArrayList<MediaFile>();
-    readWriteLock.readLock().lock();
-    try {
-      mf.addAll(mediaFiles);
-    }
-    finally {
-      readWriteLock.readLock().unlock();
-    }
-    return mf;
+    return getMediaFileStore().getMediaFiles();
   }
 
   /**
@@ -659,24 +714,35 @@ public abstract class MediaEntity extends AbstractModelObject {
    * 
    * @param types
    *          1-N types
-   * @return list of MF (may be empty, but never null)
+   * @return an unmodifiable list of MF (may be empty, but never null)
    */
   public List<MediaFile> getMediaFiles(MediaFileType... types) {
+    MediaFileStore store = getMediaFileStore();
+    if (types.length == 1) {
+      return store.getMediaFiles(types[0]);
+    }
+
     List<MediaFile> mf = new ArrayList<MediaFile>();
-    readWriteLock.readLock().lock();
-    for (MediaFile mediaFile : mediaFiles) {
-      boolean match = false;
+    for (MediaFile mediaFile : store.getMediaFiles()) {
       for (MediaFileType type : types) {
         if (mediaFile.getType().equals(type)) {
-          match = true;
+          mf.add(mediaFile);
+          break;
         }
       }
-      if (match) {
-        mf.add(mediaFile);
-      }
     }
-    readWriteLock.readLock().unlock();
-    return mf;
+    return Collections.unmodifiableList(mf);
+  }
+
+  /**
+   * is there at least one MediaFile of the given type
+   * 
+   * @param type
+   *          the type
+   * @return true/false
+   */
+  public boolean hasMediaFiles(MediaFileType type) {
+    return getMediaFileStore().contains(type);
   }
 
   /**
@@ -687,16 +753,15 @@ public abstract class MediaEntity extends AbstractModelObject {
    */
   public MediaFile getNewestMediaFilesOfType(MediaFileType type) {
     MediaFile mf = null;
-    readWriteLock.readLock().lock();
-    for (MediaFile mediaFile : mediaFiles) {
-      if (mediaFile.getType().equals(type)) {
-        if (mf == null || mediaFile.getFiledate() >= mf.getFiledate()) {
-          // get the latter one
-          mf = new MediaFile(mediaFile);
-        }
+    for (MediaFile mediaFile : getMediaFileStore().getMediaFiles(type)) {
+      if (mf == null || mediaFile.getFiledate() >= mf.getFiledate()) {
+        // get the latter one
+        mf = mediaFile;
       }
     }
-    readWriteLock.readLock().unlock();
+    if (mf != null) {
+      mf = new MediaFile(mf);
+    }
     return mf;
   }
 
@@ -706,80 +771,76 @@ public abstract class MediaEntity extends AbstractModelObject {
    * 
    * @param types
    *          1-N types
-   * @return list of MF (may be empty, but never null)
+   * @return an unmodifiable list of MF (may be empty, but never null)
    */
   public List<MediaFile> getMediaFilesExceptType(MediaFileType... types) {
     List<MediaFile> mf = new ArrayList<MediaFile>();
-    readWriteLock.readLock().lock();
-    for (MediaFile mediaFile : mediaFiles) {
+    for (MediaFile mediaFile : getMediaFileStore().getMediaFiles()) {
       boolean match = false;
       for (MediaFileType type : types) {
         if (mediaFile.getType().equals(type)) {
           match = true;
+          break;
         }
       }
       if (!match) {
         mf.add(mediaFile);
       }
     }
-    readWriteLock.readLock().unlock();
-    return mf;
+    return Collections.unmodifiableList(mf);
   }
 
   public void removeAllMediaFiles() {
-    List<MediaFile> changedMediafiles = new ArrayList<MediaFile>(mediaFiles);
-    // synchronized (mediaFiles) {
-
-    final EntityManager entityManager = getEntityManager();
+    List<MediaFile> changedMediafiles;
     readWriteLock.writeLock().lock();
-    // need to synchronize on the entitymanager :(
-    synchronized (entityManager) {
-      for (int i = mediaFiles.size() - 1; i >= 0; i--) {
-        mediaFiles.remove(i);
-      }
-      // }
+    try {
+      changedMediafiles = getMediaFileStore().getMediaFiles();
+      setMediaFileStore(new ArrayList<MediaFile>(0));
+    }
+    finally {
+      readWriteLock.writeLock().unlock();
     }
-    readWriteLock.writeLock().unlock();
     for (MediaFile mediaFile : changedMediafiles) {
       fireRemoveEventForMediaFile(mediaFile);
     }
   }
 
   public void removeFromMediaFiles(MediaFile mediaFile) {
-    final EntityManager entityManager = getEntityManager();
+    MediaFileStore store;
     readWriteLock.writeLock().lock();
     try {
-      // need to synchronize on the entitymanager :(
-      synchronized (entityManager) {
-        mediaFiles.remove(mediaFile);
+      List<MediaFile> newMediaFiles = new ArrayList<MediaFile>(getMediaFileStore().getMediaFiles());
+      if (newMediaFiles.remove(mediaFile)) {
+        setMediaFileStore(newMediaFiles);
       }
+      store = mediaFileStore;
     }
     finally {
       readWriteLock.writeLock().unlock();
     }
 
-    firePropertyChange(MEDIA_FILES, null, mediaFiles);
+    firePropertyChange(MEDIA_FILES, null, store.getMediaFiles());
     fireRemoveEventForMediaFile(mediaFile);
   }
 
   public void removeAllMediaFilesExceptType(MediaFileType type) {
     List<MediaFile> changedMediafiles = new ArrayList<MediaFile>();
 
-    final EntityManager entityManager = getEntityManager();
     readWriteLock.writeLock().lock();
-    // need to synchronize on the entitymanager :(
-    synchronized (entityManager) {
-      // synchronized (mediaFiles) {
-      for (int i = mediaFiles.size() - 1; i >= 0; i--) {
-        MediaFile mediaFile = mediaFiles.get(i);
+    try {
+      MediaFileStore store = getMediaFileStore();
+      for (MediaFile mediaFile : store.getMediaFiles()) {
         if (!mediaFile.getType().equals(type)) {
-          mediaFiles.remove(i);
           changedMediafiles.add(mediaFile);
         }
       }
+      if (!changedMediafiles.isEmpty()) {
+        setMediaFileStore(store.getMediaFiles(type));
+      }
+    }
+    finally {
+      readWriteLock.writeLock().unlock();
     }
-    // }
-    readWriteLock.writeLock().unlock();
     for (MediaFile mediaFile : changedMediafiles) {
       fireRemoveEventForMediaFile(mediaFile);
     }
@@ -788,40 +849,38 @@ public abstract class MediaEntity extends AbstractModelObject {
   public void removeAllMediaFiles(MediaFileType type) {
     List<MediaFile> changedMediafiles = new ArrayList<MediaFile>();
 
-    final EntityManager entityManager = getEntityManager();
     readWriteLock.writeLock().lock();
-    // need to synchronize on the entitymanager :(
-    synchronized (entityManager) {
-      // synchronized (mediaFiles) {
-      for (int i = mediaFiles.size() - 1; i >= 0; i--) {
-        MediaFile mediaFile = mediaFiles.get(i);
+    try {
+      MediaFileStore store = getMediaFileStore();
+      List<MediaFile> newMediaFiles = new ArrayList<MediaFile>();
+      for (MediaFile mediaFile : store.getMediaFiles()) {
         if (mediaFile.getType().equals(type)) {
-          mediaFiles.remove(i);
           changedMediafiles.add(mediaFile);
         }
+        else {
+          newMediaFiles.add(mediaFile);
+        }
+      }
+      if (!changedMediafiles.isEmpty()) {
+        setMediaFileStore(newMediaFiles);
       }
     }
-    // }
-    readWriteLock.writeLock().unlock();
+    finally {
+      readWriteLock.writeLock().unlock();
+    }
     for (MediaFile mediaFile : changedMediafiles) {
       fireRemoveEventForMediaFile(mediaFile);
     }
   }
 
   public void updateMediaFilePath(File oldPath, File newPath) {
-    readWriteLock.readLock().lock();
-    List<MediaFile> mfs = new ArrayList<MediaFile>(this.mediaFiles);
-    readWriteLock.readLock().unlock();
-    for (MediaFile mf : mfs) {
+    for (MediaFile mf : getMediaFiles()) {
       mf.replacePathForRenamedFolder(oldPath, newPath);
     }
   }
 
   public void gatherMediaFileInformation(boolean force) {
-    readWriteLock.readLock().lock();
-    List<MediaFile> mediaFiles = new ArrayList<MediaFile>(this.mediaFiles);
-    readWriteLock.readLock().unlock();
-    for (MediaFile mediaFile : mediaFiles) {
+    for (MediaFile mediaFile : getMediaFiles()) {
       mediaFile.gatherMediaInformation(force);
     }
 
@@ -25,7 +25,6 @@ import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -54,8 +53,10 @@ import org.tinymediamanager.core.AbstractModelObject;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.scraper.util.StrgUtils;
+import org.tinymediamanager.scraper.util.SubtitleUtils;
 import org.tinymediamanager.thirdparty.MediaInfo;
 import org.tinymediamanager.thirdparty.MediaInfo.StreamKind;
+import org.tinymediamanager.thirdparty.MediaInfoKeySet;
 
 /**
  * The Class MediaFile.
@@ -102,6 +103,9 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
   public static final String                         VIDEO_3D_HSBS      = "3D HSBS";
   public static final String                         VIDEO_3D_HTAB      = "3D HTAB";
 
+  // the mediainfo parameters needed by gatherMediaInformation(); only these are fetched from the native lib
+  public static final MediaInfoKeySet                MEDIAINFO_KEYS     = createMediaInfoKeys();
+
   private String                                     path               = "";
   private String                                     filename           = "";
   private long                                       filesize           = 0;
@@ -115,6 +119,15 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
   private int                                        overallBitRate     = 0;
   private int                                        durationInSecs     = 0;
   private int                                        stacking           = 0;
+  // the subtitle hashes are only valid for the file size/date they have been computed for
+  private String                                     openSubtitlesHash  = "";
+  private String                                     subDbHash          = "";
+  private long                                       hashedFilesize     = 0;
+  private long                                       hashedFiledate     = 0;
+  // the file size/date at the last gathering of the media information and a fingerprint of the file (taken by the first change check afterwards)
+  private long                                       mediaInfoFilesize  = 0;
+  private long                                       mediaInfoFiledate  = 0;
+  private String                                     mediaInfoHash      = "";
 
   @Enumerated(EnumType.STRING)
   private MediaFileType                              type               = MediaFileType.UNKNOWN;
@@ -148,6 +161,13 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     this.overallBitRate = clone.overallBitRate;
     this.durationInSecs = clone.durationInSecs;
     this.stacking = clone.stacking;
+    this.openSubtitlesHash = clone.openSubtitlesHash;
+    this.subDbHash = clone.subDbHash;
+    this.hashedFilesize = clone.hashedFilesize;
+    this.hashedFiledate = clone.hashedFiledate;
+    this.mediaInfoFilesize = clone.mediaInfoFilesize;
+    this.mediaInfoFiledate = clone.mediaInfoFiledate;
+    this.mediaInfoHash = clone.mediaInfoHash;
     this.type = clone.type;
     this.audioStreams.addAll(clone.audioStreams);
     this.subtitles.addAll(clone.subtitles);
@@ -566,6 +586,56 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     this.stacking = stacking;
   }
 
+  /**
+   * get the stored OpenSubtitles hash of this file (without touching the file); call {@link #computeSubtitleHashes()} before to get an up to date
+   * hash
+   * 
+   * @return the hash or an empty string if the file has not been hashed (successfully)
+   */
+  public synchronized String getOpenSubtitlesHash() {
+    return openSubtitlesHash;
+  }
+
+  /**
+   * get the stored SubDB hash of this file (without touching the file); call {@link #computeSubtitleHashes()} before to get an up to date hash
+   * 
+   * @return the hash or an empty string if the file has not been hashed (successfully)
+   */
+  public synchronized String getSubDbHash() {
+    return subDbHash;
+  }
+
+  /**
+   * are the stored subtitle hashes valid for the current file size and date?
+   * 
+   * @return true if the hashes need not to be computed
+   */
+  public synchronized boolean isSubtitleHashUpToDate() {
+    File f = getFile();
+    return StringUtils.isNotBlank(openSubtitlesHash) && hashedFilesize == f.length() && hashedFiledate == f.lastModified();
+  }
+
+  /**
+   * compute the OpenSubtitles and SubDB hashes if they are not up to date. The hashes are stored in this media file (to persist them, the owner has
+   * to be saved)
+   * 
+   * @return true if the hashes have been computed (and the owner should be saved)
+   */
+  public synchronized boolean computeSubtitleHashes() {
+    if (isSubtitleHashUpToDate()) {
+      return false;
+    }
+    File f = getFile();
+    long size = f.length();
+    long date = f.lastModified();
+    String[] hashes = SubtitleUtils.computeHashes(f);
+    openSubtitlesHash = hashes[0];
+    subDbHash = hashes[1];
+    hashedFilesize = size;
+    hashedFiledate = date;
+    return true;
+  }
+
   public List<MediaFileSubtitle> getSubtitles() {
     return subtitles;
   }
@@ -616,6 +686,17 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
   }
 
+  private static MediaInfoKeySet createMediaInfoKeys() {
+    MediaInfoKeySet keys = new MediaInfoKeySet();
+    keys.add(StreamKind.General, "FileSize", "File_Modified_Date_Local", "AudioCount", "TextCount", "Codec/Extensions", "Format", "OverallBitRate",
+        "Duration");
+    keys.add(StreamKind.Video, "Height", "ScanType", "Width", "CodecID/Hint", "Format", "MultiView_Count", "MultiView_Layout");
+    keys.add(StreamKind.Image, "Height", "Width", "CodecID/Hint", "Format");
+    keys.addAll(MediaFileAudioStream.MEDIAINFO_KEYS);
+    keys.addAll(MediaFileSubtitle.MEDIAINFO_KEYS);
+    return keys;
+  }
+
   /**
    * instantiates and gets new mediainfo object.
    * 
@@ -638,7 +719,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
         LOGGER.error("Mediainfo could not open file: " + this.getPath() + File.separator + this.getFilename() + "; " + e.getMessage());
       }
 
-      miSnapshot = mediaInfo.snapshot();
+      miSnapshot = mediaInfo.snapshot(MEDIAINFO_KEYS);
     }
     return mediaInfo;
   }
@@ -671,15 +752,21 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
       getMediaInfo(); // load snapshot
     }
     for (String key : keys) {
+      if (!MEDIAINFO_KEYS.contains(streamKind, key)) {
+        // not in the snapshot; ask the lib directly
+        LOGGER.debug("mediainfo parameter " + streamKind + "/" + key + " is not declared in MEDIAINFO_KEYS");
+        String value = mediaInfo != null ? mediaInfo.get(streamKind, streamNumber, key) : "";
+        if (value.length() > 0) {
+          return value;
+        }
+        continue;
+      }
+
       List<Map<String, String>> stream = miSnapshot.get(streamKind);
-      if (stream != null) {
-        LinkedHashMap<String, String> info = (LinkedHashMap<String, String>) stream.get(streamNumber);
-        if (info != null) {
-          String value = info.get(key);
-          // System.out.println("  " + streamKind + " " + key + " = " + value);
-          if (value != null && value.length() > 0) {
-            return value;
-          }
+      if (stream != null && streamNumber < stream.size()) {
+        String value = stream.get(streamNumber).get(key);
+        if (value != null && value.length() > 0) {
+          return value;
         }
       }
     }
@@ -1456,6 +1543,79 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     // close mediainfo lib
     closeMediaInfo();
     LOGGER.trace("closed MI");
+
+    // remember the analyzed file; the fingerprint is only needed by the change check (see recordMediaInformationFingerprint())
+    File f = getFile();
+    mediaInfoFilesize = f.length();
+    mediaInfoFiledate = f.lastModified();
+    mediaInfoHash = "";
+  }
+
+  /**
+   * has the file been changed since the media information has been gathered? The size and the date of the file are compared first; only if they
+   * are unchanged and a fingerprint has been recorded, the fingerprint of the head and the tail of the file is compared (which is much cheaper than
+   * running mediainfo).<br>
+   * For media information from older versions (without the size/date of the analyzed file) the size and the date read by mediainfo are compared.
+   * 
+   * @return true if the media information has to be gathered again
+   */
+  public boolean isMediaInformationOutdated() {
+    if (StringUtils.isBlank(getContainerFormat())) {
+      return true;
+    }
+    if (!isValidMediainfoFormat()) {
+      // nothing to gather
+      return false;
+    }
+
+    File f = getFile();
+    long size = f.length();
+    long date = f.lastModified();
+    if (size == 0) {
+      return true;
+    }
+
+    if (mediaInfoFilesize == 0) {
+      // mediainfo reports the date in seconds
+      return size != filesize || Math.abs(date - filedate) >= 1000;
+    }
+    if (size != mediaInfoFilesize || date != mediaInfoFiledate) {
+      return true;
+    }
+    return StringUtils.isNotBlank(mediaInfoHash) && !mediaInfoHash.equals(computeFingerprint(f));
+  }
+
+  /**
+   * record the fingerprint of a file whose media information is not outdated (see isMediaInformationOutdated()), so a later change which keeps
+   * the size and the date of the file is detected too. Only the change check of the reload needs the fingerprint; it is not taken when the media
+   * information is gathered
+   * 
+   * @return true if the fingerprint has been recorded (the media file has to be persisted)
+   */
+  public boolean recordMediaInformationFingerprint() {
+    if (StringUtils.isNotBlank(mediaInfoHash) || StringUtils.isBlank(getContainerFormat()) || !isValidMediainfoFormat()) {
+      return false;
+    }
+    File f = getFile();
+    String fingerprint = computeFingerprint(f);
+    if (StringUtils.isBlank(fingerprint)) {
+      return false;
+    }
+    // media information from older versions: the size/date has already been checked against the values of mediainfo
+    mediaInfoFilesize = f.length();
+    mediaInfoFiledate = f.lastModified();
+    mediaInfoHash = fingerprint;
+    return true;
+  }
+
+  /**
+   * the fingerprint of a file: the MD5 of the first and the last 64kb (the same as the SubDB hash)
+   */
+  private String computeFingerprint(File f) {
+    if (type == MediaFileType.VIDEO && isSubtitleHashUpToDate()) {
+      return subDbHash;
+    }
+    return SubtitleUtils.computeSubDBHash(f);
   }
 
   /**
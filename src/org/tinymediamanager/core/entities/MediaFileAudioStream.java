@@ -18,6 +18,8 @@ package org.tinymediamanager.core.entities;
 import javax.persistence.Embeddable;
 
 import org.tinymediamanager.core.AbstractModelObject;
+import org.tinymediamanager.thirdparty.MediaInfo.StreamKind;
+import org.tinymediamanager.thirdparty.MediaInfoKeySet;
 
 /**
  * The class MediaFileAudioStream
@@ -26,6 +28,9 @@ import org.tinymediamanager.core.AbstractModelObject;
  */
 @Embeddable
 public class MediaFileAudioStream extends AbstractModelObject {
+  // the mediainfo parameters of an audio stream
+  static final MediaInfoKeySet MEDIAINFO_KEYS = new MediaInfoKeySet().add(StreamKind.Audio, "StreamCount", "CodecID/Hint", "Format",
+                                                  "Format_Profile", "Channel(s)_Original", "Channel(s)", "BitRate", "Language");
 
   private String codec    = "";
   private String channels = "";
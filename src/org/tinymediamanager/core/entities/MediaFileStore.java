@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.tinymediamanager.core.MediaFileType;
+
+/**
+ * The class MediaFileStore. An immutable snapshot of the media files of one entity: all media files in sort order plus an index by their
+ * MediaFileType. Readers use a snapshot without any locking; every change creates a new snapshot (copy on write).
+ * 
+ * @author Manuel Laggner
+ */
+final class MediaFileStore {
+  private final List<MediaFile>                     mediaFiles;
+  private final Map<MediaFileType, List<MediaFile>> mediaFilesByType;
+
+  /**
+   * create a new snapshot
+   * 
+   * @param mediaFiles
+   *          the media files (the list is copied)
+   * @param comparator
+   *          the comparator to sort the media files (null for the natural order)
+   */
+  MediaFileStore(List<MediaFile> mediaFiles, Comparator<MediaFile> comparator) {
+    List<MediaFile> sorted = new ArrayList<MediaFile>(mediaFiles);
+    if (comparator != null) {
+      Collections.sort(sorted, comparator);
+    }
+    else {
+      Collections.sort(sorted);
+    }
+    this.mediaFiles = Collections.unmodifiableList(sorted);
+
+    Map<MediaFileType, List<MediaFile>> byType = new EnumMap<MediaFileType, List<MediaFile>>(MediaFileType.class);
+    for (MediaFile mediaFile : sorted) {
+      List<MediaFile> list = byType.get(mediaFile.getType());
+      if (list == null) {
+        list = new ArrayList<MediaFile>(1);
+        byType.put(mediaFile.getType(), list);
+      }
+      list.add(mediaFile);
+    }
+    for (Entry<MediaFileType, List<MediaFile>> entry : byType.entrySet()) {
+      entry.setValue(Collections.unmodifiableList(entry.getValue()));
+    }
+    this.mediaFilesByType = byType;
+  }
+
+  /**
+   * get all media files
+   * 
+   * @return an unmodifiable list of all media files
+   */
+  List<MediaFile> getMediaFiles() {
+    return mediaFiles;
+  }
+
+  /**
+   * get all media files of the given type
+   * 
+   * @param type
+   *          the type
+   * @return an unmodifiable list of the media files (may be empty, but never null)
+   */
+  List<MediaFile> getMediaFiles(MediaFileType type) {
+    List<MediaFile> list = mediaFilesByType.get(type);
+    if (list == null) {
+      return Collections.emptyList();
+    }
+    return list;
+  }
+
+  /**
+   * is there at least one media file of the given type
+   * 
+   * @param type
+   *          the type
+   * @return true/false
+   */
+  boolean contains(MediaFileType type) {
+    return mediaFilesByType.containsKey(type);
+  }
+}
@@ -18,6 +18,8 @@ package org.tinymediamanager.core.entities;
 import javax.persistence.Embeddable;
 
 import org.tinymediamanager.core.AbstractModelObject;
+import org.tinymediamanager.thirdparty.MediaInfo.StreamKind;
+import org.tinymediamanager.thirdparty.MediaInfoKeySet;
 
 /**
  * The class MediaFileAudioStream
@@ -26,6 +28,9 @@ import org.tinymediamanager.core.AbstractModelObject;
  */
 @Embeddable
 public class MediaFileSubtitle extends AbstractModelObject implements Comparable<MediaFileSubtitle> {
+  // the mediainfo parameters of a subtitle stream
+  static final MediaInfoKeySet MEDIAINFO_KEYS = new MediaInfoKeySet().add(StreamKind.Text, "StreamCount", "CodecID/Hint", "Format",
+                                                  "Language/String", "Forced");
 
   private String  codec    = "";
   private String  language = "";
@@ -44,10 +44,12 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.AbstractModelObject;
 import org.tinymediamanager.core.Constants;
+import org.tinymediamanager.core.LibraryStatistics;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.TitleSortKeyService;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileAudioStream;
@@ -58,6 +60,8 @@ import org.tinymediamanager.scraper.IMediaArtworkProvider;
 import org.tinymediamanager.scraper.IMediaMetadataProvider;
 import org.tinymediamanager.scraper.IMediaTrailerProvider;
 import org.tinymediamanager.scraper.MediaLanguages;
+import org.tinymediamanager.scraper.MediaMetadata;
+import org.tinymediamanager.scraper.MediaScrapeOptions;
 import org.tinymediamanager.scraper.MediaSearchOptions;
 import org.tinymediamanager.scraper.MediaSearchOptions.SearchParam;
 import org.tinymediamanager.scraper.MediaSearchResult;
@@ -76,6 +80,8 @@ import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.GlazedLists;
 import ca.odell.glazedlists.ObservableElementList;
 
+import com.omertron.themoviedbapi.model.CollectionInfo;
+
 /**
  * The Class MovieList.
  * 
@@ -98,6 +104,11 @@ public class MovieList extends AbstractModelObject {
   private List<Certification>          certificationsObservable = ObservableCollections.observableList(Collections
                                                                     .synchronizedList(new ArrayList<Certification>()));
   private final Comparator<MovieSet>   movieSetComparator       = new MovieSetComparator();
+  private final Map<Integer, MovieSet> movieSetsByTmdbId        = new HashMap<Integer, MovieSet>();
+  private final Map<String, MovieSet>  movieSetsByTitle         = new HashMap<String, MovieSet>();
+  private volatile boolean             movieSetIndexDirty       = true;
+  private PropertyChangeListener       movieSetListener;
+  private final MovieStatistics        statistics               = new MovieStatistics();
 
   /**
    * Instantiates a new movie list.
@@ -122,6 +133,16 @@ public class MovieList extends AbstractModelObject {
         }
       }
     };
+
+    // the movie set listener: a changed title or tmdb id invalidates the movie set index
+    movieSetListener = new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        if (TITLE.equals(evt.getPropertyName()) || TMDBID.equals(evt.getPropertyName())) {
+          movieSetIndexDirty = true;
+        }
+      }
+    };
   }
 
   /**
@@ -149,6 +170,7 @@ public class MovieList extends AbstractModelObject {
 
       updateTags(movie);
       movie.addPropertyChangeListener(tagListener);
+      statistics.add(movie);
       firePropertyChange("movies", null, movieList);
       firePropertyChange("movieCount", oldValue, movieList.size());
     }
@@ -182,13 +204,7 @@ public class MovieList extends AbstractModelObject {
    * @return the unscraped movies
    */
   public List<Movie> getUnscrapedMovies() {
-    List<Movie> unscrapedMovies = new ArrayList<Movie>();
-    for (Movie movie : movieList) {
-      if (!movie.isScraped()) {
-        unscrapedMovies.add(movie);
-      }
-    }
-    return unscrapedMovies;
+    return statistics.getEntities(LibraryStatistics.UNSCRAPED);
   }
 
   /**
@@ -197,13 +213,17 @@ public class MovieList extends AbstractModelObject {
    * @return the new movies
    */
   public List<Movie> getNewMovies() {
-    List<Movie> newMovies = new ArrayList<Movie>();
-    for (Movie movie : movieList) {
-      if (movie.isNewlyAdded()) {
-        newMovies.add(movie);
-      }
-    }
-    return newMovies;
+    return statistics.getEntities(LibraryStatistics.NEWLY_ADDED);
+  }
+
+  /**
+   * get the statistics of all movies (counts, size on disk, counts by video format/codec...); all queries are independent of the size of the
+   * movie list. Usable from any thread (see LibraryStatistics)
+   * 
+   * @return the statistics
+   */
+  public LibraryStatistics<Movie> getStatistics() {
+    return statistics;
   }
 
   /**
@@ -229,6 +249,7 @@ public class MovieList extends AbstractModelObject {
     for (int i = movies.size() - 1; i >= 0; i--) {
       Movie movie = movies.get(i);
       movieList.remove(movie);
+      statistics.remove(movie);
       if (movie.getMovieSet() != null) {
         MovieSet movieSet = movie.getMovieSet();
 
@@ -283,6 +304,7 @@ public class MovieList extends AbstractModelObject {
       Movie movie = movies.get(i);
       movie.deleteFilesSafely();
       movieList.remove(movie);
+      statistics.remove(movie);
       if (movie.getMovieSet() != null) {
         MovieSet movieSet = movie.getMovieSet();
         movieSet.removeMovie(movie);
@@ -331,6 +353,7 @@ public class MovieList extends AbstractModelObject {
         LOGGER.info("found " + movies.size() + " movies in database");
         movieList = new ObservableElementList<Movie>(GlazedLists.threadSafeList(new BasicEventList<Movie>(movies.size())),
             GlazedLists.beanConnector(Movie.class));
+        statistics.clear();
 
         for (Object obj : movies) {
           if (obj instanceof Movie) {
@@ -346,6 +369,7 @@ public class MovieList extends AbstractModelObject {
               updateMediaInformationLists(movie);
               updateCertifications(movie);
               movie.addPropertyChangeListener(tagListener);
+              statistics.add(movie);
             }
             catch (Exception e) {
               LOGGER.error("error loading movie/dropping it: " + e.getMessage());
@@ -382,12 +406,14 @@ public class MovieList extends AbstractModelObject {
             // for performance reasons we add moviesets directly
             // addMovieSet(movieSet);
             this.movieSetList.add(movieSet);
+            movieSet.addPropertyChangeListener(movieSetListener);
           }
         }
       }
       else {
         LOGGER.debug("found no movieSets in database");
       }
+      movieSetIndexDirty = true;
 
       // remove invalid movies which have no VIDEO files
       checkAndCleanupMediaFiles();
@@ -1111,6 +1137,7 @@ public class MovieList extends AbstractModelObject {
    */
   public void setMovieSetList(ObservableElementList<MovieSet> movieSetList) {
     this.movieSetList = movieSetList;
+    movieSetIndexDirty = true;
   }
 
   /**
@@ -1122,6 +1149,8 @@ public class MovieList extends AbstractModelObject {
   public void addMovieSet(MovieSet movieSet) {
     int oldValue = movieSetList.size();
     this.movieSetList.add(movieSet);
+    movieSet.addPropertyChangeListener(movieSetListener);
+    addToMovieSetIndex(movieSet);
     firePropertyChange("addedMovieSet", null, movieSet);
     firePropertyChange("movieSetCount", oldValue, movieSetList.size());
   }
@@ -1137,6 +1166,8 @@ public class MovieList extends AbstractModelObject {
     movieSet.removeAllMovies();
 
     movieSetList.remove(movieSet);
+    movieSet.removePropertyChangeListener(movieSetListener);
+    movieSetIndexDirty = true;
 
     boolean newTransaction = false;
     if (!MovieModuleManager.getInstance().getEntityManager().getTransaction().isActive()) {
@@ -1154,26 +1185,79 @@ public class MovieList extends AbstractModelObject {
     firePropertyChange("movieSetCount", oldValue, movieSetList.size());
   }
 
-  private MovieSet findMovieSet(String title, int tmdbId) {
+  private synchronized MovieSet findMovieSet(String title, int tmdbId) {
+    if (movieSetIndexDirty) {
+      rebuildMovieSetIndex();
+    }
+
+    // the change events of the movie sets are delivered on the EDT, so the index may be stale: verify a hit and search the list on a miss
+    MovieSet movieSet = null;
+
     // first search by tmdbId
     if (tmdbId > 0) {
-      for (MovieSet movieSet : movieSetList) {
-        if (movieSet.getTmdbId() == tmdbId) {
-          return movieSet;
-        }
+      movieSet = movieSetsByTmdbId.get(tmdbId);
+      if (movieSet == null || movieSet.getTmdbId() != tmdbId) {
+        movieSet = searchMovieSet(null, tmdbId);
+      }
+      if (movieSet != null) {
+        return movieSet;
       }
     }
 
     // search for the movieset by name
-    for (MovieSet movieSet : movieSetList) {
-      if (movieSet.getTitle().equals(title)) {
-        return movieSet;
+    if (title != null) {
+      movieSet = movieSetsByTitle.get(title);
+      if (movieSet == null || !title.equals(movieSet.getTitle())) {
+        movieSet = searchMovieSet(title, 0);
       }
     }
 
+    return movieSet;
+  }
+
+  /**
+   * linear search in the movie set list; a found movie set has not been in the index, so the index gets rebuilt on the next lookup
+   */
+  private MovieSet searchMovieSet(String title, int tmdbId) {
+    for (MovieSet movieSet : new ArrayList<MovieSet>(getMovieSetList())) {
+      if ((tmdbId > 0 && movieSet.getTmdbId() == tmdbId) || (title != null && title.equals(movieSet.getTitle()))) {
+        movieSetIndexDirty = true;
+        return movieSet;
+      }
+    }
     return null;
   }
 
+  /**
+   * rebuild the tmdbId and title index of the movie sets; on duplicates the first movie set wins (like the former linear search)
+   */
+  private synchronized void rebuildMovieSetIndex() {
+    // reset the flag first: a concurrent change marks the index dirty again
+    movieSetIndexDirty = false;
+    movieSetsByTmdbId.clear();
+    movieSetsByTitle.clear();
+    for (MovieSet movieSet : new ArrayList<MovieSet>(getMovieSetList())) {
+      indexMovieSet(movieSet);
+    }
+  }
+
+  private synchronized void addToMovieSetIndex(MovieSet movieSet) {
+    if (!movieSetIndexDirty) {
+      indexMovieSet(movieSet);
+    }
+  }
+
+  private void indexMovieSet(MovieSet movieSet) {
+    int tmdbId = movieSet.getTmdbId();
+    if (tmdbId > 0 && !movieSetsByTmdbId.containsKey(tmdbId)) {
+      movieSetsByTmdbId.put(tmdbId, movieSet);
+    }
+    String title = movieSet.getTitle();
+    if (title != null && !movieSetsByTitle.containsKey(title)) {
+      movieSetsByTitle.put(title, movieSet);
+    }
+  }
+
   public synchronized MovieSet getMovieSet(String title, int tmdbId) {
     MovieSet movieSet = findMovieSet(title, tmdbId);
 
@@ -1186,6 +1270,46 @@ public class MovieList extends AbstractModelObject {
     return movieSet;
   }
 
+  /**
+   * get the movie set of the collection in the scraped metadata (by the tmdbId and the name of the collection); a movie set without tmdbId gets the
+   * metadata of the collection from tmdb
+   * 
+   * @param metadata
+   *          the scraped metadata
+   * @return the movie set or null if the metadata contains no collection
+   */
+  public MovieSet getMovieSet(MediaMetadata metadata) {
+    int collectionId = metadata.getIntegerValue(MediaMetadata.TMDBID_SET);
+    if (collectionId <= 0) {
+      return null;
+    }
+
+    MovieSet movieSet = getMovieSet(metadata.getStringValue(MediaMetadata.COLLECTION_NAME), collectionId);
+    if (movieSet != null && movieSet.getTmdbId() == 0) {
+      movieSet.setTmdbId(collectionId);
+      // get movieset metadata
+      try {
+        TmdbMetadataProvider mp = new TmdbMetadataProvider();
+        MediaScrapeOptions options = new MediaScrapeOptions();
+        options.setTmdbId(collectionId);
+        options.setLanguage(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage());
+        options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
+        options.setScrapeImdbForeignLanguage(MovieModuleManager.MOVIE_SETTINGS.isImdbScrapeForeignLanguage());
+
+        CollectionInfo info = mp.getMovieSetMetadata(options);
+        if (info != null && StringUtils.isNotBlank(info.getName())) {
+          movieSet.setTitle(info.getName());
+          movieSet.setPlot(info.getOverview());
+          movieSet.setArtworkUrl(info.getPosterPath(), MediaFileType.POSTER);
+          movieSet.setArtworkUrl(info.getBackdropPath(), MediaFileType.FANART);
+        }
+      }
+      catch (Exception e) {
+      }
+    }
+    return movieSet;
+  }
+
   /**
    * Sort movies in movie set.
    * 
@@ -1203,9 +1327,8 @@ public class MovieList extends AbstractModelObject {
    * invalidate the title sortable upon changes to the sortable prefixes
    */
   public void invalidateTitleSortable() {
-    for (Movie movie : new ArrayList<Movie>(movieList)) {
-      movie.clearTitleSortable();
-    }
+    TitleSortKeyService.rebuildSortKeys(movieList);
+    TitleSortKeyService.rebuildSortKeys(getMovieSetList());
   }
 
   /**
@@ -1266,10 +1389,10 @@ public class MovieList extends AbstractModelObject {
   private class MovieSetComparator implements Comparator<MovieSet> {
     @Override
     public int compare(MovieSet o1, MovieSet o2) {
-      if (o1 == null || o2 == null || o1.getTitleSortable() == null || o2.getTitleSortable() == null) {
+      if (o1 == null || o2 == null) {
         return 0;
       }
-      return o1.getTitleSortable().compareToIgnoreCase(o2.getTitleSortable());
+      return TitleSortKeyService.COMPARATOR.compare(o1, o2);
     }
 
   }
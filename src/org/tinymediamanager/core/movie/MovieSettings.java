@@ -85,6 +85,7 @@ public class MovieSettings extends AbstractModelObject {
   private final static String           SUBTITLE_COLUMN_VISIBLE                  = "subtitleColumnVisible";
   private final static String           WATCHED_COLUMN_VISIBLE                   = "watchedColumnVisible";
   private final static String           SCRAPER_FALLBACK                         = "scraperFallback";
+  private final static String           SCRAPER_IDENTIFY_BY_HASH                 = "scraperIdentifyByHash";
 
   @XmlElementWrapper(name = MOVIE_DATA_SOURCE)
   @XmlElement(name = PATH)
@@ -154,6 +155,7 @@ public class MovieSettings extends AbstractModelObject {
   private boolean                       subtitleColumnVisible                    = true;
   private boolean                       watchedColumnVisible                     = true;
   private boolean                       scraperFallback                          = false;
+  private boolean                       scraperIdentifyByHash                    = false;
   private boolean                       useTrailerPreference                     = false;
   private MovieTrailerQuality           trailerQuality                           = MovieTrailerQuality.HD_720;
   private MovieTrailerSources           trailerSource                            = MovieTrailerSources.YOUTUBE;
@@ -709,6 +711,16 @@ public class MovieSettings extends AbstractModelObject {
     firePropertyChange(SCRAPER_FALLBACK, oldValue, newValue);
   }
 
+  public boolean isScraperIdentifyByHash() {
+    return scraperIdentifyByHash;
+  }
+
+  public void setScraperIdentifyByHash(boolean newValue) {
+    boolean oldValue = this.scraperIdentifyByHash;
+    this.scraperIdentifyByHash = newValue;
+    firePropertyChange(SCRAPER_IDENTIFY_BY_HASH, oldValue, newValue);
+  }
+
   public boolean isImageLogo() {
     return imageLogo;
   }
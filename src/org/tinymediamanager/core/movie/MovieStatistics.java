@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.util.List;
+
+import org.tinymediamanager.core.LibraryStatistics;
+import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.entities.MediaFileAudioStream;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+/**
+ * The class MovieStatistics. The aggregates of all movies in the movie list.
+ * 
+ * @author Manuel Laggner
+ */
+class MovieStatistics extends LibraryStatistics<Movie> {
+
+  @Override
+  protected void collect(Movie movie, Sample sample) {
+    if (!movie.isScraped()) {
+      sample.flag(UNSCRAPED);
+    }
+    if (movie.isNewlyAdded()) {
+      sample.flag(NEWLY_ADDED);
+    }
+    if (!movie.getHasImages()) {
+      sample.flag(MISSING_ARTWORK);
+    }
+    if (movie.isWatched()) {
+      sample.flag(WATCHED);
+    }
+
+    List<MediaFile> videos = movie.getMediaFiles(MediaFileType.VIDEO);
+    if (!videos.isEmpty()) {
+      MediaFile video = videos.get(0);
+      sample.value(VIDEO_FORMAT, video.getVideoFormat());
+      sample.value(VIDEO_CODEC, video.getVideoCodec());
+      for (MediaFileAudioStream audioStream : video.getAudioStreams()) {
+        sample.value(AUDIO_CODEC, audioStream.getCodec());
+      }
+    }
+    else {
+      sample.value(VIDEO_FORMAT, "");
+      sample.value(VIDEO_CODEC, "");
+    }
+
+    for (MediaFile mediaFile : movie.getMediaFiles()) {
+      sample.addSize(mediaFile.getFilesize());
+    }
+  }
+}
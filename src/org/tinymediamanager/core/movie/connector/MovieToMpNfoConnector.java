@@ -17,6 +17,7 @@ package org.tinymediamanager.core.movie.connector;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
@@ -26,11 +27,14 @@ import java.text.Format;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -50,6 +54,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
@@ -57,6 +62,7 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.NfoReader;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieModuleManager;
@@ -83,48 +89,52 @@ import org.tinymediamanager.scraper.util.ParserUtils;
     "fanart", "mpaa", "id", "ids", "genres", "studio", "country", "premiered", "credits", "director", "actors", "producers" })
 public class MovieToMpNfoConnector {
 
-  private static final Logger LOGGER        = LoggerFactory.getLogger(MovieToMpNfoConnector.class);
-  private static JAXBContext  context       = initContext();
-
-  private String              id            = "";
-  private String              title         = "";
-  private String              originaltitle = "";
-  private String              sorttitle     = "";
-  private float               rating        = 0;
-  private int                 votes         = 0;
-  private String              year          = "";
-  private String              outline       = "";
-  private String              plot          = "";
-  private String              tagline       = "";
-  private String              runtime       = "";
-  private String              thumb         = "";
-  private String              director      = "";
-  private String              studio        = "";
-  private String              mpaa          = "";
-  private String              credits       = "";
-  private String              country       = "";
+  private static final Logger      LOGGER        = LoggerFactory.getLogger(MovieToMpNfoConnector.class);
+  private static JAXBContext       context       = initContext();
+  // the elements which are mapped to the movie by getData
+  private static final Set<String> NFO_ELEMENTS  = new HashSet<String>(Arrays.asList("title", "originaltitle", "sorttitle", "sets", "year",
+                                                     "premiered", "plot", "tagline", "runtime", "imdb", "ids", "rating", "votes", "director",
+                                                     "credits", "studio", "country", "mpaa", "genres", "actor", "producer"));
+
+  private String                   id            = "";
+  private String                   title         = "";
+  private String                   originaltitle = "";
+  private String                   sorttitle     = "";
+  private float                    rating        = 0;
+  private int                      votes         = 0;
+  private String                   year          = "";
+  private String                   outline       = "";
+  private String                   plot          = "";
+  private String                   tagline       = "";
+  private String                   runtime       = "";
+  private String                   thumb         = "";
+  private String                   director      = "";
+  private String                   studio        = "";
+  private String                   mpaa          = "";
+  private String                   credits       = "";
+  private String                   country       = "";
 
   @XmlElement
-  private String              premiered     = "";
+  private String                   premiered     = "";
 
   @XmlElementWrapper(name = "fanart")
   @XmlElement(name = "thumb")
-  private List<String>        fanart;
+  private List<String>             fanart;
 
   @XmlAnyElement(lax = true)
-  private List<Object>        actors;
+  private List<Object>             actors;
 
   @XmlAnyElement(lax = true)
-  private List<Object>        producers;
+  private List<Object>             producers;
 
   @XmlElementWrapper(name = "genres")
   @XmlElement(name = "genre")
-  private List<String>        genres;
+  private List<String>             genres;
 
-  private List<MovieSets>     sets;
+  private List<MovieSets>          sets;
 
   @XmlElementWrapper(name = "ids")
-  private Map<String, Object> ids;
+  private Map<String, Object>      ids;
 
   private static JAXBContext initContext() {
     try {
@@ -314,15 +324,42 @@ public class MovieToMpNfoConnector {
    * @return the data
    */
   public static Movie getData(File nfoFilename) {
-    if (context == null) {
-      MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, nfoFilename, "message.nfo.readerror"));
+    try {
+      return getData(readNfo(nfoFilename));
+    }
+    catch (IOException e) {
+      LOGGER.warn("couldn't read NFO " + nfoFilename.getAbsolutePath() + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * read only the elements of the NFO file which are mapped to the movie
+   * 
+   * @param nfoFilename
+   *          the nfo filename
+   * @return the NFO document
+   * @throws IOException
+   */
+  public static NfoReader.Document readNfo(File nfoFilename) throws IOException {
+    return NfoReader.read(nfoFilename, NFO_ELEMENTS);
+  }
+
+  /**
+   * Gets the data.
+   * 
+   * @param nfo
+   *          the NFO document
+   * @return the data (null if the NFO does not contain a movie with a title)
+   */
+  public static Movie getData(NfoReader.Document nfo) {
+    if (nfo.getRoot() == null || !"movie".equals(nfo.getRoot().getName())) {
       return null;
     }
 
-    // try to parse XML
     Movie movie = null;
     try {
-      MovieToMpNfoConnector mp = parseNFO(nfoFilename);
+      MovieToMpNfoConnector mp = parseNFO(nfo.getRoot());
       movie = new Movie();
       movie.setTitle(mp.getTitle());
       movie.setSortTitle(mp.getSorttitle());
@@ -357,6 +394,10 @@ public class MovieToMpNfoConnector {
       if (StringUtils.isBlank(movie.getImdbId())) {
         movie.setImdbId(mp.id);
       }
+      // the parser stopped at an error of a malformed NFO - the IMDB id may be behind it
+      if (!nfo.isComplete() && StringUtils.isBlank(movie.getImdbId())) {
+        movie.setImdbId(nfo.detectImdbId());
+      }
 
       movie.setDirector(mp.getDirector());
       movie.setWriter(mp.getCredits());
@@ -403,14 +444,8 @@ public class MovieToMpNfoConnector {
       }
 
     }
-    catch (UnmarshalException e) {
-      LOGGER.error("getData " + nfoFilename.getAbsolutePath(), e.getMessage());
-      // MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, nfoFilename, "message.nfo.readerror"));
-      return null;
-    }
     catch (Exception e) {
-      LOGGER.error("getData " + nfoFilename.getAbsolutePath(), e);
-      // MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, nfoFilename, "message.nfo.readerror"));
+      LOGGER.error("getData " + nfo.getName(), e);
       return null;
     }
 
@@ -422,7 +457,92 @@ public class MovieToMpNfoConnector {
     return movie;
   }
 
-  private static MovieToMpNfoConnector parseNFO(File nfoFile) throws Exception {
+  /**
+   * fill a new connector with the elements of the NFO (the same as the unmarshaller would do for the mapped elements)
+   */
+  static MovieToMpNfoConnector parseNFO(NfoReader.Element root) {
+    MovieToMpNfoConnector mp = new MovieToMpNfoConnector();
+    for (NfoReader.Element element : root.getChildren()) {
+      String name = element.getName();
+      String value = element.getText();
+      if ("title".equals(name)) {
+        mp.title = value;
+      }
+      else if ("originaltitle".equals(name)) {
+        mp.originaltitle = value;
+      }
+      else if ("sorttitle".equals(name)) {
+        mp.sorttitle = value;
+      }
+      else if ("sets".equals(name)) {
+        for (NfoReader.Element set : element.getChildren()) {
+          if ("set".equals(set.getName())) {
+            String order = set.getAttribute("order");
+            mp.sets.add(new MovieSets(set.getText(), order == null ? 0 : NumberUtils.toInt(order.trim())));
+          }
+        }
+      }
+      else if ("year".equals(name)) {
+        mp.year = value;
+      }
+      else if ("premiered".equals(name)) {
+        mp.premiered = value;
+      }
+      else if ("plot".equals(name)) {
+        mp.plot = value;
+      }
+      else if ("tagline".equals(name)) {
+        mp.tagline = value;
+      }
+      else if ("runtime".equals(name)) {
+        mp.runtime = value;
+      }
+      else if ("imdb".equals(name)) {
+        mp.id = value;
+      }
+      else if ("ids".equals(name)) {
+        mp.ids.putAll(NfoReader.readMap(element));
+      }
+      else if ("rating".equals(name)) {
+        mp.rating = NumberUtils.toFloat(value.trim());
+      }
+      else if ("votes".equals(name)) {
+        mp.votes = NumberUtils.toInt(value.trim());
+      }
+      else if ("director".equals(name)) {
+        mp.director = value;
+      }
+      else if ("credits".equals(name)) {
+        mp.credits = value;
+      }
+      else if ("studio".equals(name)) {
+        mp.studio = value;
+      }
+      else if ("country".equals(name)) {
+        mp.country = value;
+      }
+      else if ("mpaa".equals(name)) {
+        mp.mpaa = value;
+      }
+      else if ("genres".equals(name)) {
+        for (NfoReader.Element genre : element.getChildren()) {
+          if ("genre".equals(genre.getName())) {
+            mp.genres.add(genre.getText());
+          }
+        }
+      }
+      else if ("actor".equals(name)) {
+        mp.addActor(element.getChildText("name"), element.getChildText("role"), element.getChildText("thumb"));
+      }
+      else if ("producer".equals(name)) {
+        // the producers are read from the actors list (see getProducers())
+        mp.actors.add(new Producer(element.getChildText("name"), element.getChildText("role"), element.getChildText("thumb")));
+      }
+    }
+    return mp;
+  }
+
+  static MovieToMpNfoConnector parseNFO(File nfoFile) throws Exception {
     Unmarshaller um = context.createUnmarshaller();
     if (um == null) {
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, nfoFile, "message.nfo.readerror"));
@@ -17,6 +17,7 @@ package org.tinymediamanager.core.movie.connector;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
@@ -29,11 +30,14 @@ import java.text.Format;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -52,6 +56,7 @@ import javax.xml.bind.annotation.XmlType;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
@@ -59,6 +64,7 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.NfoReader;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileAudioStream;
 import org.tinymediamanager.core.entities.MediaFileSubtitle;
@@ -89,142 +95,148 @@ import org.tinymediamanager.scraper.util.ParserUtils;
     "fileinfo", "watched", "playcount", "genres", "studio", "credits", "director", "tags", "actors", "producers", "resume", "lastplayed",
     "dateadded", "keywords", "poster", "url", "languages", "unsupportedElements" })
 public class MovieToXbmcNfoConnector {
-  private static final Logger  LOGGER                = LoggerFactory.getLogger(MovieToXbmcNfoConnector.class);
-  private static final Pattern PATTERN_NFO_MOVIE_TAG = Pattern.compile("<movie.*?>");
-  private static JAXBContext   context               = initContext();
+  private static final Logger      LOGGER                = LoggerFactory.getLogger(MovieToXbmcNfoConnector.class);
+  private static final Pattern     PATTERN_NFO_MOVIE_TAG = Pattern.compile("<movie.*?>");
+  // the elements which are mapped to the movie by getData
+  private static final Set<String> NFO_ELEMENTS          = new HashSet<String>(Arrays.asList("title", "originaltitle", "sorttitle", "set", "year",
+                                                             "premiered", "plot", "tagline", "runtime", "thumb", "fanart", "id", "ids", "tmdbId",
+                                                             "rating", "votes", "top250", "studio", "country", "mpaa", "certification", "watched",
+                                                             "playcount", "languages", "trailer", "director", "credits", "genre", "tag", "actor",
+                                                             "producer"));
+  private static JAXBContext       context               = initContext();
 
   @XmlElement
-  private String               title                 = "";
+  private String                   title                 = "";
 
   @XmlElement
-  private String               originaltitle         = "";
+  private String                   originaltitle         = "";
 
   @XmlElement
-  private String               year                  = "";
+  private String                   year                  = "";
 
   @XmlElement
-  private String               outline               = "";
+  private String                   outline               = "";
 
   @XmlElement
-  private String               plot                  = "";
+  private String                   plot                  = "";
 
   @XmlElement
-  private String               tagline               = "";
+  private String                   tagline               = "";
 
   @XmlElement
-  private String               runtime               = "";
+  private String                   runtime               = "";
 
   @XmlElement
-  private String               thumb                 = "";
+  private String                   thumb                 = "";
 
   @XmlElement
-  private String               fanart                = "";
+  private String                   fanart                = "";
 
   @XmlElement
-  private String               id                    = "";
+  private String                   id                    = "";
 
   @XmlElementWrapper(name = "ids")
-  private Map<String, Object>  ids;
+  private Map<String, Object>      ids;
 
   @XmlElement
-  private String               studio                = "";
+  private String                   studio                = "";
 
   @XmlElement
-  private String               country               = "";
+  private String                   country               = "";
 
   @XmlElement
-  private String               mpaa                  = "";
+  private String                   mpaa                  = "";
 
   @XmlElement(name = "certification")
-  private String               certifications        = "";
+  private String                   certifications        = "";
 
   @XmlElement
-  private String               trailer               = "";
+  private String                   trailer               = "";
 
   @XmlElement
-  private String               set                   = "";
+  private String                   set                   = "";
 
   @XmlElement
-  private String               sorttitle             = "";
+  private String                   sorttitle             = "";
 
   @XmlElement
-  private boolean              watched               = false;
+  private boolean                  watched               = false;
 
   @XmlElement
-  private float                rating                = 0;
+  private float                    rating                = 0;
 
   @XmlElement
-  private int                  votes                 = 0;
+  private int                      votes                 = 0;
 
   @XmlElement
-  private int                  playcount             = 0;
+  private int                      playcount             = 0;
 
   @XmlElement
-  private int                  tmdbId                = 0;
+  private int                      tmdbId                = 0;
 
   @XmlElement
-  private Fileinfo             fileinfo;
+  private Fileinfo                 fileinfo;
 
   @XmlElement
-  private String               premiered             = "";
+  private String                   premiered             = "";
 
   @XmlElement(name = "director")
-  private List<String>         director;
+  private List<String>             director;
 
   @XmlAnyElement(lax = true)
-  private List<Object>         actors;
+  private List<Object>             actors;
 
   @XmlAnyElement(lax = true)
-  private List<Object>         producers;
+  private List<Object>             producers;
 
   @XmlElement(name = "genre")
-  private List<String>         genres;
+  private List<String>             genres;
 
   @XmlElement(name = "credits")
-  private List<String>         credits;
+  private List<String>             credits;
 
   @XmlElement(name = "tag")
-  private List<String>         tags;
+  private List<String>             tags;
 
   @XmlElement
-  private String               top250;
+  private String                   top250;
 
   @XmlElement
-  private String               languages;
+  private String                   languages;
 
   @XmlAnyElement(lax = true)
-  private List<Object>         unsupportedElements;
+  private List<Object>             unsupportedElements;
 
   /** not supported tags, but used to retrain in NFO. */
   @XmlElement
-  private String               epbookmark;
+  private String                   epbookmark;
 
   @XmlElement
-  private String               lastplayed;
+  private String                   lastplayed;
 
   @XmlElement
-  private String               status;
+  private String                   status;
 
   @XmlElement
-  private String               code;
+  private String                   code;
 
   @XmlElement
-  private String               aired;
+  private String                   aired;
 
   @XmlElement
-  private Object               resume;
+  private Object                   resume;
 
   @XmlElement
-  private String               dateadded;
+  private String                   dateadded;
 
   @XmlElement
-  private Object               keywords;
+  private Object                   keywords;
 
   @XmlElement
-  private Object               poster;
+  private Object                   poster;
 
   @XmlElement
-  private Object               url;
+  private Object                   url;
 
   // @XmlElement(name = "rotten-tomatoes")
   // private Object rottentomatoes;
@@ -552,15 +564,42 @@ public class MovieToXbmcNfoConnector {
    * @return the data
    */
   public static Movie getData(File nfoFile) {
-    if (context == null) {
-      MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, nfoFile, "message.nfo.readerror"));
+    try {
+      return getData(readNfo(nfoFile));
+    }
+    catch (IOException e) {
+      LOGGER.warn("couldn't read NFO " + nfoFile.getAbsolutePath() + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * read only the elements of the NFO file which are mapped to the movie
+   * 
+   * @param nfoFile
+   *          the nfo filename
+   * @return the NFO document
+   * @throws IOException
+   */
+  public static NfoReader.Document readNfo(File nfoFile) throws IOException {
+    return NfoReader.read(nfoFile, NFO_ELEMENTS);
+  }
+
+  /**
+   * Gets the data.
+   * 
+   * @param nfo
+   *          the NFO document
+   * @return the data (null if the NFO does not contain a movie with a title)
+   */
+  public static Movie getData(NfoReader.Document nfo) {
+    if (nfo.getRoot() == null || !"movie".equals(nfo.getRoot().getName())) {
       return null;
     }
 
-    // try to parse XML
     Movie movie = null;
     try {
-      MovieToXbmcNfoConnector xbmc = parseNFO(nfoFile);
+      MovieToXbmcNfoConnector xbmc = parseNFO(nfo.getRoot());
       movie = new Movie();
       movie.setTitle(xbmc.title);
       movie.setOriginalTitle(xbmc.originaltitle);
@@ -617,6 +656,10 @@ public class MovieToXbmcNfoConnector {
       if (StringUtils.isBlank(movie.getImdbId())) {
         movie.setImdbId(xbmc.id);
       }
+      // the parser stopped at an error of a malformed NFO - the IMDB id may be behind it
+      if (!nfo.isComplete() && StringUtils.isBlank(movie.getImdbId())) {
+        movie.setImdbId(nfo.detectImdbId());
+      }
       if (movie.getTmdbId() == 0) {
         movie.setTmdbId(xbmc.tmdbId);
       }
@@ -717,12 +760,8 @@ public class MovieToXbmcNfoConnector {
       }
 
     }
-    catch (UnmarshalException e) {
-      LOGGER.error("getData " + nfoFile.getAbsolutePath(), e.getMessage());
-      return null;
-    }
     catch (Exception e) {
-      LOGGER.error("getData " + nfoFile.getAbsolutePath(), e);
+      LOGGER.error("getData " + nfo.getName(), e);
       return null;
     }
 
@@ -734,7 +773,113 @@ public class MovieToXbmcNfoConnector {
     return movie;
   }
 
-  private static MovieToXbmcNfoConnector parseNFO(File nfoFile) throws Exception {
+  /**
+   * fill a new connector with the elements of the NFO (the same as the unmarshaller would do for the mapped elements)
+   */
+  static MovieToXbmcNfoConnector parseNFO(NfoReader.Element root) {
+    MovieToXbmcNfoConnector xbmc = new MovieToXbmcNfoConnector();
+    for (NfoReader.Element element : root.getChildren()) {
+      String name = element.getName();
+      String value = element.getText();
+      if ("title".equals(name)) {
+        xbmc.title = value;
+      }
+      else if ("originaltitle".equals(name)) {
+        xbmc.originaltitle = value;
+      }
+      else if ("sorttitle".equals(name)) {
+        xbmc.sorttitle = value;
+      }
+      else if ("set".equals(name)) {
+        xbmc.set = value;
+      }
+      else if ("year".equals(name)) {
+        xbmc.year = value;
+      }
+      else if ("premiered".equals(name)) {
+        xbmc.premiered = value;
+      }
+      else if ("plot".equals(name)) {
+        xbmc.plot = value;
+      }
+      else if ("tagline".equals(name)) {
+        xbmc.tagline = value;
+      }
+      else if ("runtime".equals(name)) {
+        xbmc.runtime = value;
+      }
+      else if ("thumb".equals(name)) {
+        xbmc.thumb = value;
+      }
+      else if ("fanart".equals(name)) {
+        xbmc.fanart = value;
+      }
+      else if ("id".equals(name)) {
+        xbmc.id = value;
+      }
+      else if ("ids".equals(name)) {
+        xbmc.ids.putAll(NfoReader.readMap(element));
+      }
+      else if ("tmdbId".equals(name)) {
+        xbmc.tmdbId = NumberUtils.toInt(value.trim());
+      }
+      else if ("rating".equals(name)) {
+        xbmc.rating = NumberUtils.toFloat(value.trim());
+      }
+      else if ("votes".equals(name)) {
+        xbmc.votes = NumberUtils.toInt(value.trim());
+      }
+      else if ("top250".equals(name)) {
+        xbmc.top250 = value;
+      }
+      else if ("studio".equals(name)) {
+        xbmc.studio = value;
+      }
+      else if ("country".equals(name)) {
+        xbmc.country = value;
+      }
+      else if ("mpaa".equals(name)) {
+        xbmc.mpaa = value;
+      }
+      else if ("certification".equals(name)) {
+        xbmc.certifications = value;
+      }
+      else if ("watched".equals(name)) {
+        xbmc.watched = "true".equals(value.trim()) || "1".equals(value.trim());
+      }
+      else if ("playcount".equals(name)) {
+        xbmc.playcount = NumberUtils.toInt(value.trim());
+      }
+      else if ("languages".equals(name)) {
+        xbmc.languages = value;
+      }
+      else if ("trailer".equals(name)) {
+        xbmc.trailer = value;
+      }
+      else if ("director".equals(name)) {
+        xbmc.director.add(value);
+      }
+      else if ("credits".equals(name)) {
+        xbmc.credits.add(value);
+      }
+      else if ("genre".equals(name)) {
+        xbmc.genres.add(value);
+      }
+      else if ("tag".equals(name)) {
+        xbmc.tags.add(value);
+      }
+      else if ("actor".equals(name)) {
+        xbmc.addActor(element.getChildText("name"), element.getChildText("role"), element.getChildText("thumb"));
+      }
+      else if ("producer".equals(name)) {
+        // the producers are read from the actors list (see getProducers())
+        xbmc.actors.add(new Producer(element.getChildText("name"), element.getChildText("role"), element.getChildText("thumb")));
+      }
+    }
+    return xbmc;
+  }
+
+  static MovieToXbmcNfoConnector parseNFO(File nfoFile) throws Exception {
     Unmarshaller um = context.createUnmarshaller();
     if (um == null) {
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, nfoFile, "message.nfo.readerror"));
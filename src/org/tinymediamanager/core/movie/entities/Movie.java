@@ -20,6 +20,7 @@ import static org.tinymediamanager.core.Constants.*;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.text.CollationKey;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -50,7 +51,9 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.ITitleSortable;
 import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.TitleSortKeyService;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
@@ -75,12 +78,8 @@ import org.tinymediamanager.scraper.MediaArtwork.MediaArtworkType;
 import org.tinymediamanager.scraper.MediaCastMember;
 import org.tinymediamanager.scraper.MediaGenres;
 import org.tinymediamanager.scraper.MediaMetadata;
-import org.tinymediamanager.scraper.MediaScrapeOptions;
-import org.tinymediamanager.scraper.tmdb.TmdbMetadataProvider;
 import org.tinymediamanager.scraper.util.UrlUtil;
 
-import com.omertron.themoviedbapi.model.CollectionInfo;
-
 /**
  * The main class for movies.
  * 
@@ -88,7 +87,7 @@ import com.omertron.themoviedbapi.model.CollectionInfo;
  */
 @Entity
 @Inheritance(strategy = javax.persistence.InheritanceType.JOINED)
-public class Movie extends MediaEntity {
+public class Movie extends MediaEntity implements ITitleSortable {
   @XmlTransient
   private static final Logger LOGGER          = LoggerFactory.getLogger(Movie.class);
 
@@ -132,6 +131,9 @@ public class Movie extends MediaEntity {
   @Transient
   private String              titleSortable   = "";
 
+  @Transient
+  private CollationKey        titleSortKey    = null;
+
   @Transient
   private boolean             newlyAdded      = false;
 
@@ -208,6 +210,7 @@ public class Movie extends MediaEntity {
    * 
    * @return the title in its sortable format
    */
+  @Override
   public String getTitleSortable() {
     if (StringUtils.isEmpty(titleSortable)) {
       titleSortable = Utils.getSortableName(this.getTitle());
@@ -215,8 +218,18 @@ public class Movie extends MediaEntity {
     return titleSortable;
   }
 
+  @Override
+  public CollationKey getTitleSortKey() {
+    if (titleSortKey == null) {
+      titleSortKey = TitleSortKeyService.getSortKey(getTitleSortable());
+    }
+    return titleSortKey;
+  }
+
+  @Override
   public void clearTitleSortable() {
     titleSortable = "";
+    titleSortKey = null;
   }
 
   /**
@@ -790,10 +803,21 @@ public class Movie extends MediaEntity {
    * @param config
    *          the config
    */
+  public void setMetadata(MediaMetadata metadata, MovieScraperMetadataConfig config) {
+    setMetadata(metadata, config, true);
+  }
+
   /**
+   * Sets the metadata.
+   * 
    * @param metadata
+   *          the new metadata
+   * @param config
+   *          the config
+   * @param assignMovieSet
+   *          add the movie to the movie set of the metadata; false if the caller adds the movies to their movie sets in batches
    */
-  public void setMetadata(MediaMetadata metadata, MovieScraperMetadataConfig config) {
+  public void setMetadata(MediaMetadata metadata, MovieScraperMetadataConfig config, boolean assignMovieSet) {
     if (metadata == null) {
       LOGGER.error("metadata was null");
       return;
@@ -916,45 +940,20 @@ public class Movie extends MediaEntity {
     saveToDb();
 
     // create MovieSet
-    if (config.isCollection()) {
-      int col = metadata.getIntegerValue(MediaMetadata.TMDBID_SET);
-      if (col != 0) {
-        MovieSet movieSet = MovieList.getInstance().getMovieSet(metadata.getStringValue(MediaMetadata.COLLECTION_NAME), col);
-        if (movieSet != null && movieSet.getTmdbId() == 0) {
-          movieSet.setTmdbId(col);
-          // get movieset metadata
-          try {
-            TmdbMetadataProvider mp = new TmdbMetadataProvider();
-            MediaScrapeOptions options = new MediaScrapeOptions();
-            options.setTmdbId(col);
-            options.setLanguage(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage());
-            options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
-            options.setScrapeImdbForeignLanguage(MovieModuleManager.MOVIE_SETTINGS.isImdbScrapeForeignLanguage());
-
-            CollectionInfo info = mp.getMovieSetMetadata(options);
-            if (info != null && StringUtils.isNotBlank(info.getName())) {
-              movieSet.setTitle(info.getName());
-              movieSet.setPlot(info.getOverview());
-              movieSet.setArtworkUrl(info.getPosterPath(), MediaFileType.POSTER);
-              movieSet.setArtworkUrl(info.getBackdropPath(), MediaFileType.FANART);
-            }
-          }
-          catch (Exception e) {
-          }
-        }
-
-        // add movie to movieset
-        if (movieSet != null) {
-          // first remove from "old" movieset
-          setMovieSet(null);
-
-          // add to new movieset
-          // movieSet.addMovie(this);
-          setMovieSet(movieSet);
-          movieSet.insertMovie(this);
-          movieSet.updateMovieSorttitle();
-          // saveToDb();
-        }
+    if (config.isCollection() && assignMovieSet) {
+      MovieSet movieSet = MovieList.getInstance().getMovieSet(metadata);
+
+      // add movie to movieset
+      if (movieSet != null) {
+        // first remove from "old" movieset
+        setMovieSet(null);
+
+        // add to new movieset
+        // movieSet.addMovie(this);
+        setMovieSet(movieSet);
+        movieSet.insertMovie(this);
+        movieSet.updateMovieSorttitle();
+        // saveToDb();
       }
     }
   }
@@ -1152,6 +1151,7 @@ public class Movie extends MediaEntity {
 
     oldValue = this.titleSortable;
     titleSortable = "";
+    titleSortKey = null;
     firePropertyChange(TITLE_SORTABLE, oldValue, titleSortable);
   }
 
@@ -1598,7 +1598,9 @@ public class Movie extends MediaEntity {
    *          true/false
    */
   public void setNewlyAdded(boolean newlyAdded) {
+    boolean oldValue = this.newlyAdded;
     this.newlyAdded = newlyAdded;
+    firePropertyChange(NEWLY_ADDED, oldValue, newlyAdded);
   }
 
   /**
@@ -1810,6 +1812,9 @@ public class Movie extends MediaEntity {
     final EntityManager entityManager = getEntityManager();
     readWriteLock.readLock().lock();
     synchronized (entityManager) {
+      // transfer the changed media files to the persisted list
+      reconcileMediaFiles();
+
       // hotfix - some moviesets are not in the context
       if (movieSet != null && !MovieModuleManager.getInstance().getEntityManager().contains(movieSet)) {
         MovieModuleManager.getInstance().getEntityManager().merge(movieSet);
@@ -21,12 +21,16 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.text.CollationKey;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
@@ -39,8 +43,11 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.ArtworkStore;
+import org.tinymediamanager.core.ITitleSortable;
 import org.tinymediamanager.core.ImageCache;
 import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.TitleSortKeyService;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
@@ -58,7 +65,7 @@ import org.tinymediamanager.scraper.util.Url;
  * @author Manuel Laggner
  */
 @Entity
-public class MovieSet extends MediaEntity {
+public class MovieSet extends MediaEntity implements ITitleSortable {
   private static final Logger            LOGGER                      = LoggerFactory.getLogger(MovieSet.class);
   private static final Comparator<Movie> MOVIE_SET_COMPARATOR        = new MovieInMovieSetComparator();
   private static final String[]          SUPPORTED_ARTWORK_FILETYPES = { "jpg", "png", "tbn" };
@@ -69,6 +76,9 @@ public class MovieSet extends MediaEntity {
   @Transient
   private String                         titleSortable               = "";
 
+  @Transient
+  private CollationKey                   titleSortKey                = null;
+
   static {
     mediaFileComparator = new MovieMediaFileComparator();
   }
@@ -84,6 +94,7 @@ public class MovieSet extends MediaEntity {
   @Override
   public void setTitle(String newValue) {
     super.setTitle(newValue);
+    clearTitleSortable();
 
     synchronized (movies) {
       for (Movie movie : movies) {
@@ -98,6 +109,7 @@ public class MovieSet extends MediaEntity {
    * 
    * @return the title in its sortable format
    */
+  @Override
   public String getTitleSortable() {
     if (StringUtils.isEmpty(titleSortable)) {
       titleSortable = Utils.getSortableName(this.getTitle());
@@ -105,6 +117,20 @@ public class MovieSet extends MediaEntity {
     return titleSortable;
   }
 
+  @Override
+  public CollationKey getTitleSortKey() {
+    if (titleSortKey == null) {
+      titleSortKey = TitleSortKeyService.getSortKey(getTitleSortable());
+    }
+    return titleSortKey;
+  }
+
+  @Override
+  public void clearTitleSortable() {
+    titleSortable = "";
+    titleSortKey = null;
+  }
+
   public MovieSet(String title) {
     setTitle(title);
   }
@@ -334,6 +360,71 @@ public class MovieSet extends MediaEntity {
     firePropertyChange("movies", null, movies);
   }
 
+  /**
+   * Adds all given movies at once: the movies are sorted only once, the movie set and all movies are persisted in one transaction and the movie
+   * set artwork is written once for all new movies. Movies which are assigned to another movie set are removed from it.
+   * 
+   * @param moviesToAdd
+   *          the movies to add
+   */
+  public void addMovies(Collection<Movie> moviesToAdd) {
+    List<Movie> addedMovies = new ArrayList<Movie>(moviesToAdd.size());
+
+    for (Movie movie : moviesToAdd) {
+      if (movie.getMovieSet() != null && movie.getMovieSet() != this) {
+        movie.getMovieSet().removeMovie(movie);
+      }
+    }
+
+    synchronized (movies) {
+      Set<Movie> containedMovies = new HashSet<Movie>(movies);
+      for (Movie movie : moviesToAdd) {
+        if (containedMovies.add(movie)) {
+          movies.add(movie);
+          addedMovies.add(movie);
+        }
+      }
+      if (addedMovies.isEmpty()) {
+        return;
+      }
+      Collections.sort(movies, MOVIE_SET_COMPARATOR);
+
+      // one transaction for the movie set and all movies
+      final EntityManager entityManager = getEntityManager();
+      synchronized (entityManager) {
+        boolean newTransaction = false;
+        if (!entityManager.getTransaction().isActive()) {
+          entityManager.getTransaction().begin();
+          newTransaction = true;
+        }
+
+        saveToDb();
+        for (Movie movie : addedMovies) {
+          movie.setMovieSet(this);
+        }
+        // the position of all movies may have changed
+        for (Movie movie : movies) {
+          movie.setSortTitleFromMovieSet();
+          movie.saveToDb();
+        }
+
+        if (newTransaction) {
+          entityManager.getTransaction().commit();
+        }
+      }
+    }
+
+    // write images
+    if (MovieModuleManager.MOVIE_SETTINGS.isEnableMovieSetArtworkMovieFolder()) {
+      writeImagesToMovieFolder(addedMovies);
+    }
+
+    for (Movie movie : addedMovies) {
+      firePropertyChange("addedMovie", null, movie);
+    }
+    firePropertyChange("movies", null, movies);
+  }
+
   /**
    * Removes the movie from the list.
    * 
@@ -514,20 +605,8 @@ public class MovieSet extends MediaEntity {
   }
 
   private void writeImage(String url, String pathAndFilename) throws IOException, InterruptedException {
-    Url url1 = new Url(url);
-    FileOutputStream outputStream = new FileOutputStream(pathAndFilename);
-    InputStream is = url1.getInputStream();
-    IOUtils.copy(is, outputStream);
-    outputStream.flush();
-    try {
-      outputStream.getFD().sync(); // wait until file has been completely written
-    }
-    catch (Exception e) {
-      // empty here -> just not let the thread crash
-    }
-    outputStream.close();
-    is.close();
-
+    // the set artwork is written to every movie folder; it is downloaded only once and copied to the movie folders
+    ArtworkStore.writeArtwork(url, new File(pathAndFilename));
     ImageCache.invalidateCachedImage(pathAndFilename);
   }
 
@@ -563,6 +642,7 @@ public class MovieSet extends MediaEntity {
     final EntityManager entityManager = getEntityManager();
     readWriteLock.readLock().lock();
     synchronized (entityManager) {
+      reconcileMediaFiles();
       if (!entityManager.getTransaction().isActive()) {
         entityManager.getTransaction().begin();
         entityManager.persist(this);
@@ -644,6 +724,7 @@ public class MovieSet extends MediaEntity {
 
       try {
         Url url = new Url(imageUrl);
+        url.setBulkTransfer(true);
         FileOutputStream outputStream = new FileOutputStream(outputFile);
         InputStream is = url.getInputStream();
         IOUtils.copy(is, outputStream);
@@ -15,14 +15,15 @@
  */
 package org.tinymediamanager.core.movie.tasks;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
 
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieModuleManager;
 import org.tinymediamanager.core.movie.entities.Movie;
@@ -33,18 +34,17 @@ import org.tinymediamanager.scraper.MediaScrapeOptions;
 import org.tinymediamanager.scraper.tmdb.TmdbMetadataProvider;
 import org.tinymediamanager.ui.UTF8Control;
 
-import com.omertron.themoviedbapi.model.CollectionInfo;
-
 /**
  * The class MovieAssignMovieSetTask. A task to assign the movie set to the given movies
  * 
  * @author Manuel Laggner
  */
 public class MovieAssignMovieSetTask extends TmmThreadPool {
-  private final static Logger         LOGGER = LoggerFactory.getLogger(MovieAssignMovieSetTask.class);
-  private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private final static Logger         LOGGER      = LoggerFactory.getLogger(MovieAssignMovieSetTask.class);
+  private static final ResourceBundle BUNDLE      = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
 
   private List<Movie>                 moviesToScrape;
+  private Map<MovieSet, List<Movie>>  assignments = new LinkedHashMap<MovieSet, List<Movie>>();
 
   public MovieAssignMovieSetTask(List<Movie> moviesToScrape) {
     super(BUNDLE.getString("movie.assignmovieset"));
@@ -61,6 +61,14 @@ public class MovieAssignMovieSetTask extends TmmThreadPool {
       submitTask(new Worker(movie));
     }
     waitForCompletionOrCancel();
+
+    // add the movies to their movie sets; one sort, one transaction and one artwork write per movie set
+    synchronized (assignments) {
+      for (Entry<MovieSet, List<Movie>> entry : assignments.entrySet()) {
+        entry.getKey().addMovies(entry.getValue());
+      }
+      assignments.clear();
+    }
     LOGGER.info("Done assigning movies to movie sets");
   }
 
@@ -89,45 +97,19 @@ public class MovieAssignMovieSetTask extends TmmThreadPool {
         }
 
         MediaMetadata md = mp.getMetadata(options);
-        int collectionId = md.getIntegerValue(MediaMetadata.TMDBID_SET);
-        if (collectionId > 0) {
-          String collectionName = md.getStringValue(MediaMetadata.COLLECTION_NAME);
-          MovieSet movieSet = movieList.getMovieSet(collectionName, collectionId);
-          if (movieSet != null && movieSet.getTmdbId() == 0) {
-            movieSet.setTmdbId(collectionId);
-            // get movieset metadata
-            try {
-              options = new MediaScrapeOptions();
-              options.setTmdbId(collectionId);
-              options.setLanguage(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage());
-              options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
-              options.setScrapeImdbForeignLanguage(MovieModuleManager.MOVIE_SETTINGS.isImdbScrapeForeignLanguage());
-
-              CollectionInfo info = mp.getMovieSetMetadata(options);
-              if (info != null && StringUtils.isNotBlank(info.getName())) {
-                movieSet.setTitle(info.getName());
-                movieSet.setPlot(info.getOverview());
-                movieSet.setArtworkUrl(info.getPosterPath(), MediaFileType.POSTER);
-                movieSet.setArtworkUrl(info.getBackdropPath(), MediaFileType.FANART);
-              }
-            }
-            catch (Exception e) {
+        MovieSet movieSet = movieList.getMovieSet(md);
+
+        // remember the movie for the movieset; all movies are added at once after scraping
+        if (movieSet != null) {
+          synchronized (assignments) {
+            List<Movie> movies = assignments.get(movieSet);
+            if (movies == null) {
+              movies = new ArrayList<Movie>();
+              assignments.put(movieSet, movies);
             }
-          }
-
-          // add movie to movieset
-          if (movieSet != null) {
-            // first remove from "old" movieset
-            movie.setMovieSet(null);
-
-            // add to new movieset
-            movie.setMovieSet(movieSet);
-            movieSet.insertMovie(movie);
-            movieSet.updateMovieSorttitle();
-            movie.saveToDb();
+            movies.add(movie);
           }
         }
-
       }
       catch (Exception e) {
         LOGGER.error("error getting metadata: " + e.getMessage());
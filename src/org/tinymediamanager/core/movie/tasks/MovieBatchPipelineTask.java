@@ -0,0 +1,226 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie.tasks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.MediaFileInformationFetcherTask;
+import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.movie.MovieList;
+import org.tinymediamanager.core.movie.MovieModuleManager;
+import org.tinymediamanager.core.movie.MovieRenamer;
+import org.tinymediamanager.core.movie.MovieSearchAndScrapeOptions;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.threading.PipelineStage;
+import org.tinymediamanager.core.threading.TmmTask;
+import org.tinymediamanager.core.threading.TmmTaskManager;
+import org.tinymediamanager.scraper.trakttv.SyncTraktTvTask;
+import org.tinymediamanager.ui.UTF8Control;
+
+/**
+ * The class MovieBatchPipelineTask. Updates the data sources, scrapes and renames the new movies in one pipeline: every new movie is handed over
+ * to the next stage as soon as it has been found, so the I/O of the update overlaps with the network access of the scraper. The stages are
+ * connected by bounded queues; a slow stage blocks the previous one.
+ * 
+ * @author Manuel Laggner
+ */
+public class MovieBatchPipelineTask extends TmmTask {
+  private static final Logger         LOGGER          = LoggerFactory.getLogger(MovieBatchPipelineTask.class);
+  private static final ResourceBundle BUNDLE          = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final int            QUEUE_SIZE      = 20;
+  // the artwork downloads of a movie must not block the scrape stage forever (e.g. if the image pool has been shut down)
+  private static final long           ARTWORK_TIMEOUT = 300000;
+
+  private final List<String>          dataSources;
+  private final boolean               scrape;
+  private final boolean               rename;
+  private final List<Movie>           scrapedMovies;
+  private String                      summary         = "";
+
+  /**
+   * create a new batch pipeline
+   * 
+   * @param dataSources
+   *          the data sources to update (empty for all data sources)
+   * @param scrape
+   *          scrape the new movies (force best match)
+   * @param rename
+   *          rename the new movies
+   */
+  public MovieBatchPipelineTask(List<String> dataSources, boolean scrape, boolean rename) {
+    super(BUNDLE.getString("movie.batch"), 0, TaskType.MAIN_TASK);
+    this.dataSources = dataSources;
+    this.scrape = scrape;
+    this.rename = rename;
+    this.scrapedMovies = Collections.synchronizedList(new ArrayList<Movie>());
+  }
+
+  @Override
+  protected void doInBackground() {
+    try {
+      PipelineStage<Movie> firstStage = createStages();
+      firstStage.start();
+
+      // stage 0: update the data sources; every new movie is handed over to the pipeline while the update is running
+      long start = System.currentTimeMillis();
+      if (dataSources.isEmpty()) {
+        MovieUpdateDatasourceTask task = new MovieUpdateDatasourceTask();
+        task.setNewMovieStage(firstStage);
+        task.run();
+      }
+      else {
+        for (String dataSource : dataSources) {
+          MovieUpdateDatasourceTask task = new MovieUpdateDatasourceTask(dataSource);
+          task.setNewMovieStage(firstStage);
+          task.run();
+        }
+      }
+
+      // also the new movies from former updates (if not yet handed over)
+      List<Movie> newMovies = MovieList.getInstance().getNewMovies();
+      for (Movie movie : newMovies) {
+        firstStage.submit(movie);
+      }
+      long updateTime = Math.max(1, System.currentTimeMillis() - start);
+
+      firstStage.close();
+      firstStage.awaitCompletion();
+
+      if (scrape && MovieModuleManager.MOVIE_SETTINGS.getSyncTrakt() && !scrapedMovies.isEmpty()) {
+        TmmTaskManager.getInstance().addUnnamedTask(new SyncTraktTvTask(new ArrayList<Movie>(scrapedMovies), null));
+      }
+
+      // wait for the artwork downloads and other background tasks
+      TmmTaskManager.getInstance().awaitIdle();
+
+      summary = "update: " + newMovies.size() + " new movies in " + Utils.MSECtoHHMMSS(updateTime) + "\n" + firstStage.getSummary();
+      LOGGER.info("Done batch processing movies - throughput per stage:\n" + summary);
+    }
+    catch (InterruptedException e) {
+      LOGGER.warn("batch processing interrupted");
+    }
+  }
+
+  /**
+   * get the throughput summary of all stages (available after the task has finished)
+   * 
+   * @return the summary
+   */
+  public String getSummary() {
+    return summary;
+  }
+
+  private PipelineStage<Movie> createStages() {
+    // stage 1: mediainfo (the renamer needs it)
+    PipelineStage<Movie> firstStage = new PipelineStage<Movie>("mediainfo", 2, QUEUE_SIZE) {
+      private final Set<Movie> handedOver = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Movie, Boolean>()));
+
+      @Override
+      public void submit(Movie movie) throws InterruptedException {
+        // a movie may be found more than once (e.g. stacked files in a multi movie dir)
+        if (handedOver.add(movie)) {
+          super.submit(movie);
+        }
+      }
+
+      @Override
+      protected boolean process(Movie movie) throws Exception {
+        List<MediaFile> ungatheredMediaFiles = new ArrayList<MediaFile>();
+        for (MediaFile mf : new ArrayList<MediaFile>(movie.getMediaFiles())) {
+          if (StringUtils.isBlank(mf.getContainerFormat())) {
+            ungatheredMediaFiles.add(mf);
+          }
+        }
+        if (!ungatheredMediaFiles.isEmpty()) {
+          new MediaFileInformationFetcherTask(ungatheredMediaFiles, movie, false).call();
+        }
+        return true;
+      }
+    };
+    PipelineStage<Movie> lastStage = firstStage;
+
+    // stage 2: scrape (force best match) and wait for the artwork; otherwise the renamer would miss it
+    if (scrape) {
+      MovieSearchAndScrapeOptions options = new MovieSearchAndScrapeOptions();
+      options.loadDefaults();
+      final MovieScrapeTask scrapeTask = new MovieScrapeTask(new ArrayList<Movie>(0), true, options);
+
+      lastStage = lastStage.setNext(new PipelineStage<Movie>("scrape", 3, QUEUE_SIZE) {
+        @Override
+        protected boolean process(Movie movie) throws Exception {
+          TmmTaskManager.getInstance().startTaskTracking();
+          boolean scraped;
+          try {
+            scraped = scrapeTask.scrapeMovie(movie);
+          }
+          finally {
+            long deadline = System.currentTimeMillis() + ARTWORK_TIMEOUT;
+            for (Future<?> artwork : TmmTaskManager.getInstance().stopTaskTracking()) {
+              try {
+                artwork.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+              }
+              catch (ExecutionException e) {
+                LOGGER.warn("could not download artwork for " + movie.getTitle() + ": " + e.getCause());
+              }
+              catch (TimeoutException e) {
+                LOGGER.warn("timeout downloading artwork for " + movie.getTitle());
+                artwork.cancel(true);
+              }
+              catch (CancellationException e) {
+                LOGGER.warn("artwork download for " + movie.getTitle() + " has been cancelled");
+              }
+            }
+          }
+          if (scraped) {
+            scrapedMovies.add(movie);
+          }
+          else {
+            LOGGER.info("could not scrape " + movie.getTitle());
+          }
+          // unscraped movies are renamed too (like in the sequential mode)
+          return true;
+        }
+      });
+    }
+
+    // stage 3: rename & cleanup
+    if (rename) {
+      lastStage = lastStage.setNext(new PipelineStage<Movie>("rename", 1, QUEUE_SIZE) {
+        @Override
+        protected boolean process(Movie movie) throws Exception {
+          MovieRenamer.renameMovie(movie);
+          return true;
+        }
+      });
+    }
+
+    return firstStage;
+  }
+}
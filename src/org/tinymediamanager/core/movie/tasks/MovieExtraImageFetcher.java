@@ -123,19 +123,26 @@ public class MovieExtraImageFetcher implements Runnable {
 
       // fetch and store images
       Url url1 = new Url(artworkUrl);
+      url1.setBulkTransfer(true);
       File file = new File(movie.getPath(), filename);
-      FileOutputStream outputStream = new FileOutputStream(file);
-      InputStream is = url1.getInputStream();
-      IOUtils.copy(is, outputStream);
-      outputStream.flush();
+      // stream the image directly to the disk
+      InputStream is = url1.getInputStream(true);
+      FileOutputStream outputStream = null;
       try {
-        outputStream.getFD().sync(); // wait until file has been completely written
+        outputStream = new FileOutputStream(file);
+        IOUtils.copy(is, outputStream);
+        outputStream.flush();
+        try {
+          outputStream.getFD().sync(); // wait until file has been completely written
+        }
+        catch (Exception e) {
+          // empty here -> just not let the thread crash
+        }
       }
-      catch (Exception e) {
-        // empty here -> just not let the thread crash
+      finally {
+        IOUtils.closeQuietly(outputStream);
+        IOUtils.closeQuietly(is);
       }
-      outputStream.close();
-      is.close();
 
       // has tmm been shut down?
       if (Thread.interrupted()) {
@@ -177,6 +184,7 @@ public class MovieExtraImageFetcher implements Runnable {
         String urlAsString = fanarts.get(i);
         String providedFiletype = FilenameUtils.getExtension(urlAsString);
         Url url = new Url(urlAsString);
+        url.setBulkTransfer(true);
         File file = new File(path, "fanart" + (i + 1) + "." + providedFiletype);
         FileOutputStream outputStream = new FileOutputStream(file);
         InputStream is = url.getInputStream();
@@ -245,6 +253,7 @@ public class MovieExtraImageFetcher implements Runnable {
           file = new File(path, "thumb" + (i + 1) + "." + providedFiletype);
           outputStream = new FileOutputStream(file);
           Url url1 = new Url(url);
+          url1.setBulkTransfer(true);
           is = url1.getInputStream();
         }
 
@@ -17,8 +17,14 @@ package org.tinymediamanager.core.movie.tasks;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,11 +47,15 @@ import org.tinymediamanager.ui.UTF8Control;
  */
 
 public class MovieFindMissingTask extends TmmThreadPool {
-  private static final Logger         LOGGER = LoggerFactory.getLogger(MovieFindMissingTask.class);
-  private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final Logger         LOGGER         = LoggerFactory.getLogger(MovieFindMissingTask.class);
+  private static final ResourceBundle BUNDLE         = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final long           MIN_FILE_SIZE  = 1024 * 1024 * 100;
+  private static final int            WALKER_THREADS = 4;
 
   private List<String>                dataSources;
   private MovieList                   movieList;
+  private Set<File>                   knownFiles;
+  private Map<File, List<File>>       missingFiles   = new TreeMap<File, List<File>>();
 
   public MovieFindMissingTask() {
     super(BUNDLE.getString("movie.findmissing"));
@@ -65,42 +75,55 @@ public class MovieFindMissingTask extends TmmThreadPool {
     try {
       long start = System.currentTimeMillis();
 
-      // build MF list
-      ArrayList<MediaFile> mfs = new ArrayList<MediaFile>();
+      // build an index of all known files
+      knownFiles = new HashSet<File>();
       for (Movie movie : movieList.getMovies()) {
-        mfs.addAll(movie.getMediaFiles());
-        // mfs.addAll(movie.getMediaFiles(MediaFileType.VIDEO));
-        // mfs.addAll(movie.getMediaFiles(MediaFileType.VIDEO_EXTRA));
-        // mfs.addAll(movie.getMediaFiles(MediaFileType.TRAILER));
+        for (MediaFile mf : movie.getMediaFiles()) {
+          knownFiles.add(mf.getFile());
+        }
       }
 
       for (String ds : dataSources) {
-        start();
-
-        ArrayList<File> bigFiles = getBigFiles(new File(ds));
         if (cancel) {
           break;
         }
+        start();
+        initThreadPool(WALKER_THREADS, "findMissing");
 
-        for (File file : bigFiles) {
-          if (cancel) {
-            break;
-          }
+        File[] list = new File(ds).listFiles();
+        if (list == null) {
+          continue;
+        }
 
-          MediaFile mf = new MediaFile(file);
-          if (!mfs.contains(mf)) {
-            LOGGER.info("found possible movie file " + file);
-            MessageManager.instance
-                .pushMessage(new Message(MessageLevel.ERROR, "possible movie", "found possible movie " + file, new String[] { ds }));
+        // every folder in the datasource is walked in its own worker; files directly in the datasource are checked here
+        List<File> filesInRoot = new ArrayList<File>();
+        for (File file : list) {
+          if (file.isFile()) {
+            if (isPossibleMovieFile(file)) {
+              filesInRoot.add(file);
+            }
+          }
+          else if (!file.getName().equals(Constants.BACKUP_FOLDER)) {
+            submitTask(new FindBigFilesTask(file));
           }
         }
+        addMissingFiles(filesInRoot);
+
+        waitForCompletionOrCancel();
         if (cancel) {
           break;
         }
       }
 
+      // one message per directory
+      for (Map.Entry<File, List<File>> entry : missingFiles.entrySet()) {
+        LOGGER.info("found " + entry.getValue().size() + " possible movie file(s) in " + entry.getKey() + ": " + entry.getValue());
+        MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, "possible movie", "found " + entry.getValue().size()
+            + " possible movie file(s) in " + entry.getKey(), new String[] { entry.getKey().getAbsolutePath() }));
+      }
+
       long end = System.currentTimeMillis();
-      LOGGER.info("Done updating datasource :) - took " + Utils.MSECtoHHMMSS(end - start));
+      LOGGER.info("Done finding missing movies :) - took " + Utils.MSECtoHHMMSS(end - start));
     }
     catch (Exception e) {
       LOGGER.error("Thread crashed", e);
@@ -109,14 +132,37 @@ public class MovieFindMissingTask extends TmmThreadPool {
   }
 
   /**
-   * recursively gets all Files >100mb from a dir
+   * get the result of the search: all unknown big files, grouped by their directory
+   * 
+   * @return a map directory -> unknown files (sorted by directory)
    */
-  private ArrayList<File> getBigFiles(File dir) {
-    ArrayList<File> mv = new ArrayList<File>();
+  public Map<File, List<File>> getMissingFiles() {
+    return Collections.unmodifiableMap(missingFiles);
+  }
 
+  private boolean isPossibleMovieFile(File file) {
+    return file.length() > MIN_FILE_SIZE && !knownFiles.contains(file);
+  }
+
+  private void addMissingFiles(List<File> files) {
+    for (File file : files) {
+      File dir = file.getParentFile();
+      List<File> filesInDir = missingFiles.get(dir);
+      if (filesInDir == null) {
+        filesInDir = new ArrayList<File>();
+        missingFiles.put(dir, filesInDir);
+      }
+      filesInDir.add(file);
+    }
+  }
+
+  /**
+   * recursively gets all unknown Files >100mb from a dir
+   */
+  private void getBigFiles(File dir, List<File> mv) {
     File[] list = dir.listFiles();
     if (list == null || cancel) {
-      return mv;
+      return;
     }
     for (File file : list) {
       if (cancel) {
@@ -124,22 +170,42 @@ public class MovieFindMissingTask extends TmmThreadPool {
       }
 
       if (file.isFile()) {
-        if (file.length() > 1024 * 1024 * 100) {
+        if (isPossibleMovieFile(file)) {
           mv.add(file);
         }
       }
       else {
         // ignore our backup folder, but include ALL others
         if (!file.getName().equals(Constants.BACKUP_FOLDER)) {
-          mv.addAll(getBigFiles(file));
+          getBigFiles(file, mv);
         }
       }
     }
-    return mv;
   }
 
+  @SuppressWarnings("unchecked")
   @Override
   public void callback(Object obj) {
-    publishState((String) obj, progressDone);
+    // the results are merged here (in the thread waiting for the pool), so there is no need to synchronize
+    addMissingFiles((List<File>) obj);
+    publishState(progressDone);
+  }
+
+  /**
+   * walks a folder of the datasource and returns all unknown big files in it
+   */
+  private class FindBigFilesTask implements Callable<Object> {
+    private File dir;
+
+    public FindBigFilesTask(File dir) {
+      this.dir = dir;
+    }
+
+    @Override
+    public Object call() throws Exception {
+      List<File> files = new ArrayList<File>();
+      getBigFiles(dir, files);
+      return files;
+    }
   }
 }
@@ -18,10 +18,11 @@ package org.tinymediamanager.core.movie.tasks;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.tinymediamanager.core.MediaFileInformationFetcherTask;
+import org.tinymediamanager.core.MediaFileInformationReloader;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
@@ -31,7 +32,7 @@ import org.tinymediamanager.core.threading.TmmThreadPool;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The Class MovieReloadMediaInformationTask, to explicit reload mediainformation.
+ * The Class MovieReloadMediaInformationTask, to explicit reload mediainformation (of all files or of the changed files only).
  * 
  * @author Manuel Laggner
  */
@@ -40,11 +41,24 @@ public class MovieReloadMediaInformationTask extends TmmThreadPool {
   private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("messages", new UTF8Control());       //$NON-NLS-1$
 
   private List<Movie>                 moviesToReload;
+  private boolean                     onlyChanged;
 
   public MovieReloadMediaInformationTask(List<Movie> movies) {
+    this(movies, false);
+  }
+
+  /**
+   * create a new reload task
+   * 
+   * @param movies
+   *          the movies to reload
+   * @param onlyChanged
+   *          analyze only the files which have been changed since the last analysis
+   */
+  public MovieReloadMediaInformationTask(List<Movie> movies, boolean onlyChanged) {
     super(BUNDLE.getString("movie.updatemediainfo"));
     moviesToReload = new ArrayList<Movie>(movies);
-    initThreadPool(1, "reloadMI");
+    this.onlyChanged = onlyChanged;
   }
 
   @Override
@@ -54,16 +68,22 @@ public class MovieReloadMediaInformationTask extends TmmThreadPool {
       LOGGER.info("get MediaInfo...");
       // update MediaInfo
       start();
+      MediaFileInformationReloader reloader = new MediaFileInformationReloader(onlyChanged);
       for (Movie m : moviesToReload) {
+        reloader.add(m);
+      }
+
+      initThreadPool(reloader.getThreadCount(), "reloadMI");
+      for (Callable<Object> task : reloader.createTasks()) {
         if (cancel) {
           break;
         }
-        submitTask(new MediaFileInformationFetcherTask(m.getMediaFiles(), m, true));
+        submitTask(task);
       }
 
       waitForCompletionOrCancel();
       long end = System.currentTimeMillis();
-      LOGGER.info("Done getting MediaInfo - took " + Utils.MSECtoHHMMSS(end - start));
+      LOGGER.info("Done getting MediaInfo (" + reloader.getSummary() + ") - took " + Utils.MSECtoHHMMSS(end - start));
     }
     catch (Exception e) {
       LOGGER.error("Thread crashed", e);
@@ -17,30 +17,47 @@ package org.tinymediamanager.core.movie.tasks;
 
 import java.awt.GraphicsEnvironment;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.SwingUtilities;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieModuleManager;
 import org.tinymediamanager.core.movie.MovieScraperMetadataConfig;
 import org.tinymediamanager.core.movie.MovieSearchAndScrapeOptions;
 import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.movie.entities.MovieSet;
 import org.tinymediamanager.core.movie.entities.MovieTrailer;
 import org.tinymediamanager.core.threading.TmmTask;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.threading.TmmThreadPool;
 import org.tinymediamanager.scraper.IMediaArtworkProvider;
 import org.tinymediamanager.scraper.IMediaMetadataProvider;
+import org.tinymediamanager.scraper.IMediaProvider;
 import org.tinymediamanager.scraper.IMediaTrailerProvider;
 import org.tinymediamanager.scraper.MediaArtwork;
 import org.tinymediamanager.scraper.MediaArtwork.MediaArtworkType;
@@ -49,7 +66,9 @@ import org.tinymediamanager.scraper.MediaScrapeOptions;
 import org.tinymediamanager.scraper.MediaSearchResult;
 import org.tinymediamanager.scraper.MediaTrailer;
 import org.tinymediamanager.scraper.MediaType;
+import org.tinymediamanager.scraper.opensubtitles.OpensubtitlesMetadataProvider;
 import org.tinymediamanager.scraper.trakttv.SyncTraktTvTask;
+import org.tinymediamanager.scraper.util.ProviderStatistics;
 import org.tinymediamanager.ui.UTF8Control;
 import org.tinymediamanager.ui.movies.dialogs.MovieChooserDialog;
 
@@ -59,13 +78,18 @@ import org.tinymediamanager.ui.movies.dialogs.MovieChooserDialog;
  * @author Manuel Laggner
  */
 public class MovieScrapeTask extends TmmThreadPool {
-  private final static Logger         LOGGER = LoggerFactory.getLogger(MovieScrapeTask.class);
-  private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private final static Logger             LOGGER           = LoggerFactory.getLogger(MovieScrapeTask.class);
+  private static final ResourceBundle     BUNDLE           = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final long               PROVIDER_TIMEOUT = 60000;
 
-  private List<Movie>                 moviesToScrape;
-  private boolean                     doSearch;
-  private MovieSearchAndScrapeOptions options;
-  private List<Movie>                 smartScrapeList;
+  // artwork and trailer providers of a movie are queried concurrently in this pool (shared by all workers)
+  private static final ThreadPoolExecutor PROVIDER_POOL    = createProviderPool(12);
+
+  private List<Movie>                     moviesToScrape;
+  private boolean                         doSearch;
+  private MovieSearchAndScrapeOptions     options;
+  private List<Movie>                     smartScrapeList  = new ArrayList<Movie>(0);
+  private Map<MovieSet, List<Movie>>      movieSets        = new LinkedHashMap<MovieSet, List<Movie>>();
 
   public MovieScrapeTask(List<Movie> moviesToScrape, boolean doSearch, MovieSearchAndScrapeOptions options) {
     super(BUNDLE.getString("movie.scraping"));
@@ -79,7 +103,10 @@ public class MovieScrapeTask extends TmmThreadPool {
     initThreadPool(3, "scrape");
     start();
 
-    smartScrapeList = new ArrayList<Movie>(0);
+    // reads the head and tail of every video file and asks OpenSubtitles - so only if enabled
+    if (doSearch && MovieModuleManager.MOVIE_SETTINGS.isScraperIdentifyByHash()) {
+      identifyByHash();
+    }
 
     for (int i = 0; i < moviesToScrape.size(); i++) {
       Movie movie = moviesToScrape.get(i);
@@ -87,6 +114,14 @@ public class MovieScrapeTask extends TmmThreadPool {
     }
     waitForCompletionOrCancel();
 
+    // add the scraped movies to their movie sets; one sort, one transaction and one artwork write per movie set
+    synchronized (movieSets) {
+      for (Entry<MovieSet, List<Movie>> entry : movieSets.entrySet()) {
+        entry.getKey().addMovies(entry.getValue());
+      }
+      movieSets.clear();
+    }
+
     // initiate smart scrape
     if (!smartScrapeList.isEmpty() && !GraphicsEnvironment.isHeadless()) {
       try {
@@ -113,6 +148,120 @@ public class MovieScrapeTask extends TmmThreadPool {
     }
 
     LOGGER.info("Done scraping movies)");
+    LOGGER.debug("provider statistics: " + ProviderStatistics.getStatistics());
+  }
+
+  /**
+   * scrape a single movie in the calling thread (used by the batch pipeline); movies without a (good) search result are not scraped
+   * 
+   * @param movie
+   *          the movie to scrape
+   * @return true if the movie has been scraped
+   */
+  public boolean scrapeMovie(Movie movie) {
+    // there is no dialog for the movies without search result and no batch of movie set assignments
+    Worker worker = new Worker(movie, false);
+    worker.run();
+    return worker.scraped;
+  }
+
+  /**
+   * look up the movies without IMDB id at OpenSubtitles by the hash of their video file; all files are hashed in parallel and checked in a few batch
+   * requests. A movie with an unambiguous match gets the IMDB id, so the search finds it by the id. The computed hashes are persisted with the movies
+   */
+  private void identifyByHash() {
+    Map<MediaFile, Movie> movies = new LinkedHashMap<MediaFile, Movie>();
+    for (Movie movie : moviesToScrape) {
+      if (Utils.isValidImdbId(movie.getImdbId()) || movie.isDisc()) {
+        continue;
+      }
+      List<MediaFile> videos = movie.getMediaFiles(MediaFileType.VIDEO);
+      if (!videos.isEmpty()) {
+        movies.put(videos.get(0), movie);
+      }
+    }
+    if (movies.isEmpty() || cancel) {
+      return;
+    }
+
+    Set<Movie> moviesToSave = new LinkedHashSet<Movie>();
+    for (Entry<MediaFile, Movie> entry : movies.entrySet()) {
+      if (!entry.getKey().isSubtitleHashUpToDate()) {
+        moviesToSave.add(entry.getValue());
+      }
+    }
+
+    try {
+      Map<MediaFile, List<MediaSearchResult>> results = new OpensubtitlesMetadataProvider().identify(new ArrayList<MediaFile>(movies.keySet()));
+      // the ids are not assigned after the task has been cancelled (but the computed hashes are persisted)
+      for (Entry<MediaFile, List<MediaSearchResult>> entry : results.entrySet()) {
+        if (cancel) {
+          break;
+        }
+        String imdbId = "";
+        for (MediaSearchResult result : entry.getValue()) {
+          if (result.getMediaType() != MediaType.MOVIE || StringUtils.isBlank(result.getIMDBId())) {
+            continue;
+          }
+          String id = "tt" + StringUtils.leftPad(result.getIMDBId(), 7, '0');
+          if (imdbId.isEmpty()) {
+            imdbId = id;
+          }
+          else if (!imdbId.equals(id)) {
+            // more than one movie for this hash - let the search decide
+            imdbId = "";
+            break;
+          }
+        }
+        if (Utils.isValidImdbId(imdbId)) {
+          Movie movie = movies.get(entry.getKey());
+          LOGGER.debug("identified " + movie.getTitle() + " by hash: " + imdbId);
+          movie.setImdbId(imdbId);
+          moviesToSave.add(movie);
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    for (Movie movie : moviesToSave) {
+      movie.saveToDb();
+    }
+  }
+
+  /**
+   * remember the movie for the movie set of the scraped metadata; all movies are added to their movie sets at once after scraping
+   */
+  private void rememberMovieSet(Movie movie, MediaMetadata metadata) {
+    MovieSet movieSet = MovieList.getInstance().getMovieSet(metadata);
+    if (movieSet == null) {
+      return;
+    }
+    synchronized (movieSets) {
+      List<Movie> movies = movieSets.get(movieSet);
+      if (movies == null) {
+        movies = new ArrayList<Movie>();
+        movieSets.put(movieSet, movies);
+      }
+      movies.add(movie);
+    }
+  }
+
+  private static ThreadPoolExecutor createProviderPool(int threads) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "tmmpool-scrapeProvider-thread-" + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
   }
 
   @Override
@@ -125,11 +274,20 @@ public class MovieScrapeTask extends TmmThreadPool {
    * Helper classes
    ****************************************************************************************/
   private class Worker implements Runnable {
-    private MovieList movieList;
-    private Movie     movie;
+    private MovieList     movieList;
+    private Movie         movie;
+    // run in the pool of this task: movies without search result are offered in the smart scrape dialog and the movie sets are assigned in
+    // batches after all movies have been scraped
+    private final boolean pooled;
+    private boolean       scraped = false;
 
     public Worker(Movie movie) {
+      this(movie, true);
+    }
+
+    public Worker(Movie movie, boolean pooled) {
       this.movie = movie;
+      this.pooled = pooled;
     }
 
     @Override
@@ -147,6 +305,9 @@ public class MovieScrapeTask extends TmmThreadPool {
         if (doSearch) {
           result1 = searchForMovie(mediaMetadataProvider);
           if (result1 == null) {
+            if (!pooled) {
+              return;
+            }
             // append this search request to the UI with search & scrape dialog
             synchronized (smartScrapeList) {
               smartScrapeList.add(movie);
@@ -179,21 +340,43 @@ public class MovieScrapeTask extends TmmThreadPool {
             // scrape metadata if wanted
             MediaMetadata md = null;
 
-            md = mediaMetadataProvider.getMetadata(options);
+            long start = System.currentTimeMillis();
+            try {
+              md = mediaMetadataProvider.getMetadata(options);
+              ProviderStatistics.recordCall(getProviderId(mediaMetadataProvider), System.currentTimeMillis() - start);
+            }
+            catch (Exception e) {
+              ProviderStatistics.recordFailure(getProviderId(mediaMetadataProvider), System.currentTimeMillis() - start);
+              throw e;
+            }
 
             if (scraperMetadataConfig.isMetadata()) {
-              movie.setMetadata(md, scraperMetadataConfig);
+              movie.setMetadata(md, scraperMetadataConfig, !pooled);
+              if (pooled && scraperMetadataConfig.isCollection()) {
+                rememberMovieSet(movie, md);
+              }
+            }
+
+            // now we know the IDs: query all artwork and trailer providers at once
+            List<ProviderCall<MediaArtwork>> artworkCalls = new ArrayList<ProviderCall<MediaArtwork>>();
+            if (scraperMetadataConfig.isArtwork()) {
+              artworkCalls = submitArtworkCalls(movie, md, artworkProviders);
+            }
+            List<ProviderCall<MediaTrailer>> trailerCalls = new ArrayList<ProviderCall<MediaTrailer>>();
+            if (scraperMetadataConfig.isTrailer()) {
+              trailerCalls = submitTrailerCalls(movie, md, trailerProviders);
             }
 
             // scrape artwork if wanted
             if (scraperMetadataConfig.isArtwork()) {
-              movie.setArtwork(getArtwork(movie, md, artworkProviders), scraperMetadataConfig);
+              movie.setArtwork(collectResults(artworkCalls, "message.scrape.movieartworkfailed"), scraperMetadataConfig);
             }
 
             // scrape trailer if wanted
             if (scraperMetadataConfig.isTrailer()) {
-              movie.setTrailers(getTrailers(movie, md, trailerProviders));
+              movie.setTrailers(getTrailers(movie, collectResults(trailerCalls, "message.scrape.movietrailerfailed")));
             }
+            scraped = true;
           }
           catch (Exception e) {
             LOGGER.error("movie.setMetadata", e);
@@ -243,10 +426,10 @@ public class MovieScrapeTask extends TmmThreadPool {
       return result;
     }
 
-    private List<MediaArtwork> getArtwork(Movie movie, MediaMetadata metadata, List<IMediaArtworkProvider> artworkProviders) {
-      List<MediaArtwork> artwork = new ArrayList<MediaArtwork>();
+    private List<ProviderCall<MediaArtwork>> submitArtworkCalls(Movie movie, MediaMetadata metadata, List<IMediaArtworkProvider> artworkProviders) {
+      List<ProviderCall<MediaArtwork>> calls = new ArrayList<ProviderCall<MediaArtwork>>();
 
-      MediaScrapeOptions options = new MediaScrapeOptions();
+      final MediaScrapeOptions options = new MediaScrapeOptions();
       options.setType(MediaType.MOVIE);
       options.setArtworkType(MediaArtworkType.ALL);
       options.setMetadata(metadata);
@@ -256,21 +439,75 @@ public class MovieScrapeTask extends TmmThreadPool {
       options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
       options.setScrapeImdbForeignLanguage(MovieModuleManager.MOVIE_SETTINGS.isImdbScrapeForeignLanguage());
 
-      // scrape providers till one artwork has been found
-      for (IMediaArtworkProvider artworkProvider : artworkProviders) {
+      for (final IMediaArtworkProvider artworkProvider : artworkProviders) {
+        calls.add(new ProviderCall<MediaArtwork>(artworkProvider, new Callable<List<MediaArtwork>>() {
+          @Override
+          public List<MediaArtwork> call() throws Exception {
+            return artworkProvider.getArtwork(options);
+          }
+        }));
+      }
+
+      return calls;
+    }
+
+    private List<ProviderCall<MediaTrailer>> submitTrailerCalls(Movie movie, MediaMetadata metadata, List<IMediaTrailerProvider> trailerProviders) {
+      List<ProviderCall<MediaTrailer>> calls = new ArrayList<ProviderCall<MediaTrailer>>();
+
+      final MediaScrapeOptions options = new MediaScrapeOptions();
+      options.setMetadata(metadata);
+      options.setImdbId(movie.getImdbId());
+      options.setTmdbId(movie.getTmdbId());
+      options.setLanguage(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage());
+      options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
+      options.setScrapeImdbForeignLanguage(MovieModuleManager.MOVIE_SETTINGS.isImdbScrapeForeignLanguage());
+
+      for (final IMediaTrailerProvider trailerProvider : trailerProviders) {
+        calls.add(new ProviderCall<MediaTrailer>(trailerProvider, new Callable<List<MediaTrailer>>() {
+          @Override
+          public List<MediaTrailer> call() throws Exception {
+            return trailerProvider.getTrailers(options);
+          }
+        }));
+      }
+
+      return calls;
+    }
+
+    /**
+     * wait for the results of all providers (in the order of the providers); providers which fail or exceed the timeout are skipped, so we get
+     * at least the results of the others
+     */
+    private <T> List<T> collectResults(List<ProviderCall<T>> calls, String errorMessage) {
+      List<T> results = new ArrayList<T>();
+      for (ProviderCall<T> call : calls) {
         try {
-          artwork.addAll(artworkProvider.getArtwork(options));
+          long remaining = call.deadline - System.currentTimeMillis();
+          List<T> result = call.future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+          if (result != null) {
+            results.addAll(result);
+          }
+        }
+        catch (TimeoutException e) {
+          call.future.cancel(true);
+          ProviderStatistics.recordTimeout(call.providerId);
+          LOGGER.warn("provider " + call.providerId + " did not answer within " + PROVIDER_TIMEOUT + "ms - skipping");
+          MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movie, errorMessage));
         }
-        catch (Exception e) {
-          LOGGER.error("getArtwork", e);
-          MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movie, "message.scrape.movieartworkfailed"));
+        catch (ExecutionException e) {
+          LOGGER.error(call.providerId, e.getCause());
+          MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movie, errorMessage));
+        }
+        catch (InterruptedException e) {
+          call.future.cancel(true);
+          Thread.currentThread().interrupt();
+          break;
         }
       }
-
-      return artwork;
+      return results;
     }
 
-    private List<MovieTrailer> getTrailers(Movie movie, MediaMetadata metadata, List<IMediaTrailerProvider> trailerProviders) {
+    private List<MovieTrailer> getTrailers(Movie movie, List<MediaTrailer> foundTrailers) {
       List<MovieTrailer> trailers = new ArrayList<MovieTrailer>();
 
       // add local trailers!
@@ -285,30 +522,49 @@ public class MovieScrapeTask extends TmmThreadPool {
         trailers.add(mt);
       }
 
-      MediaScrapeOptions options = new MediaScrapeOptions();
-      options.setMetadata(metadata);
-      options.setImdbId(movie.getImdbId());
-      options.setTmdbId(movie.getTmdbId());
-      options.setLanguage(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage());
-      options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
-      options.setScrapeImdbForeignLanguage(MovieModuleManager.MOVIE_SETTINGS.isImdbScrapeForeignLanguage());
-
-      // scrape trailers
-      for (IMediaTrailerProvider trailerProvider : trailerProviders) {
-        try {
-          List<MediaTrailer> foundTrailers = trailerProvider.getTrailers(options);
-          for (MediaTrailer mediaTrailer : foundTrailers) {
-            MovieTrailer movieTrailer = new MovieTrailer(mediaTrailer);
-            trailers.add(movieTrailer);
-          }
-        }
-        catch (Exception e) {
-          LOGGER.error("getTrailers", e);
-          MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movie, "message.scrape.movietrailerfailed"));
-        }
+      // add scraped trailers
+      for (MediaTrailer mediaTrailer : foundTrailers) {
+        MovieTrailer movieTrailer = new MovieTrailer(mediaTrailer);
+        trailers.add(movieTrailer);
       }
 
       return trailers;
     }
   }
+
+  private static String getProviderId(IMediaProvider provider) {
+    if (provider.getProviderInfo() != null) {
+      return provider.getProviderInfo().getId();
+    }
+    return provider.getClass().getSimpleName();
+  }
+
+  /**
+   * a call to an artwork/trailer provider running in the provider pool; the latency of the call is recorded in the ProviderStatistics
+   */
+  private static class ProviderCall<T> {
+    private final String          providerId;
+    private final long            deadline;
+    private final Future<List<T>> future;
+
+    public ProviderCall(IMediaProvider provider, final Callable<List<T>> callable) {
+      this.providerId = getProviderId(provider);
+      this.deadline = System.currentTimeMillis() + PROVIDER_TIMEOUT;
+      this.future = PROVIDER_POOL.submit(new Callable<List<T>>() {
+        @Override
+        public List<T> call() throws Exception {
+          long start = System.currentTimeMillis();
+          try {
+            List<T> result = callable.call();
+            ProviderStatistics.recordCall(providerId, System.currentTimeMillis() - start);
+            return result;
+          }
+          catch (Exception e) {
+            ProviderStatistics.recordFailure(providerId, System.currentTimeMillis() - start);
+            throw e;
+          }
+        }
+      });
+    }
+  }
 }
@@ -20,12 +20,23 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -41,6 +52,7 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.NfoReader;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.MovieList;
@@ -50,6 +62,7 @@ import org.tinymediamanager.core.movie.connector.MovieToMpNfoConnector;
 import org.tinymediamanager.core.movie.connector.MovieToXbmcNfoConnector;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.movie.entities.MovieTrailer;
+import org.tinymediamanager.core.threading.PipelineStage;
 import org.tinymediamanager.core.threading.TmmTask;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.threading.TmmThreadPool;
@@ -75,10 +88,17 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
   // skip folders starting with a SINGLE "." or "._"
   private static final String         skipFoldersRegex = "^[.][\\w@]+.*";
   private static Pattern              video3DPattern   = Pattern.compile("(?i)[ ._\\(\\[-]3D[ ._\\)\\]-]?");
+  // the maximum amount of NFOs which are parsed ahead of the directory scan
+  private static final int            NFO_QUEUE_SIZE   = 200;
 
   private List<String>                dataSources;
   private MovieList                   movieList;
   private HashSet<File>               filesFound       = new HashSet<File>();
+  // the stage of the batch pipeline which gets the new movies as soon as they are parsed
+  private PipelineStage<Movie>        newMovieStage    = null;
+  // the NFOs of new movies are read and parsed in parallel to (and ahead of) the directory scan
+  private NfoStage                    nfoStage         = null;
+  private Set<File>                   knownMovieDirs   = Collections.emptySet();
 
   public MovieUpdateDatasourceTask() {
     super(BUNDLE.getString("update.datasource"));
@@ -93,6 +113,17 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
     dataSources.add(datasource);
   }
 
+  /**
+   * hand over every new movie to the given stage as soon as its directory has been parsed (for the batch pipeline); the media information of these
+   * movies has to be gathered by the pipeline
+   * 
+   * @param newMovieStage
+   *          the stage to hand over the new movies
+   */
+  public void setNewMovieStage(PipelineStage<Movie> newMovieStage) {
+    this.newMovieStage = newMovieStage;
+  }
+
   @Override
   public void doInBackground() {
     // check if there is at least one DS to update
@@ -103,6 +134,7 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
       return;
     }
 
+    nfoStage = new NfoStage(Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
     try {
       long start = System.currentTimeMillis();
       List<File> imageFiles = new ArrayList<File>();
@@ -122,6 +154,7 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
         else {
           initThreadPool(3, "update");
         }
+        knownMovieDirs = getKnownMovieDirs(ds);
         File[] dirs = new File(ds).listFiles();
         if (dirs == null || dirs.length == 0) {
           // error - continue with next datasource
@@ -141,7 +174,8 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
                 continue;
               }
 
-              // dig deeper in this dir
+              // dig deeper in this dir; the NFOs directly in this dir are parsed ahead
+              nfoStage.queueDirectory(file);
               submitTask(new FindMovieTask(file, ds));
             }
             else {
@@ -166,6 +200,8 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
           waitForCompletionOrCancel();
         }
 
+        // NFOs which have not been needed (e.g. of movies in multi movie dirs)
+        nfoStage.clear();
         if (cancel) {
           break;
         }
@@ -211,6 +247,33 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
       LOGGER.error("Thread crashed", e);
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "message.update.threadcrashed"));
     }
+    finally {
+      nfoStage.shutdown();
+    }
+  }
+
+  /**
+   * get the directories of all movies in the given datasource (new movies are only searched in other directories)
+   */
+  private Set<File> getKnownMovieDirs(String datasource) {
+    Set<File> dirs = new HashSet<File>();
+    File ds = new File(datasource);
+    for (Movie movie : movieList.getMovies()) {
+      if (ds.equals(new File(movie.getDataSource()))) {
+        dirs.add(new File(movie.getPath()));
+      }
+    }
+    return dirs;
+  }
+
+  private static Movie getMovieFromNfo(NfoReader.Document nfo) {
+    switch (MovieModuleManager.MOVIE_SETTINGS.getMovieConnector()) {
+      case MP:
+        return MovieToMpNfoConnector.getData(nfo);
+
+      default:
+        return MovieToXbmcNfoConnector.getData(nfo);
+    }
   }
 
   /**
@@ -221,6 +284,17 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
       return;
     }
     List<File> completeDirContents = new ArrayList<File>(Arrays.asList(parentDir.listFiles()));
+    List<Movie> moviesInDir = new ArrayList<Movie>();
+
+    // parse the NFOs of all video files ahead
+    if (!knownMovieDirs.contains(parentDir)) {
+      for (File file : files) {
+        File nfoFile = new File(parentDir, Utils.cleanStackingMarkers(FilenameUtils.getBaseName(file.getName())) + ".nfo");
+        if (completeDirContents.contains(nfoFile)) {
+          nfoStage.queue(nfoFile);
+        }
+      }
+    }
 
     // just compare filename length, start with longest b/c of overlapping names
     Arrays.sort(files, new Comparator<File>() {
@@ -233,6 +307,7 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
       Movie movie = null;
       MediaFile mf = new MediaFile(file);
       String basename = Utils.cleanStackingMarkers(mf.getBasename());
+      String[] mfTY = null;
 
       // 1) check if MF is already assigned to a movie within path
       for (Movie m : movieList.getMoviesByPath(mf.getFile().getParentFile())) {
@@ -245,7 +320,9 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
         for (MediaFile mfile : m.getMediaFiles(MediaFileType.VIDEO)) {
           // try to match like if we would create a new movie
           String[] mfileTY = ParserUtils.detectCleanMovienameAndYear(Utils.cleanStackingMarkers(mfile.getBasename()));
-          String[] mfTY = ParserUtils.detectCleanMovienameAndYear(Utils.cleanStackingMarkers(mf.getBasename()));
+          if (mfTY == null) {
+            mfTY = ParserUtils.detectCleanMovienameAndYear(basename);
+          }
           if (mfileTY[0].equals(mfTY[0]) && mfileTY[1].equals(mfTY[1])) { // title AND year (even empty) match
             LOGGER.debug("found possible movie '" + m.getTitle() + "' from filename " + file);
             movie = m;
@@ -262,13 +339,9 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
           MediaFile nfo = new MediaFile(nfoFile, MediaFileType.NFO);
           // from NFO?
           LOGGER.debug("found NFO '" + nfo.getFile() + "' - try to parse");
-          switch (MovieModuleManager.MOVIE_SETTINGS.getMovieConnector()) {
-            case XBMC:
-              movie = MovieToXbmcNfoConnector.getData(nfo.getFile());
-              break;
-            case MP:
-              movie = MovieToMpNfoConnector.getData(nfo.getFile());
-              break;
+          NfoReader.Document document = nfoStage.get(nfo.getFile());
+          if (document != null) {
+            movie = getMovieFromNfo(document);
           }
           if (movie != null) {
             // valid NFO found, so add itself as MF
@@ -340,7 +413,14 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
         movie.getMovieSet().saveToDb();
         movie.saveToDb();
       }
+      if (!moviesInDir.contains(movie)) {
+        moviesInDir.add(movie);
+      }
     } // end for every file
+
+    for (Movie movie : moviesInDir) {
+      movieFound(movie);
+    }
   }
 
   /**
@@ -401,35 +481,31 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
           String bdinfoTitle = ""; // title parsed out of BDInfo
           String[] videoName = { "", "" }; // title from file
 
+          // queue all NFOs (also the ones in sub dirs) to the NFO stage
+          for (MediaFile mf : mfs) {
+            if (mf.getType().equals(MediaFileType.NFO)) {
+              nfoStage.queue(mf.getFile());
+            }
+          }
+
           // first round - try to parse NFO(s) first
           for (MediaFile mf : mfs) {
             if (mf.getType().equals(MediaFileType.NFO)) {
               LOGGER.debug("parsing NFO " + mf.getFilename());
-              Movie nfo = null;
-              switch (MovieModuleManager.MOVIE_SETTINGS.getMovieConnector()) {
-                case XBMC:
-                  nfo = MovieToXbmcNfoConnector.getData(mf.getFile());
-                  break;
-
-                case MP:
-                  nfo = MovieToMpNfoConnector.getData(mf.getFile());
-                  break;
+              NfoReader.Document document = nfoStage.get(mf.getFile());
+              if (document == null) {
+                continue;
               }
+              Movie nfo = getMovieFromNfo(document);
               if (nfo != null) {
                 movie = nfo;
               }
               else {
                 // is NFO, but parsing exception. try to find at least imdb id within
-                try {
-                  String imdb = FileUtils.readFileToString(mf.getFile());
-                  imdb = ParserUtils.detectImdbId(imdb);
-                  if (!imdb.isEmpty()) {
-                    LOGGER.debug("Found IMDB id: " + imdb);
-                    movie.setImdbId(imdb);
-                  }
-                }
-                catch (IOException e) {
-                  LOGGER.warn("couldn't read NFO " + mf.getFilename());
+                String imdb = document.detectImdbId();
+                if (!imdb.isEmpty()) {
+                  LOGGER.debug("Found IMDB id: " + imdb);
+                  movie.setImdbId(imdb);
                 }
               } // end NFO null
             }
@@ -542,6 +618,7 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
         }
 
         movie.saveToDb();
+        movieFound(movie);
       }
     }
     catch (NullPointerException e) {
@@ -555,6 +632,22 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
     }
   }
 
+  /**
+   * hand over a new movie to the batch pipeline (if there is one)
+   */
+  private void movieFound(Movie movie) {
+    if (newMovieStage == null || !movie.isNewlyAdded()) {
+      return;
+    }
+    try {
+      // blocks if the pipeline is busy
+      newMovieStage.submit(movie);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   /**
    * searches for file type VIDEO and tries to detect the root movie directory
    * 
@@ -864,6 +957,11 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
         continue;
       }
 
+      // new movies are handled by the batch pipeline
+      if (newMovieStage != null && movie.isNewlyAdded()) {
+        continue;
+      }
+
       ArrayList<MediaFile> ungatheredMediaFiles = new ArrayList<MediaFile>();
       for (MediaFile mf : new ArrayList<MediaFile>(movie.getMediaFiles())) {
         if (StringUtils.isBlank(mf.getContainerFormat())) {
@@ -915,6 +1013,13 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
         HashSet<File> h = new HashSet<File>(mov);
         mov.clear();
         mov.addAll(h);
+
+        // parse the NFOs of all new movie dirs ahead
+        for (File movieDir : mov) {
+          if (!movieDir.equals(subdir)) {
+            nfoStage.queueDirectory(movieDir);
+          }
+        }
         for (File movieDir : mov) {
           // check if multiple movies or a single one
           parseMovieDirectory(movieDir, datasource);
@@ -925,4 +1030,167 @@ public class MovieUpdateDatasourceTask extends TmmThreadPool {
       return subdir.getName();
     }
   }
+
+  /**
+   * The NFO stage. Reads and parses the NFOs of new movies with its own threads, so the scan threads only have to map the parsed NFOs. At most
+   * NFO_QUEUE_SIZE parsed NFOs are waiting to be used; further NFOs are parsed by the scan thread when needed.<br>
+   * Every NFO is parsed once: an NFO which has been fetched by a scan thread is not queued any more. A permit is held exactly as long as a parsed
+   * NFO is waiting in the documents map (both are changed together under the lock of the stage).
+   */
+  private class NfoStage {
+    private final ExecutorService                       executor;
+    private final Map<File, Future<NfoReader.Document>> documents = new HashMap<File, Future<NfoReader.Document>>();
+    // all NFOs which have been queued or fetched
+    private final Set<File>                             queued    = new HashSet<File>();
+    private final Semaphore                             permits   = new Semaphore(NFO_QUEUE_SIZE);
+    private final List<Future<?>>                       listings  = new ArrayList<Future<?>>();
+
+    public NfoStage(int threads) {
+      executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * list the directory with the threads of this stage and queue all NFOs in it (if there is no movie in this directory yet)
+     */
+    public void queueDirectory(final File dir) {
+      if (knownMovieDirs.contains(dir)) {
+        return;
+      }
+      try {
+        Future<?> listing = executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            File[] files = dir.listFiles();
+            if (files == null) {
+              return;
+            }
+            for (File file : files) {
+              if (file.isFile() && !file.getName().startsWith("._") && "nfo".equalsIgnoreCase(FilenameUtils.getExtension(file.getName()))) {
+                queue(file);
+              }
+            }
+          }
+        });
+        synchronized (listings) {
+          listings.add(listing);
+        }
+      }
+      catch (RejectedExecutionException e) {
+        // update finished/cancelled
+      }
+    }
+
+    /**
+     * queue the NFO for parsing; if the NFO has already been queued or fetched or too many parsed NFOs are waiting already, nothing happens (the NFO
+     * will be parsed when needed)
+     */
+    public synchronized void queue(final File nfoFile) {
+      if (!queued.add(nfoFile) || !permits.tryAcquire()) {
+        return;
+      }
+      try {
+        documents.put(nfoFile, executor.submit(new Callable<NfoReader.Document>() {
+          @Override
+          public NfoReader.Document call() throws Exception {
+            return readNfo(nfoFile);
+          }
+        }));
+      }
+      catch (RejectedExecutionException e) {
+        permits.release();
+      }
+    }
+
+    /**
+     * get the parsed NFO (waits for this stage or parses the NFO if it has not been queued); the NFO will not be queued afterwards
+     * 
+     * @return the NFO document or null if the NFO could not be read
+     */
+    public NfoReader.Document get(File nfoFile) {
+      Future<NfoReader.Document> future;
+      synchronized (this) {
+        queued.add(nfoFile);
+        future = documents.remove(nfoFile);
+        if (future != null) {
+          permits.release();
+        }
+      }
+      try {
+        if (future != null) {
+          try {
+            return future.get();
+          }
+          catch (CancellationException e) {
+            LOGGER.debug("parsing NFO " + nfoFile + " has been cancelled");
+          }
+        }
+        return readNfo(nfoFile);
+      }
+      catch (ExecutionException e) {
+        LOGGER.warn("couldn't read NFO " + nfoFile + ": " + e.getCause());
+      }
+      catch (IOException e) {
+        LOGGER.warn("couldn't read NFO " + nfoFile + ": " + e.getMessage());
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return null;
+    }
+
+    /**
+     * drop all parsed NFOs which have not been used; the pending directory listings are awaited first, so they cannot queue NFOs afterwards
+     */
+    public void clear() {
+      List<Future<?>> pending;
+      synchronized (listings) {
+        pending = new ArrayList<Future<?>>(listings);
+        listings.clear();
+      }
+      for (Future<?> listing : pending) {
+        try {
+          listing.get();
+        }
+        catch (ExecutionException e) {
+          LOGGER.warn("couldn't list directory: " + e.getCause());
+        }
+        catch (CancellationException e) {
+          // stage has been shut down
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+
+      synchronized (this) {
+        for (Future<NfoReader.Document> future : documents.values()) {
+          future.cancel(false);
+          permits.release();
+        }
+        documents.clear();
+        queued.clear();
+      }
+    }
+
+    public void shutdown() {
+      // the tasks which have never been started would never complete
+      for (Runnable task : executor.shutdownNow()) {
+        if (task instanceof Future<?>) {
+          ((Future<?>) task).cancel(false);
+        }
+      }
+      clear();
+    }
+
+    private NfoReader.Document readNfo(File nfoFile) throws IOException {
+      switch (MovieModuleManager.MOVIE_SETTINGS.getMovieConnector()) {
+        case MP:
+          return MovieToMpNfoConnector.readNfo(nfoFile);
+
+        default:
+          return MovieToXbmcNfoConnector.readNfo(nfoFile);
+      }
+    }
+  }
 }
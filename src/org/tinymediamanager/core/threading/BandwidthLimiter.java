@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The class BandwidthLimiter. Limits the transfer rate of all downloads which share one instance. Every transferred chunk reserves its share of
+ * the transfer time; threads which are ahead of the allowed rate are put to sleep.
+ * 
+ * @author Manuel Laggner
+ */
+public class BandwidthLimiter {
+  private static final BandwidthLimiter INSTANCE       = new BandwidthLimiter(0);
+  private static final int              MIN_CHUNK      = 4 * 1024;
+  private static final int              CHUNKS_PER_SEC = 10;
+
+  private volatile long                 bytesPerSecond;
+  private long                          nextFree;
+
+  /**
+   * create a new limiter
+   * 
+   * @param bytesPerSecond
+   *          the maximum transfer rate in bytes per second (0 for no limit)
+   */
+  public BandwidthLimiter(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  /**
+   * get the limiter which is shared by all downloads
+   * 
+   * @return the global limiter
+   */
+  public static BandwidthLimiter getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * set the maximum transfer rate
+   * 
+   * @param bytesPerSecond
+   *          the maximum transfer rate in bytes per second (0 for no limit)
+   */
+  public void setBytesPerSecond(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  /**
+   * get the maximum transfer rate
+   * 
+   * @return the maximum transfer rate in bytes per second (0 for no limit)
+   */
+  public long getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  /**
+   * get the size of the chunks to read at once; with a low limit smaller chunks give a smoother transfer rate
+   * 
+   * @param maxChunkSize
+   *          the maximum chunk size (e.g. the buffer size)
+   * @return the chunk size
+   */
+  public int getChunkSize(int maxChunkSize) {
+    long rate = bytesPerSecond;
+    if (rate <= 0) {
+      return maxChunkSize;
+    }
+    return (int) Math.min(maxChunkSize, Math.max(MIN_CHUNK, rate / CHUNKS_PER_SEC));
+  }
+
+  /**
+   * account the given amount of transferred bytes; blocks until the transfer rate is within the limit again
+   * 
+   * @param bytes
+   *          the amount of transferred bytes
+   * @throws InterruptedException
+   */
+  public void acquire(int bytes) throws InterruptedException {
+    long rate = bytesPerSecond;
+    if (rate <= 0 || bytes <= 0) {
+      return;
+    }
+
+    long cost = bytes * 1000000000L / rate;
+    long waitTime;
+    synchronized (this) {
+      long now = System.nanoTime();
+      // no saved up bandwidth from idle times
+      if (nextFree - now < 0) {
+        nextFree = now;
+      }
+      nextFree += cost;
+      waitTime = nextFree - now;
+    }
+    if (waitTime > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitTime);
+    }
+  }
+}
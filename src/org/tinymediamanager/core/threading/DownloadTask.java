@@ -15,16 +15,12 @@
  */
 package org.tinymediamanager.core.threading;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.util.ResourceBundle;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
@@ -35,7 +31,7 @@ import org.tinymediamanager.core.MessageManager;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
-import org.tinymediamanager.scraper.util.StreamingUrl;
+import org.tinymediamanager.core.threading.SegmentedDownload.ProgressListener;
 import org.tinymediamanager.scraper.util.UrlUtil;
 import org.tinymediamanager.ui.UTF8Control;
 
@@ -53,6 +49,7 @@ public class DownloadTask extends TmmTask {
   private MediaEntity                 media;
   private MediaFileType               fileType;
   private String                      userAgent = "";
+  private volatile SegmentedDownload  download;
 
   /**
    * Downloads an url to a file, and does correct http encoding on querystring.<br>
@@ -101,6 +98,15 @@ public class DownloadTask extends TmmTask {
     this.userAgent = userAgent;
   }
 
+  @Override
+  public void cancel() {
+    super.cancel();
+    SegmentedDownload running = download;
+    if (running != null) {
+      running.cancel();
+    }
+  }
+
   @Override
   protected void doInBackground() {
     try {
@@ -128,28 +134,35 @@ public class DownloadTask extends TmmTask {
       }
 
       LOGGER.info("Downloading " + url);
-      StreamingUrl u = new StreamingUrl(UrlUtil.getURIEncoded(url).toASCIIString());
+      // the partial file is named after the requested file, so an interrupted download can be resumed
+      File tempFile = new File(file.getAbsolutePath() + ".part");
+      download = new SegmentedDownload(UrlUtil.getURIEncoded(url).toASCIIString(), tempFile);
       if (StringUtils.isNotBlank(userAgent)) {
-        u.setUserAgent(userAgent);
-      }
-      InputStream is = u.getInputStream();
-
-      // trace server headers
-      LOGGER.debug("Server returned: " + u.getStatusLine());
-      Header[] headers = u.getHeadersResponse();
-      for (Header header : headers) {
-        LOGGER.debug(" < " + header.getName() + ": " + header.getValue());
+        download.setUserAgent(userAgent);
       }
+      BandwidthLimiter.getInstance().setBytesPerSecond(Globals.settings.getMaximumDownloadSpeed() * 1024L);
+      download.setProgressListener(new ProgressListener() {
+        @Override
+        public void progress(long bytesDone, long length, double speed) {
+          if (length > 0) {
+            publishState(formatBytesForOutput(bytesDone) + "/" + formatBytesForOutput(length) + " @" + formatSpeedForOutput(speed),
+                (int) (bytesDone * 100 / length));
+          }
+          else {
+            setWorkUnits(0);
+            publishState(formatBytesForOutput(bytesDone) + " @" + formatSpeedForOutput(speed), 0);
+          }
+        }
+      });
 
-      if (u.isFault()) {
-        MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, u.getUrl(), u.getStatusLine()));
-        is.close();
-        u.closeConnection();
+      // the task may have been cancelled in the meantime
+      boolean finished = !cancel && download.download();
+      if (download.isFault()) {
+        MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, url, download.getStatusLine()));
         return;
       }
 
-      long length = u.getContentLength();
-      String type = u.getContentType();
+      String type = download.getContentType();
       if (ext.isEmpty()) {
         // still empty? try to parse from mime header
         if (type.startsWith("video/") || type.startsWith("audio/") || type.startsWith("image/")) {
@@ -161,56 +174,9 @@ public class DownloadTask extends TmmTask {
 
       LOGGER.info("Downloading to " + file);
 
-      File tempFile = new File(file.getAbsolutePath() + ".part");
-      BufferedInputStream bufferedInputStream = new BufferedInputStream(is);
-      FileOutputStream outputStream = new FileOutputStream(tempFile);
-      int count = 0;
-      byte buffer[] = new byte[2048];
-      Long timestamp1 = System.nanoTime();
-      Long timestamp2;
-      long bytesDone = 0;
-      long bytesDonePrevious = 0;
-      double speed = 0;
-
-      while ((count = bufferedInputStream.read(buffer, 0, buffer.length)) != -1) {
-        if (cancel) {
-          break;
-        }
-
-        outputStream.write(buffer, 0, count);
-        bytesDone += count;
-
-        // we push the progress only once per 250ms (to use less performance and get a better download speed)
-        timestamp2 = System.nanoTime();
-        if (timestamp2 - timestamp1 > 250000000) {
-          // avg. speed between the actual and the previous
-          speed = (speed + (bytesDone - bytesDonePrevious) / ((double) (timestamp2 - timestamp1) / 1000000000)) / 2;
-
-          timestamp1 = timestamp2;
-          bytesDonePrevious = bytesDone;
-
-          if (length > 0) {
-            publishState(formatBytesForOutput(bytesDone) + "/" + formatBytesForOutput(length) + " @" + formatSpeedForOutput(speed),
-                (int) (bytesDone * 100 / length));
-          }
-          else {
-            setWorkUnits(0);
-            publishState(formatBytesForOutput(bytesDone) + " @" + formatSpeedForOutput(speed), 0);
-          }
-
-        }
-      }
-
-      outputStream.close();
-
-      // we must not close the input stream on cancel(the rest will be downloaded if we close it on cancel)
-      if (!cancel) {
-        is.close();
-      }
-
-      if (cancel) {
+      if (cancel || !finished) {
         // delete half downloaded file
-        FileUtils.deleteQuietly(tempFile);
+        download.discard();
       }
       else {
         if (ext.isEmpty()) {
@@ -243,11 +209,11 @@ public class DownloadTask extends TmmTask {
           LOGGER.warn("Download to '" + tempFile + "' was ok, but couldn't move to '" + file + "'");
         }
       } // end isCancelled
-
-      // close the url connections
-      if (u != null) {
-        u.closeConnection();
-      }
+    }
+    catch (InterruptedException e) {
+      // the partial file is kept for resuming
+      LOGGER.info("download of " + url + " interrupted");
+      Thread.currentThread().interrupt();
     }
     catch (Exception e) {
       LOGGER.error("problem downloading: ", e);
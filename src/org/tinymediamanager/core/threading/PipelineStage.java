@@ -0,0 +1,220 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
+
+/**
+ * The class PipelineStage. One stage of a processing pipeline: the items are taken from a bounded queue and processed by the worker threads of
+ * this stage; processed items are handed over to the next stage. If the queue of a stage is full, the previous stage blocks (back-pressure).
+ * Closing a stage lets it finish all queued items and closes the next stage afterwards.
+ * 
+ * @author Manuel Laggner
+ */
+public abstract class PipelineStage<T> {
+  private static final Logger         LOGGER     = LoggerFactory.getLogger(PipelineStage.class);
+  private static final Object         END_MARKER = new Object();
+
+  private final String                name;
+  private final int                   threads;
+  private final BlockingQueue<Object> queue;
+  private final CountDownLatch        finished   = new CountDownLatch(1);
+  private final AtomicInteger         workers    = new AtomicInteger();
+  private final AtomicLong            processed  = new AtomicLong();
+  private final AtomicLong            failed     = new AtomicLong();
+  private final AtomicLong            busyTime   = new AtomicLong();
+  private PipelineStage<T>            next;
+  private long                        startTime;
+  private long                        endTime;
+
+  /**
+   * create a new stage
+   * 
+   * @param name
+   *          the name of the stage (for logging and the thread names)
+   * @param threads
+   *          the amount of worker threads
+   * @param queueSize
+   *          the amount of items which can be queued before the previous stage blocks
+   */
+  public PipelineStage(String name, int threads, int queueSize) {
+    this.name = name;
+    this.threads = threads;
+    this.queue = new ArrayBlockingQueue<Object>(queueSize);
+  }
+
+  /**
+   * process one item
+   * 
+   * @param item
+   *          the item
+   * @return true if the item should be handed over to the next stage
+   * @throws Exception
+   */
+  protected abstract boolean process(T item) throws Exception;
+
+  /**
+   * set the stage which gets all processed items
+   * 
+   * @param next
+   *          the next stage
+   * @return the next stage (for chaining)
+   */
+  public PipelineStage<T> setNext(PipelineStage<T> next) {
+    this.next = next;
+    return next;
+  }
+
+  /**
+   * start the worker threads of this and all following stages
+   */
+  public void start() {
+    startTime = System.currentTimeMillis();
+    ThreadFactory factory = new TmmThreadFactory("batch-" + name);
+    workers.set(threads);
+    for (int i = 0; i < threads; i++) {
+      factory.newThread(new Worker()).start();
+    }
+    if (next != null) {
+      next.start();
+    }
+  }
+
+  /**
+   * add an item to this stage; blocks if the queue is full
+   * 
+   * @param item
+   *          the item
+   * @throws InterruptedException
+   */
+  public void submit(T item) throws InterruptedException {
+    queue.put(item);
+  }
+
+  /**
+   * no more items will be submitted; the stage finishes all queued items and closes the next stage afterwards
+   * 
+   * @throws InterruptedException
+   */
+  public void close() throws InterruptedException {
+    for (int i = 0; i < threads; i++) {
+      queue.put(END_MARKER);
+    }
+  }
+
+  /**
+   * wait until this and all following stages have processed all items
+   * 
+   * @throws InterruptedException
+   */
+  public void awaitCompletion() throws InterruptedException {
+    finished.await();
+    if (next != null) {
+      next.awaitCompletion();
+    }
+  }
+
+  /**
+   * get the throughput of this and all following stages as a human readable string
+   * 
+   * @return the summary
+   */
+  public String getSummary() {
+    long duration = Math.max(1, (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime);
+    long count = processed.get();
+    StringBuilder sb = new StringBuilder();
+    sb.append(name).append(": ").append(count).append(" processed, ").append(failed.get()).append(" failed in ")
+        .append(Utils.MSECtoHHMMSS(duration)).append("; ").append(String.format("%.2f", count * 1000d / duration)).append(" items/s; avg ")
+        .append(count > 0 ? busyTime.get() / count : 0).append("ms per item");
+    if (next != null) {
+      sb.append("\n").append(next.getSummary());
+    }
+    return sb.toString();
+  }
+
+  private void handOver(T item) throws InterruptedException {
+    if (next != null) {
+      next.submit(item);
+    }
+  }
+
+  private void workerFinished() {
+    if (workers.decrementAndGet() > 0) {
+      return;
+    }
+    endTime = System.currentTimeMillis();
+    try {
+      if (next != null) {
+        next.close();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      finished.countDown();
+    }
+  }
+
+  private class Worker implements Runnable {
+    @SuppressWarnings("unchecked")
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          Object item = queue.take();
+          if (item == END_MARKER) {
+            break;
+          }
+
+          long start = System.currentTimeMillis();
+          boolean success = false;
+          try {
+            success = process((T) item);
+          }
+          catch (Exception e) {
+            LOGGER.error("batch stage " + name + " crashed", e);
+          }
+          busyTime.addAndGet(System.currentTimeMillis() - start);
+          processed.incrementAndGet();
+
+          if (success) {
+            handOver((T) item);
+          }
+          else {
+            failed.incrementAndGet();
+          }
+        }
+      }
+      catch (InterruptedException e) {
+        LOGGER.warn("batch stage " + name + " interrupted");
+      }
+      finally {
+        workerFinished();
+      }
+    }
+  }
+}
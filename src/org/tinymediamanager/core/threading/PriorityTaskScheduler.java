@@ -0,0 +1,334 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.tinymediamanager.core.threading.TmmTaskManager.TaskPriority;
+import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
+
+/**
+ * The class PriorityTaskScheduler. One pool of worker threads with one priority queue for the tasks of several lanes (image downloads, UI
+ * requests, the sub tasks of the main tasks, ...): whenever a worker gets free, it takes the queued task with the highest priority class (FIFO
+ * within a class).<br>
+ * Every lane limits the amount of its tasks running at the same time (e.g. one for a lane which relies on the order of its tasks); the other tasks
+ * wait in the lane until one of its tasks has finished. No lane may occupy all workers, so no priority class is starved completely.
+ * 
+ * @author Manuel Laggner
+ */
+class PriorityTaskScheduler {
+  private final ThreadPoolExecutor executor;
+  private final int                workers;
+  private final AtomicLong         sequence = new AtomicLong();
+  private final Runnable           idleCallback;
+
+  /**
+   * create a new scheduler
+   * 
+   * @param workers
+   *          the amount of worker threads
+   * @param idleCallback
+   *          called whenever a task has finished or has been discarded
+   */
+  PriorityTaskScheduler(int workers, Runnable idleCallback) {
+    this.workers = workers;
+    this.idleCallback = idleCallback;
+    this.executor = new ThreadPoolExecutor(workers, workers, 1, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), new TmmThreadFactory(
+        "worker"));
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * create a new lane
+   * 
+   * @param priority
+   *          the priority class of the tasks
+   * @param maxConcurrency
+   *          the max amount of tasks of this lane running at the same time (limited to the amount of workers - 1)
+   * @param taskMetrics
+   *          the metrics of the priority class
+   * @param listener
+   *          the listener to inform about every started/finished task (null for none)
+   * @param queueHandle
+   *          the handle passed to the listener
+   * @return the lane
+   */
+  Lane createLane(TaskPriority priority, int maxConcurrency, TmmTaskMetrics taskMetrics, TmmTaskListener listener, TmmTaskHandle queueHandle) {
+    return new Lane(priority, Math.max(1, Math.min(maxConcurrency, workers - 1)), taskMetrics, listener, queueHandle);
+  }
+
+  boolean isShutdown() {
+    return executor.isShutdown();
+  }
+
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  void shutdownNow() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * A lane of the scheduler; it can be used (and shut down) like an own thread pool.
+   */
+  class Lane extends AbstractExecutorService {
+    private final TaskPriority                priority;
+    private final int                         maxConcurrency;
+    private final TmmTaskMetrics              taskMetrics;
+    private final TmmTaskListener             listener;
+    private final TmmTaskHandle               queueHandle;
+
+    // tasks waiting for a free slot of this lane
+    private final LinkedList<PrioritizedTask> backlog   = new LinkedList<PrioritizedTask>();
+    // tasks in the priority queue of the scheduler
+    private final Set<PrioritizedTask>        scheduled = new HashSet<PrioritizedTask>();
+    private final Set<Thread>                 threads   = new HashSet<Thread>();
+    // scheduled + running tasks
+    private int                               active    = 0;
+    private boolean                           shutdown  = false;
+
+    private Lane(TaskPriority priority, int maxConcurrency, TmmTaskMetrics taskMetrics, TmmTaskListener listener, TmmTaskHandle queueHandle) {
+      this.priority = priority;
+      this.maxConcurrency = maxConcurrency;
+      this.taskMetrics = taskMetrics;
+      this.listener = listener;
+      this.queueHandle = queueHandle;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      PrioritizedTask task = new PrioritizedTask(this, command, sequence.getAndIncrement());
+      synchronized (this) {
+        if (shutdown) {
+          throw new RejectedExecutionException("the lane has been shut down");
+        }
+        taskMetrics.taskQueued();
+        if (active >= maxConcurrency) {
+          backlog.add(task);
+          return;
+        }
+        active++;
+        scheduled.add(task);
+      }
+      schedule(task);
+    }
+
+    private void schedule(PrioritizedTask task) {
+      try {
+        executor.execute(task);
+      }
+      catch (RejectedExecutionException e) {
+        // the scheduler has been shut down
+        synchronized (this) {
+          if (scheduled.remove(task)) {
+            active--;
+            taskMetrics.tasksDiscarded(1);
+          }
+        }
+        idleCallback.run();
+        throw e;
+      }
+    }
+
+    /**
+     * a worker starts a task of this lane
+     * 
+     * @return false if the task has been discarded in the meantime
+     */
+    private boolean start(PrioritizedTask task) {
+      synchronized (this) {
+        if (!scheduled.remove(task)) {
+          return false;
+        }
+        threads.add(Thread.currentThread());
+      }
+      taskMetrics.taskStarted(System.currentTimeMillis() - task.queued);
+      if (listener != null) {
+        listener.processTaskEvent(queueHandle);
+      }
+      return true;
+    }
+
+    private void finish(long runMillis) {
+      PrioritizedTask next;
+      synchronized (this) {
+        threads.remove(Thread.currentThread());
+        taskMetrics.taskFinished(runMillis);
+        next = backlog.poll();
+        if (next != null) {
+          scheduled.add(next);
+        }
+        else {
+          active--;
+          notifyAll();
+        }
+      }
+      if (listener != null) {
+        listener.processTaskEvent(queueHandle);
+      }
+      if (next != null) {
+        try {
+          schedule(next);
+        }
+        catch (RejectedExecutionException e) {
+          // already discarded
+        }
+      }
+      idleCallback.run();
+    }
+
+    /**
+     * remove all waiting tasks of this lane (the running ones are finished)
+     * 
+     * @param interrupt
+     *          interrupt the running tasks
+     * @return the discarded tasks
+     */
+    private List<Runnable> discard(boolean interrupt) {
+      List<Runnable> discarded = new ArrayList<Runnable>();
+      synchronized (this) {
+        for (PrioritizedTask task : backlog) {
+          discarded.add(task.command);
+        }
+        backlog.clear();
+        for (PrioritizedTask task : scheduled) {
+          executor.remove(task);
+          discarded.add(task.command);
+        }
+        active -= scheduled.size();
+        scheduled.clear();
+        taskMetrics.tasksDiscarded(discarded.size());
+        if (interrupt) {
+          for (Thread thread : threads) {
+            thread.interrupt();
+          }
+        }
+        notifyAll();
+      }
+      idleCallback.run();
+      return discarded;
+    }
+
+    /**
+     * remove all waiting tasks of this lane without interrupting the running ones
+     * 
+     * @return the amount of discarded tasks
+     */
+    int discardQueuedTasks() {
+      return discard(false).size();
+    }
+
+    /**
+     * get the amount of waiting and running tasks
+     * 
+     * @return the amount of open tasks
+     */
+    synchronized int getOpenTasks() {
+      return active + backlog.size();
+    }
+
+    @Override
+    public synchronized void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      synchronized (this) {
+        shutdown = true;
+      }
+      return discard(true);
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+      return shutdown && active == 0;
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+      while (!isTerminated()) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          return false;
+        }
+        wait(remaining);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * a task in the priority queue: ordered by the priority class of its lane and the time it has been added
+   */
+  private static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+    private final Lane     lane;
+    private final Runnable command;
+    private final long     sequence;
+    private final long     queued;
+
+    private PrioritizedTask(Lane lane, Runnable command, long sequence) {
+      this.lane = lane;
+      this.command = command;
+      this.sequence = sequence;
+      this.queued = System.currentTimeMillis();
+    }
+
+    @Override
+    public void run() {
+      if (!lane.start(this)) {
+        return;
+      }
+      Thread thread = Thread.currentThread();
+      int threadPriority = thread.getPriority();
+      thread.setPriority(lane.priority.getThreadPriority());
+      long start = System.currentTimeMillis();
+      try {
+        command.run();
+      }
+      finally {
+        thread.setPriority(threadPriority);
+        lane.finish(System.currentTimeMillis() - start);
+      }
+    }
+
+    @Override
+    public int compareTo(PrioritizedTask other) {
+      int result = lane.priority.compareTo(other.lane.priority);
+      if (result == 0) {
+        result = sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,704 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
+import org.tinymediamanager.scraper.util.StreamingUrl;
+
+/**
+ * The class SegmentedDownload. Downloads an url into a partial file:
+ * <ul>
+ * <li>an existing partial file is resumed with a HTTP range request; the If-Range header makes sure that the remote file has not been changed</li>
+ * <li>big files are split into segments which are downloaded in parallel (if the server supports range requests)</li>
+ * <li>the segments are written with positional writes of a FileChannel out of large direct buffers</li>
+ * <li>the transfer rate is limited by a (global) BandwidthLimiter</li>
+ * </ul>
+ * The progress is saved next to the partial file (url, ETag/Last-Modified, size and segments), so an interrupted download can be resumed later. A
+ * partial file without saved progress is discarded.
+ * 
+ * @author Manuel Laggner
+ */
+public class SegmentedDownload {
+  private static final Logger  LOGGER            = LoggerFactory.getLogger(SegmentedDownload.class);
+  private static final Pattern CONTENT_RANGE     = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+  private static final Pattern UNSATISFIED_RANGE = Pattern.compile("bytes\\s+\\*/(\\d+)");
+  private static final String  STATE_EXTENSION   = ".segments";
+  private static final int     BUFFER_SIZE       = 256 * 1024;
+  private static final int     MAX_SEGMENTS      = 4;
+  private static final long    MIN_SEGMENT_SIZE  = 4 * 1024 * 1024;
+  private static final long    PROGRESS_INTERVAL = 250;
+
+  private final String         url;
+  private final File           partFile;
+  private final File           stateFile;
+  private final AtomicLong     bytesDone         = new AtomicLong();
+  private String               userAgent         = "";
+  private int                  maxSegments       = MAX_SEGMENTS;
+  private long                 minSegmentSize    = MIN_SEGMENT_SIZE;
+  private BandwidthLimiter     limiter           = BandwidthLimiter.getInstance();
+  private ProgressListener     listener;
+  private List<Segment>        segments;
+  private long                 contentLength     = -1;
+  private String               contentType       = "";
+  private String               statusLine        = "";
+  private String               validator         = "";
+  private long                 savedLength       = -1;
+  private boolean              resumable         = false;
+  private boolean              fault             = false;
+  private volatile boolean     cancel            = false;
+  private volatile boolean     stopped           = false;
+
+  /**
+   * create a new download
+   * 
+   * @param url
+   *          the (already encoded) url
+   * @param partFile
+   *          the partial file to download to; an existing partial file of a former download will be resumed
+   */
+  public SegmentedDownload(String url, File partFile) {
+    this.url = url;
+    this.partFile = partFile;
+    this.stateFile = new File(partFile.getAbsolutePath() + STATE_EXTENSION);
+  }
+
+  /**
+   * set a special user agent which is needed for the download
+   * 
+   * @param userAgent
+   *          the user agent
+   */
+  public void setUserAgent(String userAgent) {
+    this.userAgent = userAgent;
+  }
+
+  /**
+   * set the maximum amount of parallel segments
+   * 
+   * @param maxSegments
+   *          the maximum amount of segments (1 for a sequential download)
+   */
+  public void setMaxSegments(int maxSegments) {
+    this.maxSegments = Math.max(1, maxSegments);
+  }
+
+  /**
+   * set the minimum size of a segment; smaller files are downloaded with only one connection
+   * 
+   * @param minSegmentSize
+   *          the minimum size of a segment in bytes
+   */
+  public void setMinSegmentSize(long minSegmentSize) {
+    this.minSegmentSize = Math.max(1, minSegmentSize);
+  }
+
+  /**
+   * set the limiter for the transfer rate (the global limiter by default)
+   * 
+   * @param limiter
+   *          the limiter or null for no limit
+   */
+  public void setBandwidthLimiter(BandwidthLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  /**
+   * set a listener which is informed about the progress (about 4 times per second)
+   * 
+   * @param listener
+   *          the listener
+   */
+  public void setProgressListener(ProgressListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * download the url into the partial file; resumes a former download if possible
+   * 
+   * @return true if the download has been completed; false if it has been cancelled or the server returned an error (see isFault())
+   * @throws IOException
+   *           the download failed; it can be resumed later
+   * @throws InterruptedException
+   *           the download has been interrupted; it can be resumed later
+   */
+  public boolean download() throws IOException, InterruptedException {
+    fault = false;
+    stopped = false;
+    resumable = false;
+    validator = "";
+    savedLength = -1;
+    segments = readState();
+
+    long offset = 0;
+    if (segments != null) {
+      offset = getResumePosition(segments);
+    }
+    else if (partFile.exists()) {
+      // we do not know where this file comes from
+      LOGGER.info("no saved progress for " + partFile.getName() + " - discarding the partial file");
+      FileUtils.deleteQuietly(partFile);
+    }
+    if (offset > 0) {
+      LOGGER.info("resuming download of " + partFile.getName() + " at byte " + offset);
+    }
+
+    Connection connection = openConnection(offset, -1);
+    int status = connection.url.getStatusCode();
+    statusLine = connection.url.getStatusLine();
+    LOGGER.debug("Server returned: " + statusLine);
+    for (Header header : connection.url.getHeadersResponse()) {
+      LOGGER.debug(" < " + header.getName() + ": " + header.getValue());
+    }
+
+    // the partial file is already complete or the remote file has been changed
+    if (status == 416 && offset > 0) {
+      connection.abort();
+      Matcher matcher = UNSATISFIED_RANGE.matcher(StringUtils.defaultString(connection.url.getHeader("Content-Range")));
+      if (matcher.find() && Long.parseLong(matcher.group(1)) == offset && isComplete(segments)) {
+        contentLength = offset;
+        bytesDone.set(offset);
+        deleteState();
+        return true;
+      }
+      LOGGER.info("could not resume download of " + partFile.getName() + " - starting from scratch");
+      discard();
+      return download();
+    }
+
+    if (status == 0 || connection.url.isFault()) {
+      connection.abort();
+      fault = true;
+      return false;
+    }
+
+    contentType = connection.url.getContentType();
+    long[] range = parseContentRange(connection.url.getHeader("Content-Range"));
+    String responseValidator = getValidator(connection.url);
+    if (status == 206 && range != null && range[0] == offset) {
+      // range requests are supported; servers which ignore If-Range are checked by the validator and the size
+      if (segments != null && (isChanged(validator, responseValidator) || savedLength != range[2])) {
+        LOGGER.info("remote file of " + partFile.getName() + " has been changed - starting from scratch");
+        connection.abort();
+        discard();
+        return download();
+      }
+      contentLength = range[2];
+      validator = responseValidator;
+      resumable = true;
+      if (segments == null) {
+        segments = planSegments(offset, contentLength);
+      }
+    }
+    else if (offset > 0) {
+      // If-Range did not match (the remote file has been changed) or the server does not support resuming
+      LOGGER.info("could not resume download of " + partFile.getName() + " - starting from scratch");
+      connection.abort();
+      discard();
+      return download();
+    }
+    else {
+      // no range support: the complete file is being sent
+      deleteState();
+      contentLength = connection.url.getContentLength() > 0 ? connection.url.getContentLength() : -1;
+      offset = 0;
+      segments = new ArrayList<Segment>(1);
+      segments.add(new Segment(0, contentLength, 0));
+      FileUtils.deleteQuietly(partFile);
+    }
+
+    long remaining = 0;
+    for (Segment segment : segments) {
+      remaining += segment.end - segment.position;
+    }
+    bytesDone.set(contentLength >= 0 ? contentLength - remaining : offset);
+
+    RandomAccessFile randomAccessFile = new RandomAccessFile(partFile, "rw");
+    try {
+      return runSegments(randomAccessFile.getChannel(), connection, offset);
+    }
+    finally {
+      randomAccessFile.close();
+    }
+  }
+
+  /**
+   * cancel the download; the workers stop as soon as possible and download() returns false
+   */
+  public void cancel() {
+    cancel = true;
+    stopped = true;
+  }
+
+  /**
+   * delete the partial file and the saved progress (e.g. after a cancelled download)
+   */
+  public void discard() {
+    FileUtils.deleteQuietly(partFile);
+    deleteState();
+    segments = null;
+    bytesDone.set(0);
+  }
+
+  /**
+   * get the content length (available after the download has been started)
+   * 
+   * @return the content length or -1 if unknown
+   */
+  public long getContentLength() {
+    return contentLength;
+  }
+
+  /**
+   * get the content type of the response
+   * 
+   * @return the content type
+   */
+  public String getContentType() {
+    return contentType;
+  }
+
+  /**
+   * get the http status line of the (first) response
+   * 
+   * @return the status line
+   */
+  public String getStatusLine() {
+    return statusLine;
+  }
+
+  /**
+   * did the server return an error?
+   * 
+   * @return true/false
+   */
+  public boolean isFault() {
+    return fault;
+  }
+
+  /**
+   * get the amount of bytes which have been downloaded (including the bytes of a resumed download)
+   * 
+   * @return the downloaded bytes
+   */
+  public long getBytesDone() {
+    return bytesDone.get();
+  }
+
+  private boolean runSegments(FileChannel channel, Connection firstConnection, long offset) throws IOException, InterruptedException {
+    List<Segment> openSegments = new ArrayList<Segment>();
+    for (Segment segment : segments) {
+      if (!segment.isComplete()) {
+        openSegments.add(segment);
+      }
+    }
+    if (resumable) {
+      writeState();
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, openSegments.size()), new TmmThreadFactory("download-segment"));
+    List<Future<Object>> futures = new ArrayList<Future<Object>>(openSegments.size());
+    for (Segment segment : openSegments) {
+      Connection connection = null;
+      if (firstConnection != null && segment.position == offset) {
+        // the segment at the resume position re-uses the first connection
+        connection = firstConnection;
+        firstConnection = null;
+      }
+      futures.add(executor.submit(new SegmentWorker(segment, channel, connection)));
+    }
+    if (firstConnection != null) {
+      firstConnection.abort();
+    }
+    executor.shutdown();
+
+    long timestamp1 = System.nanoTime();
+    long bytesDonePrevious = bytesDone.get();
+    double speed = 0;
+    try {
+      while (!executor.awaitTermination(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS)) {
+        // avg. speed between the actual and the previous
+        long timestamp2 = System.nanoTime();
+        long done = bytesDone.get();
+        speed = (speed + (done - bytesDonePrevious) / ((double) (timestamp2 - timestamp1) / 1000000000)) / 2;
+        timestamp1 = timestamp2;
+        bytesDonePrevious = done;
+
+        if (listener != null) {
+          listener.progress(done, contentLength, speed);
+        }
+        if (resumable) {
+          writeState();
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      // stop the workers and keep the progress for resuming
+      stopped = true;
+      executor.shutdownNow();
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+      if (resumable) {
+        writeState();
+      }
+      throw e;
+    }
+
+    IOException error = null;
+    for (Future<Object> future : futures) {
+      try {
+        future.get();
+      }
+      catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          error = (IOException) e.getCause();
+        }
+        else {
+          error = new IOException(e.getCause());
+        }
+      }
+    }
+
+    if (cancel) {
+      return false;
+    }
+    if (error != null) {
+      if (resumable) {
+        writeState();
+      }
+      throw error;
+    }
+
+    if (contentLength < 0) {
+      contentLength = bytesDone.get();
+    }
+    deleteState();
+    return true;
+  }
+
+  /**
+   * split the remaining part of the file into segments
+   */
+  private List<Segment> planSegments(long offset, long total) {
+    List<Segment> list = new ArrayList<Segment>();
+    if (total < 0) {
+      list.add(new Segment(offset, -1, offset));
+      return list;
+    }
+
+    long remaining = total - offset;
+    int count = (int) Math.max(1, Math.min(maxSegments, remaining / minSegmentSize));
+    long size = remaining / count;
+    for (int i = 0; i < count; i++) {
+      long start = offset + i * size;
+      long end = i == count - 1 ? total : start + size;
+      list.add(new Segment(start, end, start));
+    }
+    return list;
+  }
+
+  private Connection openConnection(long from, long to) throws IOException {
+    StreamingUrl u = new StreamingUrl(url);
+    if (StringUtils.isNotBlank(userAgent)) {
+      u.setUserAgent(userAgent);
+    }
+    // always ask for a range: a 206 tells us that the server is able to resume/split the download
+    u.addHeader("Range", "bytes=" + from + "-" + (to >= 0 ? String.valueOf(to) : ""));
+    if (from > 0 && StringUtils.isNotBlank(validator)) {
+      // only send the range if the remote file is still the same; the complete (changed) file otherwise
+      u.addHeader("If-Range", validator);
+    }
+    InputStream is = u.getInputStream();
+    return new Connection(u, is);
+  }
+
+  /**
+   * parse the Content-Range header
+   * 
+   * @return {start, end, total (-1 if unknown)} or null
+   */
+  private static long[] parseContentRange(String header) {
+    if (StringUtils.isBlank(header)) {
+      return null;
+    }
+    Matcher matcher = CONTENT_RANGE.matcher(header);
+    if (!matcher.find()) {
+      return null;
+    }
+    long total = "*".equals(matcher.group(3)) ? -1 : Long.parseLong(matcher.group(3));
+    return new long[] { Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)), total };
+  }
+
+  /**
+   * the validator of the remote file for If-Range: a strong ETag or the Last-Modified date
+   * 
+   * @return the validator or an empty string
+   */
+  private static String getValidator(StreamingUrl u) {
+    String etag = u.getHeader("ETag");
+    if (StringUtils.isNotBlank(etag) && !etag.startsWith("W/")) {
+      return etag.trim();
+    }
+    return StringUtils.trimToEmpty(u.getHeader("Last-Modified"));
+  }
+
+  private static boolean isChanged(String savedValidator, String validator) {
+    return StringUtils.isNotBlank(savedValidator) && StringUtils.isNotBlank(validator) && !savedValidator.equals(validator);
+  }
+
+  private static long getResumePosition(List<Segment> segments) {
+    for (Segment segment : segments) {
+      if (!segment.isComplete()) {
+        return segment.position;
+      }
+    }
+    return segments.get(segments.size() - 1).end;
+  }
+
+  private static boolean isComplete(List<Segment> segments) {
+    for (Segment segment : segments) {
+      if (!segment.isComplete()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * read the progress of a former download (the url, the validator (ETag/Last-Modified), the size of the remote file (-1 if unknown), then one
+   * line "start end position" per segment)
+   * 
+   * @return the segments or null if there is no (valid) saved progress
+   */
+  private List<Segment> readState() {
+    if (!stateFile.exists()) {
+      return null;
+    }
+    try {
+      List<String> lines = FileUtils.readLines(stateFile, "UTF-8");
+      if (!partFile.exists() || lines.size() < 4 || !url.equals(lines.get(0))) {
+        discard();
+        return null;
+      }
+      validator = lines.get(1).trim();
+      savedLength = Long.parseLong(lines.get(2).trim());
+      List<Segment> list = new ArrayList<Segment>(lines.size() - 3);
+      for (String line : lines.subList(3, lines.size())) {
+        String[] values = line.trim().split(" ");
+        list.add(new Segment(Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2])));
+      }
+      return list;
+    }
+    catch (Exception e) {
+      LOGGER.warn("could not read the progress of " + partFile.getName() + ": " + e.getMessage());
+      discard();
+      return null;
+    }
+  }
+
+  private synchronized void writeState() {
+    StringBuilder sb = new StringBuilder(url).append("\n");
+    sb.append(validator).append("\n");
+    sb.append(contentLength).append("\n");
+    for (Segment segment : segments) {
+      sb.append(segment.start).append(" ").append(segment.end).append(" ").append(segment.position).append("\n");
+    }
+    try {
+      FileUtils.writeStringToFile(stateFile, sb.toString(), "UTF-8");
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not save the progress of " + partFile.getName() + ": " + e.getMessage());
+    }
+  }
+
+  private void deleteState() {
+    FileUtils.deleteQuietly(stateFile);
+  }
+
+  /**
+   * listener for the download progress
+   */
+  public interface ProgressListener {
+    /**
+     * the download made some progress
+     * 
+     * @param bytesDone
+     *          the downloaded bytes
+     * @param contentLength
+     *          the content length or -1 if unknown
+     * @param speed
+     *          the average speed in bytes per second
+     */
+    public void progress(long bytesDone, long contentLength, double speed);
+  }
+
+  /**
+   * a part of the file: start (inclusive), end (exclusive; -1 if unknown) and the position up to which the part has been written
+   */
+  private static class Segment {
+    private final long    start;
+    private volatile long end;
+    private volatile long position;
+
+    private Segment(long start, long end, long position) {
+      this.start = start;
+      this.end = end;
+      this.position = position;
+    }
+
+    private boolean isComplete() {
+      return end >= 0 && position >= end;
+    }
+  }
+
+  /**
+   * an open http connection
+   */
+  private static class Connection {
+    private final StreamingUrl url;
+    private final InputStream  stream;
+
+    private Connection(StreamingUrl url, InputStream stream) {
+      this.url = url;
+      this.stream = stream;
+    }
+
+    /**
+     * close the stream after it has been read completely (the connection can be re-used)
+     */
+    private void close() {
+      try {
+        stream.close();
+      }
+      catch (IOException e) {
+        LOGGER.debug("could not close stream: " + e.getMessage());
+      }
+    }
+
+    /**
+     * close the connection without reading the rest of the stream
+     */
+    private void abort() {
+      url.closeConnection();
+    }
+  }
+
+  /**
+   * downloads one segment
+   */
+  private class SegmentWorker implements Callable<Object> {
+    private final Segment     segment;
+    private final FileChannel channel;
+    private Connection        connection;
+
+    private SegmentWorker(Segment segment, FileChannel channel, Connection connection) {
+      this.segment = segment;
+      this.channel = channel;
+      this.connection = connection;
+    }
+
+    @Override
+    public Object call() throws Exception {
+      if (connection == null) {
+        connection = openConnection(segment.position, segment.end - 1);
+        long[] range = parseContentRange(connection.url.getHeader("Content-Range"));
+        if (connection.url.getStatusCode() != 206 || range == null || range[0] != segment.position) {
+          connection.abort();
+          throw new IOException("server did not send the requested range (" + connection.url.getStatusLine() + ")");
+        }
+      }
+
+      ReadableByteChannel in = Channels.newChannel(connection.stream);
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      boolean eof = false;
+      try {
+        while (!stopped && !segment.isComplete()) {
+          int chunkSize = limiter != null ? limiter.getChunkSize(BUFFER_SIZE) : BUFFER_SIZE;
+          if (segment.end >= 0) {
+            chunkSize = (int) Math.min(chunkSize, segment.end - segment.position);
+          }
+
+          // fill the buffer (the stream only delivers small blocks at once)
+          buffer.clear();
+          buffer.limit(chunkSize);
+          while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+              eof = true;
+              break;
+            }
+          }
+          buffer.flip();
+          int count = buffer.remaining();
+
+          long position = segment.position;
+          while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+          }
+          segment.position = position;
+          bytesDone.addAndGet(count);
+
+          if (limiter != null) {
+            limiter.acquire(count);
+          }
+          if (eof) {
+            break;
+          }
+        }
+      }
+      finally {
+        if (eof) {
+          connection.close();
+        }
+        else {
+          // we must not close the stream on cancel/segment end (the rest of the stream would be downloaded)
+          connection.abort();
+        }
+      }
+
+      if (eof && segment.end < 0) {
+        // unknown length: the stream ended
+        segment.end = segment.position;
+      }
+      if (!stopped && !segment.isComplete()) {
+        throw new IOException("premature end of stream at byte " + segment.position);
+      }
+      return null;
+    }
+  }
+}
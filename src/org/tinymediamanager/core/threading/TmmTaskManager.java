@@ -15,58 +15,113 @@
  */
 package org.tinymediamanager.core.threading;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.threading.PriorityTaskScheduler.Lane;
 import org.tinymediamanager.core.threading.TmmTaskHandle.TaskState;
 import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The class TmmTaskManager. Used to manage all tasks within tmm (except the helper tasks, e.g. scraper sub tasks)
+ * The class TmmTaskManager. Used to manage all tasks within tmm (except the helper tasks, e.g. scraper sub tasks). The image downloads, the
+ * unnamed tasks, the interactive requests and the sub tasks of the main tasks share the workers and the priority queue of one
+ * PriorityTaskScheduler; the main tasks (which mostly wait for their sub tasks) and the long running downloads have their own threads.
  * 
  * @author Manuel Laggner
  */
 public class TmmTaskManager implements TmmTaskListener {
-  private static final ResourceBundle    BUNDLE           = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
-  private final static TmmTaskManager    instance         = new TmmTaskManager();
-  private final Set<TmmTaskListener>     taskListener     = new CopyOnWriteArraySet<TmmTaskListener>();
-  private final Set<TmmTaskHandle>       runningTasks     = new CopyOnWriteArraySet<TmmTaskHandle>();
+  private static final ResourceBundle BUNDLE                 = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final int            CORES                  = Runtime.getRuntime().availableProcessors();
+  // most tasks are I/O bound; so the shared workers may exceed the cores
+  private static final int            WORKER_THREADS         = Math.max(8, Math.min(2 * CORES, 16));
+  // image downloads and other background tasks: do not open more connections than the http client allows
+  private static final int            IMAGE_DOWNLOAD_THREADS = Math.max(2, Math.min(CORES, 4));
+  private static final int            UNNAMED_TASK_THREADS   = Math.max(2, Math.min(CORES, 4));
+  private static final int            INTERACTIVE_THREADS    = WORKER_THREADS - 1;
+  // every download uses up to 4 connections and all downloads share the bandwidth limit
+  private static final int            DOWNLOAD_THREADS       = 2;
+
+  /**
+   * the priority classes of the tasks: interactive requests from the UI are preferred over the main tasks, which are preferred over the background
+   * tasks (artwork downloads, caching, ...)
+   */
+  public enum TaskPriority {
+    INTERACTIVE(Thread.NORM_PRIORITY + 1),
+    MAIN(Thread.NORM_PRIORITY),
+    BACKGROUND(Thread.NORM_PRIORITY - 1);
+
+    private final int threadPriority;
+
+    private TaskPriority(int threadPriority) {
+      this.threadPriority = threadPriority;
+    }
+
+    int getThreadPriority() {
+      return threadPriority;
+    }
+  }
+
+  private final static TmmTaskManager             instance         = new TmmTaskManager();
+  private final Set<TmmTaskListener>              taskListener     = new CopyOnWriteArraySet<TmmTaskListener>();
+  private final Set<TmmTaskHandle>                runningTasks     = new CopyOnWriteArraySet<TmmTaskHandle>();
+  // queued and running tasks of all priority classes
+  private final AtomicLong                        openTasks        = new AtomicLong();
+  private final Map<TaskPriority, TmmTaskMetrics> metrics          = createMetrics();
+  private final Object                            idleLock         = new Object();
+  // the image downloads added by the current thread (if tracking has been started)
+  private final ThreadLocal<List<Future<?>>>      trackedTasks     = new ThreadLocal<List<Future<?>>>();
+
+  // the workers and the priority queue shared by the lanes
+  private PriorityTaskScheduler                   scheduler;
 
   // we have some "named" queues, holding different types of tasks
   // image download/subtitle download are rather small/fast tasks - we only queue them in a queue and provide to abort the complete queue
-  private ThreadPoolExecutor             imageDownloadExecutor;
+  private Lane                                    imageDownloadExecutor;
 
   // this is a queue which holds "other" tasks
-  private ThreadPoolExecutor             unnamedTaskExecutor;
+  private Lane                                    unnamedTaskExecutor;
+
+  // short running requests of the UI (e.g. loading previews); they are run before all other tasks
+  private Lane                                    interactiveExecutor;
 
   // trailer download are rather big/long running tasks; only x at a time can be run and they are able to be cancelled individually
-  private ThreadPoolExecutor             downloadExecutor;
+  private ThreadPoolExecutor                      downloadExecutor;
 
   // main tasks (update datasource, scraping, renaming) are queueable tasks, but only one at a time can run; they can be cancelled individually
-  private final ThreadPoolExecutor       mainTaskExecutor = createMainTaskQueue();
+  private final ThreadPoolExecutor                mainTaskExecutor = createMainTaskQueue();
 
   // fake task handles to manage queues
-  private TmmTaskHandle                  imageQueueHandle;
-  private TmmTaskHandle                  unnamedQueueHandle;
+  private TmmTaskHandle                           imageQueueHandle;
+  private TmmTaskHandle                           unnamedQueueHandle;
 
   // scheduled threads
-  private final ScheduledExecutorService scheduler        = Executors.newScheduledThreadPool(1);
+  private final ScheduledExecutorService          timer            = Executors.newScheduledThreadPool(1);
 
   private TmmTaskManager() {
     imageQueueHandle = new ImageQueueTaskHandle();
     unnamedQueueHandle = new UnnamedQueueTaskHandle();
 
     // GA session keep-alive every 20 min
-    ScheduledFuture keepalive = scheduler.scheduleWithFixedDelay(new Runnable() {
+    ScheduledFuture keepalive = timer.scheduleWithFixedDelay(new Runnable() {
       @Override
       public void run() {
         Utils.trackEvent("ping-pong");
@@ -86,50 +141,105 @@ public class TmmTaskManager implements TmmTaskListener {
     taskListener.remove(listener);
   }
 
-  private ThreadPoolExecutor createImageDownloadExecutor() {
-    ThreadPoolExecutor executor = new ThreadPoolExecutor(3, 3, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory(
-        "image-download-task")) {
-      @Override
-      protected void beforeExecute(Thread d, Runnable r) {
-        super.beforeExecute(d, r);
-        if (imageQueueHandle != null) {
-          processTaskEvent(imageQueueHandle);
-        }
-      }
+  private Map<TaskPriority, TmmTaskMetrics> createMetrics() {
+    Map<TaskPriority, TmmTaskMetrics> metrics = new EnumMap<TaskPriority, TmmTaskMetrics>(TaskPriority.class);
+    for (TaskPriority priority : TaskPriority.values()) {
+      metrics.put(priority, new TmmTaskMetrics(openTasks));
+    }
+    return metrics;
+  }
 
-      @Override
-      protected void afterExecute(Runnable r, Throwable t) {
-        super.afterExecute(r, t);
-        if (imageQueueHandle != null) {
-          processTaskEvent(imageQueueHandle);
-        }
-      }
-    };
+  /**
+   * create a new queue with own threads; they share the metrics and thread priority of their priority class
+   */
+  private ThreadPoolExecutor createExecutor(TaskPriority priority, int threads, String name) {
+    ThreadPoolExecutor executor = new MeteredThreadPoolExecutor(priority, threads, name);
     executor.allowCoreThreadTimeOut(true);
     return executor;
   }
 
-  private ThreadPoolExecutor createUnnamedTaskExecutor() {
-    ThreadPoolExecutor executor = new ThreadPoolExecutor(3, 3, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory(
-        "unnamed-task")) {
-      @Override
-      protected void beforeExecute(Thread d, Runnable r) {
-        super.beforeExecute(d, r);
-        if (unnamedQueueHandle != null) {
-          processTaskEvent(unnamedQueueHandle);
+  /**
+   * create a new lane of the shared scheduler
+   */
+  private synchronized Lane createLane(TaskPriority priority, int threads, TmmTaskHandle queueHandle) {
+    if (scheduler == null || scheduler.isShutdown()) {
+      scheduler = new PriorityTaskScheduler(WORKER_THREADS, new Runnable() {
+        @Override
+        public void run() {
+          notifyIdle();
         }
-      }
+      });
+    }
+    return scheduler.createLane(priority, threads, metrics.get(priority), queueHandle != null ? this : null, queueHandle);
+  }
 
-      @Override
-      protected void afterExecute(Runnable r, Throwable t) {
-        super.afterExecute(r, t);
-        if (unnamedQueueHandle != null) {
-          processTaskEvent(unnamedQueueHandle);
-        }
+  /**
+   * create the pool for the sub tasks of a main task (TmmThreadPool); the sub tasks are run by the shared workers in the main priority class
+   * 
+   * @param threads
+   *          the max amount of sub tasks running at the same time
+   * @param name
+   *          the name of the pool (for the logging)
+   * @return the pool
+   */
+  ExecutorService createSubTaskExecutor(int threads, String name) {
+    return createLane(TaskPriority.MAIN, threads, null);
+  }
+
+  /**
+   * remove all queued tasks of a pool without interrupting the running ones; the discarded tasks are removed from the metrics
+   * 
+   * @param executor
+   *          the pool
+   * @return the amount of discarded tasks
+   */
+  int discardQueuedTasks(ExecutorService executor) {
+    if (executor instanceof Lane) {
+      return ((Lane) executor).discardQueuedTasks();
+    }
+    List<Runnable> discarded = new ArrayList<Runnable>();
+    if (executor instanceof MeteredThreadPoolExecutor) {
+      MeteredThreadPoolExecutor pool = (MeteredThreadPoolExecutor) executor;
+      pool.getQueue().drainTo(discarded);
+      pool.taskMetrics.tasksDiscarded(discarded.size());
+    }
+    notifyIdle();
+    return discarded.size();
+  }
+
+  private Lane createImageDownloadExecutor() {
+    return createLane(TaskPriority.BACKGROUND, IMAGE_DOWNLOAD_THREADS, imageQueueHandle);
+  }
+
+  private Lane createUnnamedTaskExecutor() {
+    return createLane(TaskPriority.BACKGROUND, UNNAMED_TASK_THREADS, unnamedQueueHandle);
+  }
+
+  /**
+   * get the metrics (queue length, wait time, run time) of a priority class
+   * 
+   * @param priority
+   *          the priority class
+   * @return the metrics
+   */
+  public TmmTaskMetrics getMetrics(TaskPriority priority) {
+    return metrics.get(priority);
+  }
+
+  /**
+   * get the metrics of all priority classes as a human readable string (e.g. for the status bar)
+   * 
+   * @return the metrics
+   */
+  public String getMetricsSummary() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<TaskPriority, TmmTaskMetrics> entry : metrics.entrySet()) {
+      if (sb.length() > 0) {
+        sb.append("\n");
       }
-    };
-    executor.allowCoreThreadTimeOut(true);
-    return executor;
+      sb.append(entry.getKey().name().toLowerCase()).append(" - ").append(entry.getValue());
+    }
+    return sb.toString();
   }
 
   /**
@@ -142,9 +252,62 @@ public class TmmTaskManager implements TmmTaskListener {
     if (imageDownloadExecutor == null || imageDownloadExecutor.isShutdown()) {
       imageDownloadExecutor = createImageDownloadExecutor();
     }
+    List<Future<?>> tracked = trackedTasks.get();
+    if (tracked != null) {
+      FutureTask<Object> future = new FutureTask<Object>(task, null);
+      tracked.add(future);
+      task = future;
+    }
     imageDownloadExecutor.execute(task);
   }
 
+  /**
+   * start tracking the image downloads which are added by the current thread (e.g. to wait for the artwork of one movie)
+   */
+  public void startTaskTracking() {
+    trackedTasks.set(new ArrayList<Future<?>>());
+  }
+
+  /**
+   * stop tracking the image downloads of the current thread
+   * 
+   * @return the futures of all image downloads which have been added since startTaskTracking()
+   */
+  public List<Future<?>> stopTaskTracking() {
+    List<Future<?>> tracked = trackedTasks.get();
+    trackedTasks.remove();
+    return tracked != null ? tracked : new ArrayList<Future<?>>(0);
+  }
+
+  /**
+   * is there any queued or running task in the queues of the task manager? One counter holds the queued and running tasks of all priority
+   * classes, so a task moving from the queue to a worker (or queueing another task before it finishes) is never missed
+   * 
+   * @return true if all queues are empty
+   */
+  public boolean isIdle() {
+    return openTasks.get() == 0;
+  }
+
+  /**
+   * wait until all queues of the task manager are empty (e.g. all artwork has been downloaded)
+   * 
+   * @throws InterruptedException
+   */
+  public void awaitIdle() throws InterruptedException {
+    synchronized (idleLock) {
+      while (!isIdle()) {
+        idleLock.wait();
+      }
+    }
+  }
+
+  private void notifyIdle() {
+    synchronized (idleLock) {
+      idleLock.notifyAll();
+    }
+  }
+
   /**
    * add a tasks which does not fit in the named queues (like caching or TV show episode scraping task)
    * 
@@ -163,6 +326,35 @@ public class TmmTaskManager implements TmmTaskListener {
     unnamedTaskExecutor.execute(task);
   }
 
+  /**
+   * submit a short running request of the UI (like loading previews); these requests are run before the main and background tasks
+   * 
+   * @param task
+   *          the request
+   * @return the future to get the result (or to cancel the request)
+   */
+  public <T> Future<T> submitInteractiveTask(Callable<T> task) {
+    return getInteractiveExecutor().submit(task);
+  }
+
+  /**
+   * submit a short running request of the UI (like loading previews); these requests are run before the main and background tasks
+   * 
+   * @param task
+   *          the request
+   * @return the future to cancel the request
+   */
+  public Future<?> submitInteractiveTask(Runnable task) {
+    return getInteractiveExecutor().submit(task);
+  }
+
+  private synchronized Lane getInteractiveExecutor() {
+    if (interactiveExecutor == null || interactiveExecutor.isShutdown()) {
+      interactiveExecutor = createLane(TaskPriority.INTERACTIVE, INTERACTIVE_THREADS, null);
+    }
+    return interactiveExecutor;
+  }
+
   /**
    * add a download task to the queue
    * 
@@ -171,8 +363,7 @@ public class TmmTaskManager implements TmmTaskListener {
    */
   public void addDownloadTask(TmmTask task) {
     if (downloadExecutor == null) {
-      downloadExecutor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory("download-task"));
-      downloadExecutor.allowCoreThreadTimeOut(true);
+      downloadExecutor = createExecutor(TaskPriority.BACKGROUND, DOWNLOAD_THREADS, "download-task");
     }
     task.addListener(this);
     task.setState(TaskState.QUEUED);
@@ -188,7 +379,7 @@ public class TmmTaskManager implements TmmTaskListener {
     if (unnamedTaskExecutor == null) {
       return 0;
     }
-    return unnamedTaskExecutor.getQueue().size() + unnamedTaskExecutor.getActiveCount();
+    return unnamedTaskExecutor.getOpenTasks();
   }
 
   /**
@@ -225,12 +416,7 @@ public class TmmTaskManager implements TmmTaskListener {
   }
 
   private ThreadPoolExecutor createMainTaskQueue() {
-    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, // max threads
-        1, TimeUnit.SECONDS, // time to wait before closing idle workers
-        new LinkedBlockingQueue<Runnable>(), // our queue
-        new TmmThreadFactory("main-task"));
-    executor.allowCoreThreadTimeOut(true);
-    return executor;
+    return createExecutor(TaskPriority.MAIN, 1, "main-task");
   }
 
   /**
@@ -246,11 +432,19 @@ public class TmmTaskManager implements TmmTaskListener {
     if (downloadExecutor != null) {
       downloadExecutor.shutdown();
     }
+    if (interactiveExecutor != null) {
+      interactiveExecutor.shutdown();
+    }
     if (mainTaskExecutor != null) {
       mainTaskExecutor.shutdown();
     }
-    if (scheduler != null) {
-      scheduler.shutdown();
+    synchronized (this) {
+      if (scheduler != null) {
+        scheduler.shutdown();
+      }
+    }
+    if (timer != null) {
+      timer.shutdown();
     }
     for (TmmTaskHandle task : runningTasks) {
       task.cancel();
@@ -280,11 +474,19 @@ public class TmmTaskManager implements TmmTaskListener {
     if (downloadExecutor != null && !downloadExecutor.isTerminated()) {
       downloadExecutor.shutdownNow();
     }
+    if (interactiveExecutor != null && !interactiveExecutor.isTerminated()) {
+      interactiveExecutor.shutdownNow();
+    }
     if (mainTaskExecutor != null && !mainTaskExecutor.isTerminated()) {
       mainTaskExecutor.shutdownNow();
     }
-    if (scheduler != null && !scheduler.isTerminated()) {
-      scheduler.shutdownNow();
+    synchronized (this) {
+      if (scheduler != null) {
+        scheduler.shutdownNow();
+      }
+    }
+    if (timer != null && !timer.isTerminated()) {
+      timer.shutdownNow();
     }
   }
 
@@ -365,6 +567,68 @@ public class TmmTaskManager implements TmmTaskListener {
   /*************************************************************************
    * helper classes
    *************************************************************************/
+  /**
+   * a thread pool which records the metrics of its priority class
+   */
+  private class MeteredThreadPoolExecutor extends ThreadPoolExecutor {
+    private final TmmTaskMetrics taskMetrics;
+
+    public MeteredThreadPoolExecutor(TaskPriority priority, int threads, String name) {
+      super(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new TmmThreadFactory(name, priority.threadPriority));
+      this.taskMetrics = metrics.get(priority);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      taskMetrics.taskQueued();
+      try {
+        super.execute(new MeteredRunnable(command, taskMetrics));
+      }
+      catch (RejectedExecutionException e) {
+        taskMetrics.tasksDiscarded(1);
+        throw e;
+      }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      List<Runnable> discarded = super.shutdownNow();
+      taskMetrics.tasksDiscarded(discarded.size());
+      notifyIdle();
+      return discarded;
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+      super.afterExecute(r, t);
+      notifyIdle();
+    }
+  }
+
+  private static class MeteredRunnable implements Runnable {
+    private final Runnable       task;
+    private final TmmTaskMetrics taskMetrics;
+    private final long           queued;
+
+    public MeteredRunnable(Runnable task, TmmTaskMetrics taskMetrics) {
+      this.task = task;
+      this.taskMetrics = taskMetrics;
+      this.queued = System.currentTimeMillis();
+    }
+
+    @Override
+    public void run() {
+      long start = System.currentTimeMillis();
+      taskMetrics.taskStarted(start - queued);
+      try {
+        task.run();
+      }
+      finally {
+        taskMetrics.taskFinished(System.currentTimeMillis() - start);
+      }
+    }
+  }
+
   private class ImageQueueTaskHandle implements TmmTaskHandle {
     @Override
     public String getTaskName() {
@@ -389,7 +653,7 @@ public class TmmTaskManager implements TmmTaskListener {
     private int getOpenTasks() {
       int openTasks = 0;
       if (imageDownloadExecutor != null) {
-        openTasks = imageDownloadExecutor.getQueue().size() + imageDownloadExecutor.getActiveCount();
+        openTasks = imageDownloadExecutor.getOpenTasks();
       }
       return openTasks;
     }
@@ -437,7 +701,7 @@ public class TmmTaskManager implements TmmTaskListener {
     private int getOpenTasks() {
       int openTasks = 0;
       if (unnamedTaskExecutor != null) {
-        openTasks = unnamedTaskExecutor.getQueue().size() + unnamedTaskExecutor.getActiveCount();
+        openTasks = unnamedTaskExecutor.getOpenTasks();
       }
       return openTasks;
     }
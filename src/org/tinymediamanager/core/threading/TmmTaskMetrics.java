@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The class TmmTaskMetrics. Holds the queue length, wait time and run time of all tasks of one priority class in the TmmTaskManager
+ * 
+ * @author Manuel Laggner
+ */
+public class TmmTaskMetrics {
+  private final AtomicLong openTasks;
+  private final AtomicLong queued    = new AtomicLong();
+  private final AtomicLong running   = new AtomicLong();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong waitTime  = new AtomicLong();
+  private final AtomicLong runTime   = new AtomicLong();
+  private final AtomicLong maxWait   = new AtomicLong();
+
+  /**
+   * create new metrics
+   * 
+   * @param openTasks
+   *          the counter of the queued and running tasks of all priority classes (a task moving from queued to running does not change it)
+   */
+  TmmTaskMetrics(AtomicLong openTasks) {
+    this.openTasks = openTasks;
+  }
+
+  void taskQueued() {
+    openTasks.incrementAndGet();
+    queued.incrementAndGet();
+  }
+
+  void taskStarted(long waitedMillis) {
+    running.incrementAndGet();
+    queued.decrementAndGet();
+    waitTime.addAndGet(waitedMillis);
+
+    long currentMax = maxWait.get();
+    while (waitedMillis > currentMax && !maxWait.compareAndSet(currentMax, waitedMillis)) {
+      currentMax = maxWait.get();
+    }
+  }
+
+  void taskFinished(long runMillis) {
+    running.decrementAndGet();
+    completed.incrementAndGet();
+    runTime.addAndGet(runMillis);
+    openTasks.decrementAndGet();
+  }
+
+  void tasksDiscarded(int count) {
+    queued.addAndGet(-count);
+    openTasks.addAndGet(-count);
+  }
+
+  /**
+   * get the amount of tasks waiting in the queues
+   * 
+   * @return the queue length
+   */
+  public long getQueueLength() {
+    return queued.get();
+  }
+
+  /**
+   * get the amount of tasks currently running
+   * 
+   * @return the running tasks
+   */
+  public long getRunningTasks() {
+    return running.get();
+  }
+
+  /**
+   * get the amount of finished tasks
+   * 
+   * @return the finished tasks
+   */
+  public long getCompletedTasks() {
+    return completed.get();
+  }
+
+  /**
+   * get the average time the tasks had to wait in the queue before they were started
+   * 
+   * @return the average wait time in ms
+   */
+  public long getAverageWaitTime() {
+    long started = completed.get() + running.get();
+    return started > 0 ? waitTime.get() / started : 0;
+  }
+
+  /**
+   * get the maximum time a task had to wait in the queue
+   * 
+   * @return the maximum wait time in ms
+   */
+  public long getMaxWaitTime() {
+    return maxWait.get();
+  }
+
+  /**
+   * get the average run time of the finished tasks
+   * 
+   * @return the average run time in ms
+   */
+  public long getAverageRunTime() {
+    long finished = completed.get();
+    return finished > 0 ? runTime.get() / finished : 0;
+  }
+
+  @Override
+  public String toString() {
+    return "queued: " + getQueueLength() + "; running: " + getRunningTasks() + "; completed: " + getCompletedTasks() + "; avg wait: "
+        + getAverageWaitTime() + "ms; max wait: " + getMaxWaitTime() + "ms; avg run: " + getAverageRunTime() + "ms";
+  }
+}
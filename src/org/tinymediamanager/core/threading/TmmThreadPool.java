@@ -19,10 +19,9 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -37,7 +36,7 @@ import org.slf4j.LoggerFactory;
 public abstract class TmmThreadPool extends TmmTask {
   private static final Logger       LOGGER  = LoggerFactory.getLogger(TmmThreadPool.class);
 
-  private ThreadPoolExecutor        pool    = null;
+  private ExecutorService           pool    = null;
   private CompletionService<Object> service = null;
 
   protected String                  poolname;
@@ -57,12 +56,8 @@ public abstract class TmmThreadPool extends TmmTask {
   protected void initThreadPool(int threads, String name) {
     this.cancel = false;
     this.poolname = name;
-    pool = new ThreadPoolExecutor(threads, threads, // max threads
-        2, TimeUnit.SECONDS, // time to wait before closing idle workers
-        new LinkedBlockingQueue<Runnable>(), // our queue
-        new TmmThreadFactory(name) // our thread settings
-    );
-    pool.allowCoreThreadTimeOut(true);
+    // the sub tasks are metered like all other tasks of the task manager
+    pool = TmmTaskManager.getInstance().createSubTaskExecutor(threads, name);
     this.service = new ExecutorCompletionService<Object>(pool);
   }
 
@@ -113,7 +108,7 @@ public abstract class TmmThreadPool extends TmmTask {
     if (cancel) {
       try {
         LOGGER.info("Abort queue (discarding " + (workUnits - progressDone) + " tasks)");
-        pool.getQueue().clear();
+        TmmTaskManager.getInstance().discardQueuedTasks(pool);
         pool.awaitTermination(3, TimeUnit.SECONDS);
 
         // shutdown now can cause a inconsistency because it will call Thread.interrupt which can cause a (sub)thread to crash
@@ -141,11 +136,17 @@ public abstract class TmmThreadPool extends TmmTask {
     final ThreadGroup   group;
     final AtomicInteger threadNumber = new AtomicInteger(1);
     final String        namePrefix;
+    final int           priority;
 
     TmmThreadFactory(String poolname) {
+      this(poolname, Thread.NORM_PRIORITY);
+    }
+
+    TmmThreadFactory(String poolname, int priority) {
       SecurityManager s = System.getSecurityManager();
       group = (s != null) ? s.getThreadGroup() : Thread.currentThread().getThreadGroup();
       namePrefix = "tmmpool-" + poolname + "-thread-";
+      this.priority = priority;
     }
 
     @Override
@@ -154,8 +155,8 @@ public abstract class TmmThreadPool extends TmmTask {
       if (t.isDaemon()) {
         t.setDaemon(false);
       }
-      if (t.getPriority() != Thread.NORM_PRIORITY) {
-        t.setPriority(Thread.NORM_PRIORITY);
+      if (t.getPriority() != priority) {
+        t.setPriority(priority);
       }
       return t;
     }
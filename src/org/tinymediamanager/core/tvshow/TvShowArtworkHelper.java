@@ -152,18 +152,25 @@ public class TvShowArtworkHelper {
 
         // fetch and store images
         Url url1 = new Url(url);
-        FileOutputStream outputStream = new FileOutputStream(filename);
-        InputStream is = url1.getInputStream();
-        IOUtils.copy(is, outputStream);
-        outputStream.close();
-        outputStream.flush();
+        url1.setBulkTransfer(true);
+        // stream the image directly to the disk
+        InputStream is = url1.getInputStream(true);
+        FileOutputStream outputStream = null;
         try {
-          outputStream.getFD().sync(); // wait until file has been completely written
+          outputStream = new FileOutputStream(filename);
+          IOUtils.copy(is, outputStream);
+          outputStream.flush();
+          try {
+            outputStream.getFD().sync(); // wait until file has been completely written
+          }
+          catch (Exception e) {
+            // empty here -> just not let the thread crash
+          }
         }
-        catch (Exception e) {
-          // empty here -> just not let the thread crash
+        finally {
+          IOUtils.closeQuietly(outputStream);
+          IOUtils.closeQuietly(is);
         }
-        is.close();
 
         ImageCache.invalidateCachedImage(filename);
         if (tvShowSeason != null) {
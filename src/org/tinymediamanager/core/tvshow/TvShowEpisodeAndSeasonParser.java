@@ -21,7 +21,10 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -77,6 +80,16 @@ public class TvShowEpisodeAndSeasonParser {
   private static Pattern      numbers2Pattern       = Pattern.compile(".*?([0-9]{2}).*", Pattern.CASE_INSENSITIVE);
   private static Pattern      numbers3Pattern       = Pattern.compile(".*?([0-9])([0-9]{2}).*", Pattern.CASE_INSENSITIVE);
   private static Pattern      tvMultipartMatching   = Pattern.compile("^[-_ex]+([0-9]+(?:(?:[a-i]|\\.[1-9])(?![0-9]))?)", Pattern.CASE_INSENSITIVE);
+  private static Pattern      folderPattern         = Pattern.compile("(.*[\\/\\\\])");
+  private static Pattern      extensionPattern      = Pattern.compile("\\.\\w{1,4}$");
+  private static Pattern      yearPattern           = Pattern.compile("[\\(\\[]\\d{4}[\\)\\]]");
+  private static Pattern      nonNumbersPattern     = Pattern.compile("[^0-9]");
+  private static Pattern      seasonFolderPattern   = Pattern.compile("(?i)(?:s|season|staffel)[\\s]*(\\d+)");
+
+  // compiled show name patterns (per show name) and the last parsing results (per show name and relative path)
+  private static final int                                RESULT_CACHE_SIZE = 5000;
+  private static final Map<String, Pattern[]>             SHOWNAME_PATTERNS = new ConcurrentHashMap<String, Pattern[]>();
+  private static final Map<String, EpisodeMatchingResult> RESULT_CACHE      = Collections.synchronizedMap(new ResultCache());
 
   /**
    * Detect episode from filename.
@@ -105,7 +118,7 @@ public class TvShowEpisodeAndSeasonParser {
   }
 
   /**
-   * Does all the season/episode detection
+   * Does all the season/episode detection; the results are cached per show name and relative path
    * 
    * @param name
    *          the RELATIVE filename (like /dir2/seas1/fname.ext) from the TvShowRoot
@@ -113,6 +126,40 @@ public class TvShowEpisodeAndSeasonParser {
    * @return result
    */
   public static EpisodeMatchingResult detectEpisodeFromFilenameAlternative(String name, String showname) {
+    String key = StringUtils.defaultString(showname) + "\u0000" + name;
+    EpisodeMatchingResult result = RESULT_CACHE.get(key);
+    if (result == null) {
+      result = parseEpisodeFromFilename(name, showname);
+      RESULT_CACHE.put(key, result);
+    }
+    // the callers modify the result, so never pass the cached instance
+    return new EpisodeMatchingResult(result);
+  }
+
+  /**
+   * Clears the cached parsing results
+   */
+  public static void clearCache() {
+    RESULT_CACHE.clear();
+  }
+
+  /**
+   * Gets the compiled patterns to remove the show name from a filename; compiled only once per show name
+   * 
+   * @param showname
+   *          the show name
+   * @return the patterns for a leading show name and a show name surrounded by spaces
+   */
+  private static Pattern[] getShownamePatterns(String showname) {
+    Pattern[] patterns = SHOWNAME_PATTERNS.get(showname);
+    if (patterns == null) {
+      patterns = new Pattern[] { Pattern.compile("(?i)^" + Pattern.quote(showname) + ""), Pattern.compile("(?i) " + Pattern.quote(showname) + " ") };
+      SHOWNAME_PATTERNS.put(showname, patterns);
+    }
+    return patterns;
+  }
+
+  private static EpisodeMatchingResult parseEpisodeFromFilename(String name, String showname) {
     LOGGER.debug("parsing '" + name + "'");
     EpisodeMatchingResult result = new EpisodeMatchingResult();
     Pattern regex;
@@ -123,18 +170,18 @@ public class TvShowEpisodeAndSeasonParser {
     String foldername = "";
     if (showname != null && !showname.isEmpty()) {
       // remove string like tvshow name (440, 24, ...)
-      basename = basename.replaceAll("(?i)^" + Pattern.quote(showname) + "", "");
-      basename = basename.replaceAll("(?i) " + Pattern.quote(showname) + " ", "");
+      Pattern[] shownamePatterns = getShownamePatterns(showname);
+      basename = shownamePatterns[0].matcher(basename).replaceAll("");
+      basename = shownamePatterns[1].matcher(basename).replaceAll("");
     }
-    basename = basename.replaceFirst("\\.\\w{1,4}$", ""); // remove extension if 1-4 chars
-    basename = basename.replaceFirst("[\\(\\[]\\d{4}[\\)\\]]", ""); // remove (xxxx) or [xxxx] as year
+    basename = extensionPattern.matcher(basename).replaceFirst(""); // remove extension if 1-4 chars
+    basename = yearPattern.matcher(basename).replaceFirst(""); // remove (xxxx) or [xxxx] as year
 
     // parse foldername
-    regex = Pattern.compile("(.*[\\/\\\\])");
-    m = regex.matcher(basename);
+    m = folderPattern.matcher(basename);
     if (m.find()) {
       foldername = m.group(1);
-      basename = basename.replaceAll(regex.pattern(), "");
+      basename = m.replaceAll("");
     }
     basename = basename + " ";
 
@@ -158,7 +205,7 @@ public class TvShowEpisodeAndSeasonParser {
       }
     }
 
-    String numbers = basename.replaceAll("[^0-9]", "");
+    String numbers = nonNumbersPattern.matcher(basename).replaceAll("");
     // try to parse YXX numbers first, and exit (need to do that per length)
     if (numbers.length() == 3) { // eg 102
       regex = numbers3Pattern;
@@ -547,8 +594,7 @@ public class TvShowEpisodeAndSeasonParser {
     int season = -1;
 
     // season detection
-    Pattern regex = Pattern.compile("(?i)(?:s|season|staffel)[\\s]*(\\d+)");
-    Matcher m = regex.matcher(relativePath);
+    Matcher m = seasonFolderPattern.matcher(relativePath);
     if (m.find()) {
       try {
         season = Integer.parseInt(m.group(1));
@@ -619,6 +665,19 @@ public class TvShowEpisodeAndSeasonParser {
   /******************************************************************************************
    * helper classes
    ******************************************************************************************/
+  private static class ResultCache extends LinkedHashMap<String, EpisodeMatchingResult> {
+    private static final long serialVersionUID = 1L;
+
+    public ResultCache() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, EpisodeMatchingResult> eldest) {
+      return size() > RESULT_CACHE_SIZE;
+    }
+  }
+
   public static class EpisodeMatchingResult {
 
     public int           season              = -1;
@@ -627,6 +686,23 @@ public class TvShowEpisodeAndSeasonParser {
     public Date          date                = null;
     public boolean       stackingMarkerFound = false;
 
+    public EpisodeMatchingResult() {
+    }
+
+    /**
+     * copy constructor
+     * 
+     * @param source
+     *          the result to copy
+     */
+    public EpisodeMatchingResult(EpisodeMatchingResult source) {
+      season = source.season;
+      episodes.addAll(source.episodes);
+      name = source.name;
+      date = source.date == null ? null : new Date(source.date.getTime());
+      stackingMarkerFound = source.stackingMarkerFound;
+    }
+
     @Override
     public String toString() {
       return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
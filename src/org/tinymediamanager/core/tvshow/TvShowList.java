@@ -37,10 +37,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.AbstractModelObject;
+import org.tinymediamanager.core.LibraryStatistics;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.TitleSortKeyService;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileAudioStream;
 import org.tinymediamanager.core.tvshow.entities.TvShow;
@@ -79,6 +81,7 @@ public class TvShowList extends AbstractModelObject {
                                                                 .synchronizedList(new ArrayList<String>()));
 
   private PropertyChangeListener      propertyChangeListener;
+  private TvShowEpisodeStatistics     episodeStatistics     = new TvShowEpisodeStatistics();
 
   /**
    * Instantiates a new TvShowList.
@@ -102,6 +105,16 @@ public class TvShowList extends AbstractModelObject {
           TvShowEpisode episode = (TvShowEpisode) evt.getSource();
           updateMediaInformationLists(episode);
         }
+        if (ADDED_EPISODE.equals(evt.getPropertyName()) && evt.getSource() instanceof TvShow && evt.getNewValue() instanceof TvShowEpisode) {
+          TvShowEpisode episode = (TvShowEpisode) evt.getNewValue();
+          // the event may be delivered after the episode has been removed again
+          if (((TvShow) evt.getSource()).getEpisodes().contains(episode)) {
+            episodeStatistics.add(episode);
+          }
+        }
+        if (REMOVED_EPISODE.equals(evt.getPropertyName()) && evt.getNewValue() instanceof TvShowEpisode) {
+          episodeStatistics.remove((TvShowEpisode) evt.getNewValue());
+        }
         if (EPISODE_COUNT.equals(evt.getPropertyName())) {
           firePropertyChange(EPISODE_COUNT, 0, 1);
         }
@@ -142,6 +155,9 @@ public class TvShowList extends AbstractModelObject {
 
     tvShowList.add(newValue);
     newValue.addPropertyChangeListener(propertyChangeListener);
+    for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(newValue.getEpisodes())) {
+      episodeStatistics.add(episode);
+    }
     firePropertyChange(TV_SHOWS, null, tvShowList);
     firePropertyChange(ADDED_TV_SHOW, null, newValue);
     firePropertyChange(TV_SHOW_COUNT, oldValue, tvShowList.size());
@@ -174,6 +190,7 @@ public class TvShowList extends AbstractModelObject {
    */
   public void removeTvShow(TvShow tvShow) {
     int oldValue = tvShowList.size();
+    removeEpisodeStatistics(tvShow);
     tvShow.removeAllEpisodes();
     tvShowList.remove(tvShow);
 
@@ -204,6 +221,7 @@ public class TvShowList extends AbstractModelObject {
     int oldValue = tvShowList.size();
 
     tvShow.deleteFilesSafely();
+    removeEpisodeStatistics(tvShow);
     tvShow.removeAllEpisodes();
     tvShowList.remove(tvShow);
 
@@ -239,13 +257,23 @@ public class TvShowList extends AbstractModelObject {
    * @return the episode count
    */
   public int getEpisodeCount() {
-    int count = 0;
-    for (int i = 0; i < tvShowList.size(); i++) {
-      TvShow tvShow = tvShowList.get(i);
-      count += tvShow.getEpisodeCount();
-    }
+    return episodeStatistics.getCount();
+  }
 
-    return count;
+  /**
+   * get the statistics of all episodes (counts, size on disk, counts by video format/codec...); all queries are independent of the size of the
+   * tv show list. Usable from any thread (see LibraryStatistics)
+   * 
+   * @return the statistics
+   */
+  public LibraryStatistics<TvShowEpisode> getEpisodeStatistics() {
+    return episodeStatistics;
+  }
+
+  private void removeEpisodeStatistics(TvShow tvShow) {
+    for (TvShowEpisode episode : new ArrayList<TvShowEpisode>(tvShow.getEpisodes())) {
+      episodeStatistics.remove(episode);
+    }
   }
 
   /**
@@ -267,6 +295,7 @@ public class TvShowList extends AbstractModelObject {
               episode.initializeAfterLoading();
               updateEpisodeTags(episode);
               updateMediaInformationLists(episode);
+              episodeStatistics.add(episode);
             }
 
             // for performance reasons we add tv shows directly
@@ -673,9 +702,7 @@ public class TvShowList extends AbstractModelObject {
    * invalidate the title sortable upon changes to the sortable prefixes
    */
   public void invalidateTitleSortable() {
-    for (TvShow tvShow : new ArrayList<TvShow>(tvShowList)) {
-      tvShow.clearTitleSortable();
-    }
+    TitleSortKeyService.rebuildSortKeys(tvShowList);
   }
 
   /**
@@ -699,15 +726,7 @@ public class TvShowList extends AbstractModelObject {
    * @return the new episodes
    */
   public List<TvShowEpisode> getNewEpisodes() {
-    List<TvShowEpisode> newEp = new ArrayList<TvShowEpisode>();
-    for (TvShow show : tvShowList) {
-      for (TvShowEpisode ep : show.getEpisodes()) {
-        if (ep.isNewlyAdded()) {
-          newEp.add(ep);
-        }
-      }
-    }
-    return newEp;
+    return episodeStatistics.getEntities(LibraryStatistics.NEWLY_ADDED);
   }
 
   /**
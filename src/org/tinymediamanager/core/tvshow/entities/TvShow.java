@@ -22,6 +22,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.FilenameFilter;
+import java.text.CollationKey;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -51,7 +52,9 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.ITitleSortable;
 import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.TitleSortKeyService;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
@@ -76,7 +79,7 @@ import org.tinymediamanager.scraper.MediaMetadata;
  */
 @Entity
 @Inheritance(strategy = javax.persistence.InheritanceType.JOINED)
-public class TvShow extends MediaEntity {
+public class TvShow extends MediaEntity implements ITitleSortable {
   private static final Logger         LOGGER             = LoggerFactory.getLogger(TvShow.class);
   private static TvShowArtworkHelper  artworkHelper      = new TvShowArtworkHelper();
 
@@ -118,6 +121,9 @@ public class TvShow extends MediaEntity {
   @Transient
   private String                      titleSortable      = "";
 
+  @Transient
+  private CollationKey                titleSortKey       = null;
+
   @Transient
   private Date                        lastWatched        = null;
 
@@ -158,6 +164,7 @@ public class TvShow extends MediaEntity {
 
     oldValue = this.titleSortable;
     titleSortable = "";
+    titleSortKey = null;
     firePropertyChange(TITLE_SORTABLE, oldValue, titleSortable);
   }
 
@@ -167,6 +174,7 @@ public class TvShow extends MediaEntity {
    * 
    * @return the title in its sortable format
    */
+  @Override
   public String getTitleSortable() {
     if (StringUtils.isEmpty(titleSortable)) {
       titleSortable = Utils.getSortableName(this.getTitle());
@@ -174,8 +182,18 @@ public class TvShow extends MediaEntity {
     return titleSortable;
   }
 
+  @Override
+  public CollationKey getTitleSortKey() {
+    if (titleSortKey == null) {
+      titleSortKey = TitleSortKeyService.getSortKey(getTitleSortable());
+    }
+    return titleSortKey;
+  }
+
+  @Override
   public void clearTitleSortable() {
     titleSortable = "";
+    titleSortKey = null;
   }
 
   public String getSortTitle() {
@@ -1536,6 +1554,7 @@ public class TvShow extends MediaEntity {
     final EntityManager entityManager = getEntityManager();
     readWriteLock.readLock().lock();
     synchronized (entityManager) {
+      reconcileMediaFiles();
       if (!entityManager.getTransaction().isActive()) {
         entityManager.getTransaction().begin();
         entityManager.persist(this);
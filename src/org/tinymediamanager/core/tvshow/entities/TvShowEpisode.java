@@ -875,6 +875,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
     final EntityManager entityManager = getEntityManager();
     readWriteLock.readLock().lock();
     synchronized (entityManager) {
+      reconcileMediaFiles();
       if (!entityManager.getTransaction().isActive()) {
         entityManager.getTransaction().begin();
         entityManager.persist(this);
@@ -909,7 +910,9 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
   }
 
   public void setNewlyAdded(boolean newlyAdded) {
+    boolean oldValue = this.newlyAdded;
     this.newlyAdded = newlyAdded;
+    firePropertyChange(NEWLY_ADDED, oldValue, newlyAdded);
   }
 
   /**
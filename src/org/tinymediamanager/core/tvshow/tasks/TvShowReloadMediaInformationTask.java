@@ -18,10 +18,11 @@ package org.tinymediamanager.core.tvshow.tasks;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.tinymediamanager.core.MediaFileInformationFetcherTask;
+import org.tinymediamanager.core.MediaFileInformationReloader;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
@@ -32,7 +33,7 @@ import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The Class TvShowReloadMediaInformationTask, to explicit reload mediainformation.
+ * The Class TvShowReloadMediaInformationTask, to explicit reload mediainformation (of all files or of the changed files only).
  * 
  * @author Manuel Laggner
  */
@@ -42,11 +43,27 @@ public class TvShowReloadMediaInformationTask extends TmmThreadPool {
 
   private List<TvShow>                tvShows;
   private List<TvShowEpisode>         episodes;
+  private boolean                     onlyChanged;
 
   public TvShowReloadMediaInformationTask(List<TvShow> tvShows, List<TvShowEpisode> episodes) {
+    this(tvShows, episodes, false);
+  }
+
+  /**
+   * create a new reload task
+   * 
+   * @param tvShows
+   *          the tv shows to reload (including all their episodes)
+   * @param episodes
+   *          the episodes to reload
+   * @param onlyChanged
+   *          analyze only the files which have been changed since the last analysis
+   */
+  public TvShowReloadMediaInformationTask(List<TvShow> tvShows, List<TvShowEpisode> episodes, boolean onlyChanged) {
     super(BUNDLE.getString("tvshow.updatemediainfo"));
     this.tvShows = new ArrayList<TvShow>(tvShows);
     this.episodes = new ArrayList<TvShowEpisode>(episodes);
+    this.onlyChanged = onlyChanged;
 
     // add the episodes from the shows
     for (TvShow show : this.tvShows) {
@@ -66,24 +83,25 @@ public class TvShowReloadMediaInformationTask extends TmmThreadPool {
       // update MediaInfo
       start();
 
-      initThreadPool(1, "reloadMI");
+      MediaFileInformationReloader reloader = new MediaFileInformationReloader(onlyChanged);
       for (TvShow show : tvShows) {
-        if (cancel) {
-          break;
-        }
-        submitTask(new MediaFileInformationFetcherTask(show.getMediaFiles(), show, true));
+        reloader.add(show);
       }
-
       for (TvShowEpisode episode : episodes) {
+        reloader.add(episode);
+      }
+
+      initThreadPool(reloader.getThreadCount(), "reloadMI");
+      for (Callable<Object> task : reloader.createTasks()) {
         if (cancel) {
           break;
         }
-        submitTask(new MediaFileInformationFetcherTask(episode.getMediaFiles(), episode, true));
+        submitTask(task);
       }
 
       waitForCompletionOrCancel();
       long end = System.currentTimeMillis();
-      LOGGER.info("Done getting MediaInfo - took " + Utils.MSECtoHHMMSS(end - start));
+      LOGGER.info("Done getting MediaInfo (" + reloader.getSummary() + ") - took " + Utils.MSECtoHHMMSS(end - start));
     }
     catch (Exception e) {
       LOGGER.error("Thread crashed", e);
@@ -68,6 +68,9 @@ public class AniDBMetadataProvider implements ITvShowMetadataProvider, IMediaArt
   private HashMap<String, List<AniDBShow>> showsForLookup    = new HashMap<String, List<AniDBShow>>();
 
   public AniDBMetadataProvider() {
+    // AniDB bans clients which request the same data more than once a day
+    CachedUrl.setCacheExpiry("anidb.net", 24 * 60 * 60);
+    CachedUrl.setCacheExpiry("api.anidb.net", 24 * 60 * 60);
   }
 
   @Override
@@ -18,13 +18,16 @@ package org.tinymediamanager.scraper.opensubtitles;
 
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
+import org.tinymediamanager.core.SubtitleHashService;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.scraper.IMediaSubtitleProvider;
 import org.tinymediamanager.scraper.MediaMetadata;
@@ -34,7 +37,6 @@ import org.tinymediamanager.scraper.MediaType;
 import org.tinymediamanager.scraper.opensubtitles.model.ApiStartSession;
 import org.tinymediamanager.scraper.opensubtitles.model.Info;
 import org.tinymediamanager.scraper.opensubtitles.model.Info.MovieInfo;
-import org.tinymediamanager.scraper.util.SubtitleUtils;
 
 import redstone.xmlrpc.XmlRpcClient;
 import redstone.xmlrpc.XmlRpcException;
@@ -49,6 +51,9 @@ public class OpensubtitlesMetadataProvider implements IMediaSubtitleProvider {
   private static final Logger      LOGGER       = LoggerFactory.getLogger(OpensubtitlesMetadataProvider.class);
   private static final String      SERVICE      = "http://api.opensubtitles.org/xml-rpc";
   private static final String      USER_AGENT   = "OS Test User Agent";                                                // TODO: register!!!
+  // the max amount of hashes the API accepts in one CheckMovieHash2 call
+  private static final int         HASH_BATCH   = 200;
+  private static final int         HASH_THREADS = 4;
   private static MediaProviderInfo providerInfo = new MediaProviderInfo("opensubtitles", "opensubtitles.org",
                                                     "Scraper for opensubtitles.org which is able to scrape subtitles");
   private static ApiStartSession   session      = null;
@@ -141,6 +146,40 @@ public class OpensubtitlesMetadataProvider implements IMediaSubtitleProvider {
     return mia;
   }
 
+  /**
+   * Checks many hashes at once; the hashes are sent in batches (max 200 hashes per request) instead of one request per hash
+   * 
+   * @param hashes
+   *          the file hashes
+   * @return all found movies, grouped by the hash (hashes without result are missing)
+   */
+  public Map<String, List<MovieInfo>> checkMovieHashes(Collection<String> hashes) {
+    Map<String, List<MovieInfo>> result = new HashMap<String, List<MovieInfo>>();
+    List<String> batch = new ArrayList<String>(HASH_BATCH);
+    for (String hash : hashes) {
+      batch.add(hash);
+      if (batch.size() == HASH_BATCH) {
+        result.putAll(checkMovieHashBatch(batch));
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      result.putAll(checkMovieHashBatch(batch));
+    }
+    return result;
+  }
+
+  private Map<String, List<MovieInfo>> checkMovieHashBatch(List<String> hashes) {
+    try {
+      XmlRpcStruct token = (XmlRpcStruct) methodCall("CheckMovieHash2", hashes.toArray(new String[hashes.size()]));
+      return new Info(token).getMovieInfoByHash();
+    }
+    catch (Exception e) {
+      LOGGER.error("Cannot fetch CheckMovieHash2.", e);
+    }
+    return new HashMap<String, List<MovieInfo>>(0);
+  }
+
   public void getServerInfo() {
     try {
       XmlRpcStruct token = (XmlRpcStruct) methodCall("ServerInfo", null);
@@ -163,31 +202,12 @@ public class OpensubtitlesMetadataProvider implements IMediaSubtitleProvider {
     List<MediaSearchResult> results = new ArrayList<MediaSearchResult>();
 
     try {
-      String hash = SubtitleUtils.computeOpenSubtitlesHash(mf.getFile());
+      mf.computeSubtitleHashes();
+      String hash = mf.getOpenSubtitlesHash();
       LOGGER.info("identify - computed hash: " + hash);
       ArrayList<MovieInfo> mi = checkMovieHash2(hash);
       for (MovieInfo i : mi) {
-        MediaSearchResult msr = new MediaSearchResult(this.getProviderInfo().getId());
-        msr.setIMDBId(i.MovieImdbID);
-        msr.setTitle(i.MovieName);
-        msr.setYear(i.MovieYear);
-        if (i.MovieKind.equals("movie")) {
-          msr.setMediaType(MediaType.MOVIE);
-        }
-        else {
-          msr.setMediaType(MediaType.TV_EPISODE); // what... else...?
-        }
-
-        MediaMetadata md = new MediaMetadata(this.getProviderInfo().getId());
-        md.storeMetadata(MediaMetadata.EPISODE_NR, i.SeriesEpisode);
-        md.storeMetadata(MediaMetadata.SEASON_NR, i.SeriesSeason);
-        md.storeMetadata(MediaMetadata.IMDBID, i.MovieImdbID);
-        md.storeMetadata(MediaMetadata.TITLE, i.MovieName);
-        md.storeMetadata(MediaMetadata.YEAR, i.MovieYear);
-        md.storeMetadata(MediaMetadata.VOTE_COUNT, i.SeenCount); // well...
-        msr.setMetadata(md);
-
-        results.add(msr);
+        results.add(createSearchResult(i));
       }
     }
     catch (Exception e) {
@@ -197,6 +217,73 @@ public class OpensubtitlesMetadataProvider implements IMediaSubtitleProvider {
     return results;
   }
 
+  /**
+   * Identifies many MediaFiles at once: the hashes are computed in parallel (or taken from the MediaFiles if they are up to date) and checked in
+   * batches
+   * 
+   * @param mediaFiles
+   *          the mediafiles
+   * @return the search results per mediafile (mediafiles without result are missing)
+   * @throws InterruptedException
+   */
+  public Map<MediaFile, List<MediaSearchResult>> identify(List<MediaFile> mediaFiles) throws InterruptedException {
+    LOGGER.info("trying to identify " + mediaFiles.size() + " files");
+    new SubtitleHashService(HASH_THREADS).computeHashes(mediaFiles);
+
+    Map<String, List<MediaFile>> filesByHash = new LinkedHashMap<String, List<MediaFile>>();
+    for (MediaFile mf : mediaFiles) {
+      String hash = mf.getOpenSubtitlesHash();
+      if (hash.isEmpty()) {
+        continue;
+      }
+      List<MediaFile> mfs = filesByHash.get(hash);
+      if (mfs == null) {
+        mfs = new ArrayList<MediaFile>(1);
+        filesByHash.put(hash, mfs);
+      }
+      mfs.add(mf);
+    }
+
+    Map<MediaFile, List<MediaSearchResult>> results = new LinkedHashMap<MediaFile, List<MediaSearchResult>>();
+    for (Map.Entry<String, List<MovieInfo>> entry : checkMovieHashes(filesByHash.keySet()).entrySet()) {
+      List<MediaFile> mfs = filesByHash.get(entry.getKey());
+      if (mfs == null) {
+        continue;
+      }
+      List<MediaSearchResult> searchResults = new ArrayList<MediaSearchResult>();
+      for (MovieInfo i : entry.getValue()) {
+        searchResults.add(createSearchResult(i));
+      }
+      for (MediaFile mf : mfs) {
+        results.put(mf, searchResults);
+      }
+    }
+    return results;
+  }
+
+  private MediaSearchResult createSearchResult(MovieInfo i) {
+    MediaSearchResult msr = new MediaSearchResult(this.getProviderInfo().getId());
+    msr.setIMDBId(i.MovieImdbID);
+    msr.setTitle(i.MovieName);
+    msr.setYear(i.MovieYear);
+    if (i.MovieKind.equals("movie")) {
+      msr.setMediaType(MediaType.MOVIE);
+    }
+    else {
+      msr.setMediaType(MediaType.TV_EPISODE); // what... else...?
+    }
+
+    MediaMetadata md = new MediaMetadata(this.getProviderInfo().getId());
+    md.storeMetadata(MediaMetadata.EPISODE_NR, i.SeriesEpisode);
+    md.storeMetadata(MediaMetadata.SEASON_NR, i.SeriesSeason);
+    md.storeMetadata(MediaMetadata.IMDBID, i.MovieImdbID);
+    md.storeMetadata(MediaMetadata.TITLE, i.MovieName);
+    md.storeMetadata(MediaMetadata.YEAR, i.MovieYear);
+    md.storeMetadata(MediaMetadata.VOTE_COUNT, i.SeenCount); // well...
+    msr.setMetadata(md);
+    return msr;
+  }
+
   /**
    * search for subtitle files matching your mediafile using video file hash
    * 
@@ -209,9 +296,10 @@ public class OpensubtitlesMetadataProvider implements IMediaSubtitleProvider {
     LOGGER.debug("searching subtitle for " + mf);
     List<MediaSearchResult> results = new ArrayList<MediaSearchResult>();
 
+    mf.computeSubtitleHashes();
     Map<String, Object> mapQuery = new HashMap<String, Object>();
     mapQuery.put("sublanguageid", Globals.settings.getLanguage());
-    mapQuery.put("moviehash", SubtitleUtils.computeOpenSubtitlesHash(mf.getFile()));
+    mapQuery.put("moviehash", mf.getOpenSubtitlesHash());
     // when MI is not run yet, MF always 0 (b/c of locking) - so get this direct
     mapQuery.put("moviebytesize", mf.getFilesize() == 0 ? mf.getFile().length() : mf.getFilesize());
 
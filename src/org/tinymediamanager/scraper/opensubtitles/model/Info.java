@@ -17,6 +17,9 @@ package org.tinymediamanager.scraper.opensubtitles.model;
 
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
@@ -28,31 +31,33 @@ import redstone.xmlrpc.XmlRpcStruct;
  * @author Myron Boyle
  */
 public class Info {
-  private double               seconds;
-  private String               status;
-  private ArrayList<MovieInfo> movieInfo = new ArrayList<Info.MovieInfo>();
+  private double                       seconds;
+  private String                       status;
+  private ArrayList<MovieInfo>         movieInfo       = new ArrayList<Info.MovieInfo>();
+  private Map<String, List<MovieInfo>> movieInfoByHash = new HashMap<String, List<MovieInfo>>();
 
   public Info(XmlRpcStruct struct) {
     this.seconds = struct.getDouble("seconds");
     this.status = struct.getString("status");
     XmlRpcStruct data = struct.getStruct("data");
-    for (Object entry : data.values()) {
-      XmlRpcArray arr = (XmlRpcArray) entry;
-      movieInfo.add((MovieInfo) getInner(arr, MovieInfo.class).get(0));
+    for (Object key : data.keySet()) {
+      XmlRpcArray arr = (XmlRpcArray) data.get(key);
+      List<MovieInfo> infos = getInner(arr, MovieInfo.class);
+      if (!infos.isEmpty()) {
+        movieInfo.add(infos.get(0));
+      }
+      movieInfoByHash.put(key.toString(), infos);
     }
   }
 
-  public ArrayList getInner(XmlRpcArray arr, Class child) {
-    ArrayList al = new ArrayList();
+  public <T> ArrayList<T> getInner(XmlRpcArray arr, Class<T> child) {
+    ArrayList<T> al = new ArrayList<T>();
 
     for (int i = 0; i < arr.size(); i++) {
       XmlRpcStruct str = arr.getStruct(i);
-      Constructor con;
-      Object object = null;
       try {
-        con = child.getDeclaredConstructor(new Class[] { XmlRpcStruct.class });
-        object = con.newInstance(new Object[] { str });
-        al.add(object);
+        Constructor<T> con = child.getDeclaredConstructor(XmlRpcStruct.class);
+        al.add(con.newInstance(str));
       }
       catch (Exception e) {
         e.printStackTrace();
@@ -70,6 +75,13 @@ public class Info {
     return movieInfo;
   }
 
+  /**
+   * all movies (there can be more than one per hash) grouped by the hash
+   */
+  public Map<String, List<MovieInfo>> getMovieInfoByHash() {
+    return movieInfoByHash;
+  }
+
   public double getSeconds() {
     return seconds;
   }
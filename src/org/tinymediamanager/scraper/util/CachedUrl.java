@@ -23,33 +23,48 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * The Class CachedUrl. Used for caching URL requests. The requests will get cached into the cache folder for a short period (making recurring calls
- * faster).
+ * faster). Expired entries with an ETag/Last-Modified header are revalidated with a conditional GET rather than downloaded again.
  * 
  * @author Manuel Laggner
  */
 public class CachedUrl extends Url {
-  private static final Logger  LOGGER       = LoggerFactory.getLogger(CachedUrl.class);
-  public static final String   CACHE_DIR    = "cache/url";
-  private static final int     CACHE_EXPIRY = 300;
-  private static final int     IMAGE_FACTOR = 48;
-  private static final Pattern pattern      = Pattern.compile("([^\\s]+(\\.(?i)(jpg|png|gif|bmp))$)");
-
-  private String               urlId        = null;
-  private File                 propFile     = null;
-  private Properties           props        = null;
-  private File                 urlCacheDir  = null;
+  private static final Logger               LOGGER               = LoggerFactory.getLogger(CachedUrl.class);
+  public static final String                CACHE_DIR            = "cache/url";
+  private static final int                  CACHE_EXPIRY         = 300;
+  private static final int                  IMAGE_FACTOR         = 48;
+  private static final int                  REVALIDATION_MAX_AGE = 14 * 24 * 60 * 60;
+  private static final Pattern              pattern              = Pattern.compile("([^\\s]+(\\.(?i)(jpg|png|gif|bmp))$)");
+
+  // cache expiry per host and statistics
+  private static final Map<String, Integer> HOST_EXPIRY          = new ConcurrentHashMap<String, Integer>();
+  private static final AtomicLong           HITS                 = new AtomicLong();
+  private static final AtomicLong           REVALIDATED          = new AtomicLong();
+  private static final AtomicLong           MISSES               = new AtomicLong();
+
+  private String                            urlId                = null;
+  private File                              propFile             = null;
+  private Properties                        props                = null;
+  private File                              urlCacheDir          = null;
+  private boolean                           revalidate           = false;
 
   /**
    * Instantiates a new cached url.
@@ -70,8 +85,14 @@ public class CachedUrl extends Url {
       PropertiesUtils.load(props, propFile);
       File f = getCachedFile();
       if (f.exists() && (isExpired(f) || f.length() == 0)) {
-        LOGGER.info("Removing Cached Url File: " + f);
-        f.delete();
+        if (f.length() > 0 && hasValidators(props)) {
+          LOGGER.debug("Cached Url File expired; revalidating: " + f);
+          revalidate = true;
+        }
+        else {
+          LOGGER.info("Removing Cached Url File: " + f);
+          f.delete();
+        }
       }
     }
     else {
@@ -139,11 +160,7 @@ public class CachedUrl extends Url {
    * @return true, if is expired
    */
   private boolean isExpired(File cachedFile) {
-    int expirySecs = CACHE_EXPIRY;
-    if (isImageFile(props)) {
-      expirySecs = expirySecs * IMAGE_FACTOR;
-    }
-    return isExpired(cachedFile, expirySecs);
+    return isExpired(cachedFile, props);
   }
 
   /**
@@ -189,12 +206,100 @@ public class CachedUrl extends Url {
    */
   private static boolean isExpired(File cachedFile, Properties props) {
     int expirySecs = CACHE_EXPIRY;
+    Integer hostExpiry = HOST_EXPIRY.get(getHost(props));
+    if (hostExpiry != null) {
+      expirySecs = hostExpiry;
+    }
     if (isImageFile(props)) {
       expirySecs = expirySecs * IMAGE_FACTOR;
     }
     return isExpired(cachedFile, expirySecs);
   }
 
+  /**
+   * Gets the host of the cached url.
+   * 
+   * @param props
+   *          the props
+   * @return the host (lower case) or an empty string
+   */
+  private static String getHost(Properties props) {
+    try {
+      String host = new URL(props.getProperty("url")).getHost();
+      return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+    catch (Exception e) {
+      return "";
+    }
+  }
+
+  /**
+   * Checks if the cached entry can be revalidated (an ETag or Last-Modified header has been stored).
+   * 
+   * @param props
+   *          the props
+   * @return true, if the entry can be revalidated
+   */
+  private static boolean hasValidators(Properties props) {
+    return StringUtils.isNotBlank(props.getProperty("etag")) || StringUtils.isNotBlank(props.getProperty("lastModified"));
+  }
+
+  /**
+   * Sets the cache expiry for the given host (e.g. api.themoviedb.org); images are cached IMAGE_FACTOR times longer.
+   * 
+   * @param host
+   *          the host
+   * @param expirySecs
+   *          the expiry in seconds; a value <= 0 resets the host to the default expiry
+   */
+  public static void setCacheExpiry(String host, int expirySecs) {
+    if (StringUtils.isBlank(host)) {
+      return;
+    }
+    if (expirySecs > 0) {
+      HOST_EXPIRY.put(host.toLowerCase(Locale.ROOT), expirySecs);
+    }
+    else {
+      HOST_EXPIRY.remove(host.toLowerCase(Locale.ROOT));
+    }
+  }
+
+  /**
+   * Gets the number of requests served from the cache without any network access.
+   * 
+   * @return the cache hits
+   */
+  public static long getCacheHits() {
+    return HITS.get();
+  }
+
+  /**
+   * Gets the number of expired entries which have been revalidated by the server (304 Not Modified).
+   * 
+   * @return the revalidated entries
+   */
+  public static long getCacheRevalidations() {
+    return REVALIDATED.get();
+  }
+
+  /**
+   * Gets the number of requests which needed a full download.
+   * 
+   * @return the cache misses
+   */
+  public static long getCacheMisses() {
+    return MISSES.get();
+  }
+
+  /**
+   * Gets the cache statistics as string (for logging).
+   * 
+   * @return the statistics
+   */
+  public static String getCacheStatistics() {
+    return "hits: " + HITS.get() + ", revalidated: " + REVALIDATED.get() + ", misses: " + MISSES.get();
+  }
+
   /**
    * Gets the cached file.
    * 
@@ -228,28 +333,45 @@ public class CachedUrl extends Url {
 
   @Override
   public InputStream getInputStream() throws IOException, InterruptedException {
+    URL u = getUrl();
     try {
-      URL u = getUrl();
       return u.openStream();
     }
     catch (IOException e) {
       removeCachedFile();
       throw e;
     }
-    catch (InterruptedException e) {
-      removeCachedFile();
-      throw e;
-    }
+  }
+
+  /**
+   * the content is always read from the cache file (which is filled streaming), so there is no difference between the modes
+   */
+  @Override
+  public InputStream getInputStream(boolean streaming) throws IOException, InterruptedException {
+    return getInputStream();
   }
 
   @Override
   public URL getUrl() throws IOException, InterruptedException {
+    boolean stale = false;
     try {
       File f = getCachedFile();
       if (!f.exists() || f.length() == 0) {
-        cache();
+        cache(false);
+      }
+      else if (revalidate) {
+        revalidate = false;
+        stale = true;
+        try {
+          cache(true);
+        }
+        catch (IOException e) {
+          // a network error must not throw away a good cache file
+          LOGGER.warn("Could not revalidate " + url + "; using the cached file: " + e.getMessage());
+        }
       }
       else {
+        HITS.incrementAndGet();
         LOGGER.debug("Cached File exists: " + f.getAbsolutePath() + " so we'll just use it.");
       }
       // check if its still empty (maybe broken download)
@@ -260,23 +382,29 @@ public class CachedUrl extends Url {
       return f.toURI().toURL();
     }
     catch (IOException e) {
-      removeCachedFile();
+      if (!stale) {
+        removeCachedFile();
+      }
       throw e;
     }
     catch (InterruptedException e) {
-      removeCachedFile();
+      if (!stale) {
+        removeCachedFile();
+      }
       throw e;
     }
   }
 
   /**
-   * Cache.
+   * Cache. The content is written to a temporary file first, so a broken download never replaces an existing cache file.
    * 
+   * @param conditional
+   *          revalidate the existing cache file with a conditional GET (If-None-Match/If-Modified-Since)
    * @throws IOException
    *           Signals that an I/O exception has occurred.
    * @throws InterruptedException
    */
-  private void cache() throws IOException, InterruptedException {
+  private void cache(boolean conditional) throws IOException, InterruptedException {
     LOGGER.debug("Caching Url: " + url);
     long sizeHttp = -1;
     // workaround for local files
@@ -284,9 +412,38 @@ public class CachedUrl extends Url {
     if (!url.startsWith("file:")) {
       Url u = new Url(url);
       u.addHeaders(headersRequest);
-      is = u.getInputStream();
+      if (conditional) {
+        if (StringUtils.isNotBlank(props.getProperty("etag"))) {
+          u.addHeader(HttpHeaders.IF_NONE_MATCH, props.getProperty("etag"));
+        }
+        if (StringUtils.isNotBlank(props.getProperty("lastModified"))) {
+          u.addHeader(HttpHeaders.IF_MODIFIED_SINCE, props.getProperty("lastModified"));
+        }
+      }
+      // stream the content directly into the cache file
+      is = u.getInputStream(true);
       sizeHttp = u.getContentLength();
 
+      if (conditional && u.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+        // not modified - just renew our cache file
+        IOUtils.closeQuietly(is);
+        LOGGER.debug("Url " + url + " not modified; using the cached file");
+        getCachedFile().setLastModified(System.currentTimeMillis());
+        REVALIDATED.incrementAndGet();
+        return;
+      }
+      if (conditional && (is == null || u.isFault())) {
+        // the server could not be asked - keep serving the stale cache file
+        IOUtils.closeQuietly(is);
+        LOGGER.warn("Could not revalidate " + url + " (status " + u.getStatusCode() + "); using the cached file");
+        return;
+      }
+      MISSES.incrementAndGet();
+
+      // store the validators for a later revalidation
+      storeHeader(u, HttpHeaders.ETAG, "etag");
+      storeHeader(u, HttpHeaders.LAST_MODIFIED, "lastModified");
+
       // also store encoding
       if (u.getCharset() != null) {
         props.setProperty("encoding", u.getCharset().toString());
@@ -300,20 +457,37 @@ public class CachedUrl extends Url {
     File f = getCachedFile();
     if (is == null || isFault()) {
       LOGGER.debug("Url " + url + ": did not receive a response; writing empty file");
+      IOUtils.closeQuietly(is);
       f.createNewFile();
       return;
     }
-    FileOutputStream fos = new FileOutputStream(f);
-    long sizeCopy = IOUtils.copy(is, fos);
-    fos.flush();
+    File tempFile = new File(f.getPath() + ".part");
+    FileOutputStream fos = null;
+    long sizeCopy = 0;
     try {
-      fos.getFD().sync(); // wait until file has been completely written
+      fos = new FileOutputStream(tempFile);
+      sizeCopy = IOUtils.copyLarge(is, fos);
+      fos.flush();
+      try {
+        fos.getFD().sync(); // wait until file has been completely written
+      }
+      catch (Exception e) {
+        // empty -> just do not crash the thread
+      }
     }
-    catch (Exception e) {
-      // empty -> just do not crash the thread
+    catch (IOException e) {
+      IOUtils.closeQuietly(fos);
+      tempFile.delete();
+      throw e;
+    }
+    finally {
+      IOUtils.closeQuietly(fos);
+      is.close();
+    }
+    if (f.exists() && !f.delete() || !tempFile.renameTo(f)) {
+      tempFile.delete();
+      throw new IOException("could not move " + tempFile + " to " + f);
     }
-    fos.close();
-    is.close();
 
     if (sizeHttp > 0 && sizeHttp != sizeCopy) {
       LOGGER.warn("File not fully cached! " + f.getAbsolutePath());
@@ -322,6 +496,26 @@ public class CachedUrl extends Url {
     PropertiesUtils.store(props, getPropertyFile(), "Cached Url Properties");
   }
 
+  /**
+   * Stores the given response header in the properties (or removes the property if the header is missing).
+   * 
+   * @param u
+   *          the url containing the response
+   * @param header
+   *          the header name
+   * @param property
+   *          the property name
+   */
+  private void storeHeader(Url u, String header, String property) {
+    String value = u.getHeader(header);
+    if (StringUtils.isNotBlank(value)) {
+      props.setProperty(property, value);
+    }
+    else {
+      props.remove(property);
+    }
+  }
+
   /**
    * Gets the property file.
    * 
@@ -363,8 +557,8 @@ public class CachedUrl extends Url {
         PropertiesUtils.load(props, propFile);
         File f = getCachedFile(props);
 
-        // cleanup expired cache file
-        if (f.exists() && (isExpired(f, props) || f.length() == 0)) {
+        // cleanup expired cache file (keep files which can be revalidated for a while)
+        if (f.exists() && (f.length() == 0 || (isExpired(f, props) && (!hasValidators(props) || isExpired(f, REVALIDATION_MAX_AGE))))) {
           f.delete();
           propFile.delete();
         }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.message.BasicHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class HttpFixtureStore. A directory of recorded HTTP responses (fixtures) to run the scrapers without network access. Every response is
+ * stored in its own file, named by the hash of the request (method, url and the body of POST requests). A fixture file consists of the request
+ * line, the status line, the response headers, an empty line and the raw (decoded) body - so it can be inspected and edited with a text editor.
+ * 
+ * @author Manuel Laggner
+ */
+public class HttpFixtureStore {
+  private static final Logger  LOGGER    = LoggerFactory.getLogger(HttpFixtureStore.class);
+  private static final Charset CHARSET   = Charset.forName("ISO-8859-1");
+  private static final String  EXTENSION = ".http";
+
+  private final File           directory;
+  private final AtomicLong     hits      = new AtomicLong();
+  private final AtomicLong     misses    = new AtomicLong();
+  private final AtomicLong     recorded  = new AtomicLong();
+
+  /**
+   * create a new fixture store
+   * 
+   * @param directory
+   *          the directory containing the fixtures (created on the first recording)
+   */
+  public HttpFixtureStore(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * get the directory of this store
+   * 
+   * @return the directory
+   */
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * get the key of a request
+   * 
+   * @param method
+   *          the request method (GET, POST, ...)
+   * @param url
+   *          the absolute url
+   * @param body
+   *          the request body (null for requests without a body)
+   * @return the key (hex encoded hash)
+   */
+  public static String getKey(String method, String url, byte[] body) {
+    String request = method + " " + url;
+    if (body != null && body.length > 0) {
+      request += " " + DigestUtils.md5Hex(body);
+    }
+    return DigestUtils.md5Hex(request.getBytes(CHARSET));
+  }
+
+  /**
+   * is there a recorded response for this request
+   * 
+   * @param method
+   *          the request method
+   * @param url
+   *          the absolute url
+   * @param body
+   *          the request body (null for requests without a body)
+   * @return true/false
+   */
+  public boolean contains(String method, String url, byte[] body) {
+    return getFile(getKey(method, url, body)).exists();
+  }
+
+  /**
+   * get the recorded response for a request
+   * 
+   * @param method
+   *          the request method
+   * @param url
+   *          the absolute url
+   * @param body
+   *          the request body (null for requests without a body)
+   * @return the recorded response or null if there is no fixture for this request
+   */
+  public RecordedResponse get(String method, String url, byte[] body) {
+    File file = getFile(getKey(method, url, body));
+    if (!file.exists()) {
+      misses.incrementAndGet();
+      LOGGER.debug("no fixture for " + method + " " + url);
+      return null;
+    }
+
+    InputStream is = null;
+    try {
+      is = new BufferedInputStream(new FileInputStream(file));
+      readLine(is); // request line
+      String statusLine = readLine(is);
+      int statusCode = Integer.parseInt(StringUtils.substringBefore(statusLine, " "));
+      String reasonPhrase = StringUtils.substringAfter(statusLine, " ");
+
+      List<Header> headers = new ArrayList<Header>();
+      String line;
+      while (StringUtils.isNotEmpty(line = readLine(is))) {
+        headers.add(new BasicHeader(StringUtils.substringBefore(line, ":").trim(), StringUtils.substringAfter(line, ":").trim()));
+      }
+
+      hits.incrementAndGet();
+      return new RecordedResponse(statusCode, reasonPhrase, headers.toArray(new Header[headers.size()]), IOUtils.toByteArray(is));
+    }
+    catch (Exception e) {
+      misses.incrementAndGet();
+      LOGGER.warn("could not read fixture " + file + ": " + e.getMessage());
+      return null;
+    }
+    finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  /**
+   * record a response; the headers describing the transfer (encoding, length) are not stored since the body is stored decoded
+   * 
+   * @param method
+   *          the request method
+   * @param url
+   *          the absolute url
+   * @param body
+   *          the request body (null for requests without a body)
+   * @param response
+   *          the response
+   * @throws IOException
+   */
+  public void put(String method, String url, byte[] body, RecordedResponse response) throws IOException {
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("could not create fixture directory " + directory);
+    }
+
+    File file = getFile(getKey(method, url, body));
+    File tempFile = new File(directory, file.getName() + ".tmp");
+    OutputStream os = null;
+    try {
+      os = new BufferedOutputStream(new FileOutputStream(tempFile));
+      writeLine(os, method + " " + url);
+      writeLine(os, response.getStatusCode() + " " + StringUtils.defaultString(response.getReasonPhrase()));
+      for (Header header : response.getHeaders()) {
+        if (!isTransferHeader(header.getName())) {
+          writeLine(os, header.getName() + ": " + header.getValue());
+        }
+      }
+      writeLine(os, "");
+      os.write(response.getBody());
+    }
+    finally {
+      IOUtils.closeQuietly(os);
+    }
+
+    if (file.exists() && !file.delete()) {
+      throw new IOException("could not replace fixture " + file);
+    }
+    if (!tempFile.renameTo(file)) {
+      throw new IOException("could not write fixture " + file);
+    }
+    recorded.incrementAndGet();
+  }
+
+  /**
+   * is the given header describing the transfer of the body (and not the body itself)
+   * 
+   * @param name
+   *          the name of the header
+   * @return true/false
+   */
+  public static boolean isTransferHeader(String name) {
+    return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+        || HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONNECTION.equalsIgnoreCase(name);
+  }
+
+  /**
+   * get the amount of requests which have been served from this store
+   * 
+   * @return the amount of hits
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * get the amount of requests without a fixture
+   * 
+   * @return the amount of misses
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * get the amount of recorded responses
+   * 
+   * @return the amount of recorded responses
+   */
+  public long getRecorded() {
+    return recorded.get();
+  }
+
+  /**
+   * reset the statistics
+   */
+  public void resetStatistics() {
+    hits.set(0);
+    misses.set(0);
+    recorded.set(0);
+  }
+
+  /**
+   * get the statistics as a human readable string
+   * 
+   * @return the statistics
+   */
+  public String getStatistics() {
+    return "hits: " + hits.get() + ", misses: " + misses.get() + ", recorded: " + recorded.get();
+  }
+
+  private File getFile(String key) {
+    return new File(directory, key + EXTENSION);
+  }
+
+  private static String readLine(InputStream is) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+    int b;
+    while ((b = is.read()) != -1 && b != '\n') {
+      if (b != '\r') {
+        line.write(b);
+      }
+    }
+    if (b == -1 && line.size() == 0) {
+      throw new IOException("unexpected end of fixture");
+    }
+    return new String(line.toByteArray(), CHARSET);
+  }
+
+  private static void writeLine(OutputStream os, String line) throws IOException {
+    os.write(line.getBytes(CHARSET));
+    os.write('\n');
+  }
+
+  /**
+   * The class RecordedResponse. One recorded HTTP response.
+   * 
+   * @author Manuel Laggner
+   */
+  public static class RecordedResponse {
+    private final int      statusCode;
+    private final String   reasonPhrase;
+    private final Header[] headers;
+    private final byte[]   body;
+
+    public RecordedResponse(int statusCode, String reasonPhrase, Header[] headers, byte[] body) {
+      this.statusCode = statusCode;
+      this.reasonPhrase = reasonPhrase;
+      this.headers = headers;
+      this.body = body;
+    }
+
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    public String getReasonPhrase() {
+      return reasonPhrase;
+    }
+
+    public Header[] getHeaders() {
+      return headers;
+    }
+
+    public byte[] getBody() {
+      return body;
+    }
+
+    /**
+     * get the first header with the given name
+     * 
+     * @param name
+     *          the name of the header
+     * @return the header value or null
+     */
+    public String getHeader(String name) {
+      for (Header header : headers) {
+        if (header.getName().equalsIgnoreCase(name)) {
+          return header.getValue();
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -17,13 +17,20 @@ package org.tinymediamanager.scraper.util;
 
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.movie.MovieModuleManager;
 import org.w3c.tidy.Tidy;
 
@@ -46,6 +53,16 @@ public class ParserUtils {
       "read", "repack", "rerip", "retail", "roor", "rs", "rsvcd", "screener", "se", "subbed", "svcd", "swedish", "tc", "telecine", "telesync", "ts",
       "uncut", "unrated", "vcf", "webdl", "webrip", "workprint", "ws", "www", "x264", "xf", "xvid", "xvidvd", "xxx" };
 
+  // precompiled patterns, hashed stopwords and the last parsing results (per filename)
+  private static final Pattern               EXTENSION_PATTERN = Pattern.compile("\\.\\w{2,4}$");
+  private static final String                TOKEN_DELIMITERS  = "[]() _.-";
+  private static final Set<String>           STOPWORDS         = new HashSet<String>(Arrays.asList(stopwords));
+  private static final int                   RESULT_CACHE_SIZE = 5000;
+  private static final Map<String, String[]> RESULT_CACHE      = new ResultCache();
+  private static List<String>                cachedBadWords    = Collections.emptyList();
+  private static volatile int                currentYear;
+  private static volatile long               currentYearValidUntil;
+
   /**
    * Tries to get movie name from filename<br>
    * 1. splits string using common delimiters ".- ()"<br>
@@ -69,41 +86,73 @@ public class ParserUtils {
    * 1. splits string using common delimiters ".- ()"<br>
    * 2. searches for first occurrence of common stopwords<br>
    * 3. if last token is 4 digits, assume year and set [1]<br>
-   * 4. everything before the first stopword must be the movie name :p
+   * 4. everything before the first stopword must be the movie name :p<br>
+   * <br>
+   * The results are cached per filename (as long as the bad words do not change)
    * 
    * @param filename
    *          the filename to get the title from
    * @return title/year string (year can be empty)
    */
   public static String[] detectCleanMovienameAndYear(String filename) {
-    String[] ret = { "", "" };
-    // use trace to not remove logging completely (function called way to often on multi movie dir parsing)
-    LOGGER.trace("Parse filename for movie title: \"" + filename + "\"");
-
     if (filename == null || filename.isEmpty()) {
       LOGGER.warn("Filename empty?!");
-      return ret;
+      return new String[] { "", "" };
     }
 
+    List<String> badWords = MovieModuleManager.MOVIE_SETTINGS.getBadWords();
+    String[] ret;
+    synchronized (RESULT_CACHE) {
+      // changed bad words invalidate all results
+      if (!cachedBadWords.equals(badWords)) {
+        RESULT_CACHE.clear();
+        cachedBadWords = new ArrayList<String>(badWords);
+      }
+      ret = RESULT_CACHE.get(filename);
+    }
+
+    if (ret == null) {
+      ret = parseMovienameAndYear(filename, new HashSet<String>(badWords));
+      synchronized (RESULT_CACHE) {
+        RESULT_CACHE.put(filename, ret);
+      }
+    }
+
+    // the callers may modify the result, so never pass the cached instance
+    return new String[] { ret[0], ret[1] };
+  }
+
+  /**
+   * Clears the cached parsing results
+   */
+  public static void clearCache() {
+    synchronized (RESULT_CACHE) {
+      RESULT_CACHE.clear();
+    }
+  }
+
+  private static String[] parseMovienameAndYear(String filename, Set<String> badWords) {
+    String[] ret = { "", "" };
+    // use trace to not remove logging completely (function called way to often on multi movie dir parsing)
+    LOGGER.trace("Parse filename for movie title: \"" + filename + "\"");
+
     // remove extension (if found) and split
-    String fname = filename.replaceFirst("\\.\\w{2,4}$", "");
-    String[] s = fname.split("[\\[\\]() _.-]");
+    String fname = EXTENSION_PATTERN.matcher(filename).replaceFirst("");
+    String[] s = tokenize(fname);
     int firstFoundStopwordPosition = s.length;
 
     // iterate over all splitted items
     for (int i = 0; i < s.length; i++) {
       // search for stopword position
-      if (s[i] != null && !s[i].isEmpty()) {
-        for (String stop : stopwords) {
-          if (s[i].equalsIgnoreCase(stop)) {
-            s[i] = ""; // delete stopword
-            // remember lowest position, but not lower than 2!!!
-            if (i < firstFoundStopwordPosition && i >= 2) {
-              firstFoundStopwordPosition = i;
-            }
+      if (!s[i].isEmpty()) {
+        if (STOPWORDS.contains(foldCase(s[i]))) {
+          s[i] = ""; // delete stopword
+          // remember lowest position, but not lower than 2!!!
+          if (i < firstFoundStopwordPosition && i >= 2) {
+            firstFoundStopwordPosition = i;
           }
         }
-        if (Utils.isValidImdbId(s[i])) {
+        else if (isImdbId(s[i])) {
           s[i] = ""; // delete imdbId from name
         }
       }
@@ -112,10 +161,9 @@ public class ParserUtils {
     // scan backwards - if we have at least 1 token, and the last one is a 4 digit, assume year and remove
     String year = "";
     for (int i = s.length - 1; i > 0; i--) {
-      if (!s[i].isEmpty() && s[i].matches("\\d{4}")) {
-        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+      if (s[i].length() == 4 && isDigits(s[i], 0)) {
         int parsedYear = Integer.parseInt(s[i]);
-        if (parsedYear > 1800 && parsedYear < currentYear + 5) {
+        if (parsedYear > 1800 && parsedYear < getCurrentYear() + 5) {
           // well, limit the year a bit...
           LOGGER.trace("removed token '" + s[i] + "'- seems to be year");
           year = s[i];
@@ -126,28 +174,93 @@ public class ParserUtils {
     }
 
     // rebuild string, respecting bad words
-    String name = "";
+    StringBuilder name = new StringBuilder();
     for (int i = 0; i < firstFoundStopwordPosition; i++) {
       if (!s[i].isEmpty()) {
         // check for bad words
-        if (!MovieModuleManager.MOVIE_SETTINGS.getBadWords().contains(s[i].toLowerCase())) {
-          name = name + s[i] + " ";
+        if (badWords.isEmpty() || !badWords.contains(s[i].toLowerCase())) {
+          name.append(s[i]).append(' ');
         }
       }
     }
 
-    if (name.isEmpty()) {
+    if (name.length() == 0) {
       // started with a badword - return name unchanged
       ret[0] = fname;
     }
     else {
-      ret[0] = name.trim();
+      ret[0] = name.toString().trim();
     }
     ret[1] = year.trim();
     LOGGER.trace("Movie title should be: \"" + ret[0] + "\", from " + ret[1]);
     return ret;
   }
 
+  /**
+   * splits the string at the delimiters "[]() _.-" - same as String.split("[\\[\\]() _.-]") (trailing empty tokens are removed), but without a
+   * regular expression
+   */
+  private static String[] tokenize(String string) {
+    List<String> tokens = new ArrayList<String>();
+    int start = 0;
+    for (int i = 0; i < string.length(); i++) {
+      if (TOKEN_DELIMITERS.indexOf(string.charAt(i)) >= 0) {
+        tokens.add(string.substring(start, i));
+        start = i + 1;
+      }
+    }
+    if (tokens.isEmpty()) {
+      return new String[] { string };
+    }
+    tokens.add(string.substring(start));
+
+    int size = tokens.size();
+    while (size > 0 && tokens.get(size - 1).isEmpty()) {
+      size--;
+    }
+    return tokens.subList(0, size).toArray(new String[size]);
+  }
+
+  /**
+   * the current year (Calendar.getInstance() is too expensive to call it for every token); refreshed every hour
+   */
+  private static int getCurrentYear() {
+    long now = System.currentTimeMillis();
+    if (now > currentYearValidUntil) {
+      currentYear = Calendar.getInstance().get(Calendar.YEAR);
+      currentYearValidUntil = now + 3600000L;
+    }
+    return currentYear;
+  }
+
+  /**
+   * fold the case of the token the same way as String.equalsIgnoreCase does (to compare it against the lower case stopwords)
+   */
+  private static String foldCase(String token) {
+    char[] chars = token.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+    }
+    return new String(chars);
+  }
+
+  /**
+   * same as Utils.isValidImdbId (tt + 7 digits) without the regular expression
+   */
+  private static boolean isImdbId(String token) {
+    return token.length() == 9 && token.charAt(0) == 't' && token.charAt(1) == 't' && isDigits(token, 2);
+  }
+
+  private static boolean isDigits(String token, int start) {
+    for (int i = start; i < token.length(); i++) {
+      char c = token.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * gets IMDB id out of filename
    * 
@@ -259,4 +372,20 @@ public class ParserUtils {
     }
     return sourceNfoContent;
   }
+
+  /******************************************************************************************
+   * helper classes
+   ******************************************************************************************/
+  private static class ResultCache extends LinkedHashMap<String, String[]> {
+    private static final long serialVersionUID = 1L;
+
+    public ResultCache() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+      return size() > RESULT_CACHE_SIZE;
+    }
+  }
 }
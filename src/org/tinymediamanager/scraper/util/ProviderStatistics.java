@@ -0,0 +1,169 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The class ProviderStatistics. Collects latency histograms (and failures/timeouts) of the calls to the metadata, artwork and trailer providers
+ * 
+ * @author Manuel Laggner
+ */
+public class ProviderStatistics {
+  // upper bounds of the histogram buckets in ms; the last bucket takes everything above
+  private static final long[]                           BUCKETS    = { 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+  private static final ConcurrentMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<String, Histogram>();
+
+  private ProviderStatistics() {
+  }
+
+  /**
+   * record a successful call of a provider
+   * 
+   * @param providerId
+   *          the id of the provider (e.g. tmdb-artwork)
+   * @param millis
+   *          the duration of the call in ms
+   */
+  public static void recordCall(String providerId, long millis) {
+    histogramFor(providerId).record(millis);
+  }
+
+  /**
+   * record a failed call of a provider
+   * 
+   * @param providerId
+   *          the id of the provider
+   * @param millis
+   *          the duration of the call in ms
+   */
+  public static void recordFailure(String providerId, long millis) {
+    Histogram histogram = histogramFor(providerId);
+    histogram.record(millis);
+    histogram.failures.incrementAndGet();
+  }
+
+  /**
+   * record a call of a provider which has been aborted because of a timeout
+   * 
+   * @param providerId
+   *          the id of the provider
+   */
+  public static void recordTimeout(String providerId) {
+    histogramFor(providerId).timeouts.incrementAndGet();
+  }
+
+  /**
+   * get the histogram of a provider as a map (bucket -> calls); buckets are named by their upper bound ("<100ms" ... ">=30000ms")
+   * 
+   * @param providerId
+   *          the id of the provider
+   * @return the histogram (empty if there has been no call of this provider)
+   */
+  public static Map<String, Long> getLatencyHistogram(String providerId) {
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+    Histogram histogram = HISTOGRAMS.get(providerId);
+    if (histogram != null) {
+      for (int i = 0; i <= BUCKETS.length; i++) {
+        result.put(bucketName(i), histogram.buckets.get(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * get the statistics of all providers as a human readable string (for logging)
+   * 
+   * @return the statistics
+   */
+  public static String getStatistics() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(HISTOGRAMS).entrySet()) {
+      Histogram histogram = entry.getValue();
+      long calls = histogram.calls.get();
+      sb.append("\n").append(entry.getKey()).append(": calls ").append(calls);
+      sb.append("; avg ").append(calls > 0 ? histogram.total.get() / calls : 0).append("ms");
+      sb.append("; max ").append(histogram.max.get()).append("ms");
+      sb.append("; failures ").append(histogram.failures.get());
+      sb.append("; timeouts ").append(histogram.timeouts.get());
+      sb.append("; histogram [");
+      for (int i = 0; i <= BUCKETS.length; i++) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        sb.append(bucketName(i)).append(": ").append(histogram.buckets.get(i));
+      }
+      sb.append("]");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * reset all statistics
+   */
+  public static void reset() {
+    HISTOGRAMS.clear();
+  }
+
+  private static String bucketName(int index) {
+    if (index < BUCKETS.length) {
+      return "<" + BUCKETS[index] + "ms";
+    }
+    return ">=" + BUCKETS[BUCKETS.length - 1] + "ms";
+  }
+
+  private static Histogram histogramFor(String providerId) {
+    Histogram histogram = HISTOGRAMS.get(providerId);
+    if (histogram == null) {
+      histogram = new Histogram();
+      Histogram existing = HISTOGRAMS.putIfAbsent(providerId, histogram);
+      if (existing != null) {
+        histogram = existing;
+      }
+    }
+    return histogram;
+  }
+
+  private static class Histogram {
+    private final AtomicLongArray buckets  = new AtomicLongArray(BUCKETS.length + 1);
+    private final AtomicLong      calls    = new AtomicLong();
+    private final AtomicLong      total    = new AtomicLong();
+    private final AtomicLong      max      = new AtomicLong();
+    private final AtomicLong      failures = new AtomicLong();
+    private final AtomicLong      timeouts = new AtomicLong();
+
+    private void record(long millis) {
+      int index = 0;
+      while (index < BUCKETS.length && millis >= BUCKETS[index]) {
+        index++;
+      }
+      buckets.incrementAndGet(index);
+      calls.incrementAndGet();
+      total.addAndGet(millis);
+
+      long currentMax = max.get();
+      while (millis > currentMax && !max.compareAndSet(currentMax, millis)) {
+        currentMax = max.get();
+      }
+    }
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.http.util.EntityUtils;
+import org.tinymediamanager.scraper.util.HttpFixtureStore.RecordedResponse;
+
+/**
+ * The class ReplayHttpClient. Creates http clients which serve the responses from a {@link HttpFixtureStore} instead of the network. In the record
+ * mode every request is passed to the real client and the response is stored in the fixture store; in the replay mode a request without a fixture
+ * fails with an IOException (like a request without network access). Install the client with {@link TmmHttpClient#setHttpClientOverride}.<br>
+ * The clients are built with the {@link HttpClientBuilder}; the fixtures are served by the request executor, the connections are never opened.
+ * 
+ * @author Manuel Laggner
+ */
+public class ReplayHttpClient {
+  private ReplayHttpClient() {
+  }
+
+  /**
+   * create a new replay client
+   * 
+   * @param store
+   *          the fixture store
+   * @param delegate
+   *          the client for the real requests (record mode) or null (replay mode)
+   * @return the http client
+   */
+  public static CloseableHttpClient createHttpClient(HttpFixtureStore store, CloseableHttpClient delegate) {
+    // the responses are served as they have been recorded: the delegate has already followed the redirects and decoded the content
+    RequestConfig config = RequestConfig.custom().setStaleConnectionCheckEnabled(false).setRedirectsEnabled(false).build();
+    return HttpClientBuilder.create().setDefaultRequestConfig(config).setConnectionManager(new ReplayConnectionManager())
+        .setRequestExecutor(new ReplayRequestExecutor(store, delegate)).disableContentCompression().disableCookieManagement()
+        .disableAutomaticRetries().build();
+  }
+
+  /**
+   * The class ReplayRequestExecutor. Serves the request from the fixture store (or records it)
+   * 
+   * @author Manuel Laggner
+   */
+  private static class ReplayRequestExecutor extends HttpRequestExecutor {
+    private final HttpFixtureStore    store;
+    private final CloseableHttpClient delegate;
+
+    public ReplayRequestExecutor(HttpFixtureStore store, CloseableHttpClient delegate) {
+      this.store = store;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context) throws IOException, HttpException {
+      // the request as it has been passed to the client (without the headers of the protocol interceptors)
+      HttpRequest original = request instanceof HttpRequestWrapper ? ((HttpRequestWrapper) request).getOriginal() : request;
+      HttpHost target = HttpClientContext.adapt(context).getTargetHost();
+      String method = original.getRequestLine().getMethod();
+      String url = getUrl(target, original);
+
+      // the body of POST requests (e.g. xml-rpc) is part of the key
+      byte[] body = null;
+      if (original instanceof HttpEntityEnclosingRequest) {
+        HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) original;
+        if (entityRequest.getEntity() != null) {
+          HttpEntity entity = new BufferedHttpEntity(entityRequest.getEntity());
+          entityRequest.setEntity(entity);
+          body = EntityUtils.toByteArray(entity);
+        }
+      }
+
+      if (delegate == null) {
+        RecordedResponse recorded = store.get(method, url, body);
+        if (recorded == null) {
+          throw new IOException("no recorded response for " + method + " " + url);
+        }
+        return createResponse(recorded);
+      }
+
+      CloseableHttpResponse response = delegate.execute(target, original);
+      try {
+        byte[] content = response.getEntity() != null ? EntityUtils.toByteArray(response.getEntity()) : new byte[0];
+        RecordedResponse recorded = new RecordedResponse(response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase(),
+            response.getAllHeaders(), content);
+        store.put(method, url, body, recorded);
+        return createResponse(recorded);
+      }
+      finally {
+        response.close();
+      }
+    }
+
+    private static String getUrl(HttpHost target, HttpRequest request) {
+      if (request instanceof HttpUriRequest && ((HttpUriRequest) request).getURI().isAbsolute()) {
+        return ((HttpUriRequest) request).getURI().toString();
+      }
+      return target.toURI() + request.getRequestLine().getUri();
+    }
+
+    private static HttpResponse createResponse(RecordedResponse recorded) {
+      HttpResponse response = new BasicHttpResponse(new BasicStatusLine(HttpVersion.HTTP_1_1, recorded.getStatusCode(),
+          recorded.getReasonPhrase()));
+      for (Header header : recorded.getHeaders()) {
+        if (!HttpFixtureStore.isTransferHeader(header.getName())) {
+          response.addHeader(header);
+        }
+      }
+      response.addHeader(HttpHeaders.CONTENT_LENGTH, Integer.toString(recorded.getBody().length));
+
+      ByteArrayEntity entity = new ByteArrayEntity(recorded.getBody());
+      String contentType = recorded.getHeader(HttpHeaders.CONTENT_TYPE);
+      if (contentType != null) {
+        entity.setContentType(contentType);
+      }
+      response.setEntity(entity);
+      return response;
+    }
+  }
+
+  /**
+   * The class ReplayConnectionManager. Hands out connections which are never opened (the request executor does not use them)
+   * 
+   * @author Manuel Laggner
+   */
+  private static class ReplayConnectionManager implements HttpClientConnectionManager {
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+      return new ConnectionRequest() {
+        @Override
+        public HttpClientConnection get(long timeout, TimeUnit tunit) {
+          return new ReplayConnection();
+        }
+
+        @Override
+        public boolean cancel() {
+          return false;
+        }
+      };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration, TimeUnit timeUnit) {
+    }
+
+    @Override
+    public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context) {
+      ((ReplayConnection) conn).open = true;
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) {
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) {
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit tunit) {
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+    }
+
+    @Override
+    public void shutdown() {
+    }
+  }
+
+  /**
+   * The class ReplayConnection. A connection without a socket
+   * 
+   * @author Manuel Laggner
+   */
+  private static class ReplayConnection implements HttpClientConnection {
+    private volatile boolean open    = false;
+    private int              timeout = 0;
+
+    @Override
+    public void close() {
+      open = false;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open;
+    }
+
+    @Override
+    public boolean isStale() {
+      return false;
+    }
+
+    @Override
+    public void setSocketTimeout(int timeout) {
+      this.timeout = timeout;
+    }
+
+    @Override
+    public int getSocketTimeout() {
+      return timeout;
+    }
+
+    @Override
+    public void shutdown() {
+      open = false;
+    }
+
+    @Override
+    public HttpConnectionMetrics getMetrics() {
+      return null;
+    }
+
+    @Override
+    public boolean isResponseAvailable(int timeout) {
+      return false;
+    }
+
+    @Override
+    public void sendRequestHeader(HttpRequest request) throws IOException {
+      throw new IOException("replay connections cannot send requests");
+    }
+
+    @Override
+    public void sendRequestEntity(HttpEntityEnclosingRequest request) throws IOException {
+      throw new IOException("replay connections cannot send requests");
+    }
+
+    @Override
+    public HttpResponse receiveResponseHeader() throws IOException {
+      throw new IOException("replay connections cannot receive responses");
+    }
+
+    @Override
+    public void receiveResponseEntity(HttpResponse response) throws IOException {
+      throw new IOException("replay connections cannot receive responses");
+    }
+
+    @Override
+    public void flush() {
+    }
+  }
+}
@@ -42,10 +42,13 @@ public class StreamingUrl extends Url {
 
   public StreamingUrl(String url) throws IOException {
     super(url);
+    // streamed content (trailers) is bulk transfer
+    setBulkTransfer(true);
   }
 
   /**
-   * get the InputStream of the content. Be aware: using this class needs you to close the connection per hand calling the method closeConnection()
+   * get the InputStream of the content. Be aware: using this class needs you to close the connection per hand calling the method closeConnection() or
+   * closing the returned InputStream
    * 
    * @return the InputStream of the content
    */
@@ -73,12 +76,12 @@ public class StreamingUrl extends Url {
     }
 
     try {
-      response = client.execute(httpget, localContext);
+      response = getHttpClient().execute(httpget, localContext);
       headersResponse = response.getAllHeaders();
       entity = response.getEntity();
       responseStatus = response.getStatusLine();
       if (entity != null) {
-        return entity.getContent();
+        return new ResponseInputStream(entity.getContent(), response);
       }
 
     }
@@ -91,6 +94,15 @@ public class StreamingUrl extends Url {
     return new ByteArrayInputStream("".getBytes());
   }
 
+  /**
+   * the StreamingUrl is always streaming
+   */
+  @Override
+  public InputStream getInputStream(boolean streaming) throws IOException {
+    return getInputStream();
+  }
+
+  @Override
   public long getContentLength() {
     if (response == null) {
       return 0;
@@ -28,19 +28,37 @@ public class SubtitleUtils {
    * @param file
    * @return hash
    */
-  @SuppressWarnings("resource")
   public static String computeSubDBHash(File file) {
+    return computeHashes(file)[1];
+  }
+
+  /**
+   * Returns OpenSubtitle hash or empty string if error
+   * 
+   * @param file
+   * @return hash
+   */
+  public static String computeOpenSubtitlesHash(File file) {
+    return computeHashes(file)[0];
+  }
+
+  /**
+   * Returns the OpenSubtitles and the SubDB hash at once (head and tail of the file are only mapped once); empty strings if error
+   * 
+   * @param file
+   * @return String[] { OpenSubtitles hash, SubDB hash }
+   */
+  @SuppressWarnings("resource")
+  public static String[] computeHashes(File file) {
     long size = file.length();
     long chunkSizeForFile = Math.min(HASH_CHUNK_SIZE, size);
 
     FileChannel fileChannel = null;
     try {
       fileChannel = new FileInputStream(file).getChannel();
-
       ByteBuffer head = fileChannel.map(MapMode.READ_ONLY, 0, chunkSizeForFile);
       ByteBuffer tail = fileChannel.map(MapMode.READ_ONLY, Math.max(size - HASH_CHUNK_SIZE, 0), chunkSizeForFile);
 
-      // md.digest(ByteBuffer.array()) always error *grml
       final byte[] hbytes = new byte[head.remaining()];
       head.duplicate().get(hbytes);
       final byte[] tbytes = new byte[tail.remaining()];
@@ -50,45 +68,11 @@ public class SubtitleUtils {
       md.update(hbytes);
       md.update(tbytes);
 
-      return Hex.encodeHexString(md.digest());
-    }
-    catch (Exception e) {
-      LOGGER.error("Error computing SubDB hash", e);
-    }
-    finally {
-      try {
-        if (fileChannel != null) {
-          fileChannel.close();
-        }
-      }
-      catch (IOException e) {
-        LOGGER.error("Error closing file stream", e);
-      }
-    }
-    return "";
-  }
-
-  /**
-   * Returns OpenSubtitle hash or empty string if error
-   * 
-   * @param file
-   * @return hash
-   */
-  @SuppressWarnings("resource")
-  public static String computeOpenSubtitlesHash(File file) {
-    long size = file.length();
-    long chunkSizeForFile = Math.min(HASH_CHUNK_SIZE, size);
-
-    FileChannel fileChannel = null;
-    try {
-      fileChannel = new FileInputStream(file).getChannel();
-      long head = computeOpenSubtitlesHashForChunk(fileChannel.map(MapMode.READ_ONLY, 0, chunkSizeForFile));
-      long tail = computeOpenSubtitlesHashForChunk(fileChannel.map(MapMode.READ_ONLY, Math.max(size - HASH_CHUNK_SIZE, 0), chunkSizeForFile));
-
-      return String.format("%016x", size + head + tail);
+      long osHash = size + computeOpenSubtitlesHashForChunk(ByteBuffer.wrap(hbytes)) + computeOpenSubtitlesHashForChunk(ByteBuffer.wrap(tbytes));
+      return new String[] { String.format("%016x", osHash), Hex.encodeHexString(md.digest()) };
     }
     catch (Exception e) {
-      LOGGER.error("Error computing OpenSubtitles hash", e);
+      LOGGER.error("Error computing hashes", e);
     }
     finally {
       try {
@@ -100,7 +84,7 @@ public class SubtitleUtils {
         LOGGER.error("Error closing file stream", e);
       }
     }
-    return "";
+    return new String[] { "", "" };
   }
 
   private static long computeOpenSubtitlesHashForChunk(ByteBuffer buffer) {
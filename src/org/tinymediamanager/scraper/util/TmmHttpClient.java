@@ -18,6 +18,12 @@ package org.tinymediamanager.scraper.util;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLException;
 
@@ -25,20 +31,29 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.NTCredentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpRequestRetryHandler;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.routing.RouteInfo;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 
 /**
@@ -47,21 +62,81 @@ import org.tinymediamanager.Globals;
  * @author Manuel Laggner
  */
 public class TmmHttpClient {
-  private static CloseableHttpClient client = createHttpClient();
+  private static final Logger                             LOGGER                  = LoggerFactory.getLogger(TmmHttpClient.class);
+
+  // metadata requests are small and latency bound; bulk transfers (artwork, trailers) are long running and must not starve them
+  private static final int                                METADATA_MAX_TOTAL      = 20;
+  private static final int                                METADATA_MAX_PER_ROUTE  = 5;
+  private static final int                                BULK_MAX_TOTAL          = 12;
+  // segmented trailer downloads open up to 4 connections to the same host
+  private static final int                                BULK_MAX_PER_ROUTE      = 4;
+
+  private static final long                               DEFAULT_KEEP_ALIVE      = 30000;
+  private static final long                               IDLE_CONNECTION_TIMEOUT = 60000;
+  private static final long                               EVICTION_INTERVAL       = 15000;
+
+  private static final PoolingHttpClientConnectionManager METADATA_POOL           = createConnectionManager(METADATA_MAX_TOTAL, METADATA_MAX_PER_ROUTE);
+  private static final PoolingHttpClientConnectionManager BULK_POOL               = createConnectionManager(BULK_MAX_TOTAL, BULK_MAX_PER_ROUTE);
+  private static final Set<HttpRoute>                     METADATA_ROUTES         = newRouteSet();
+  private static final Set<HttpRoute>                     BULK_ROUTES             = newRouteSet();
+
+  private static CloseableHttpClient                      client                  = createHttpClient(METADATA_POOL, METADATA_ROUTES);
+  private static CloseableHttpClient                      bulkClient              = createHttpClient(BULK_POOL, BULK_ROUTES);
+  private static volatile CloseableHttpClient             override                = null;
+
+  static {
+    startIdleConnectionEvictor();
+  }
 
   /**
-   * instantiates a new CloseableHttpClient
+   * instantiates a new CloseableHttpClient with its own connection pool
    * 
    * @return CloseableHttpClient
    */
   public static CloseableHttpClient createHttpClient() {
+    return createHttpClient(createConnectionManager(METADATA_MAX_TOTAL, METADATA_MAX_PER_ROUTE), null);
+  }
+
+  private static PoolingHttpClientConnectionManager createConnectionManager(int maxTotal, int maxPerRoute) {
     PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-    // Increase default max connection per route to 5
-    connectionManager.setMaxTotal(5);
+    connectionManager.setMaxTotal(maxTotal);
+    connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+    return connectionManager;
+  }
+
+  private static Set<HttpRoute> newRouteSet() {
+    return Collections.newSetFromMap(new ConcurrentHashMap<HttpRoute, Boolean>());
+  }
 
+  private static CloseableHttpClient createHttpClient(PoolingHttpClientConnectionManager connectionManager, final Set<HttpRoute> routes) {
     HttpClientBuilder httpClientBuilder = HttpClients.custom().useSystemProperties();
     httpClientBuilder.setConnectionManager(connectionManager);
 
+    // keep connections alive as long as the server allows it; if it does not tell us, use our own default
+    httpClientBuilder.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+      @Override
+      public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+        long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        if (duration < 0) {
+          return DEFAULT_KEEP_ALIVE;
+        }
+        return duration;
+      }
+    });
+
+    // remember the used routes for the pool statistics
+    if (routes != null) {
+      httpClientBuilder.addInterceptorLast(new HttpResponseInterceptor() {
+        @Override
+        public void process(HttpResponse response, HttpContext context) {
+          RouteInfo route = HttpClientContext.adapt(context).getHttpRoute();
+          if (route instanceof HttpRoute) {
+            routes.add((HttpRoute) route);
+          }
+        }
+      });
+    }
+
     // my own retry handler
     HttpRequestRetryHandler myRetryHandler = new HttpRequestRetryHandler() {
       @Override
@@ -108,14 +183,107 @@ public class TmmHttpClient {
   }
 
   /**
-   * Gets the preconfigured http client.
+   * Gets the preconfigured http client for metadata requests.
    * 
    * @return the http client
    */
   public static CloseableHttpClient getHttpClient() {
+    CloseableHttpClient overrideClient = override;
+    if (overrideClient != null) {
+      return overrideClient;
+    }
     return client;
   }
 
+  /**
+   * Gets the preconfigured http client for bulk transfers (artwork, trailers). This client uses its own connection pool, so long running downloads
+   * can not block the metadata requests
+   * 
+   * @return the http client for bulk transfers
+   */
+  public static CloseableHttpClient getBulkHttpClient() {
+    CloseableHttpClient overrideClient = override;
+    if (overrideClient != null) {
+      return overrideClient;
+    }
+    return bulkClient;
+  }
+
+  /**
+   * replace the preconfigured http clients (metadata and bulk transfers) with the given client, e.g. a {@link ReplayHttpClient} to run the scrapers
+   * with recorded responses
+   * 
+   * @param client
+   *          the client to be used for all requests or null to use the preconfigured clients again
+   */
+  public static void setHttpClientOverride(CloseableHttpClient client) {
+    override = client;
+  }
+
+  /**
+   * get the statistics (leased, pending, available and max connections) of both connection pools; the key is the pool name followed by the route
+   * target (or "total" for the whole pool)
+   * 
+   * @return the pool statistics
+   */
+  public static Map<String, PoolStats> getPoolStats() {
+    Map<String, PoolStats> stats = new TreeMap<String, PoolStats>();
+    addPoolStats(stats, "metadata", METADATA_POOL, METADATA_ROUTES);
+    addPoolStats(stats, "bulk", BULK_POOL, BULK_ROUTES);
+    return stats;
+  }
+
+  /**
+   * get the pool statistics as a human readable string (for logging)
+   * 
+   * @return the pool statistics
+   */
+  public static String getPoolStatistics() {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, PoolStats> entry : getPoolStats().entrySet()) {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      PoolStats stats = entry.getValue();
+      sb.append(entry.getKey()).append(" [leased: ").append(stats.getLeased()).append("; pending: ").append(stats.getPending())
+          .append("; available: ").append(stats.getAvailable()).append("; max: ").append(stats.getMax()).append("]");
+    }
+    return sb.toString();
+  }
+
+  private static void addPoolStats(Map<String, PoolStats> stats, String poolName, PoolingHttpClientConnectionManager pool, Set<HttpRoute> routes) {
+    stats.put(poolName + " total", pool.getTotalStats());
+    for (HttpRoute route : routes) {
+      stats.put(poolName + " " + route.getTargetHost().toURI(), pool.getStats(route));
+    }
+  }
+
+  /**
+   * closes expired and long idle connections of both pools in the background; otherwise stale connections (closed by the server) stay in the pool
+   * and produce failing requests
+   */
+  private static void startIdleConnectionEvictor() {
+    Thread evictor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          while (!Thread.currentThread().isInterrupted()) {
+            Thread.sleep(EVICTION_INTERVAL);
+            for (PoolingHttpClientConnectionManager pool : new PoolingHttpClientConnectionManager[] { METADATA_POOL, BULK_POOL }) {
+              pool.closeExpiredConnections();
+              pool.closeIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+          }
+        }
+        catch (InterruptedException e) {
+          LOGGER.trace("idle connection evictor interrupted");
+        }
+      }
+    }, "HttpConnectionEvictor");
+    evictor.setDaemon(true);
+    evictor.start();
+  }
+
   private static void setProxy(HttpClientBuilder httpClientBuilder) {
     HttpHost proxyHost = null;
     if (StringUtils.isNotEmpty(Globals.settings.getProxyPort())) {
@@ -18,6 +18,7 @@ package org.tinymediamanager.scraper.util;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
@@ -51,13 +52,12 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The Class Url. Used to make simple, blocking URL requests. The request is temporarily streamed into a ByteArrayInputStream, before the InputStream
- * is passed to the caller.
+ * is passed to the caller (or passed as live stream in the streaming mode).
  * 
  * @author Manuel Laggner / Myron Boyle
  */
 public class Url {
   private static final Logger          LOGGER          = LoggerFactory.getLogger(Url.class);
-  protected static CloseableHttpClient client;
 
   protected StatusLine                 responseStatus  = null;
   protected String                     url             = null;
@@ -65,6 +65,7 @@ public class Url {
   protected List<Header>               headersRequest  = new ArrayList<Header>();
   protected HttpEntity                 entity          = null;
   protected URI                        uri             = null;
+  protected boolean                    bulkTransfer    = false;
 
   /**
    * gets the specified header value from this connection<br>
@@ -95,6 +96,29 @@ public class Url {
     return headersResponse;
   }
 
+  /**
+   * mark this url as bulk transfer (artwork, trailers); bulk transfers are done with an own connection pool, so they can not block the metadata
+   * requests
+   * 
+   * @param bulkTransfer
+   *          true if the content of this url should be downloaded via the bulk transfer pool
+   */
+  public void setBulkTransfer(boolean bulkTransfer) {
+    this.bulkTransfer = bulkTransfer;
+  }
+
+  /**
+   * get the http client for this url (depending on the type of transfer)
+   * 
+   * @return the http client
+   */
+  protected CloseableHttpClient getHttpClient() {
+    if (bulkTransfer) {
+      return TmmHttpClient.getBulkHttpClient();
+    }
+    return TmmHttpClient.getHttpClient();
+  }
+
   /**
    * Instantiates a new url / httpclient with default user-agent.
    * 
@@ -102,9 +126,6 @@ public class Url {
    *          the url
    */
   public Url(String url) throws MalformedURLException {
-    if (client == null) {
-      client = TmmHttpClient.getHttpClient();
-    }
     this.url = url;
 
     // morph to URI to check syntax of the url
@@ -201,13 +222,28 @@ public class Url {
   }
 
   /**
-   * Gets the input stream.
+   * Gets the input stream. The whole response is buffered in memory, so the connection is already released when this method returns.
    * 
    * @return the input stream
    * @throws IOException
    *           Signals that an I/O exception has occurred.
    */
   public InputStream getInputStream() throws IOException, InterruptedException {
+    return getInputStream(false);
+  }
+
+  /**
+   * Gets the input stream. In the streaming mode the live content of the response is passed to the caller instead of buffering the whole response
+   * in memory (useful for writing bigger files directly to disk). Be aware: in the streaming mode the caller has to close the returned InputStream
+   * to release the connection!
+   * 
+   * @param streaming
+   *          pass the live content stream rather than a buffered copy
+   * @return the input stream
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  public InputStream getInputStream(boolean streaming) throws IOException, InterruptedException {
     // workaround for local files
     if (url.startsWith("file:")) {
       String newUrl = url.replace("file:/", "");
@@ -216,7 +252,7 @@ public class Url {
     }
 
     BasicHttpContext localContext = new BasicHttpContext();
-    ByteArrayInputStream is = null;
+    InputStream is = null;
 
     // replace our API keys for logging...
     String logUrl = url.replaceAll("api_key=\\w+", "api_key=<API_KEY>").replaceAll("api/\\d+\\w+", "api/<API_KEY>");
@@ -232,14 +268,23 @@ public class Url {
 
     CloseableHttpResponse response = null;
     try {
-      response = client.execute(httpget, localContext);
+      response = getHttpClient().execute(httpget, localContext);
       headersResponse = response.getAllHeaders();
       entity = response.getEntity();
       responseStatus = response.getStatusLine();
       if (entity != null) {
-        is = new ByteArrayInputStream(EntityUtils.toByteArray(entity));
+        if (streaming) {
+          // the connection is released when the caller closes the stream
+          is = new ResponseInputStream(entity.getContent(), response);
+          response = null;
+        }
+        else {
+          is = new ByteArrayInputStream(EntityUtils.toByteArray(entity));
+        }
+      }
+      if (!streaming) {
+        EntityUtils.consume(entity);
       }
-      EntityUtils.consume(entity);
     }
     catch (InterruptedIOException e) {
       LOGGER.info("aborted request (" + e.getMessage() + "): " + logUrl);
@@ -360,4 +405,26 @@ public class Url {
   public String toString() {
     return url;
   }
+
+  /**
+   * InputStream on the live content of a HTTP response; closing the stream also closes the response and releases the connection
+   */
+  protected static class ResponseInputStream extends FilterInputStream {
+    private final CloseableHttpResponse response;
+
+    public ResponseInputStream(InputStream in, CloseableHttpResponse response) {
+      super(in);
+      this.response = response;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      }
+      finally {
+        response.close();
+      }
+    }
+  }
 }
@@ -1,14 +1,24 @@
 package org.tinymediamanager.scraper.xbmc;
 
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 public class Expression {
-  private String  expression, noClean;
-  private boolean clear          = true, repeat = false;
-  private String  noCleanArray[] = null;
+  public static final int      PATTERN_OPTIONS  = Pattern.MULTILINE + Pattern.CASE_INSENSITIVE + Pattern.DOTALL;
+  private static final Pattern BUFFER_REFERENCE = Pattern.compile("\\$\\$([0-9]+)");
+
+  private String               expression, noClean;
+  private boolean              clear            = true, repeat = false;
+  private String               noCleanArray[]   = null;
+
+  // compiled expression; static expressions are compiled once, expressions with buffer references are cached for the last resolved value
+  private boolean              bufferReferences = false;
+  private volatile Pattern     pattern          = null;
 
   public Expression() {
   }
@@ -19,6 +29,48 @@ public class Expression {
 
   public void setExpression(String expression) {
     this.expression = expression;
+    this.bufferReferences = expression != null && BUFFER_REFERENCE.matcher(expression).find();
+    this.pattern = null;
+  }
+
+  /**
+   * does the expression contain buffer references ($$1..$$20), which have to be resolved before compiling it?
+   * 
+   * @return true/false
+   */
+  public boolean hasBufferReferences() {
+    return bufferReferences;
+  }
+
+  /**
+   * compiles the expression (if it does not contain any buffer references); called once when parsing the scraper
+   */
+  public void compile() {
+    if (StringUtils.isNotBlank(expression) && !bufferReferences) {
+      try {
+        pattern = Pattern.compile(expression, PATTERN_OPTIONS);
+      }
+      catch (PatternSyntaxException e) {
+        // will be reported when executing the expression
+        pattern = null;
+      }
+    }
+  }
+
+  /**
+   * get the compiled pattern for the given (resolved) expression; the pattern is only compiled if the expression changed since the last call
+   * 
+   * @param resolvedExpression
+   *          the expression with all buffer references resolved
+   * @return the compiled pattern
+   */
+  public Pattern getPattern(String resolvedExpression) {
+    Pattern p = pattern;
+    if (p == null || !p.pattern().equals(resolvedExpression)) {
+      p = Pattern.compile(resolvedExpression, PATTERN_OPTIONS);
+      pattern = p;
+    }
+    return p;
   }
 
   /**
@@ -14,6 +14,7 @@ public class RegExp implements RegExpContainer {
   private String       conditional;
   private boolean      appendBuffer = false;
   private List<RegExp> children     = new ArrayList<RegExp>();
+  private RegExp[]     regExpArray  = null;
   private Expression   expression;
 
   public RegExp() {
@@ -21,10 +22,16 @@ public class RegExp implements RegExpContainer {
 
   public void addRegExp(RegExp regexp) {
     children.add(regexp);
+    regExpArray = null;
   }
 
   public RegExp[] getRegExps() {
-    return children.toArray(new RegExp[children.size()]);
+    RegExp[] array = regExpArray;
+    if (array == null) {
+      array = children.toArray(new RegExp[children.size()]);
+      regExpArray = array;
+    }
+    return array;
   }
 
   public boolean hasRegExps() {
@@ -13,6 +13,7 @@ public class ScraperFunction implements RegExpContainer {
   private boolean      appendBuffer = false;
   private String       name;
   private List<RegExp> regexps      = new ArrayList<RegExp>();
+  private RegExp[]     regExpArray  = null;
 
   public ScraperFunction() {
   }
@@ -43,10 +44,16 @@ public class ScraperFunction implements RegExpContainer {
 
   public void addRegExp(RegExp regexp) {
     regexps.add(regexp);
+    regExpArray = null;
   }
 
   public RegExp[] getRegExps() {
-    return regexps.toArray(new RegExp[regexps.size()]);
+    RegExp[] array = regExpArray;
+    if (array == null) {
+      array = regexps.toArray(new RegExp[regexps.size()]);
+      regExpArray = array;
+    }
+    return array;
   }
 
   public boolean hasRegExps() {
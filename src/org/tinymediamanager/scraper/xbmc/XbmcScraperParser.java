@@ -93,6 +93,7 @@ public class XbmcScraperParser {
           exp.setNoClean(expEl.getAttribute("noclean"));
           exp.setRepeat(parseBoolean(expEl.getAttribute("repeat"), false));
           exp.setClear(parseBoolean(expEl.getAttribute("clear"), false));
+          exp.compile();
           regexp.setExpression(exp);
         }
         catch (Exception e) {
@@ -34,7 +34,13 @@ public class XbmcScraperProcessor {
   // options that match those in the <Settings> elements.
   Map<String, String>         options           = new HashMap<String, String>();
 
-  private static final int    PATTERN_OPTIONS   = Pattern.MULTILINE + Pattern.CASE_INSENSITIVE + Pattern.DOTALL;
+  // helper patterns for the buffer processing
+  private static final Pattern OUTPUT_GROUP_PATTERN = Pattern.compile("\\\\([0-9])");
+  private static final Pattern BUFFER_PATTERN       = Pattern.compile("\\$\\$([0-9]+)");
+  private static final Pattern INFO_PATTERN         = Pattern.compile("\\$INFO\\[([^\\]]+)\\]");
+  private static final Pattern URL_FUNCTION_PATTERN = Pattern.compile("<url\\s+.*function=");
+  private static final Pattern CHAIN_PATTERN        = Pattern.compile("<chain function=\"(.*)\">(.*)</chain>");
+  private static final Pattern HTML_TAG_PATTERN     = Pattern.compile("<[^>]+>");
 
   // private XbmcScraperConfiguration cfg = new XbmcScraperConfiguration();
 
@@ -46,7 +52,9 @@ public class XbmcScraperProcessor {
 
     mergeOptions(this.options);
 
-    LOGGER.debug("XbmcScraperProcessor created using Scraper: " + scraper + "; Complete Logging: " + !truncateLogging);
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("XbmcScraperProcessor created using Scraper: " + scraper + "; Complete Logging: " + !truncateLogging);
+    }
 
     clearBuffers();
   }
@@ -66,6 +74,9 @@ public class XbmcScraperProcessor {
   }
 
   private void mergeOptions(Map<String, String> dest) {
+    if (StringUtils.isBlank(scraper.getSettingsPath())) {
+      return;
+    }
     try {
       // if (!containsFunction(FUNCTION_SETTINGS)) {
       // return;
@@ -132,7 +143,9 @@ public class XbmcScraperProcessor {
     int i = 0;
     for (RegExp r : regExps) {
       i++;
-      System.out.println("Executing " + i + "/" + regExps.length + " - " + r.getExpression().getExpression());
+      if (LOGGER.isTraceEnabled()) {
+        LOGGER.trace("Executing " + i + "/" + regExps.length + " - " + r.getExpression().getExpression());
+      }
       executeRegexp(r);
     }
   }
@@ -159,8 +172,10 @@ public class XbmcScraperProcessor {
   }
 
   private void executeExpression(RegExp r) {
-    LOGGER.debug(String.format("Processing Expression: %s; Dest: %s; Input: %s; Output: %s", r.getExpression().getExpression(), r.getDest(),
-        r.getInput(), r.getOutput()));
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(String.format("Processing Expression: %s; Dest: %s; Input: %s; Output: %s", r.getExpression().getExpression(), r.getDest(),
+          r.getInput(), r.getOutput()));
+    }
     Expression exp = r.getExpression();
 
     String in = getBuffer(r.getInput());
@@ -174,12 +189,15 @@ public class XbmcScraperProcessor {
       return;
     }
 
-    LOGGER.debug("Expression: " + expr);
-    expr = processOutputBuffersForInputBufferReferences(expr);
-    LOGGER.debug("Expression: " + expr);
-    LOGGER.debug("     Input: " + logBuffer(in));
-    Pattern p = Pattern.compile(expr, PATTERN_OPTIONS);
-    Matcher m = p.matcher(in);
+    if (exp.hasBufferReferences()) {
+      LOGGER.debug("Expression: " + expr);
+      expr = processOutputBuffersForInputBufferReferences(expr);
+    }
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Expression: " + expr);
+      LOGGER.debug("     Input: " + logBuffer(in));
+    }
+    Matcher m = exp.getPattern(expr).matcher(in);
     if (m.find()) {
       LOGGER.debug("Matched: Group Count: " + m.groupCount());
       setBuffer(r.getDest(), processOutputBuffers(r.getOutput(), toGroupArray(exp.getNoCleanArray(), m)), r.isAppendBuffer());
@@ -192,7 +210,9 @@ public class XbmcScraperProcessor {
       }
     }
     else {
-      LOGGER.debug(String.format("No Match! Expression: %s; Text: %s;", expr, logBuffer(in)));
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug(String.format("No Match! Expression: %s; Text: %s;", expr, logBuffer(in)));
+      }
       if (exp.isClear()) {
         LOGGER.debug("Clearing Destination Buffer: " + r.getDest());
         setBuffer(r.getDest(), "", false);
@@ -215,7 +235,6 @@ public class XbmcScraperProcessor {
     int c = groups.groupCount();
     String g[] = new String[c + 1];
     for (int i = 0; i <= c; i++) {
-      String s = groups.group(i);
       if (noCleanArray != null && noCleanArray[i] != null) {
         // don clean
         g[i] = groups.group(i);
@@ -230,21 +249,23 @@ public class XbmcScraperProcessor {
   private String cleanHtml(String group) {
     if (group == null)
       return "";
+    if (group.indexOf('<') < 0) {
+      return group;
+    }
     LOGGER.debug("Before Clean Html: " + group);
-    String s = group.replaceAll("<[^>]+>", "");
+    String s = HTML_TAG_PATTERN.matcher(group).replaceAll("");
     LOGGER.debug("After Clean Html: " + s);
     return s;
   }
 
   private String processOutputBuffers(String output, String groups[]) {
     LOGGER.debug("Processing output buffer replacement.");
-    Pattern p = Pattern.compile("\\\\([0-9])");
-    Matcher m = p.matcher(output);
-    StringBuffer sb = new StringBuffer();
+    Matcher m = OUTPUT_GROUP_PATTERN.matcher(output);
+    StringBuilder sb = new StringBuilder(output.length() + 64);
 
     int lastStart = 0;
     while (m.find()) {
-      sb.append(output.substring(lastStart, m.start()));
+      sb.append(output, lastStart, m.start());
       lastStart = m.end();
       int g = Integer.parseInt(m.group(1));
       if (g > groups.length) {
@@ -263,43 +284,47 @@ public class XbmcScraperProcessor {
       sb.append(val);
     }
 
-    sb.append(output.substring(lastStart));
+    sb.append(output, lastStart, output.length());
 
     return processOutputBuffersForPropertyReferences(processOutputBuffersForInputBufferReferences(sb.toString()));
   }
 
   private String processOutputBuffersForInputBufferReferences(String output) {
     LOGGER.debug("Processing output buffers for input buffer references.");
-    Pattern p = Pattern.compile("\\$\\$([0-9]+)");
-    Matcher m = p.matcher(output);
-    StringBuffer sb = new StringBuffer();
+    if (output.indexOf("$$") < 0) {
+      return output;
+    }
+    Matcher m = BUFFER_PATTERN.matcher(output);
+    StringBuilder sb = new StringBuilder(output.length() + 64);
 
     int lastStart = 0;
     while (m.find()) {
-      sb.append(output.substring(lastStart, m.start()));
+      sb.append(output, lastStart, m.start());
       lastStart = m.end();
       sb.append(getBuffer(Integer.parseInt(m.group(1))));
     }
 
-    sb.append(output.substring(lastStart));
+    sb.append(output, lastStart, output.length());
 
     return sb.toString();
   }
 
   private String processOutputBuffersForPropertyReferences(String output) {
     LOGGER.debug("Processing output buffers for property references.");
-    Pattern p = Pattern.compile("\\$INFO\\[([^\\]]+)\\]");
-    Matcher m = p.matcher(output);
-    StringBuffer sb = new StringBuffer();
+    if (output.indexOf("$INFO[") < 0) {
+      return output;
+    }
+    Matcher m = INFO_PATTERN.matcher(output);
+    StringBuilder sb = new StringBuilder(output.length() + 64);
 
     int lastStart = 0;
     while (m.find()) {
-      sb.append(output.substring(lastStart, m.start()));
+      sb.append(output, lastStart, m.start());
       lastStart = m.end();
       sb.append(options.get(m.group(1)));
     }
 
-    sb.append(output.substring(lastStart));
+    sb.append(output, lastStart, output.length());
 
     return sb.toString();
   }
@@ -340,18 +365,17 @@ public class XbmcScraperProcessor {
   private String getBuffer(String buffer) {
     if (buffer == null)
       buffer = "";
-    LOGGER.debug(String.format("Get String Buffer: %s", buffer));
-    Pattern bufferPattern = Pattern.compile("\\$\\$([0-9]+)");
-    Matcher m = bufferPattern.matcher(buffer);
+    LOGGER.debug("Get String Buffer: {}", buffer);
+    Matcher m = BUFFER_PATTERN.matcher(buffer);
     if (m.find()) {
-      StringBuffer sb = new StringBuffer();
+      StringBuilder sb = new StringBuilder();
       sb.append(getBuffer(Integer.parseInt(m.group(1))));
       while (m.find()) {
         sb.append(getBuffer(Integer.parseInt(m.group(1))));
       }
       return sb.toString();
     }
-    else {
+    else if (LOGGER.isDebugEnabled()) {
       LOGGER.debug("getBuffer(): Using raw input: " + logBuffer(buffer));
     }
     return buffer;
@@ -365,9 +389,9 @@ public class XbmcScraperProcessor {
       LOGGER.debug(String.format("Set Buffer: %s; Append: %s; Text: %s", buffer, append, logBuffer(text)));
     }
 
-    Pattern p = Pattern.compile("<url\\s+.*function=");
-    Matcher m = p.matcher(text);
-    if (m.find()) {
+    // sub functions are only possible if the text contains a function attribute
+    Matcher m = URL_FUNCTION_PATTERN.matcher(text);
+    if (text.indexOf("function=") >= 0 && m.find()) {
       LOGGER.debug("Processing Sub Function: " + text);
       try {
         XbmcUrl url = new XbmcUrl(text);
@@ -389,9 +413,8 @@ public class XbmcScraperProcessor {
     }
 
     // sub Function
-    p = Pattern.compile("<chain function=\"(.*)\">(.*)</chain>");
-    m = p.matcher(text);
-    if (m.find()) {
+    m = CHAIN_PATTERN.matcher(text);
+    if (text.indexOf("function=") >= 0 && m.find()) {
       LOGGER.debug("Processing Sub Function: " + text);
       try {
         ScraperFunction func = scraper.getFunction(m.group(1));
@@ -20,9 +20,11 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -418,6 +420,42 @@ public class MediaInfo implements Closeable {
     return mediaInfo;
   }
 
+  /**
+   * Snapshot of the declared parameters only; every parameter is fetched by its name, so the parameters which are not needed are never read
+   * from the native lib. Empty values are not contained in the snapshot (like in the full snapshot).
+   * 
+   * @param keySet
+   *          the parameters to fetch per stream kind
+   * @return the map
+   */
+  public Map<StreamKind, List<Map<String, String>>> snapshot(MediaInfoKeySet keySet) {
+    Map<StreamKind, List<Map<String, String>>> mediaInfo = new EnumMap<StreamKind, List<Map<String, String>>>(StreamKind.class);
+
+    for (StreamKind streamKind : keySet.getStreamKinds()) {
+      int streamCount = streamCount(streamKind);
+
+      if (streamCount > 0) {
+        Set<String> parameters = keySet.getParameters(streamKind);
+        List<Map<String, String>> streamInfoList = new ArrayList<Map<String, String>>(streamCount);
+
+        for (int i = 0; i < streamCount; i++) {
+          Map<String, String> streamInfo = new HashMap<String, String>(parameters.size() * 2);
+          for (String parameter : parameters) {
+            String value = get(streamKind, i, parameter);
+            if (value.length() > 0) {
+              streamInfo.put(parameter, value);
+            }
+          }
+          streamInfoList.add(streamInfo);
+        }
+
+        mediaInfo.put(streamKind, streamInfoList);
+      }
+    }
+
+    return mediaInfo;
+  }
+
   /**
    * Snapshot.
    * 
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.thirdparty;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.tinymediamanager.thirdparty.MediaInfo.StreamKind;
+
+/**
+ * The class MediaInfoKeySet. Declares which parameters of which stream kinds should be extracted from mediainfo (see
+ * {@link MediaInfo#snapshot(MediaInfoKeySet)}). Fetching only the needed parameters is much cheaper than a full snapshot for files with many
+ * streams.
+ * 
+ * @author Manuel Laggner
+ */
+public class MediaInfoKeySet {
+  private final Map<StreamKind, Set<String>> keys = new EnumMap<StreamKind, Set<String>>(StreamKind.class);
+
+  /**
+   * add parameters of the given stream kind
+   * 
+   * @param streamKind
+   *          the stream kind
+   * @param parameters
+   *          the names of the parameters (e.g. Format, CodecID/Hint, Language/String)
+   * @return this key set (for chaining)
+   */
+  public MediaInfoKeySet add(StreamKind streamKind, String... parameters) {
+    Set<String> set = keys.get(streamKind);
+    if (set == null) {
+      set = new LinkedHashSet<String>();
+      keys.put(streamKind, set);
+    }
+    Collections.addAll(set, parameters);
+    return this;
+  }
+
+  /**
+   * add all parameters of another key set
+   * 
+   * @param other
+   *          the other key set
+   * @return this key set (for chaining)
+   */
+  public MediaInfoKeySet addAll(MediaInfoKeySet other) {
+    for (Entry<StreamKind, Set<String>> entry : other.keys.entrySet()) {
+      add(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
+    }
+    return this;
+  }
+
+  /**
+   * get all stream kinds with at least one parameter
+   * 
+   * @return the stream kinds
+   */
+  public Set<StreamKind> getStreamKinds() {
+    return Collections.unmodifiableSet(keys.keySet());
+  }
+
+  /**
+   * get the parameters of the given stream kind
+   * 
+   * @param streamKind
+   *          the stream kind
+   * @return the parameters (may be empty, but never null)
+   */
+  public Set<String> getParameters(StreamKind streamKind) {
+    Set<String> set = keys.get(streamKind);
+    if (set == null) {
+      return Collections.emptySet();
+    }
+    return Collections.unmodifiableSet(set);
+  }
+
+  /**
+   * is the given parameter part of this key set
+   * 
+   * @param streamKind
+   *          the stream kind
+   * @param parameter
+   *          the name of the parameter
+   * @return true/false
+   */
+  public boolean contains(StreamKind streamKind, String parameter) {
+    Set<String> set = keys.get(streamKind);
+    return set != null && set.contains(parameter);
+  }
+
+  @Override
+  public String toString() {
+    return keys.toString();
+  }
+}
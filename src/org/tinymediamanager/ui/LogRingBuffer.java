@@ -0,0 +1,241 @@
+/*
+ * Copyright 2012 - 2015 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.ui;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The class LogRingBuffer. A fixed capacity ring buffer for log messages; every message gets a sequence number, so readers can fetch all messages
+ * after the last one they have seen. Appending is lock free; old messages are overwritten (and optionally spilled to a rotating file by a
+ * background writer), so the memory usage stays constant.
+ * 
+ * @author Manuel Laggner
+ */
+public class LogRingBuffer {
+  private final int                               segmentSize;
+  private final int                               capacity;
+  private final int                               maxMessageLength;
+  private final List<AtomicReferenceArray<Entry>> segments;
+  private final AtomicLong                        sequence = new AtomicLong();
+
+  // overwritten messages waiting for the spill writer
+  private final BlockingQueue<Entry>              spillQueue;
+  private volatile File                           spillFile;
+  private long                                    spillMaxSize;
+  private Writer                                  spillWriter;
+  private Thread                                  spillThread;
+
+  /**
+   * create a new ring buffer
+   * 
+   * @param segments
+   *          the amount of segments
+   * @param segmentSize
+   *          the amount of messages per segment
+   * @param maxMessageLength
+   *          longer messages are truncated to this length
+   */
+  public LogRingBuffer(int segments, int segmentSize, int maxMessageLength) {
+    this.segmentSize = segmentSize;
+    this.capacity = segments * segmentSize;
+    this.maxMessageLength = maxMessageLength;
+    this.segments = new ArrayList<AtomicReferenceArray<Entry>>(segments);
+    for (int i = 0; i < segments; i++) {
+      this.segments.add(new AtomicReferenceArray<Entry>(segmentSize));
+    }
+    this.spillQueue = new LinkedBlockingQueue<Entry>(capacity);
+  }
+
+  /**
+   * spill overwritten messages to the given file; if the file gets bigger than maxSize, it is rotated to <file>.1. The file is written by a
+   * background thread, so the logging threads never wait for the disk (if the writer cannot keep up, the messages are dropped).
+   * 
+   * @param file
+   *          the file to spill to (null to disable spilling)
+   * @param maxSize
+   *          the max size of the file in bytes
+   */
+  public synchronized void setSpillFile(File file, long maxSize) {
+    IOUtils.closeQuietly(spillWriter);
+    spillWriter = null;
+    spillQueue.clear();
+    spillFile = file;
+    spillMaxSize = maxSize;
+
+    if (file != null && spillThread == null) {
+      spillThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            while (!Thread.currentThread().isInterrupted()) {
+              spill(spillQueue.take());
+            }
+          }
+          catch (InterruptedException e) {
+            // we are inside the logging - so we cannot log this
+          }
+        }
+      }, "LogSpillWriter");
+      spillThread.setDaemon(true);
+      spillThread.start();
+    }
+  }
+
+  /**
+   * append a message
+   * 
+   * @param message
+   *          the message
+   * @return the sequence number of the message
+   */
+  public long append(String message) {
+    if (message.length() > maxMessageLength) {
+      message = message.substring(0, maxMessageLength) + "...\n";
+    }
+
+    long seq = sequence.getAndIncrement();
+    Entry entry = new Entry(seq, message);
+    AtomicReferenceArray<Entry> segment = segmentFor(seq);
+    int index = (int) (seq % segmentSize);
+
+    // a slow writer must not overwrite a newer message from the next round
+    Entry old = segment.get(index);
+    while (old == null || old.sequence < seq) {
+      if (segment.compareAndSet(index, old, entry)) {
+        if (old != null && spillFile != null) {
+          spillQueue.offer(old);
+        }
+        break;
+      }
+      old = segment.get(index);
+    }
+    return seq;
+  }
+  /**
+   * get the sequence number the next message will get
+   * 
+   * @return the next sequence number
+   */
+  public long getNextSequence() {
+    return sequence.get();
+  }
+
+  /**
+   * get the amount of messages which can be held
+   * 
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * read all messages from the given sequence number on
+   * 
+   * @param from
+   *          the sequence number of the first message to read
+   * @param target
+   *          the StringBuilder to append the messages to
+   * @return the sequence number to start the next read from
+   */
+  public long read(long from, StringBuilder target) {
+    long end = sequence.get();
+    long start = Math.max(Math.max(from, 0), end - capacity);
+    long dropped = start - Math.max(from, 0);
+
+    long seq = start;
+    for (; seq < end; seq++) {
+      Entry entry = segmentFor(seq).get((int) (seq % segmentSize));
+      if (entry == null || entry.sequence < seq) {
+        // reserved, but not yet written - read it next time
+        break;
+      }
+      if (entry.sequence > seq) {
+        // overwritten in the meantime
+        dropped++;
+        continue;
+      }
+      if (dropped > 0) {
+        target.append("... ").append(dropped).append(" older messages dropped ...\n");
+        dropped = 0;
+      }
+      target.append(entry.message);
+    }
+    if (dropped > 0) {
+      target.append("... ").append(dropped).append(" older messages dropped ...\n");
+    }
+    return seq;
+  }
+
+  private AtomicReferenceArray<Entry> segmentFor(long seq) {
+    return segments.get((int) ((seq % capacity) / segmentSize));
+  }
+
+  private synchronized void spill(Entry entry) {
+    if (spillFile == null) {
+      return;
+    }
+    try {
+      if (spillWriter == null) {
+        spillWriter = new OutputStreamWriter(new FileOutputStream(spillFile, true), "UTF-8");
+      }
+      spillWriter.write(entry.message);
+      if (!spillQueue.isEmpty()) {
+        // more to come - flush with the last message of this burst
+        return;
+      }
+      spillWriter.flush();
+
+      if (spillFile.length() > spillMaxSize) {
+        IOUtils.closeQuietly(spillWriter);
+        spillWriter = null;
+        File rotated = new File(spillFile.getPath() + ".1");
+        FileUtils.deleteQuietly(rotated);
+        spillFile.renameTo(rotated);
+      }
+    }
+    catch (IOException e) {
+      // we are inside the logging - so we cannot log this; just stop spilling
+      IOUtils.closeQuietly(spillWriter);
+      spillWriter = null;
+      spillFile = null;
+      spillQueue.clear();
+    }
+  }
+
+  private static class Entry {
+    private final long   sequence;
+    private final String message;
+
+    private Entry(long sequence, String message) {
+      this.sequence = sequence;
+      this.message = message;
+    }
+  }
+}
@@ -15,18 +15,20 @@
  */
 package org.tinymediamanager.ui;
 
-import java.io.ByteArrayOutputStream;
-import java.io.OutputStream;
+import java.io.File;
 
 import ch.qos.logback.classic.filter.ThresholdFilter;
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.Layout;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
 
 /**
- * The Class TmmUILogAppender, recieve logs from logback and forward it to the UI.
+ * The Class TmmUILogAppender, recieve logs from logback and forward it to the UI. The messages are held in a ring buffer, so only the latest
+ * messages are kept in memory.
  */
-public class TmmUILogAppender extends OutputStreamAppender<ILoggingEvent> {
-  private final CopyableByteArrayOutputStream BUFFER = new CopyableByteArrayOutputStream(512 * 1024);
+public class TmmUILogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+  private final LogRingBuffer   buffer = new LogRingBuffer(16, 256, 16 * 1024);
+  private Layout<ILoggingEvent> layout;
 
   public TmmUILogAppender() {
     super();
@@ -36,77 +38,69 @@ public class TmmUILogAppender extends OutputStreamAppender<ILoggingEvent> {
     addFilter(filter);
   }
 
+  public void setLayout(Layout<ILoggingEvent> layout) {
+    this.layout = layout;
+  }
+
+  /**
+   * spill messages which drop out of the ring buffer to the given file
+   * 
+   * @param file
+   *          the file (null to disable spilling)
+   * @param maxSize
+   *          the max size of the file before it gets rotated
+   */
+  public void setSpillFile(File file, long maxSize) {
+    buffer.setSpillFile(file, maxSize);
+  }
+
   /*
    * (non-Javadoc)
    * 
-   * @see ch.qos.logback.core.OutputStreamAppender#start()
+   * @see ch.qos.logback.core.UnsynchronizedAppenderBase#start()
    */
   @Override
   public void start() {
-    setOutputStream(BUFFER);
+    if (layout == null) {
+      addError("No layout set for the appender named \"" + name + "\".");
+      return;
+    }
     super.start();
   }
 
   /*
    * (non-Javadoc)
    * 
-   * @see ch.qos.logback.core.OutputStreamAppender#setOutputStream(java.io.OutputStream)
+   * @see ch.qos.logback.core.UnsynchronizedAppenderBase#append(java.lang.Object)
    */
   @Override
-  public void setOutputStream(final OutputStream outputStream) {
-    if (outputStream != BUFFER) {
-      throw new IllegalStateException("Invalid output stream (" + CopyableByteArrayOutputStream.class + " expected) !");
-    }
-    super.setOutputStream(outputStream);
+  protected void append(ILoggingEvent event) {
+    buffer.append(layout.doLayout(event));
   }
 
   /**
-   * get the new log messages (from offset "from" to the end)
+   * get the new log messages (from the message with the sequence number "from" to the end)
    */
-  public LogOutput getLogOutput(final int from) {
-    final byte[] buffer;
-    final int size;
-
-    synchronized (lock) {
-      size = BUFFER.size();
-      buffer = (from < size) ? BUFFER.toByteArray(from) : null;
-    }
-    return new LogOutput(size, (buffer != null) ? new String(buffer, 0, buffer.length) : "");
-  }
-
-  private static class CopyableByteArrayOutputStream extends ByteArrayOutputStream {
-
-    protected CopyableByteArrayOutputStream(final int size) {
-      super(size);
-    }
-
-    protected synchronized byte[] toByteArray(final int from) {
-      final int pos = (from < 0 || from > count) ? 0 : from;
-      return copyOfRange(this.buf, pos, this.count);
-    }
-
-    public static byte[] copyOfRange(final byte[] original, final int from, final int to) {
-      final int newLength = to - from;
-      if (newLength < 0) {
-        throw new IllegalArgumentException(from + " > " + to);
-      }
-      final byte[] copy = new byte[newLength];
-      System.arraycopy(original, from, copy, 0, Math.min(original.length - from, newLength));
-      return copy;
-    }
+  public LogOutput getLogOutput(final long from) {
+    StringBuilder sb = new StringBuilder();
+    long next = buffer.read(from, sb);
+    return new LogOutput(next, sb.toString());
   }
 
   public static class LogOutput {
-    private final int    byteCount;
+    private final long   sequence;
     private final String content;
 
-    protected LogOutput(final int byteCount, final String content) {
-      this.byteCount = byteCount;
+    protected LogOutput(final long sequence, final String content) {
+      this.sequence = sequence;
       this.content = content;
     }
 
-    public int getByteCount() {
-      return byteCount;
+    /**
+     * the sequence number to start the next read from
+     */
+    public long getSequence() {
+      return sequence;
     }
 
     public String getContent() {
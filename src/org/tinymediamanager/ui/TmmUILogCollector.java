@@ -15,11 +15,14 @@
  */
 package org.tinymediamanager.ui;
 
+import java.io.File;
+
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.ui.TmmUILogAppender.LogOutput;
 
 import ch.qos.logback.classic.Logger;
-import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.PatternLayout;
 
 /**
  * The Class TmmUILogCollector, collect all logs and store it for the UI.
@@ -38,14 +41,19 @@ public class TmmUILogCollector {
     Logger rootLogger = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
 
     // create a new TmmUILogAppender - so we need not to put it in the logback.xml:
-    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
-    encoder.setContext(rootLogger.getLoggerContext());
-    encoder.setPattern("%d{HH:mm:ss.SSS} %-5level %logger{60} - %msg%n");
-    encoder.start();
+    PatternLayout layout = new PatternLayout();
+    layout.setContext(rootLogger.getLoggerContext());
+    layout.setPattern("%d{HH:mm:ss.SSS} %-5level %logger{60} - %msg%n");
+    layout.start();
 
     logAppender = new TmmUILogAppender();
     logAppender.setContext(rootLogger.getLoggerContext());
-    logAppender.setEncoder(encoder);
+    logAppender.setLayout(layout);
+    // optionally keep the messages which drop out of the buffer (e.g. -Dtmm.uilogspill=logs/ui.log)
+    String spillFile = System.getProperty("tmm.uilogspill");
+    if (StringUtils.isNotBlank(spillFile)) {
+      logAppender.setSpillFile(new File(spillFile), 10 * 1024 * 1024);
+    }
     logAppender.start();
 
     rootLogger.addAppender(logAppender);
@@ -55,11 +63,7 @@ public class TmmUILogCollector {
     return getLogOutput(0);
   }
 
-  public LogOutput getLogOutput(final int from) {
-    LogOutput output = null;
-    synchronized (logAppender) {
-      output = logAppender.getLogOutput(from);
-    }
-    return output;
+  public LogOutput getLogOutput(final long from) {
+    return logAppender.getLogOutput(from);
   }
 }
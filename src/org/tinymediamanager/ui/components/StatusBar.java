@@ -82,7 +82,16 @@ public class StatusBar extends JPanel implements TmmTaskListener {
         FormFactory.LABEL_COMPONENT_GAP_COLSPEC, }, new RowSpec[] { FormFactory.DEFAULT_ROWSPEC }));
 
     label = new JLabel();
-    bar = new JProgressBar();
+    bar = new JProgressBar() {
+      private static final long serialVersionUID = 2385342171526392542L;
+
+      @Override
+      public String getToolTipText(MouseEvent event) {
+        // show the queue metrics of the task manager
+        return "<html>" + TmmTaskManager.getInstance().getMetricsSummary().replace("\n", "<br>") + "</html>";
+      }
+    };
+    bar.setToolTipText("");
     bar.addMouseListener(new MListener());
     closeButton = new JButton(IconManager.PROCESS_STOP);
     closeButton.setBorderPainted(false);
@@ -34,6 +34,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -62,6 +69,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.ImageCache;
+import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.movie.MovieModuleManager;
 import org.tinymediamanager.scraper.IMediaArtworkProvider;
 import org.tinymediamanager.scraper.MediaArtwork;
@@ -698,7 +706,7 @@ public class ImageChooserDialog extends TmmDialog {
   private class DownloadTask extends SwingWorker<Void, DownloadChunk> {
     private HashMap<String, Object>     ids;
     private List<IMediaArtworkProvider> artworkProviders;
-    private boolean                     imagesFound = false;
+    private volatile boolean            imagesFound = false;
 
     public DownloadTask(HashMap<String, Object> ids, List<IMediaArtworkProvider> artworkProviders) {
       this.ids = ids;
@@ -724,95 +732,78 @@ public class ImageChooserDialog extends TmmDialog {
           return null;
         }
 
-        // get images from all artworkproviders
-        for (IMediaArtworkProvider artworkProvider : artworkProviders) {
-          MediaScrapeOptions options = new MediaScrapeOptions();
-          if (mediaType == MediaType.MOVIE) {
-            options.setLanguage(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage());
-            options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
-            options.setScrapeImdbForeignLanguage(MovieModuleManager.MOVIE_SETTINGS.isImdbScrapeForeignLanguage());
+        // get images from all artworkproviders at once
+        // all requests are run as interactive tasks of the task manager
+        final List<Future<?>> requests = new CopyOnWriteArrayList<Future<?>>();
+        List<Future<?>> previews = new ArrayList<Future<?>>();
+        Executor executor = new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            requests.add(TmmTaskManager.getInstance().submitInteractiveTask(command));
           }
-          else if (mediaType == MediaType.TV_SHOW) {
-            options.setLanguage(Globals.settings.getTvShowSettings().getScraperLanguage());
-            options.setCountry(Globals.settings.getTvShowSettings().getCertificationCountry());
-          }
-          else {
-            continue;
-          }
-          options.setType(mediaType);
-          switch (type) {
-            case POSTER:
-              options.setArtworkType(MediaArtworkType.POSTER);
-              break;
-
-            case FANART:
-              options.setArtworkType(MediaArtworkType.BACKGROUND);
-              break;
-
-            case BANNER:
-              options.setArtworkType(MediaArtworkType.BANNER);
-              break;
-
-            case SEASON:
-              options.setArtworkType(MediaArtworkType.SEASON);
-              break;
-
-            case CLEARART:
-              options.setArtworkType(MediaArtworkType.CLEARART);
-              break;
-
-            case DISC:
-              options.setArtworkType(MediaArtworkType.DISC);
-              break;
-
-            case LOGO:
-              options.setArtworkType(MediaArtworkType.LOGO);
-              break;
-
-            case THUMB:
-              options.setArtworkType(MediaArtworkType.THUMB);
-              break;
+        };
+        try {
+          CompletionService<List<MediaArtwork>> providerService = new ExecutorCompletionService<List<MediaArtwork>>(executor);
+          int providerCalls = 0;
+          for (final IMediaArtworkProvider artworkProvider : artworkProviders) {
+            final MediaScrapeOptions options = createScrapeOptions();
+            if (options == null) {
+              continue;
+            }
+            providerService.submit(new Callable<List<MediaArtwork>>() {
+              @Override
+              public List<MediaArtwork> call() throws Exception {
+                return artworkProvider.getArtwork(options);
+              }
+            });
+            providerCalls++;
           }
 
-          // populate ids
-          for (Entry<String, Object> entry : ids.entrySet()) {
-            Object v = entry.getValue();
-            if (v != null) {
-              options.setId((String) entry.getKey(), v.toString());
+          // download the previews of a provider as soon as it delivered its artwork; the images are displayed as they arrive
+          for (int i = 0; i < providerCalls; i++) {
+            List<MediaArtwork> artwork = null;
+            try {
+              artwork = providerService.take().get();
+            }
+            catch (ExecutionException e) {
+              LOGGER.error("DownloadTask", e.getCause());
+            }
+            if (artwork == null) {
+              continue;
             }
-          }
 
-          // get the artwork
-          List<MediaArtwork> artwork = artworkProvider.getArtwork(options);
-          if (artwork == null) {
-            continue;
+            for (final MediaArtwork art : artwork) {
+              if (isCancelled()) {
+                return null;
+              }
+              previews.add(TmmTaskManager.getInstance().submitInteractiveTask(new Runnable() {
+                @Override
+                public void run() {
+                  loadPreview(art);
+                }
+              }));
+            }
           }
 
-          // display all images
-          for (MediaArtwork art : artwork) {
+          for (Future<?> preview : previews) {
             if (isCancelled()) {
               return null;
             }
-
-            Url url = null;
-            try {
-              url = new Url(art.getPreviewUrl());
-              Image image = Toolkit.getDefaultToolkit().createImage(url.getBytes());
-              BufferedImage bufferedImage = com.bric.image.ImageLoader.createImage(image);
-
-              DownloadChunk chunk = new DownloadChunk();
-              chunk.artwork = art;
-              chunk.image = bufferedImage;
-              publish(chunk);
-              imagesFound = true;
-              // addImage(bufferedImage, art);
-            }
-            catch (Exception e) {
-              LOGGER.error("DownloadTask", e);
-            }
-
+            preview.get();
           }
         }
+        finally {
+          // abort all open requests (if the dialog has been closed)
+          for (Future<?> request : requests) {
+            request.cancel(true);
+          }
+          for (Future<?> preview : previews) {
+            preview.cancel(true);
+          }
+        }
+      }
+      catch (InterruptedException e) {
+        // the dialog has been closed
       }
       catch (Exception e) {
         LOGGER.error("DownloadTask", e);
@@ -821,6 +812,85 @@ public class ImageChooserDialog extends TmmDialog {
       return null;
     }
 
+    private MediaScrapeOptions createScrapeOptions() {
+      MediaScrapeOptions options = new MediaScrapeOptions();
+      if (mediaType == MediaType.MOVIE) {
+        options.setLanguage(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage());
+        options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
+        options.setScrapeImdbForeignLanguage(MovieModuleManager.MOVIE_SETTINGS.isImdbScrapeForeignLanguage());
+      }
+      else if (mediaType == MediaType.TV_SHOW) {
+        options.setLanguage(Globals.settings.getTvShowSettings().getScraperLanguage());
+        options.setCountry(Globals.settings.getTvShowSettings().getCertificationCountry());
+      }
+      else {
+        return null;
+      }
+      options.setType(mediaType);
+      switch (type) {
+        case POSTER:
+          options.setArtworkType(MediaArtworkType.POSTER);
+          break;
+
+        case FANART:
+          options.setArtworkType(MediaArtworkType.BACKGROUND);
+          break;
+
+        case BANNER:
+          options.setArtworkType(MediaArtworkType.BANNER);
+          break;
+
+        case SEASON:
+          options.setArtworkType(MediaArtworkType.SEASON);
+          break;
+
+        case CLEARART:
+          options.setArtworkType(MediaArtworkType.CLEARART);
+          break;
+
+        case DISC:
+          options.setArtworkType(MediaArtworkType.DISC);
+          break;
+
+        case LOGO:
+          options.setArtworkType(MediaArtworkType.LOGO);
+          break;
+
+        case THUMB:
+          options.setArtworkType(MediaArtworkType.THUMB);
+          break;
+      }
+
+      // populate ids
+      for (Entry<String, Object> entry : ids.entrySet()) {
+        Object v = entry.getValue();
+        if (v != null) {
+          options.setId((String) entry.getKey(), v.toString());
+        }
+      }
+      return options;
+    }
+
+    private void loadPreview(MediaArtwork art) {
+      if (isCancelled()) {
+        return;
+      }
+
+      try {
+        Image image = Toolkit.getDefaultToolkit().createImage(ImageCache.getPreviewImage(art.getPreviewUrl()));
+        BufferedImage bufferedImage = com.bric.image.ImageLoader.createImage(image);
+
+        DownloadChunk chunk = new DownloadChunk();
+        chunk.artwork = art;
+        chunk.image = bufferedImage;
+        publish(chunk);
+        imagesFound = true;
+      }
+      catch (Exception e) {
+        LOGGER.error("DownloadTask", e);
+      }
+    }
+
     @Override
     protected void process(List<DownloadChunk> chunks) {
       for (DownloadChunk chunk : chunks) {
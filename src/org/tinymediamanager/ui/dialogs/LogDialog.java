@@ -43,10 +43,12 @@ public class LogDialog extends TmmDialog implements ActionListener {
   private static final ResourceBundle BUNDLE           = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
   private static final Logger         LOGGER           = LoggerFactory.getLogger(LogDialog.class);
   private static final int            REFRESH_PERIOD   = 1000;
+  // do not let the text area grow endless; the log collector holds a limited amount of messages too
+  private static final int            MAX_CHARS        = 2 * 1024 * 1024;
 
   private JTextArea                   taLogs;
 
-  private int                         logByteCount     = 0;
+  private long                        logSequence      = 0;
   private final Timer                 timerRefresh;
 
   public LogDialog() {
@@ -97,9 +99,9 @@ public class LogDialog extends TmmDialog implements ActionListener {
   }
 
   private void updateApplicationLog() {
-    final boolean append = (logByteCount > 0) ? true : false;
-    final LogOutput logOutput = TmmUILogCollector.instance.getLogOutput(this.logByteCount);
-    logByteCount = logOutput.getByteCount();
+    final boolean append = (logSequence > 0) ? true : false;
+    final LogOutput logOutput = TmmUILogCollector.instance.getLogOutput(this.logSequence);
+    logSequence = logOutput.getSequence();
     final String content = logOutput.getContent();
 
     if (content.length() > 0) {
@@ -107,6 +109,9 @@ public class LogDialog extends TmmDialog implements ActionListener {
         final Document doc = taLogs.getDocument();
         try {
           doc.insertString(doc.getLength(), content, null);
+          if (doc.getLength() > MAX_CHARS) {
+            doc.remove(0, doc.getLength() - MAX_CHARS);
+          }
         }
         catch (BadLocationException ble) {
           LOGGER.error("bad location: ", ble);
@@ -116,7 +121,7 @@ public class LogDialog extends TmmDialog implements ActionListener {
         taLogs.setText(content);
       }
       // scroll to the end of the textarea
-      taLogs.setCaretPosition(taLogs.getText().length());
+      taLogs.setCaretPosition(taLogs.getDocument().getLength());
     }
   }
 }
@@ -15,9 +15,9 @@
  */
 package org.tinymediamanager.ui.movies;
 
-import java.text.RuleBasedCollator;
 import java.util.Comparator;
 
+import org.tinymediamanager.core.TitleSortKeyService;
 import org.tinymediamanager.core.movie.entities.Movie;
 
 /**
@@ -26,8 +26,6 @@ import org.tinymediamanager.core.movie.entities.Movie;
  * @author Manuel Laggner
  */
 public class MovieComparator implements Comparator<Movie> {
-  private RuleBasedCollator stringCollator = (RuleBasedCollator) RuleBasedCollator.getInstance();
-
   /*
    * (non-Javadoc)
    * 
@@ -35,10 +33,7 @@ public class MovieComparator implements Comparator<Movie> {
    */
   @Override
   public int compare(Movie movie1, Movie movie2) {
-    if (stringCollator != null) {
-      return stringCollator.compare(movie1.getTitleSortable().toLowerCase(), movie2.getTitleSortable().toLowerCase());
-    }
-    return movie1.getTitleSortable().toLowerCase().compareTo(movie2.getTitleSortable().toLowerCase());
+    return TitleSortKeyService.COMPARATOR.compare(movie1, movie2);
   }
 
 }
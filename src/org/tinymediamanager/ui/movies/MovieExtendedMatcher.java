@@ -17,13 +17,12 @@ package org.tinymediamanager.ui.movies;
 
 import java.io.File;
 import java.util.HashMap;
-import java.util.List;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
-import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.LibraryStatistics;
 import org.tinymediamanager.core.entities.MediaFile;
-import org.tinymediamanager.core.entities.MediaFileAudioStream;
+import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieMediaSource;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.movie.entities.MovieActor;
@@ -45,6 +44,8 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
   }
 
   private HashMap<SearchOptions, Object> searchOptions;
+  // the flags and codecs are looked up in the statistics of the movie list
+  private LibraryStatistics<Movie>       statistics = MovieList.getInstance().getStatistics();
 
   /**
    * Instantiates a new movies extended matcher.
@@ -73,7 +74,7 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
     // check against watched flag
     if (searchOptions.containsKey(SearchOptions.WATCHED)) {
       boolean watched = (Boolean) searchOptions.get(SearchOptions.WATCHED);
-      boolean result = !(movie.isWatched() ^ watched);
+      boolean result = !(statistics.isFlagged(movie, LibraryStatistics.WATCHED) ^ watched);
       if (result == false) {
         return false;
       }
@@ -140,7 +141,7 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
     // check against video codec
     if (searchOptions.containsKey(SearchOptions.VIDEO_CODEC)) {
       String videoCodec = (String) searchOptions.get(SearchOptions.VIDEO_CODEC);
-      if (!videoCodec.equals(movie.getMediaInfoVideoCodec())) {
+      if (!statistics.hasValue(movie, LibraryStatistics.VIDEO_CODEC, videoCodec)) {
         return false;
       }
     }
@@ -148,7 +149,7 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
     // check against audio codec
     if (searchOptions.containsKey(SearchOptions.AUDIO_CODEC)) {
       String audioCodec = (String) searchOptions.get(SearchOptions.AUDIO_CODEC);
-      if (!containsAudioCodec(movie, audioCodec)) {
+      if (!statistics.hasValue(movie, LibraryStatistics.AUDIO_CODEC, audioCodec)) {
         return false;
       }
     }
@@ -163,14 +164,14 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
 
     // check against missing metadata
     if (searchOptions.containsKey(SearchOptions.MISSING_METADATA)) {
-      if (movie.isScraped()) {
+      if (!statistics.isFlagged(movie, LibraryStatistics.UNSCRAPED)) {
         return false;
       }
     }
 
     // check against missing artwork
     if (searchOptions.containsKey(SearchOptions.MISSING_ARTWORK)) {
-      if (movie.getHasImages()) {
+      if (!statistics.isFlagged(movie, LibraryStatistics.MISSING_ARTWORK)) {
         return false;
       }
     }
@@ -184,7 +185,7 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
 
     // check against new movies
     if (searchOptions.containsKey(SearchOptions.NEW_MOVIES)) {
-      if (!movie.isNewlyAdded()) {
+      if (!statistics.isFlagged(movie, LibraryStatistics.NEWLY_ADDED)) {
         return false;
       }
     }
@@ -224,23 +225,6 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
     return false;
   }
 
-  private boolean containsAudioCodec(Movie movie, String codec) {
-    List<MediaFile> videoFiles = movie.getMediaFiles(MediaFileType.VIDEO);
-
-    if (videoFiles.size() == 0) {
-      return false;
-    }
-
-    MediaFile mf = videoFiles.get(0);
-    for (MediaFileAudioStream stream : mf.getAudioStreams()) {
-      if (codec.equals(stream.getCodec())) {
-        return true;
-      }
-    }
-
-    return false;
-  }
-
   private boolean containsTag(Movie movie, String tag) {
     for (String tagInMovie : movie.getTags()) {
       if (tagInMovie.equals(tag)) {
@@ -44,6 +44,7 @@ import javax.swing.event.DocumentListener;
 
 import org.apache.commons.lang3.StringUtils;
 import org.tinymediamanager.Globals;
+import org.tinymediamanager.core.LibraryStatistics;
 import org.tinymediamanager.core.Settings;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.MovieList;
@@ -449,17 +450,14 @@ public class MovieExtendedSearchPanel extends RoundedPanel {
   }
 
   private void buildAndInstallCodecArray() {
+    // the codecs are taken from the (sorted) counts of the statistics
     cbVideoCodec.removeAllItems();
-    List<String> codecs = new ArrayList<String>(movieList.getVideoCodecsInMovies());
-    Collections.sort(codecs);
-    for (String codec : codecs) {
+    for (String codec : movieList.getStatistics().getCounts(LibraryStatistics.VIDEO_CODEC).keySet()) {
       cbVideoCodec.addItem(codec);
     }
 
     cbAudioCodec.removeAllItems();
-    codecs = new ArrayList<String>(movieList.getAudioCodecsInMovies());
-    Collections.sort(codecs);
-    for (String codec : codecs) {
+    for (String codec : movieList.getStatistics().getCounts(LibraryStatistics.AUDIO_CODEC).keySet()) {
       cbAudioCodec.addItem(codec);
     }
   }
@@ -22,6 +22,7 @@ import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
@@ -421,7 +422,16 @@ public class MoviePanel extends JPanel {
     lblMovieCountOf = new JLabel(BUNDLE.getString("tmm.of")); //$NON-NLS-1$
     panelMovieCount.add(lblMovieCountOf);
 
-    lblMovieCountTotal = new JLabel("");
+    lblMovieCountTotal = new JLabel("") {
+      private static final long serialVersionUID = 769693993980859776L;
+
+      @Override
+      public String getToolTipText(MouseEvent event) {
+        // show the statistics of all movies
+        return "<html>" + movieList.getStatistics().toString().replace("; ", "<br>") + "</html>";
+      }
+    };
+    lblMovieCountTotal.setToolTipText("");
     panelMovieCount.add(lblMovieCountTotal);
 
     JLayeredPane layeredPaneRight = new JLayeredPane();
@@ -46,7 +46,7 @@ public class MovieMediaInformationAction extends AbstractAction {
     }
     putValue(LARGE_ICON_KEY, new ImageIcon(getClass().getResource("/org/tinymediamanager/ui/images/mediainfo.png")));
     putValue(SMALL_ICON, new ImageIcon(getClass().getResource("/org/tinymediamanager/ui/images/mediainfo.png")));
-    putValue(SHORT_DESCRIPTION, BUNDLE.getString("movie.updatemediainfo")); //$NON-NLS-1$
+    putValue(SHORT_DESCRIPTION, BUNDLE.getString("movie.updatemediainfo.desc")); //$NON-NLS-1$
   }
 
   @Override
@@ -55,7 +55,9 @@ public class MovieMediaInformationAction extends AbstractAction {
 
     // get data of all files within all selected movies
     if (selectedMovies.size() > 0) {
-      TmmThreadPool task = new MovieReloadMediaInformationTask(selectedMovies);
+      // only the changed files; with shift pressed all files
+      boolean onlyChanged = (e.getModifiers() & ActionEvent.SHIFT_MASK) == 0;
+      TmmThreadPool task = new MovieReloadMediaInformationTask(selectedMovies, onlyChanged);
       if (TmmTaskManager.getInstance().addMainTask(task)) {
         JOptionPane.showMessageDialog(null, BUNDLE.getString("onlyoneoperation")); //$NON-NLS-1$
       }
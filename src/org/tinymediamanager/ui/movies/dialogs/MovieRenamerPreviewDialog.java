@@ -20,7 +20,6 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.text.RuleBasedCollator;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -43,6 +42,7 @@ import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 
 import org.tinymediamanager.core.AbstractModelObject;
+import org.tinymediamanager.core.TitleSortKeyService;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.MovieRenamerPreview;
 import org.tinymediamanager.core.movie.MovieRenamerPreviewContainer;
@@ -353,14 +353,9 @@ public class MovieRenamerPreviewDialog extends TmmDialog {
   }
 
   private class ResultComparator implements Comparator<MovieRenamerPreviewContainer> {
-    private RuleBasedCollator stringCollator = (RuleBasedCollator) RuleBasedCollator.getInstance();
-
     @Override
     public int compare(MovieRenamerPreviewContainer result1, MovieRenamerPreviewContainer result2) {
-      if (stringCollator != null) {
-        return stringCollator.compare(result1.getMovie().getTitleSortable().toLowerCase(), result2.getMovie().getTitleSortable().toLowerCase());
-      }
-      return result1.getMovie().getTitleSortable().toLowerCase().compareTo(result2.getMovie().getTitleSortable().toLowerCase());
+      return TitleSortKeyService.COMPARATOR.compare(result1.getMovie(), result2.getMovie());
     }
   }
 
@@ -90,6 +90,7 @@ public class MovieScraperSettingsPanel extends ScrollablePanel {
   private JPanel                      panelAutomaticScraper;
   private JSlider                     sliderThreshold;
   private JCheckBox                   chckbxScraperFallback;
+  private JCheckBox                   chckbxScraperIdentifyByHash;
   private JCheckBox                   chckbxUseTrailerPreferences;
   private JLabel                      lblTrailerSource;
   private JLabel                      lblTrailerQuality;
@@ -117,7 +118,7 @@ public class MovieScraperSettingsPanel extends ScrollablePanel {
         FormFactory.RELATED_GAP_ROWSPEC, FormFactory.DEFAULT_ROWSPEC, FormFactory.NARROW_LINE_GAP_ROWSPEC, FormFactory.DEFAULT_ROWSPEC,
         FormFactory.NARROW_LINE_GAP_ROWSPEC, FormFactory.DEFAULT_ROWSPEC, FormFactory.NARROW_LINE_GAP_ROWSPEC, FormFactory.DEFAULT_ROWSPEC,
         FormFactory.DEFAULT_ROWSPEC, FormFactory.NARROW_LINE_GAP_ROWSPEC, FormFactory.DEFAULT_ROWSPEC, FormFactory.DEFAULT_ROWSPEC,
-        FormFactory.DEFAULT_ROWSPEC, }));
+        FormFactory.DEFAULT_ROWSPEC, FormFactory.DEFAULT_ROWSPEC, }));
 
     cbScraperTmdb = new JHintCheckBox("The Movie Database");
     cbScraperTmdb.setHintIcon(IconManager.HINT);
@@ -179,6 +180,9 @@ public class MovieScraperSettingsPanel extends ScrollablePanel {
     chckbxScraperFallback = new JCheckBox(BUNDLE.getString("Settings.scraperfallback")); //$NON-NLS-1$
     panelMovieScrapers.add(chckbxScraperFallback, "1, 19, 3, 1");
 
+    chckbxScraperIdentifyByHash = new JCheckBox(BUNDLE.getString("Settings.scraperidentifybyhash")); //$NON-NLS-1$
+    panelMovieScrapers.add(chckbxScraperIdentifyByHash, "1, 20, 3, 1");
+
     panelTrailer = new JPanel();
     panelTrailer.setBorder(new TitledBorder(UIManager.getBorder("TitledBorder.border"), BUNDLE.getString("scraper.trailer"), TitledBorder.LEADING,
         TitledBorder.TOP, null, null)); //$NON-NLS-1$
@@ -409,6 +413,11 @@ public class MovieScraperSettingsPanel extends ScrollablePanel {
         settingsBeanProperty_1, chckbxScraperFallback, jCheckBoxBeanProperty);
     autoBinding_1.bind();
     //
+    BeanProperty<Settings, Boolean> settingsBeanProperty_15 = BeanProperty.create("movieSettings.scraperIdentifyByHash");
+    AutoBinding<Settings, Boolean, JCheckBox, Boolean> autoBinding_15 = Bindings.createAutoBinding(UpdateStrategy.READ_WRITE, settings,
+        settingsBeanProperty_15, chckbxScraperIdentifyByHash, jCheckBoxBeanProperty);
+    autoBinding_15.bind();
+    //
     BeanProperty<Settings, Boolean> settingsBeanProperty_5 = BeanProperty.create("movieSettings.useTrailerPreference");
     AutoBinding<Settings, Boolean, JCheckBox, Boolean> autoBinding_5 = Bindings.createAutoBinding(UpdateStrategy.READ_WRITE, settings,
         settingsBeanProperty_5, chckbxUseTrailerPreferences, jCheckBoxBeanProperty);
@@ -21,6 +21,7 @@ import java.util.Comparator;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreeNode;
 
+import org.tinymediamanager.core.TitleSortKeyService;
 import org.tinymediamanager.core.movie.entities.MovieSet;
 
 /**
@@ -51,7 +52,7 @@ public class MovieSetRootTreeNode extends DefaultMutableTreeNode {
           MovieSet movieSet1 = (MovieSet) node1.getUserObject();
           MovieSetTreeNode node2 = (MovieSetTreeNode) o2;
           MovieSet movieSet2 = (MovieSet) node2.getUserObject();
-          return movieSet1.getTitleSortable().compareToIgnoreCase(movieSet2.getTitleSortable());
+          return TitleSortKeyService.COMPARATOR.compare(movieSet1, movieSet2);
         }
         return o1.toString().compareToIgnoreCase(o2.toString());
       }
@@ -40,8 +40,10 @@ import javax.swing.JPanel;
 import javax.swing.JPasswordField;
 import javax.swing.JSeparator;
 import javax.swing.JSlider;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.JTextPane;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.border.TitledBorder;
 
 import org.apache.commons.io.FileUtils;
@@ -119,6 +121,8 @@ public class GeneralSettingsPanel extends ScrollablePanel {
   private JTextPane                   tpMemoryHint;
   private JLabel                      lblMb;
   private JPanel                      panelMisc;
+  private JLabel                      lblMaximumDownloadSpeed;
+  private JSpinner                    spMaximumDownloadSpeed;
 
   /**
    * Instantiates a new general settings panel.
@@ -316,7 +320,7 @@ public class GeneralSettingsPanel extends ScrollablePanel {
     panelMisc.setLayout(new FormLayout(new ColumnSpec[] { FormFactory.RELATED_GAP_COLSPEC, FormFactory.DEFAULT_COLSPEC,
         FormFactory.RELATED_GAP_COLSPEC, ColumnSpec.decode("default:grow"), FormFactory.RELATED_GAP_COLSPEC, }, new RowSpec[] {
         FormFactory.RELATED_GAP_ROWSPEC, FormFactory.DEFAULT_ROWSPEC, FormFactory.RELATED_GAP_ROWSPEC, FormFactory.DEFAULT_ROWSPEC,
-        FormFactory.RELATED_GAP_ROWSPEC, }));
+        FormFactory.RELATED_GAP_ROWSPEC, FormFactory.DEFAULT_ROWSPEC, FormFactory.RELATED_GAP_ROWSPEC, }));
 
     Level[] levels = new Level[] { Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR };
     Level actualLevel = Level.toLevel(Globals.settings.getLogLevel());
@@ -331,6 +335,14 @@ public class GeneralSettingsPanel extends ScrollablePanel {
     panelMisc.add(chckbxDeleteTrash, "2, 4, 3, 1");
     cbLogLevel.addItemListener(listener);
 
+    lblMaximumDownloadSpeed = new JLabel(BUNDLE.getString("Settings.maxdownloadspeed")); //$NON-NLS-1$
+    panelMisc.add(lblMaximumDownloadSpeed, "2, 6");
+
+    spMaximumDownloadSpeed = new JSpinner(new SpinnerNumberModel(0, 0, 1024 * 1024, 100));
+    lblMaximumDownloadSpeed.setLabelFor(spMaximumDownloadSpeed);
+    spMaximumDownloadSpeed.setToolTipText(BUNDLE.getString("Settings.maxdownloadspeed.desc")); //$NON-NLS-1$
+    panelMisc.add(spMaximumDownloadSpeed, "4, 6, left, default");
+
     panelMemory = new JPanel();
     panelMemory.setBorder(new TitledBorder(null, BUNDLE.getString("Settings.memoryborder"), TitledBorder.LEADING, TitledBorder.TOP, null, null)); //$NON-NLS-1$
     add(panelMemory, "2, 8, fill, fill");
@@ -571,5 +583,11 @@ public class GeneralSettingsPanel extends ScrollablePanel {
     AutoBinding<JSlider, Integer, JLabel, String> autoBinding_11 = Bindings.createAutoBinding(UpdateStrategy.READ, sliderMemory, jSliderBeanProperty,
         lblMemory, jLabelBeanProperty);
     autoBinding_11.bind();
+    //
+    BeanProperty<Settings, Integer> settingsBeanProperty_11 = BeanProperty.create("maximumDownloadSpeed");
+    BeanProperty<JSpinner, Object> jSpinnerBeanProperty = BeanProperty.create("value");
+    AutoBinding<Settings, Integer, JSpinner, Object> autoBinding_12 = Bindings.createAutoBinding(UpdateStrategy.READ_WRITE, settings,
+        settingsBeanProperty_11, spMaximumDownloadSpeed, jSpinnerBeanProperty);
+    autoBinding_12.bind();
   }
 }
@@ -40,6 +40,7 @@ import javax.swing.event.DocumentListener;
 
 import org.apache.commons.lang3.StringUtils;
 import org.tinymediamanager.Globals;
+import org.tinymediamanager.core.LibraryStatistics;
 import org.tinymediamanager.core.Settings;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.tvshow.TvShowList;
@@ -329,17 +330,14 @@ public class TvShowExtendedSearchPanel extends RoundedPanel {
   }
 
   private void buildAndInstallCodecArray() {
+    // the codecs are taken from the (sorted) counts of the statistics
     cbVideoCodec.removeAllItems();
-    List<String> codecs = new ArrayList<String>(tvShowList.getVideoCodecsInEpisodes());
-    Collections.sort(codecs);
-    for (String codec : codecs) {
+    for (String codec : tvShowList.getEpisodeStatistics().getCounts(LibraryStatistics.VIDEO_CODEC).keySet()) {
       cbVideoCodec.addItem(codec);
     }
 
     cbAudioCodec.removeAllItems();
-    codecs = new ArrayList<String>(tvShowList.getAudioCodecsInEpisodes());
-    Collections.sort(codecs);
-    for (String codec : codecs) {
+    for (String codec : tvShowList.getEpisodeStatistics().getCounts(LibraryStatistics.AUDIO_CODEC).keySet()) {
       cbAudioCodec.addItem(codec);
     }
   }
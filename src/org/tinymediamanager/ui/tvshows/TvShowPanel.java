@@ -388,7 +388,16 @@ public class TvShowPanel extends JPanel {
     JLabel lblEpisodesT = new JLabel(BUNDLE.getString("metatag.episodes") + ":"); //$NON-NLS-1$
     panel.add(lblEpisodesT, "7, 2");
 
-    lblEpisodes = new JLabel("");
+    lblEpisodes = new JLabel("") {
+      private static final long serialVersionUID = 2742337699966263893L;
+
+      @Override
+      public String getToolTipText(MouseEvent event) {
+        // show the statistics of all episodes
+        return "<html>" + tvShowList.getEpisodeStatistics().toString().replace("; ", "<br>") + "</html>";
+      }
+    };
+    lblEpisodes.setToolTipText("");
     panel.add(lblEpisodes, "9, 2");
 
     JLayeredPane layeredPaneRight = new JLayeredPane();
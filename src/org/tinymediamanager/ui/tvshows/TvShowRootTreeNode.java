@@ -16,7 +16,6 @@
 
 package org.tinymediamanager.ui.tvshows;
 
-import java.text.RuleBasedCollator;
 import java.util.Collections;
 import java.util.Comparator;
 
@@ -24,6 +23,7 @@ import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreeNode;
 
+import org.tinymediamanager.core.TitleSortKeyService;
 import org.tinymediamanager.core.tvshow.entities.TvShow;
 
 /**
@@ -34,7 +34,6 @@ import org.tinymediamanager.core.tvshow.entities.TvShow;
 public class TvShowRootTreeNode extends DefaultMutableTreeNode {
   private static final long    serialVersionUID = 6510900885675830369L;
 
-  private RuleBasedCollator    stringCollator   = (RuleBasedCollator) RuleBasedCollator.getInstance();
   private Comparator<TreeNode> nodeComparator;
 
   /**
@@ -52,10 +51,7 @@ public class TvShowRootTreeNode extends DefaultMutableTreeNode {
           TvShow tvShow1 = (TvShow) node1.getUserObject();
           TvShowTreeNode node2 = (TvShowTreeNode) o2;
           TvShow tvShow2 = (TvShow) node2.getUserObject();
-          if (stringCollator != null) {
-            return stringCollator.compare(tvShow1.getTitleSortable().toLowerCase(), tvShow2.getTitleSortable().toLowerCase());
-          }
-          return tvShow1.getTitleSortable().compareToIgnoreCase(tvShow2.getTitleSortable());
+          return TitleSortKeyService.COMPARATOR.compare(tvShow1, tvShow2);
         }
         return o1.toString().compareToIgnoreCase(o2.toString());
       }
@@ -47,7 +47,7 @@ public class TvShowMediaInformationAction extends AbstractAction {
     }
     putValue(LARGE_ICON_KEY, new ImageIcon(getClass().getResource("/org/tinymediamanager/ui/images/mediainfo.png")));
     putValue(SMALL_ICON, new ImageIcon(getClass().getResource("/org/tinymediamanager/ui/images/mediainfo.png")));
-    putValue(SHORT_DESCRIPTION, BUNDLE.getString("tvshow.updatemediainfo")); //$NON-NLS-1$
+    putValue(SHORT_DESCRIPTION, BUNDLE.getString("tvshow.updatemediainfo.desc")); //$NON-NLS-1$
   }
 
   @Override
@@ -67,7 +67,9 @@ public class TvShowMediaInformationAction extends AbstractAction {
 
     // get data of all files within all selected movies
     if (selectedTvShows.size() > 0 || selectedEpisodes.size() > 0) {
-      TmmThreadPool task = new TvShowReloadMediaInformationTask(selectedTvShows, selectedEpisodes);
+      // only the changed files; with shift pressed all files
+      boolean onlyChanged = (e.getModifiers() & ActionEvent.SHIFT_MASK) == 0;
+      TmmThreadPool task = new TvShowReloadMediaInformationTask(selectedTvShows, selectedEpisodes, onlyChanged);
       if (TmmTaskManager.getInstance().addMainTask(task)) {
         JOptionPane.showMessageDialog(null, BUNDLE.getString("onlyoneoperation")); //$NON-NLS-1$
       }
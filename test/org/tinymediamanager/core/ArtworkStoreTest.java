@@ -0,0 +1,40 @@
+package org.tinymediamanager.core;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ArtworkStoreTest {
+
+  @Test
+  public void contentHash() throws Exception {
+    File folder = new File(System.getProperty("java.io.tmpdir"), "tmm-artworkstore-" + System.nanoTime());
+    try {
+      File poster = new File(folder, "poster.jpg");
+      File fanart = new File(folder, "fanart.jpg");
+      FileUtils.writeStringToFile(poster, "image one");
+      FileUtils.writeStringToFile(fanart, "image two"); // same length, other content
+
+      String posterHash = ArtworkStore.getContentHash(poster);
+      Assert.assertEquals(40, posterHash.length()); // SHA-1
+      Assert.assertFalse(posterHash.equals(ArtworkStore.getContentHash(fanart)));
+
+      // same content -> same hash
+      FileUtils.writeStringToFile(fanart, "image one");
+      fanart.setLastModified(poster.lastModified() - 10000);
+      Assert.assertEquals(posterHash, ArtworkStore.getContentHash(fanart));
+
+      // replaced content with the same length
+      FileUtils.writeStringToFile(poster, "image two");
+      poster.setLastModified(poster.lastModified() - 10000);
+      Assert.assertFalse(posterHash.equals(ArtworkStore.getContentHash(poster)));
+
+      Assert.assertNull(ArtworkStore.getContentHash(new File(folder, "missing.jpg")));
+    }
+    finally {
+      FileUtils.deleteQuietly(folder);
+    }
+  }
+}
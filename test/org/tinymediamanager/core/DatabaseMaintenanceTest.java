@@ -0,0 +1,203 @@
+package org.tinymediamanager.core;
+
+import java.io.File;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Persistence;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DatabaseMaintenanceTest {
+  private File folder;
+  private File db;
+  private File compacted;
+  private File old;
+
+  @Before
+  public void setUp() throws Exception {
+    folder = new File(System.getProperty("java.io.tmpdir"), "tmm-dbmaintenance-" + System.nanoTime());
+    folder.mkdirs();
+    db = new File(folder, "test.odb");
+    compacted = new File(folder, "test.odb.compact.odb");
+    old = new File(folder, "test.odb.old");
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(folder);
+  }
+
+  @Test
+  public void fragmentation() {
+    Assert.assertEquals(0.3, DatabaseMaintenance.computeFragmentation(700, 1000), 0.0001);
+    Assert.assertEquals(0, DatabaseMaintenance.computeFragmentation(1000, 1000), 0.0001);
+    // the compacted copy may be a bit larger than a fresh database file
+    Assert.assertEquals(0, DatabaseMaintenance.computeFragmentation(1200, 1000), 0.0001);
+    Assert.assertEquals(-1, DatabaseMaintenance.computeFragmentation(700, 0), 0.0001);
+  }
+
+  @Test
+  public void recoverInterruptedCompaction() throws Exception {
+    // interrupted while compacting/verifying: the database is untouched, the partial copy is dropped
+    FileUtils.writeStringToFile(db, "db");
+    FileUtils.writeStringToFile(compacted, "part");
+    DatabaseMaintenance.recover(db);
+    Assert.assertEquals("db", FileUtils.readFileToString(db));
+    Assert.assertFalse(compacted.exists());
+    Assert.assertFalse(old.exists());
+  }
+
+  @Test
+  public void recoverInterruptedSwap() throws Exception {
+    // interrupted after db -> db.old: the verified compacted file is swapped in
+    FileUtils.writeStringToFile(old, "db");
+    FileUtils.writeStringToFile(compacted, "compacted");
+    DatabaseMaintenance.recover(db);
+    Assert.assertEquals("compacted", FileUtils.readFileToString(db));
+    Assert.assertFalse(compacted.exists());
+    Assert.assertFalse(old.exists());
+  }
+
+  @Test
+  public void recoverOldFile() throws Exception {
+    // only the old file is left: it is restored
+    FileUtils.writeStringToFile(old, "db");
+    DatabaseMaintenance.recover(db);
+    Assert.assertEquals("db", FileUtils.readFileToString(db));
+    Assert.assertFalse(old.exists());
+  }
+
+  @Test
+  public void recoverFinishedSwap() throws Exception {
+    // interrupted before the old file has been deleted
+    FileUtils.writeStringToFile(db, "compacted");
+    FileUtils.writeStringToFile(old, "db");
+    DatabaseMaintenance.recover(db);
+    Assert.assertEquals("compacted", FileUtils.readFileToString(db));
+    Assert.assertFalse(old.exists());
+  }
+
+  @Test
+  public void compactOnShutdown() {
+    EntityManagerFactory emf = createFragmentedDatabase();
+    DatabaseMaintenance maintenance = new DatabaseMaintenance(db, emf);
+    Assert.assertEquals(Long.valueOf(100), maintenance.getStatistics().getEntityCounts().get("Item"));
+    long size = db.length();
+    maintenance.setCompactOnShutdown(true);
+    maintenance.shutDown();
+
+    Assert.assertFalse(emf.isOpen());
+    Assert.assertFalse(compacted.exists());
+    Assert.assertFalse(old.exists());
+    Assert.assertTrue(db.length() < size);
+    assertItems(100);
+  }
+
+  @Test
+  public void fragmentationIsMeasuredOnShutdown() {
+    // not requested and not measured yet: the fresh file shows that the database is fragmented
+    EntityManagerFactory emf = createFragmentedDatabase();
+    DatabaseMaintenance maintenance = new DatabaseMaintenance(db, emf);
+    Assert.assertFalse(maintenance.isCompactOnShutdown());
+    long size = db.length();
+    maintenance.shutDown();
+
+    Assert.assertFalse(emf.isOpen());
+    Assert.assertFalse(compacted.exists());
+    Assert.assertFalse(old.exists());
+    Assert.assertTrue(db.length() < size);
+    assertItems(100);
+  }
+
+  @Test
+  public void measureFragmentation() throws Exception {
+    EntityManagerFactory emf = createFragmentedDatabase();
+    DatabaseMaintenance maintenance = new DatabaseMaintenance(db, emf);
+    Assert.assertEquals(-1, maintenance.getStatistics().getFragmentation(), 0.0001);
+
+    // measured on an online backup; nothing is kept
+    Assert.assertNull(maintenance.measureFragmentation(folder).get());
+    Assert.assertTrue(maintenance.getStatistics().getFragmentation() > 0.3);
+    Assert.assertTrue(maintenance.isCompactOnShutdown());
+    Assert.assertFalse(new File(folder, "snapshot.tmp").exists());
+    Assert.assertTrue(FileUtils.listFiles(folder, new String[] { "zip" }, true).isEmpty());
+    maintenance.shutDown();
+    assertItems(100);
+  }
+
+  @Test
+  public void noCompactionWithoutRequest() throws Exception {
+    EntityManagerFactory emf = Persistence.createEntityManagerFactory(db.getPath());
+    EntityManager em = emf.createEntityManager();
+    em.getTransaction().begin();
+    em.persist(new Item("item"));
+    em.getTransaction().commit();
+    em.close();
+
+    // the fragmentation is measured on shutdown, but the database file is kept
+    DatabaseMaintenance maintenance = new DatabaseMaintenance(db, emf);
+    Assert.assertFalse(maintenance.isCompactOnShutdown());
+    long size = db.length();
+    maintenance.shutDown();
+    Assert.assertFalse(emf.isOpen());
+    Assert.assertFalse(compacted.exists());
+    Assert.assertFalse(old.exists());
+    Assert.assertEquals(size, db.length());
+    Assert.assertTrue(maintenance.getStatistics().getFragmentation() >= 0);
+  }
+
+  private EntityManagerFactory createFragmentedDatabase() {
+    EntityManagerFactory emf = Persistence.createEntityManagerFactory(db.getPath());
+    EntityManager em = emf.createEntityManager();
+    em.getTransaction().begin();
+    for (int i = 0; i < 2000; i++) {
+      em.persist(new Item("item " + i + " " + new String(new char[200]).replace('\0', 'x')));
+    }
+    em.getTransaction().commit();
+    // free most of the pages
+    em.getTransaction().begin();
+    em.createQuery("DELETE FROM Item i WHERE i.id > 100").executeUpdate();
+    em.getTransaction().commit();
+    em.close();
+    return emf;
+  }
+
+  private void assertItems(long count) {
+    EntityManagerFactory emf = Persistence.createEntityManagerFactory(db.getPath());
+    try {
+      EntityManager em = emf.createEntityManager();
+      Assert.assertEquals(count, ((Number) em.createQuery("SELECT COUNT(i) FROM Item i").getSingleResult()).longValue());
+      em.close();
+    }
+    finally {
+      emf.close();
+    }
+  }
+
+  @Entity
+  public static class Item {
+    @Id
+    @GeneratedValue
+    private long   id;
+    private String name;
+
+    public Item() {
+    }
+
+    public Item(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+}
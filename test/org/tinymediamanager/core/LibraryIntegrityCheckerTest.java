@@ -0,0 +1,65 @@
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.core.LibraryIntegrityChecker.Result;
+import org.tinymediamanager.core.LibraryIntegrityChecker.Status;
+import org.tinymediamanager.core.entities.MediaFile;
+
+public class LibraryIntegrityCheckerTest {
+
+  @Test
+  public void checkFiles() throws Exception {
+    File dir = new File(FileUtils.getTempDirectory(), "tmm_integrity_" + System.currentTimeMillis());
+    File dir2 = new File(dir, "second");
+    FileUtils.forceMkdir(dir2);
+    try {
+      File unchanged = new File(dir, "movie.avi");
+      FileUtils.writeStringToFile(unchanged, "12345");
+      File changed = new File(dir, "movie.nfo");
+      FileUtils.writeStringToFile(changed, "1234567890");
+      File added = new File(dir2, "new.mkv");
+      FileUtils.writeStringToFile(added, "1");
+      File missing = new File(dir2, "missing.avi");
+      // no media file - not reported
+      FileUtils.writeStringToFile(new File(dir2, "checksums.sfv"), "1");
+
+      List<MediaFile> mfs = new ArrayList<MediaFile>();
+      MediaFile mf = new MediaFile(unchanged);
+      mf.setFilesize(5);
+      mfs.add(mf);
+      mf = new MediaFile(changed);
+      mf.setFilesize(5);
+      mfs.add(mf);
+      mfs.add(new MediaFile(missing));
+
+      LibraryIntegrityChecker checker = new LibraryIntegrityChecker(2);
+      checker.addMediaFiles(mfs);
+      List<Result> results = checker.check();
+
+      Assert.assertEquals(3, results.size());
+      Assert.assertEquals(Status.CHANGED, results.get(0).getStatus());
+      Assert.assertEquals(changed.getAbsoluteFile(), results.get(0).getFile().getAbsoluteFile());
+      Assert.assertEquals(Status.MISSING, results.get(1).getStatus());
+      Assert.assertEquals(missing.getAbsoluteFile(), results.get(1).getFile().getAbsoluteFile());
+      Assert.assertEquals(Status.NEW, results.get(2).getStatus());
+      Assert.assertEquals(added.getAbsoluteFile(), results.get(2).getFile().getAbsoluteFile());
+
+      StringWriter writer = new StringWriter();
+      LibraryIntegrityChecker.writeReport(results, writer);
+      String[] lines = writer.toString().split("\n");
+      Assert.assertEquals(4, lines.length);
+      Assert.assertTrue(lines[1].startsWith("CHANGED\t" + changed.getAbsolutePath() + "\t5\t10\t"));
+      Assert.assertTrue(lines[2].startsWith("MISSING\t" + missing.getAbsolutePath() + "\t0\t\t"));
+    }
+    finally {
+      FileUtils.deleteQuietly(dir);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package org.tinymediamanager.core;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LibraryStatisticsTest {
+
+  @Test
+  public void incrementalUpdates() {
+    LibraryStatistics<Item> statistics = new LibraryStatistics<Item>() {
+      @Override
+      protected void collect(Item item, Sample sample) {
+        if (!item.scraped) {
+          sample.flag(UNSCRAPED);
+        }
+        sample.value(VIDEO_FORMAT, item.format);
+        sample.addSize(item.size);
+      }
+    };
+
+    Item item1 = new Item(false, "720p", 100);
+    Item item2 = new Item(true, "1080p", 200);
+    Item item3 = new Item(false, "1080p", 300);
+    statistics.add(item1);
+    statistics.add(item2);
+    statistics.add(item3);
+    // added twice
+    statistics.add(item3);
+
+    Assert.assertEquals(3, statistics.getCount());
+    Assert.assertEquals(600, statistics.getTotalSize());
+    Assert.assertEquals(2, statistics.getCount(LibraryStatistics.UNSCRAPED));
+    Map<String, Integer> formats = statistics.getCounts(LibraryStatistics.VIDEO_FORMAT);
+    Assert.assertEquals(Integer.valueOf(1), formats.get("720p"));
+    Assert.assertEquals(Integer.valueOf(2), formats.get("1080p"));
+
+    // changes are taken from the property change events
+    Assert.assertTrue(statistics.isFlagged(item1, LibraryStatistics.UNSCRAPED));
+    item1.setScraped(true);
+    item1.setFormat("1080p");
+    Assert.assertFalse(statistics.isFlagged(item1, LibraryStatistics.UNSCRAPED));
+    Assert.assertTrue(statistics.hasValue(item1, LibraryStatistics.VIDEO_FORMAT, "1080p"));
+    Assert.assertEquals(1, statistics.getCount(LibraryStatistics.UNSCRAPED));
+    Assert.assertSame(item3, statistics.getEntities(LibraryStatistics.UNSCRAPED).get(0));
+    formats = statistics.getCounts(LibraryStatistics.VIDEO_FORMAT);
+    Assert.assertNull(formats.get("720p"));
+    Assert.assertEquals(Integer.valueOf(3), formats.get("1080p"));
+
+    // removed entities are not observed any more
+    statistics.remove(item3);
+    item3.setFormat("720p");
+    Assert.assertEquals(2, statistics.getCount());
+    Assert.assertEquals(300, statistics.getTotalSize());
+    Assert.assertEquals(0, statistics.getCount(LibraryStatistics.UNSCRAPED));
+    Assert.assertNull(statistics.getCounts(LibraryStatistics.VIDEO_FORMAT).get("720p"));
+    Assert.assertFalse(statistics.isFlagged(item3, LibraryStatistics.UNSCRAPED));
+
+    statistics.clear();
+    Assert.assertEquals(0, statistics.getCount());
+    Assert.assertEquals(0, statistics.getTotalSize());
+  }
+
+  @Test
+  public void multipleValues() {
+    LibraryStatistics<Item> statistics = new LibraryStatistics<Item>() {
+      @Override
+      protected void collect(Item item, Sample sample) {
+        // i.e. the codecs of all audio streams; every entity is counted once per value
+        for (String codec : item.format.split(",")) {
+          sample.value(AUDIO_CODEC, codec);
+        }
+      }
+    };
+    Item item1 = new Item(true, "AC3,DTS,AC3", 0);
+    Item item2 = new Item(true, "AC3", 0);
+    statistics.add(item1);
+    statistics.add(item2);
+
+    Map<String, Integer> codecs = statistics.getCounts(LibraryStatistics.AUDIO_CODEC);
+    Assert.assertEquals(2, codecs.size());
+    Assert.assertEquals(Integer.valueOf(2), codecs.get("AC3"));
+    Assert.assertEquals(Integer.valueOf(1), codecs.get("DTS"));
+    Assert.assertTrue(statistics.hasValue(item1, LibraryStatistics.AUDIO_CODEC, "DTS"));
+    Assert.assertFalse(statistics.hasValue(item2, LibraryStatistics.AUDIO_CODEC, "DTS"));
+
+    item1.setFormat("AAC");
+    codecs = statistics.getCounts(LibraryStatistics.AUDIO_CODEC);
+    Assert.assertEquals(Integer.valueOf(1), codecs.get("AC3"));
+    Assert.assertEquals(Integer.valueOf(1), codecs.get("AAC"));
+    Assert.assertNull(codecs.get("DTS"));
+  }
+
+  @Test
+  public void queriesDoNotWaitForTheEdt() throws Exception {
+    LibraryStatistics<Item> statistics = new LibraryStatistics<Item>() {
+      @Override
+      protected void collect(Item item, Sample sample) {
+        if (!item.scraped) {
+          sample.flag(UNSCRAPED);
+        }
+        sample.addSize(item.size);
+      }
+    };
+    Item item = new Item(true, "720p", 100);
+    statistics.add(item);
+
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    SwingUtilities.invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        blocked.countDown();
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    try {
+      Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+      // the EDT is busy - a change is applied in the firing thread and the queries do not wait for the EDT
+      item.setScraped(false);
+      Assert.assertEquals(1, statistics.getCount(LibraryStatistics.UNSCRAPED));
+      Assert.assertEquals(100, statistics.getTotalSize());
+      Assert.assertTrue(statistics.toString().startsWith("1 entities"));
+    }
+    finally {
+      release.countDown();
+    }
+  }
+
+  private static class Item extends AbstractModelObject {
+    private boolean scraped;
+    private String  format;
+    private long    size;
+
+    private Item(boolean scraped, String format, long size) {
+      this.scraped = scraped;
+      this.format = format;
+      this.size = size;
+    }
+
+    private void setScraped(boolean newValue) {
+      boolean oldValue = scraped;
+      scraped = newValue;
+      firePropertyChange("scraped", oldValue, newValue);
+    }
+
+    private void setFormat(String newValue) {
+      String oldValue = format;
+      format = newValue;
+      firePropertyChange("format", oldValue, newValue);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package org.tinymediamanager.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MediaFileInformationReloaderTest {
+
+  @Test
+  public void getDevice() {
+    List<String> mountPoints = Arrays.asList("/media/movies 2", "/media", "/");
+
+    // unix: the longest mount point
+    Assert.assertEquals("/media/movies 2", MediaFileInformationReloader.getDevice("/media/movies 2/Alien (1979)/alien.mkv", mountPoints));
+    Assert.assertEquals("/media", MediaFileInformationReloader.getDevice("/media/movies 20/Aliens (1986)/aliens.mkv", mountPoints));
+    Assert.assertEquals("/", MediaFileInformationReloader.getDevice("/home/user/movies/alien.mkv", mountPoints));
+
+    // OSX without mount table
+    List<String> none = Collections.emptyList();
+    Assert.assertEquals("/Volumes/Movies", MediaFileInformationReloader.getDevice("/Volumes/Movies/Alien (1979)/alien.mkv", none));
+    Assert.assertEquals("/", MediaFileInformationReloader.getDevice("/Users/user/alien.mkv", none));
+
+    // windows
+    Assert.assertEquals("D:", MediaFileInformationReloader.getDevice("d:\\Movies\\Alien (1979)\\alien.mkv", none));
+    Assert.assertEquals("\\\\nas\\movies", MediaFileInformationReloader.getDevice("\\\\nas\\movies\\Alien (1979)\\alien.mkv", none));
+  }
+}
@@ -0,0 +1,58 @@
+package org.tinymediamanager.core;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NfoReaderTest {
+
+  @Test
+  public void wellFormed() {
+    String nfo = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<movie>\n  <title>Die Hard &amp; Co</title>\n  <year>1988</year>\n"
+        + "  <actor><name>Bruce Willis</name><role>John McClane</role></actor>\n  <fileinfo><streamdetails/></fileinfo>\n</movie>\n";
+    NfoReader.Document document = NfoReader.parse(nfo, new HashSet<String>(Arrays.asList("title", "actor")), "test");
+
+    Assert.assertTrue(document.isComplete());
+    Assert.assertEquals("movie", document.getRoot().getName());
+    Assert.assertEquals("Die Hard & Co", document.getRoot().getChildText("title"));
+    // not wanted
+    Assert.assertNull(document.getRoot().getChild("year"));
+    Assert.assertNull(document.getRoot().getChild("fileinfo"));
+    Assert.assertEquals("John McClane", document.getRoot().getChild("actor").getChildText("role"));
+  }
+
+  @Test
+  public void malformed() {
+    // garbage before the root, bare ampersands, unknown entities and an unclosed element
+    String nfo = "\uFEFFsome garbage\n<movie><title>Die Hard&nbsp;</title>"
+        + "<trailer>plugin://plugin.video.youtube/?action=play_video&videoid=abc</trailer><plot>unclosed</movie>";
+    NfoReader.Document document = NfoReader.parse(nfo, null, "test");
+
+    Assert.assertFalse(document.isComplete());
+    Assert.assertEquals("Die Hard&nbsp;", document.getRoot().getChildText("title"));
+    Assert.assertEquals("plugin://plugin.video.youtube/?action=play_video&videoid=abc", document.getRoot().getChildText("trailer"));
+    // only completed elements are kept
+    Assert.assertNull(document.getRoot().getChild("plot"));
+  }
+
+  @Test
+  public void noXml() {
+    NfoReader.Document document = NfoReader.parse("http://www.imdb.com/title/tt0095016/", null, "test");
+    Assert.assertNull(document.getRoot());
+    Assert.assertEquals("tt0095016", document.detectImdbId());
+  }
+
+  @Test
+  public void readMap() {
+    String nfo = "<movie><ids><entry><key>tmdbId</key><value xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+        + "xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" xsi:type=\"xs:int\">562</value></entry>"
+        + "<entry><key>imdbId</key><value xsi:type=\"xs:string\">tt0095016</value></entry></ids></movie>";
+    Map<String, Object> ids = NfoReader.readMap(NfoReader.parse(nfo, null, "test").getRoot().getChild("ids"));
+
+    Assert.assertEquals(Integer.valueOf(562), ids.get("tmdbId"));
+    Assert.assertEquals("tt0095016", ids.get("imdbId"));
+  }
+}
@@ -1,7 +1,12 @@
 package org.tinymediamanager.core;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.tinymediamanager.scraper.util.ParserUtils;
 
@@ -24,6 +29,28 @@ public class ParserUtilsTest {
     System.out.println(ParserUtils.detectCleanMoviename(f.getName()));
   }
 
+  @Test
+  public void testMovienameAndYearCorpus() throws Exception {
+    // filename, title and year (as detected by the former implementation)
+    List<String[]> corpus = new ArrayList<String[]>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(ParserUtilsTest.class.getResourceAsStream("movieNames.txt"), "UTF-8"));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      corpus.add(line.split("\t", -1));
+    }
+    reader.close();
+
+    ParserUtils.clearCache();
+    for (int run = 0; run < 2; run++) {
+      String prefix = run == 0 ? "uncached: " : "cached: ";
+      for (String[] entry : corpus) {
+        String[] ty = ParserUtils.detectCleanMovienameAndYear(entry[0]);
+        Assert.assertEquals(prefix + entry[0], entry[1], ty[0]);
+        Assert.assertEquals(prefix + entry[0], entry[2], ty[1]);
+      }
+    }
+  }
+
   public void testBadword() {
     File f = new File("/media/Daten/Test_Filme/xxx.avi");
     System.out.println(ParserUtils.detectCleanMoviename(f.getName()));
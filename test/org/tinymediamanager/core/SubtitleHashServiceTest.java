@@ -0,0 +1,60 @@
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.scraper.util.SubtitleUtils;
+
+public class SubtitleHashServiceTest {
+
+  @Test
+  public void computeHashes() throws Exception {
+    File dir = new File(FileUtils.getTempDirectory(), "tmm_hash_" + System.currentTimeMillis());
+    FileUtils.forceMkdir(dir);
+    try {
+      Random random = new Random(42);
+      List<MediaFile> mfs = new ArrayList<MediaFile>();
+      for (int size : new int[] { 1000, 200 * 1024 }) {
+        byte[] content = new byte[size];
+        random.nextBytes(content);
+        File file = new File(dir, "movie" + size + ".avi");
+        FileUtils.writeByteArrayToFile(file, content);
+        mfs.add(new MediaFile(file));
+      }
+      mfs.add(new MediaFile(new File(dir, "movie.nfo")));
+
+      SubtitleHashService service = new SubtitleHashService(2);
+      Assert.assertEquals(2, service.computeHashes(mfs));
+      for (MediaFile mf : mfs.subList(0, 2)) {
+        Assert.assertTrue(mf.isSubtitleHashUpToDate());
+        Assert.assertEquals(SubtitleUtils.computeOpenSubtitlesHash(mf.getFile()), mf.getOpenSubtitlesHash());
+        Assert.assertEquals(SubtitleUtils.computeSubDBHash(mf.getFile()), mf.getSubDbHash());
+      }
+
+      // nothing changed - nothing to hash
+      Assert.assertEquals(0, service.computeHashes(mfs));
+
+      // changed file - hash again
+      File changed = mfs.get(0).getFile();
+      FileUtils.writeStringToFile(changed, "changed");
+      Assert.assertFalse(mfs.get(0).isSubtitleHashUpToDate());
+      Assert.assertEquals(1, service.computeHashes(mfs));
+      Assert.assertEquals(SubtitleUtils.computeOpenSubtitlesHash(changed), mfs.get(0).getOpenSubtitlesHash());
+
+      // the getters return the stored hashes without touching the file
+      String hash = mfs.get(1).getOpenSubtitlesHash();
+      FileUtils.forceDelete(mfs.get(1).getFile());
+      Assert.assertEquals(hash, mfs.get(1).getOpenSubtitlesHash());
+      Assert.assertFalse(mfs.get(1).isSubtitleHashUpToDate());
+    }
+    finally {
+      FileUtils.deleteQuietly(dir);
+    }
+  }
+}
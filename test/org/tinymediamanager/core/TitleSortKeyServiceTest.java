@@ -0,0 +1,56 @@
+package org.tinymediamanager.core;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.core.movie.entities.MovieSet;
+
+public class TitleSortKeyServiceTest {
+
+  @Test
+  public void prefixChanges() {
+    Assert.assertEquals("Untergang, Der", TitleSortKeyService.getSortableName("Der Untergang"));
+    Assert.assertEquals("Le Mans", TitleSortKeyService.getSortableName("Le Mans"));
+
+    Settings.getInstance().addTitlePrefix("Le");
+    try {
+      Assert.assertEquals("Mans, Le", TitleSortKeyService.getSortableName("Le Mans"));
+      Assert.assertEquals("Le Mans", TitleSortKeyService.removeSortableName("Mans, Le"));
+    }
+    finally {
+      Settings.getInstance().removeTitlePrefix("Le");
+    }
+    Assert.assertEquals("Le Mans", TitleSortKeyService.getSortableName("Le Mans"));
+  }
+
+  @Test
+  public void sortKeys() {
+    final Collator collator = Collator.getInstance();
+    List<MovieSet> movieSets = new ArrayList<MovieSet>();
+    String[] titles = { "The Matrix Collection", "Alien Collection", "Ärger Collection", "a Team Collection", "Zorro Collection",
+        "Éclair Collection", "eclair Collection" };
+    for (int i = 0; i < 2500; i++) {
+      movieSets.add(new MovieSet(titles[i % titles.length] + " " + (i % 100)));
+    }
+
+    // parallel rebuild
+    TitleSortKeyService.rebuildSortKeys(movieSets);
+
+    List<MovieSet> sorted = new ArrayList<MovieSet>(movieSets);
+    Collections.sort(sorted, TitleSortKeyService.COMPARATOR);
+    for (int i = 1; i < sorted.size(); i++) {
+      String title1 = sorted.get(i - 1).getTitleSortable().toLowerCase();
+      String title2 = sorted.get(i).getTitleSortable().toLowerCase();
+      Assert.assertTrue(title1 + " > " + title2, collator.compare(title1, title2) <= 0);
+    }
+
+    // a new title invalidates the key
+    MovieSet movieSet = sorted.get(0);
+    movieSet.setTitle("ZZZ");
+    Assert.assertEquals("zzz", movieSet.getTitleSortKey().getSourceString());
+  }
+}
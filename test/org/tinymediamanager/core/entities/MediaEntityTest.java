@@ -0,0 +1,258 @@
+package org.tinymediamanager.core.entities;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.scraper.MediaArtwork.MediaArtworkType;
+
+public class MediaEntityTest {
+  private static final Logger          LOGGER      = LoggerFactory.getLogger(MediaEntityTest.class);
+  private static final File            FOLDER      = new File("/media/movies/Alien (1979)");
+
+  // the media files of a typical movie and the types a table row looks up
+  private static final MediaFileType[] MOVIE_FILES = { MediaFileType.VIDEO, MediaFileType.NFO, MediaFileType.POSTER, MediaFileType.FANART,
+      MediaFileType.BANNER, MediaFileType.CLEARART, MediaFileType.DISCART, MediaFileType.LOGO, MediaFileType.THUMB, MediaFileType.SUBTITLE,
+      MediaFileType.SUBTITLE, MediaFileType.TRAILER                 };
+  private static final MediaFileType[] ROW_TYPES   = { MediaFileType.NFO, MediaFileType.POSTER, MediaFileType.FANART, MediaFileType.SUBTITLE,
+      MediaFileType.TRAILER                         };
+
+  @Test
+  public void reconcileMediaFiles() throws Exception {
+    TestEntity entity = new TestEntity();
+    MediaFile video = new MediaFile(new File(FOLDER, "Alien.mkv"), MediaFileType.VIDEO);
+    MediaFile nfo = new MediaFile(new File(FOLDER, "Alien.nfo"), MediaFileType.NFO);
+    MediaFile poster = new MediaFile(new File(FOLDER, "Alien-poster.jpg"), MediaFileType.POSTER);
+
+    // added files: the persisted list is written on reconcile only
+    entity.addToMediaFiles(Arrays.asList(video, nfo));
+    entity.addToMediaFiles(poster);
+    Assert.assertEquals(3, entity.getMediaFiles().size());
+    Assert.assertTrue(getPersistedMediaFiles(entity).isEmpty());
+    entity.reconcileMediaFiles();
+    assertPersisted(entity, video, nfo, poster);
+
+    // removed file
+    entity.removeFromMediaFiles(nfo);
+    Assert.assertFalse(entity.hasMediaFiles(MediaFileType.NFO));
+    assertPersisted(entity, video, nfo, poster);
+    entity.reconcileMediaFiles();
+    assertPersisted(entity, video, poster);
+
+    // changed file (same instance): indexed under the new type
+    poster.setType(MediaFileType.FANART);
+    entity.addToMediaFiles(poster);
+    Assert.assertFalse(entity.hasMediaFiles(MediaFileType.POSTER));
+    Assert.assertEquals(Arrays.asList(poster), entity.getMediaFiles(MediaFileType.FANART));
+    entity.reconcileMediaFiles();
+    assertPersisted(entity, video, poster);
+
+    // changed file (new instance of the same file): replaces the old one
+    MediaFile extrathumb = new MediaFile(poster.getFile(), MediaFileType.EXTRATHUMB);
+    entity.addToMediaFiles(extrathumb);
+    Assert.assertFalse(entity.hasMediaFiles(MediaFileType.FANART));
+    Assert.assertEquals(2, entity.getMediaFiles().size());
+    entity.reconcileMediaFiles();
+    assertPersisted(entity, video, extrathumb);
+    List<MediaFile> persisted = getPersistedMediaFiles(entity);
+    Assert.assertSame(extrathumb, persisted.get(persisted.indexOf(extrathumb)));
+
+    // nothing changed: the persisted list is left alone
+    getPersistedMediaFiles(entity).clear();
+    entity.reconcileMediaFiles();
+    Assert.assertTrue(getPersistedMediaFiles(entity).isEmpty());
+
+    // all removed
+    entity.removeAllMediaFiles();
+    entity.addToMediaFiles(nfo);
+    entity.reconcileMediaFiles();
+    assertPersisted(entity, nfo);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void unmodifiableSnapshot() {
+    TestEntity entity = new TestEntity();
+    entity.addToMediaFiles(new MediaFile(new File(FOLDER, "Alien.mkv"), MediaFileType.VIDEO));
+    entity.getMediaFiles(MediaFileType.VIDEO).clear();
+  }
+
+  /**
+   * compares the typed lookups of the table rendering and a bulk scan over all media files of the type indexed snapshot with the former list
+   * implementation (a copy/linear scan under the read lock). Prints timings only, so it has to be run manually
+   */
+  @Ignore("benchmark")
+  @Test
+  public void benchmarkMediaFileLookups() {
+    benchmark(500, 200);
+    benchmark(5000, 20);
+  }
+
+  private void benchmark(int movies, int passes) {
+    List<TestEntity> entities = new ArrayList<TestEntity>(movies);
+    List<LegacyMediaFiles> legacy = new ArrayList<LegacyMediaFiles>(movies);
+    for (int i = 0; i < movies; i++) {
+      TestEntity entity = new TestEntity();
+      LegacyMediaFiles legacyEntity = new LegacyMediaFiles();
+      for (int j = 0; j < MOVIE_FILES.length; j++) {
+        MediaFile mf = new MediaFile(new File("/media/movies/movie " + i, "file" + j), MOVIE_FILES[j]);
+        entity.addToMediaFiles(mf);
+        legacyEntity.mediaFiles.add(mf);
+      }
+      entities.add(entity);
+      legacy.add(legacyEntity);
+    }
+
+    // warm up (and both implementations have to find the same)
+    for (int pass = 0; pass < 5; pass++) {
+      Assert.assertEquals(renderRowsLegacy(legacy), renderRows(entities));
+      Assert.assertEquals(scanLegacy(legacy), scan(entities));
+    }
+
+    long legacyRows = 0, rows = 0, legacyScan = 0, bulkScan = 0;
+    for (int pass = 0; pass < passes; pass++) {
+      long start = System.nanoTime();
+      renderRowsLegacy(legacy);
+      legacyRows += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      renderRows(entities);
+      rows += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      scanLegacy(legacy);
+      legacyScan += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      scan(entities);
+      bulkScan += System.nanoTime() - start;
+    }
+    LOGGER.info(String.format("%d movies x %d passes: rows %d ms -> %d ms, bulk scan %d ms -> %d ms", movies, passes, legacyRows / 1000000,
+        rows / 1000000, legacyScan / 1000000, bulkScan / 1000000));
+  }
+
+  private static int renderRows(List<TestEntity> entities) {
+    int found = 0;
+    for (TestEntity entity : entities) {
+      for (MediaFileType type : ROW_TYPES) {
+        if (entity.hasMediaFiles(type)) {
+          found++;
+        }
+      }
+    }
+    return found;
+  }
+
+  private static int renderRowsLegacy(List<LegacyMediaFiles> entities) {
+    int found = 0;
+    for (LegacyMediaFiles entity : entities) {
+      for (MediaFileType type : ROW_TYPES) {
+        if (!entity.getMediaFiles(type).isEmpty()) {
+          found++;
+        }
+      }
+    }
+    return found;
+  }
+
+  private static long scan(List<TestEntity> entities) {
+    long size = 0;
+    for (TestEntity entity : entities) {
+      for (MediaFile mf : entity.getMediaFiles()) {
+        size += mf.getFilename().length();
+      }
+    }
+    return size;
+  }
+
+  private static long scanLegacy(List<LegacyMediaFiles> entities) {
+    long size = 0;
+    for (LegacyMediaFiles entity : entities) {
+      for (MediaFile mf : entity.getMediaFiles()) {
+        size += mf.getFilename().length();
+      }
+    }
+    return size;
+  }
+
+  private static void assertPersisted(MediaEntity entity, MediaFile... expected) throws Exception {
+    List<MediaFile> persisted = getPersistedMediaFiles(entity);
+    Assert.assertEquals(expected.length, persisted.size());
+    Assert.assertTrue(persisted.containsAll(Arrays.asList(expected)));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<MediaFile> getPersistedMediaFiles(MediaEntity entity) throws Exception {
+    Field field = MediaEntity.class.getDeclaredField("mediaFiles");
+    field.setAccessible(true);
+    return (List<MediaFile>) field.get(entity);
+  }
+
+  private static class TestEntity extends MediaEntity {
+    @Override
+    protected EntityManager getEntityManager() {
+      return null;
+    }
+
+    @Override
+    public void saveToDb() {
+    }
+
+    @Override
+    public void deleteFromDb() {
+    }
+
+    @Override
+    public void callbackForWrittenArtwork(MediaArtworkType type) {
+    }
+  }
+
+  /**
+   * the media file handling of MediaEntity before the type index: every access copies/filters the list under the read lock
+   */
+  private static class LegacyMediaFiles {
+    private final List<MediaFile> mediaFiles    = new ArrayList<MediaFile>();
+    private final ReadWriteLock   readWriteLock = new ReentrantReadWriteLock();
+
+    private List<MediaFile> getMediaFiles() {
+      List<MediaFile> mf = new ArrayList<MediaFile>();
+      readWriteLock.readLock().lock();
+      try {
+        mf.addAll(mediaFiles);
+      }
+      finally {
+        readWriteLock.readLock().unlock();
+      }
+      return mf;
+    }
+
+    private List<MediaFile> getMediaFiles(MediaFileType... types) {
+      List<MediaFile> mf = new ArrayList<MediaFile>();
+      readWriteLock.readLock().lock();
+      for (MediaFile mediaFile : mediaFiles) {
+        boolean match = false;
+        for (MediaFileType type : types) {
+          if (mediaFile.getType().equals(type)) {
+            match = true;
+          }
+        }
+        if (match) {
+          mf.add(mediaFile);
+        }
+      }
+      readWriteLock.readLock().unlock();
+      return mf;
+    }
+  }
+}
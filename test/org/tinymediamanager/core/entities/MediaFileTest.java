@@ -0,0 +1,145 @@
+package org.tinymediamanager.core.entities;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tinymediamanager.core.MediaFileType;
+
+public class MediaFileTest {
+  // a fixed date (in full seconds, like the file systems with the coarsest resolution)
+  private static final long DATE = 1400000000000L;
+
+  private File              file;
+
+  @Before
+  public void setUp() throws Exception {
+    file = File.createTempFile("tmm_mediainfo", ".mkv");
+    byte[] content = new byte[200 * 1024];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    FileUtils.writeByteArrayToFile(file, content);
+    Assert.assertTrue(file.setLastModified(DATE));
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(file);
+  }
+
+  @Test
+  public void outdatedWithoutMediaInformation() throws Exception {
+    MediaFile mf = new MediaFile(file, MediaFileType.VIDEO);
+    Assert.assertTrue(mf.isMediaInformationOutdated());
+    Assert.assertFalse(mf.recordMediaInformationFingerprint());
+
+    // nothing to gather for disc images
+    File iso = new File(file.getParentFile(), "movie.iso");
+    MediaFile isoMf = new MediaFile(iso, MediaFileType.VIDEO);
+    isoMf.setContainerFormat("iso");
+    Assert.assertFalse(isoMf.isMediaInformationOutdated());
+  }
+
+  @Test
+  public void legacyMediaInformation() throws Exception {
+    // media information of older versions: only the size/date read by mediainfo (in seconds) are known
+    MediaFile mf = createGathered(0, 0);
+    setField(mf, "filesize", file.length());
+    setField(mf, "filedate", DATE + 400);
+    Assert.assertFalse(mf.isMediaInformationOutdated());
+
+    setField(mf, "filedate", DATE - 1000);
+    Assert.assertTrue(mf.isMediaInformationOutdated());
+    setField(mf, "filedate", DATE);
+    setField(mf, "filesize", file.length() + 1);
+    Assert.assertTrue(mf.isMediaInformationOutdated());
+
+    // the first check of an unchanged file upgrades it to the fingerprint
+    setField(mf, "filesize", file.length());
+    Assert.assertFalse(mf.isMediaInformationOutdated());
+    Assert.assertTrue(mf.recordMediaInformationFingerprint());
+    Assert.assertEquals(file.length(), getField(mf, "mediaInfoFilesize"));
+    Assert.assertEquals(DATE, getField(mf, "mediaInfoFiledate"));
+    Assert.assertFalse(mf.recordMediaInformationFingerprint());
+    Assert.assertFalse(mf.isMediaInformationOutdated());
+  }
+
+  @Test
+  public void sizeAndDate() throws Exception {
+    MediaFile mf = createGathered(file.length(), DATE);
+    Assert.assertFalse(mf.isMediaInformationOutdated());
+
+    // changed date
+    Assert.assertTrue(file.setLastModified(DATE + 2000));
+    Assert.assertTrue(mf.isMediaInformationOutdated());
+    Assert.assertTrue(file.setLastModified(DATE));
+    Assert.assertFalse(mf.isMediaInformationOutdated());
+
+    // changed size
+    FileUtils.writeByteArrayToFile(file, new byte[] { 1 }, true);
+    Assert.assertTrue(file.setLastModified(DATE));
+    Assert.assertTrue(mf.isMediaInformationOutdated());
+
+    // empty file
+    FileUtils.writeByteArrayToFile(file, new byte[0]);
+    Assert.assertTrue(mf.isMediaInformationOutdated());
+  }
+
+  @Test
+  public void fingerprint() throws Exception {
+    MediaFile mf = createGathered(file.length(), DATE);
+
+    // without fingerprint a change of the content with the same size/date is not detected
+    changeContent();
+    Assert.assertFalse(mf.isMediaInformationOutdated());
+
+    // with fingerprint it is
+    Assert.assertTrue(mf.recordMediaInformationFingerprint());
+    Assert.assertFalse(mf.isMediaInformationOutdated());
+    changeContent();
+    Assert.assertTrue(mf.isMediaInformationOutdated());
+  }
+
+  private MediaFile createGathered(long mediaInfoFilesize, long mediaInfoFiledate) throws Exception {
+    MediaFile mf = new MediaFile(file, MediaFileType.VIDEO);
+    mf.setContainerFormat("mkv");
+    setField(mf, "mediaInfoFilesize", mediaInfoFilesize);
+    setField(mf, "mediaInfoFiledate", mediaInfoFiledate);
+    return mf;
+  }
+
+  /**
+   * change a byte in the head of the file, but keep the size and the date
+   */
+  private void changeContent() throws Exception {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(10);
+      int value = raf.read();
+      raf.seek(10);
+      raf.write(value + 1);
+    }
+    finally {
+      raf.close();
+    }
+    Assert.assertTrue(file.setLastModified(DATE));
+  }
+
+  private static void setField(MediaFile mf, String name, long value) throws Exception {
+    Field field = MediaFile.class.getDeclaredField(name);
+    field.setAccessible(true);
+    field.setLong(mf, value);
+  }
+
+  private static long getField(MediaFile mf, String name) throws Exception {
+    Field field = MediaFile.class.getDeclaredField(name);
+    field.setAccessible(true);
+    return field.getLong(mf);
+  }
+}
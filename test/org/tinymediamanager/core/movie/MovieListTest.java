@@ -0,0 +1,102 @@
+package org.tinymediamanager.core.movie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tinymediamanager.core.TmmModuleManager;
+import org.tinymediamanager.core.movie.entities.MovieSet;
+import org.tinymediamanager.scraper.MediaMetadata;
+
+public class MovieListTest {
+  private final List<MovieSet> createdSets = new ArrayList<MovieSet>();
+  private final String         prefix      = "MovieListTest " + System.nanoTime() + " ";
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TmmModuleManager.getInstance().startUp();
+    MovieModuleManager.getInstance().startUp();
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    MovieModuleManager.getInstance().shutDown();
+    TmmModuleManager.getInstance().shutDown();
+  }
+
+  @After
+  public void tearDown() {
+    for (MovieSet movieSet : createdSets) {
+      if (MovieList.getInstance().getMovieSetList().contains(movieSet)) {
+        MovieList.getInstance().removeMovieSet(movieSet);
+      }
+    }
+  }
+
+  @Test
+  public void movieSetByTitle() {
+    MovieList movieList = MovieList.getInstance();
+    MovieSet movieSet = create(prefix + "Alien");
+
+    Assert.assertSame(movieSet, movieList.getMovieSet(prefix + "Alien", 0));
+    // a changed title invalidates the index (also if the change event is still pending on the EDT)
+    movieSet.setTitle(prefix + "Alien Collection");
+    Assert.assertSame(movieSet, movieList.getMovieSet(prefix + "Alien Collection", 0));
+
+    // the old title is unknown now - a new movie set is created
+    MovieSet newSet = movieList.getMovieSet(prefix + "Alien", 0);
+    createdSets.add(newSet);
+    Assert.assertNotSame(movieSet, newSet);
+    Assert.assertSame(newSet, movieList.getMovieSet(prefix + "Alien", 0));
+  }
+
+  @Test
+  public void movieSetByTmdbId() {
+    MovieList movieList = MovieList.getInstance();
+    MovieSet movieSet = create(prefix + "Matrix");
+    int tmdbId = 900000000 + (int) (System.nanoTime() % 1000000);
+
+    // a changed tmdb id invalidates the index; the tmdb id is preferred over the title
+    movieSet.setTmdbId(tmdbId);
+    Assert.assertSame(movieSet, movieList.getMovieSet(prefix + "The Matrix Collection", tmdbId));
+
+    MediaMetadata md = new MediaMetadata("tmdb");
+    md.storeMetadata(MediaMetadata.TMDBID_SET, tmdbId);
+    md.storeMetadata(MediaMetadata.COLLECTION_NAME, prefix + "The Matrix Collection");
+    Assert.assertSame(movieSet, movieList.getMovieSet(md));
+
+    // no collection in the metadata
+    Assert.assertNull(movieList.getMovieSet(new MediaMetadata("tmdb")));
+  }
+
+  @Test
+  public void duplicateTitles() {
+    MovieList movieList = MovieList.getInstance();
+    MovieSet first = create(prefix + "Duplicate");
+    MovieSet second = create(prefix + "Duplicate");
+
+    // the first movie set wins (like the former linear search)
+    Assert.assertSame(first, movieList.getMovieSet(prefix + "Duplicate", 0));
+
+    // also after a rebuild of the index
+    MovieSet other = create(prefix + "Other");
+    movieList.removeMovieSet(other);
+    Assert.assertSame(first, movieList.getMovieSet(prefix + "Duplicate", 0));
+
+    // a removed movie set is not found any more
+    movieList.removeMovieSet(first);
+    Assert.assertSame(second, movieList.getMovieSet(prefix + "Duplicate", 0));
+  }
+
+  private MovieSet create(String title) {
+    MovieSet movieSet = new MovieSet(title);
+    movieSet.saveToDb();
+    MovieList.getInstance().addMovieSet(movieSet);
+    createdSets.add(movieSet);
+    return movieSet;
+  }
+}
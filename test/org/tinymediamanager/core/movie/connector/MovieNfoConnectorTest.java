@@ -0,0 +1,141 @@
+package org.tinymediamanager.core.movie.connector;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * the streaming NFO reader has to fill the connectors exactly like the JAXB unmarshaller did
+ */
+public class MovieNfoConnectorTest {
+  private static final String NAMESPACES = "xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"";
+  private static final String IDS        = "  <ids>\n"
+                                             + "    <entry><key>tmdbId</key><value xsi:type=\"xs:int\">19995</value></entry>\n"
+                                             + "    <entry><key>imdbId</key><value xsi:type=\"xs:string\">tt0499549</value></entry>\n"
+                                             + "  </ids>\n";
+
+  @Test
+  public void xbmcConnector() throws Exception {
+    String nfo = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<movie " + NAMESPACES + ">\n"
+        + "  <title>Avatar &amp; Co</title>\n  <originaltitle>Avatar</originaltitle>\n  <set>Avatar Collection</set>\n"
+        + "  <sorttitle>Avatar 1</sorttitle>\n  <rating>7.9</rating>\n  <year>2009</year>\n  <top250>12</top250>\n  <votes>4711</votes>\n"
+        + "  <outline>outline</outline>\n  <plot>In the 22nd century, a paraplegic Marine is dispatched to the moon Pandora.</plot>\n"
+        + "  <tagline>Enter the World</tagline>\n  <runtime>162</runtime>\n  <thumb>http://image.tmdb.org/poster.jpg</thumb>\n"
+        + "  <fanart>http://image.tmdb.org/fanart.jpg</fanart>\n  <mpaa>PG-13</mpaa>\n  <certification>PG-13</certification>\n"
+        + "  <id>tt0499549</id>\n" + IDS + "  <tmdbId>19995</tmdbId>\n"
+        + "  <trailer>http://www.youtube.com/watch?v=5PSNL1qE6VY</trailer>\n  <country>USA</country>\n  <premiered>2009-12-10</premiered>\n"
+        + "  <fileinfo><streamdetails><video><codec>h264</codec></video></streamdetails></fileinfo>\n  <watched>true</watched>\n"
+        + "  <playcount>2</playcount>\n  <genre>Action</genre>\n  <genre>Science Fiction</genre>\n  <studio>20th Century Fox</studio>\n"
+        + "  <credits>James Cameron</credits>\n  <director>James Cameron</director>\n  <tag>3d</tag>\n  <tag>pandora</tag>\n"
+        + "  <actor>\n    <name>Sam Worthington</name>\n    <role>Jake Sully</role>\n    <thumb>http://image.tmdb.org/sam.jpg</thumb>\n  </actor>\n"
+        + "  <actor>\n    <name>Zoe Saldana</name>\n    <role>Neytiri</role>\n  </actor>\n"
+        + "  <producer>\n    <name>Jon Landau</name>\n    <role>Producer</role>\n  </producer>\n  <languages>English</languages>\n"
+        + "</movie>\n";
+    File file = writeNfo(nfo);
+    try {
+      MovieToXbmcNfoConnector jaxb = MovieToXbmcNfoConnector.parseNFO(file);
+      MovieToXbmcNfoConnector stax = MovieToXbmcNfoConnector.parseNFO(MovieToXbmcNfoConnector.readNfo(file).getRoot());
+
+      assertSameFields(jaxb, stax, "title", "originaltitle", "sorttitle", "set", "year", "premiered", "plot", "tagline", "runtime", "thumb", "fanart",
+          "id", "ids", "tmdbId", "rating", "votes", "top250", "studio", "country", "mpaa", "certifications", "watched", "playcount", "languages",
+          "trailer", "director", "credits", "genres", "tags");
+      Assert.assertEquals("Avatar & Co", getField(stax, "title"));
+      Assert.assertEquals(Integer.valueOf(19995), ((Map<?, ?>) getField(stax, "ids")).get("tmdbId"));
+      Assert.assertEquals(describe(jaxb.getActors()), describe(stax.getActors()));
+      Assert.assertEquals(2, stax.getActors().size());
+      Assert.assertEquals(describe(jaxb.getProducers()), describe(stax.getProducers()));
+      Assert.assertEquals(1, stax.getProducers().size());
+    }
+    finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  @Test
+  public void mpConnector() throws Exception {
+    String nfo = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<movie " + NAMESPACES + ">\n"
+        + "  <title>Avatar &amp; Co</title>\n  <originaltitle>Avatar</originaltitle>\n  <sorttitle>Avatar 1</sorttitle>\n"
+        + "  <sets>\n    <set order=\"1\">Avatar Collection</set>\n  </sets>\n  <rating>7.9</rating>\n  <year>2009</year>\n  <votes>4711</votes>\n"
+        + "  <outline>outline</outline>\n  <plot>In the 22nd century, a paraplegic Marine is dispatched to the moon Pandora.</plot>\n"
+        + "  <tagline>Enter the World</tagline>\n  <runtime>162</runtime>\n  <thumb>http://image.tmdb.org/poster.jpg</thumb>\n"
+        + "  <fanart>\n    <thumb>http://image.tmdb.org/fanart.jpg</thumb>\n  </fanart>\n  <mpaa>PG-13</mpaa>\n  <imdb>tt0499549</imdb>\n" + IDS
+        + "  <genres>\n    <genre>Action</genre>\n    <genre>Science Fiction</genre>\n  </genres>\n  <studio>20th Century Fox</studio>\n"
+        + "  <country>USA</country>\n  <premiered>2009-12-10</premiered>\n  <credits>James Cameron</credits>\n  <director>James Cameron</director>\n"
+        + "  <actor>\n    <name>Sam Worthington</name>\n    <role>Jake Sully</role>\n    <thumb>http://image.tmdb.org/sam.jpg</thumb>\n  </actor>\n"
+        + "  <actor>\n    <name>Zoe Saldana</name>\n    <role>Neytiri</role>\n  </actor>\n"
+        + "  <producer>\n    <name>Jon Landau</name>\n    <role>Producer</role>\n  </producer>\n</movie>\n";
+    File file = writeNfo(nfo);
+    try {
+      MovieToMpNfoConnector jaxb = MovieToMpNfoConnector.parseNFO(file);
+      MovieToMpNfoConnector stax = MovieToMpNfoConnector.parseNFO(MovieToMpNfoConnector.readNfo(file).getRoot());
+
+      // fanart and thumb are not mapped to the movie, so the streaming reader skips them
+      assertSameFields(jaxb, stax, "id", "title", "originaltitle", "sorttitle", "rating", "votes", "year", "plot", "tagline", "runtime", "director",
+          "studio", "mpaa", "credits", "country", "premiered", "genres", "sets", "ids");
+      Assert.assertEquals("Avatar & Co", getField(stax, "title"));
+      Assert.assertEquals(Integer.valueOf(19995), ((Map<?, ?>) getField(stax, "ids")).get("tmdbId"));
+      Assert.assertEquals(1, ((List<?>) getField(stax, "sets")).size());
+      Assert.assertEquals(describe(jaxb.getActors()), describe(stax.getActors()));
+      Assert.assertEquals(2, stax.getActors().size());
+      Assert.assertEquals(describe(jaxb.getProducers()), describe(stax.getProducers()));
+      Assert.assertEquals(1, stax.getProducers().size());
+    }
+    finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  @Test
+  public void imdbIdBehindError() throws Exception {
+    // the parser stops at the unclosed plot - the IMDB id behind it is found in the raw content
+    String nfo = "<movie><title>Avatar</title><plot>unclosed</movie>\nhttp://www.imdb.com/title/tt0499549/\n";
+    File file = writeNfo(nfo);
+    try {
+      Assert.assertEquals("tt0499549", MovieToXbmcNfoConnector.getData(file).getImdbId());
+      Assert.assertEquals("tt0499549", MovieToMpNfoConnector.getData(file).getImdbId());
+    }
+    finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  private static File writeNfo(String content) throws Exception {
+    File file = File.createTempFile("tmm_nfo", ".nfo");
+    FileUtils.writeStringToFile(file, content, "UTF-8");
+    return file;
+  }
+
+  private static Object getField(Object object, String name) throws Exception {
+    Field field = object.getClass().getDeclaredField(name);
+    field.setAccessible(true);
+    return field.get(object);
+  }
+
+  private static void assertSameFields(Object expected, Object actual, String... fields) throws Exception {
+    for (String name : fields) {
+      Assert.assertEquals(name, describe(getField(expected, name)), describe(getField(actual, name)));
+    }
+  }
+
+  private static Object describe(Object value) {
+    if (value instanceof List) {
+      List<Object> described = new ArrayList<Object>();
+      for (Object element : (List<?>) value) {
+        described.add(describe(element));
+      }
+      return described;
+    }
+    if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Map) {
+      return value;
+    }
+    return ToStringBuilder.reflectionToString(value, ToStringStyle.SHORT_PREFIX_STYLE);
+  }
+}
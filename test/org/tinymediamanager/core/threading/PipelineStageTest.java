@@ -0,0 +1,131 @@
+package org.tinymediamanager.core.threading;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PipelineStageTest {
+
+  @Test
+  public void ordering() throws Exception {
+    final List<Integer> first = Collections.synchronizedList(new ArrayList<Integer>());
+    final List<Integer> second = Collections.synchronizedList(new ArrayList<Integer>());
+
+    PipelineStage<Integer> stage = new RecordingStage("first", first);
+    stage.setNext(new RecordingStage("second", second));
+    stage.start();
+
+    List<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < 100; i++) {
+      stage.submit(i);
+      expected.add(i);
+    }
+    stage.close();
+    stage.awaitCompletion();
+
+    // one worker per stage keeps the order through the whole pipeline
+    Assert.assertEquals(expected, first);
+    Assert.assertEquals(expected, second);
+  }
+
+  @Test
+  public void closeAndAwaitCompletion() throws Exception {
+    final AtomicInteger processed = new AtomicInteger();
+    final List<Integer> handedOver = Collections.synchronizedList(new ArrayList<Integer>());
+
+    PipelineStage<Integer> stage = new PipelineStage<Integer>("filter", 4, 5) {
+      @Override
+      protected boolean process(Integer item) throws Exception {
+        Thread.sleep(1);
+        processed.incrementAndGet();
+        if (item == 13) {
+          throw new Exception("crash");
+        }
+        // only the even items are handed over
+        return item % 2 == 0;
+      }
+    };
+    stage.setNext(new RecordingStage("collect", handedOver));
+    stage.start();
+
+    for (int i = 0; i < 50; i++) {
+      stage.submit(i);
+    }
+    stage.close();
+    stage.awaitCompletion();
+
+    // the queued items are finished before the stages complete; the next stage has been closed by the first one
+    Assert.assertEquals(50, processed.get());
+    Assert.assertEquals(25, handedOver.size());
+    Assert.assertTrue(stage.getSummary().startsWith("filter: 50 processed, 25 failed"));
+    Assert.assertTrue(stage.getSummary().contains("collect: 25 processed, 0 failed"));
+  }
+
+  @Test
+  public void backPressure() throws Exception {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final PipelineStage<Integer> stage = new PipelineStage<Integer>("blocking", 1, 1) {
+      @Override
+      protected boolean process(Integer item) throws Exception {
+        blocked.countDown();
+        release.await();
+        return true;
+      }
+    };
+    stage.start();
+
+    // the worker takes the first item and blocks; the second fills the queue
+    stage.submit(1);
+    Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    stage.submit(2);
+
+    final CountDownLatch submitted = new CountDownLatch(1);
+    Thread producer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          stage.submit(3);
+          submitted.countDown();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    producer.start();
+
+    // the queue is full - the producer has to wait for the stage
+    Assert.assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+
+    release.countDown();
+    Assert.assertTrue(submitted.await(5, TimeUnit.SECONDS));
+    producer.join();
+
+    stage.close();
+    stage.awaitCompletion();
+    Assert.assertTrue(stage.getSummary().startsWith("blocking: 3 processed, 0 failed"));
+  }
+
+  private static class RecordingStage extends PipelineStage<Integer> {
+    private final List<Integer> items;
+
+    RecordingStage(String name, List<Integer> items) {
+      super(name, 1, 10);
+      this.items = items;
+    }
+
+    @Override
+    protected boolean process(Integer item) throws Exception {
+      items.add(item);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package org.tinymediamanager.core.threading;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.tinymediamanager.core.threading.PriorityTaskScheduler.Lane;
+import org.tinymediamanager.core.threading.TmmTaskManager.TaskPriority;
+
+public class PriorityTaskSchedulerTest {
+  private final AtomicLong      openTasks = new AtomicLong();
+  private final TmmTaskMetrics  metrics   = new TmmTaskMetrics(openTasks);
+  private final List<String>    executed  = Collections.synchronizedList(new ArrayList<String>());
+  private PriorityTaskScheduler scheduler;
+
+  @Before
+  public void setUp() {
+    scheduler = new PriorityTaskScheduler(2, new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void highestPriorityFirst() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch releaseOther = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(2);
+
+    // occupy both workers
+    Lane blocker = createLane(TaskPriority.BACKGROUND, 1);
+    Lane otherBlocker = createLane(TaskPriority.BACKGROUND, 1);
+    blocker.execute(block(started, release));
+    otherBlocker.execute(block(started, releaseOther));
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    Lane background = createLane(TaskPriority.BACKGROUND, 1);
+    Lane main = createLane(TaskPriority.MAIN, 1);
+    Lane interactive = createLane(TaskPriority.INTERACTIVE, 1);
+    background.execute(record("background"));
+    main.execute(record("main"));
+    interactive.execute(record("interactive"));
+    Assert.assertEquals(5, openTasks.get());
+
+    // the free worker takes the queued tasks by their priority class
+    release.countDown();
+    awaitTermination(background, main, interactive);
+    Assert.assertEquals(3, executed.size());
+    Assert.assertEquals("interactive", executed.get(0));
+    Assert.assertEquals("main", executed.get(1));
+    Assert.assertEquals("background", executed.get(2));
+
+    releaseOther.countDown();
+    awaitTermination(blocker, otherBlocker);
+    Assert.assertEquals(0, openTasks.get());
+  }
+
+  @Test
+  public void laneKeepsOrderAndDiscards() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+
+    Lane lane = createLane(TaskPriority.MAIN, 1);
+    lane.execute(block(started, release));
+    for (int i = 0; i < 5; i++) {
+      lane.execute(record("task " + i));
+    }
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    // the running task is counted until it has finished
+    Assert.assertEquals(6, lane.getOpenTasks());
+    Assert.assertEquals(5, metrics.getQueueLength());
+    Assert.assertEquals(6, openTasks.get());
+    release.countDown();
+    awaitTermination(lane);
+    Assert.assertEquals(0, openTasks.get());
+    Assert.assertEquals(5, executed.size());
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals("task " + i, executed.get(i));
+    }
+
+    // the queued tasks are discarded, the running one is finished
+    executed.clear();
+    release = new CountDownLatch(1);
+    started = new CountDownLatch(1);
+    lane = createLane(TaskPriority.MAIN, 1);
+    lane.execute(block(started, release));
+    lane.execute(record("discarded"));
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(1, lane.discardQueuedTasks());
+    Assert.assertEquals(0, metrics.getQueueLength());
+    Assert.assertEquals(1, openTasks.get());
+    release.countDown();
+    awaitTermination(lane);
+    Assert.assertTrue(executed.isEmpty());
+    Assert.assertEquals(0, openTasks.get());
+  }
+
+  private Lane createLane(TaskPriority priority, int maxConcurrency) {
+    return scheduler.createLane(priority, maxConcurrency, metrics, null, null);
+  }
+
+  private Runnable record(final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        executed.add(name);
+      }
+    };
+  }
+
+  private static Runnable block(final CountDownLatch started, final CountDownLatch release) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          release.await();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+  }
+
+  private static void awaitTermination(Lane... lanes) throws InterruptedException {
+    for (Lane lane : lanes) {
+      lane.shutdown();
+      Assert.assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+    }
+  }
+}
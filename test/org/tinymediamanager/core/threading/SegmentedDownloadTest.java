@@ -0,0 +1,253 @@
+package org.tinymediamanager.core.threading;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class SegmentedDownloadTest {
+  private static final Pattern RANGE    = Pattern.compile("bytes=(\\d+)-(\\d*)");
+  private static final int     SIZE     = 10 * 1024 * 1024 + 123;
+
+  private final List<String>   ranges   = Collections.synchronizedList(new ArrayList<String>());
+  private final List<String>   ifRanges = Collections.synchronizedList(new ArrayList<String>());
+  private byte[]               content;
+  private String               etag;
+  private boolean              rangeSupport;
+  private HttpServer           server;
+  private File                 dir;
+
+  @Before
+  public void setUp() throws Exception {
+    content = new byte[SIZE];
+    new Random(42).nextBytes(content);
+    etag = "\"v1\"";
+    rangeSupport = true;
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/trailer.mov", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        ranges.add(String.valueOf(range));
+        ifRanges.add(String.valueOf(ifRange));
+
+        int from = 0;
+        int to = content.length - 1;
+        Matcher matcher = RANGE.matcher(String.valueOf(range));
+        // a changed file is sent completely
+        boolean partial = rangeSupport && matcher.matches() && (ifRange == null || ifRange.equals(etag));
+        if (partial) {
+          from = Integer.parseInt(matcher.group(1));
+          if (!matcher.group(2).isEmpty()) {
+            to = Math.min(to, Integer.parseInt(matcher.group(2)));
+          }
+          if (from >= content.length) {
+            exchange.getResponseHeaders().add("Content-Range", "bytes */" + content.length);
+            exchange.sendResponseHeaders(416, -1);
+            exchange.close();
+            return;
+          }
+          exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + to + "/" + content.length);
+        }
+        exchange.getResponseHeaders().add("Content-Type", "video/quicktime");
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.sendResponseHeaders(partial ? 206 : 200, to - from + 1);
+        OutputStream os = exchange.getResponseBody();
+        try {
+          os.write(content, from, to - from + 1);
+        }
+        catch (IOException e) {
+          // client closed the connection
+        }
+        finally {
+          exchange.close();
+        }
+      }
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+
+    dir = new File(FileUtils.getTempDirectory(), "tmm_download_" + System.currentTimeMillis());
+    FileUtils.forceMkdir(dir);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.stop(0);
+    FileUtils.deleteQuietly(dir);
+  }
+
+  private String getUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/trailer.mov";
+  }
+
+  private void writeState(File partFile, String validator, long... segments) throws IOException {
+    StringBuilder sb = new StringBuilder(getUrl()).append("\n").append(validator).append("\n").append(SIZE).append("\n");
+    for (int i = 0; i < segments.length; i += 3) {
+      sb.append(segments[i]).append(" ").append(segments[i + 1]).append(" ").append(segments[i + 2]).append("\n");
+    }
+    FileUtils.writeStringToFile(new File(partFile.getPath() + ".segments"), sb.toString(), "UTF-8");
+  }
+
+  private SegmentedDownload createDownload(File partFile) {
+    SegmentedDownload download = new SegmentedDownload(getUrl(), partFile);
+    download.setMinSegmentSize(1024 * 1024);
+    download.setBandwidthLimiter(null);
+    return download;
+  }
+
+  @Test
+  public void segmentedDownload() throws Exception {
+    File partFile = new File(dir, "trailer.mov.part");
+    SegmentedDownload download = createDownload(partFile);
+
+    Assert.assertTrue(download.download());
+    Assert.assertEquals(SIZE, download.getContentLength());
+    Assert.assertEquals(SIZE, download.getBytesDone());
+    Assert.assertEquals("video/quicktime", download.getContentType());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(partFile)));
+    Assert.assertFalse(new File(dir, "trailer.mov.part.segments").exists());
+
+    // first request + 3 other segments
+    Assert.assertEquals(4, ranges.size());
+    Assert.assertEquals("bytes=0-", ranges.get(0));
+  }
+
+  @Test
+  public void resumeSequentialDownload() throws Exception {
+    File partFile = new File(dir, "trailer.mov.part");
+    FileUtils.writeByteArrayToFile(partFile, Arrays.copyOf(content, 9 * 1024 * 1024));
+    writeState(partFile, etag, 0, SIZE, 9 * 1024 * 1024);
+
+    SegmentedDownload download = createDownload(partFile);
+    Assert.assertTrue(download.download());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(partFile)));
+    Assert.assertEquals("bytes=" + (9 * 1024 * 1024) + "-", ranges.get(0));
+    Assert.assertEquals(etag, ifRanges.get(0));
+    Assert.assertEquals(1, ranges.size());
+
+    // the part file is already complete
+    ranges.clear();
+    writeState(partFile, etag, 0, SIZE, SIZE);
+    download = createDownload(partFile);
+    Assert.assertTrue(download.download());
+    Assert.assertEquals(1, ranges.size());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(partFile)));
+  }
+
+  @Test
+  public void interruptedDownloadSavesProgress() throws Exception {
+    File partFile = new File(dir, "trailer.mov.part");
+    SegmentedDownload download = createDownload(partFile);
+    download.setMaxSegments(1);
+    download.setBandwidthLimiter(new BandwidthLimiter(2 * 1024 * 1024));
+
+    Thread.currentThread().interrupt();
+    try {
+      download.download();
+      Assert.fail("not interrupted");
+    }
+    catch (InterruptedException e) {
+      // expected
+    }
+    List<String> state = FileUtils.readLines(new File(dir, "trailer.mov.part.segments"), "UTF-8");
+    Assert.assertEquals(getUrl(), state.get(0));
+    Assert.assertEquals(etag, state.get(1));
+    Assert.assertEquals(String.valueOf(SIZE), state.get(2));
+    Assert.assertTrue(state.get(3).startsWith("0 " + SIZE + " "));
+  }
+
+  @Test
+  public void orphanedPartFileIsDiscarded() throws Exception {
+    // a part file of unknown origin - its content must not be trusted
+    File partFile = new File(dir, "trailer.mov.part");
+    FileUtils.writeByteArrayToFile(partFile, new byte[9 * 1024 * 1024]);
+
+    SegmentedDownload download = createDownload(partFile);
+    Assert.assertTrue(download.download());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(partFile)));
+    Assert.assertEquals("bytes=0-", ranges.get(0));
+  }
+
+  @Test
+  public void resumeChangedRemoteFile() throws Exception {
+    File partFile = new File(dir, "trailer.mov.part");
+    FileUtils.writeByteArrayToFile(partFile, new byte[9 * 1024 * 1024]);
+    writeState(partFile, "\"v0\"", 0, SIZE, 9 * 1024 * 1024);
+
+    SegmentedDownload download = createDownload(partFile);
+    Assert.assertTrue(download.download());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(partFile)));
+    // the resume request has been answered with the complete (changed) file - then the download started from scratch
+    Assert.assertEquals("bytes=" + (9 * 1024 * 1024) + "-", ranges.get(0));
+    Assert.assertEquals("\"v0\"", ifRanges.get(0));
+    Assert.assertEquals("bytes=0-", ranges.get(1));
+    Assert.assertFalse(new File(dir, "trailer.mov.part.segments").exists());
+  }
+
+  @Test
+  public void resumeSegmentedDownload() throws Exception {
+    // two segments; both half done, the rest of the file contains garbage
+    int half = SIZE / 2;
+    byte[] part = new byte[SIZE];
+    System.arraycopy(content, 0, part, 0, 1000);
+    System.arraycopy(content, half, part, half, 2000);
+    File partFile = new File(dir, "trailer.mov.part");
+    FileUtils.writeByteArrayToFile(partFile, part);
+    writeState(partFile, etag, 0, half, 1000, half, SIZE, half + 2000);
+
+    SegmentedDownload download = createDownload(partFile);
+    Assert.assertTrue(download.download());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(partFile)));
+    Assert.assertEquals("bytes=1000-", ranges.get(0));
+    Assert.assertEquals("bytes=" + (half + 2000) + "-" + (SIZE - 1), ranges.get(1));
+    Assert.assertFalse(new File(dir, "trailer.mov.part.segments").exists());
+  }
+
+  @Test
+  public void noRangeSupport() throws Exception {
+    rangeSupport = false;
+    File partFile = new File(dir, "trailer.mov.part");
+    FileUtils.writeByteArrayToFile(partFile, new byte[SIZE + 100]);
+
+    SegmentedDownload download = createDownload(partFile);
+    Assert.assertTrue(download.download());
+    Assert.assertEquals(1, ranges.size());
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(partFile)));
+  }
+
+  @Test
+  public void bandwidthLimit() throws Exception {
+    content = Arrays.copyOf(content, 512 * 1024);
+    File partFile = new File(dir, "trailer.mov.part");
+    SegmentedDownload download = createDownload(partFile);
+    download.setBandwidthLimiter(new BandwidthLimiter(1024 * 1024));
+
+    long start = System.currentTimeMillis();
+    Assert.assertTrue(download.download());
+    long duration = System.currentTimeMillis() - start;
+    Assert.assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(partFile)));
+    // 512 kB at 1 MB/s
+    Assert.assertTrue("download took " + duration + "ms", duration >= 450);
+  }
+}
@@ -0,0 +1,101 @@
+package org.tinymediamanager.core.threading;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tinymediamanager.core.threading.TmmTaskManager.TaskPriority;
+
+public class TmmThreadPoolTest {
+
+  @Test
+  public void subTasksAreMetered() throws Exception {
+    TmmTaskMetrics metrics = TmmTaskManager.getInstance().getMetrics(TaskPriority.MAIN);
+    long completed = metrics.getCompletedTasks();
+
+    final AtomicInteger executed = new AtomicInteger();
+    TmmThreadPool pool = new TmmThreadPool("test") {
+      @Override
+      protected void doInBackground() {
+        initThreadPool(2, "test");
+        for (int i = 0; i < 10; i++) {
+          submitTask(new Runnable() {
+            @Override
+            public void run() {
+              executed.incrementAndGet();
+            }
+          });
+        }
+        waitForCompletionOrCancel();
+      }
+
+      @Override
+      public void callback(Object obj) {
+      }
+    };
+    pool.run();
+
+    // the metrics are updated after the result has been handed over
+    awaitIdle();
+    Assert.assertEquals(10, executed.get());
+    Assert.assertEquals(completed + 10, metrics.getCompletedTasks());
+  }
+
+  @Test
+  public void cancelDiscardsQueuedSubTasks() throws Exception {
+    TmmTaskMetrics metrics = TmmTaskManager.getInstance().getMetrics(TaskPriority.MAIN);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final TmmThreadPool pool = new TmmThreadPool("test") {
+      @Override
+      protected void doInBackground() {
+        initThreadPool(1, "test-cancel");
+        for (int i = 0; i < 10; i++) {
+          submitTask(new Runnable() {
+            @Override
+            public void run() {
+              started.countDown();
+              try {
+                release.await();
+              }
+              catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+          });
+        }
+        try {
+          Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        // one sub task is running, the other nine are queued
+        Assert.assertEquals(9, TmmTaskManager.getInstance().getMetrics(TaskPriority.MAIN).getQueueLength());
+        cancel();
+        release.countDown();
+        waitForCompletionOrCancel();
+      }
+
+      @Override
+      public void callback(Object obj) {
+      }
+    };
+    pool.run();
+
+    // the discarded sub tasks do not block an idle check
+    Assert.assertEquals(0, metrics.getQueueLength());
+    awaitIdle();
+  }
+
+  private static void awaitIdle() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!TmmTaskManager.getInstance().isIdle() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertTrue(TmmTaskManager.getInstance().isIdle());
+  }
+}
@@ -15,7 +15,12 @@
  */
 package org.tinymediamanager.core.tvshow;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.InputStreamReader;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -213,6 +218,50 @@ public class TvShowTest {
 
   }
 
+  /**
+   * Test episode matching against a corpus of real world file names (show name, relative path, expected result); the parser has to return the
+   * same results uncached and cached
+   */
+  @Test
+  public void testEpisodeMatchingCorpus() throws Exception {
+    List<String[]> corpus = new ArrayList<String[]>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(TvShowTest.class.getResourceAsStream("episodeNames.txt"), "UTF-8"));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      corpus.add(line.split("\t"));
+    }
+    reader.close();
+
+    TvShowEpisodeAndSeasonParser.clearCache();
+    for (int run = 0; run < 2; run++) {
+      String prefix = run == 0 ? "uncached: " : "cached: ";
+      for (String[] entry : corpus) {
+        Assert.assertEquals(prefix + entry[1], entry[2], detectEpisodeFull(entry[1], entry[0]));
+      }
+    }
+  }
+
+  private String detectEpisodeFull(String name, String showname) {
+    StringBuilder sb = new StringBuilder();
+    EpisodeMatchingResult result = TvShowEpisodeAndSeasonParser.detectEpisodeFromFilenameAlternative(name, showname);
+    sb.append("S:");
+    sb.append(result.season);
+    for (int ep : result.episodes) {
+      sb.append(" E:");
+      sb.append(ep);
+    }
+    if (result.date != null) {
+      sb.append(" D:");
+      sb.append(new SimpleDateFormat("yyyy-MM-dd").format(result.date));
+    }
+    if (result.stackingMarkerFound) {
+      sb.append(" stacked");
+    }
+    sb.append(" DS:");
+    sb.append(TvShowEpisodeAndSeasonParser.detectSeason(name));
+    return sb.toString();
+  }
+
   /**
    * Detect episode.
    * 
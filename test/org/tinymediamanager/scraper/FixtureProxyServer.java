@@ -0,0 +1,132 @@
+package org.tinymediamanager.scraper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.tinymediamanager.scraper.util.HttpFixtureStore;
+import org.tinymediamanager.scraper.util.ReplayHttpClient;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP proxy which passes all requests to a replay client (see {@link ReplayHttpClient}); for the scraper libraries which use an
+ * URLConnection (and therefore the JVM proxy settings) rather than the tmm http client.<br>
+ * Only plain HTTP is proxied: CONNECT (HTTPS) is not supported, so HTTPS requests of these libraries bypass the fixtures.
+ */
+public class FixtureProxyServer {
+  private final CloseableHttpClient client;
+  private HttpServer                server;
+  private String                    oldProxyHost;
+  private String                    oldProxyPort;
+
+  public FixtureProxyServer(CloseableHttpClient client) {
+    this.client = client;
+  }
+
+  /**
+   * start the proxy and route all URLConnections through it
+   */
+  public void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        try {
+          proxy(exchange);
+        }
+        finally {
+          exchange.close();
+        }
+      }
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+
+    oldProxyHost = System.getProperty("http.proxyHost");
+    oldProxyPort = System.getProperty("http.proxyPort");
+    System.setProperty("http.proxyHost", "127.0.0.1");
+    System.setProperty("http.proxyPort", Integer.toString(server.getAddress().getPort()));
+  }
+
+  /**
+   * stop the proxy and restore the JVM proxy settings
+   */
+  public void stop() {
+    restoreProperty("http.proxyHost", oldProxyHost);
+    restoreProperty("http.proxyPort", oldProxyPort);
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  private void proxy(HttpExchange exchange) throws IOException {
+    // proxy requests contain the absolute url
+    String url = exchange.getRequestURI().toString();
+    HttpRequestBase request;
+    if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+      HttpPost post = new HttpPost(url);
+      ByteArrayEntity entity = new ByteArrayEntity(IOUtils.toByteArray(exchange.getRequestBody()));
+      entity.setContentType(exchange.getRequestHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+      post.setEntity(entity);
+      request = post;
+    }
+    else {
+      request = new HttpGet(url);
+    }
+    String userAgent = exchange.getRequestHeaders().getFirst(HttpHeaders.USER_AGENT);
+    if (userAgent != null) {
+      request.setHeader(HttpHeaders.USER_AGENT, userAgent);
+    }
+
+    byte[] body;
+    CloseableHttpResponse response;
+    try {
+      response = client.execute(request);
+    }
+    catch (IOException e) {
+      // no fixture
+      exchange.sendResponseHeaders(502, -1);
+      return;
+    }
+    try {
+      for (Header header : response.getAllHeaders()) {
+        if (!HttpFixtureStore.isTransferHeader(header.getName())) {
+          exchange.getResponseHeaders().add(header.getName(), header.getValue());
+        }
+      }
+      body = response.getEntity() != null ? EntityUtils.toByteArray(response.getEntity()) : new byte[0];
+      exchange.sendResponseHeaders(response.getStatusLine().getStatusCode(), body.length > 0 ? body.length : -1);
+    }
+    finally {
+      response.close();
+    }
+    if (body.length > 0) {
+      OutputStream os = exchange.getResponseBody();
+      os.write(body);
+      os.close();
+    }
+  }
+
+  private static void restoreProperty(String key, String value) {
+    if (value == null) {
+      System.clearProperty(key);
+    }
+    else {
+      System.setProperty(key, value);
+    }
+  }
+}
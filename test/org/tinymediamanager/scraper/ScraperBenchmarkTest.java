@@ -0,0 +1,259 @@
+package org.tinymediamanager.scraper;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.scraper.MediaSearchOptions.SearchParam;
+import org.tinymediamanager.scraper.anidb.AniDBMetadataProvider;
+import org.tinymediamanager.scraper.imdb.ImdbMetadataProvider;
+import org.tinymediamanager.scraper.moviemeternl.MoviemeterMetadataProvider;
+import org.tinymediamanager.scraper.ofdb.OfdbMetadataProvider;
+import org.tinymediamanager.scraper.thetvdb.TheTvDbMetadataProvider;
+import org.tinymediamanager.scraper.tmdb.TmdbMetadataProvider;
+import org.tinymediamanager.scraper.util.CachedUrl;
+import org.tinymediamanager.scraper.util.HttpFixtureStore;
+import org.tinymediamanager.scraper.util.ReplayHttpClient;
+import org.tinymediamanager.scraper.util.TmmHttpClient;
+import org.tinymediamanager.scraper.zelluloid.ZelluloidMetadataProvider;
+
+/**
+ * Offline benchmark of the search and scrape paths of the scrapers. All HTTP requests are served from recorded responses (fixtures):
+ * <ul>
+ * <li>record the fixtures once (needs network access): -Dtmm.fixtures.record=true</li>
+ * <li>replay (default): -Dtmm.fixtures=&lt;dir&gt; (default test/fixtures/scraper), -Dtmm.benchmark.iterations=&lt;n&gt; (default 10)</li>
+ * </ul>
+ * A request without fixture fails the benchmark (as does any exception of a workload). -Dtmm.benchmark.providers=&lt;name,...&gt; restricts the run
+ * to the given providers. The parse time is the CPU time of the scraping thread (the providers throttle their connections, so the wall time
+ * includes sleeps); the allocations are the bytes allocated by the scraping thread.<br>
+ * The fixtures committed in test/fixtures/scraper are hand-written (modelled on the real responses, but much smaller), so they check the replay of
+ * every workload only; re-record them before taking numbers. The proxy for the URLConnection based libraries handles plain HTTP only (see
+ * {@link FixtureProxyServer}).
+ */
+public class ScraperBenchmarkTest {
+  private static final Logger        LOGGER     = LoggerFactory.getLogger(ScraperBenchmarkTest.class);
+  private static final File          FIXTURES   = new File(System.getProperty("tmm.fixtures", "test/fixtures/scraper"));
+  private static final boolean       RECORD     = Boolean.getBoolean("tmm.fixtures.record");
+  private static final int           ITERATIONS = Integer.getInteger("tmm.benchmark.iterations", 10);
+  private static final int           WARMUP     = RECORD ? 0 : 2;
+  private static final List<String>  PROVIDERS  = Arrays.asList(StringUtils.split(System.getProperty("tmm.benchmark.providers", ""), ','));
+
+  private static HttpFixtureStore    store;
+  private static CloseableHttpClient client;
+  private static FixtureProxyServer  proxy;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    store = new HttpFixtureStore(FIXTURES);
+    // the tmm clients use the JVM proxy settings, which point to the fixture proxy - so record with a plain client
+    client = ReplayHttpClient.createHttpClient(store, RECORD ? HttpClients.createDefault() : null);
+    TmmHttpClient.setHttpClientOverride(client);
+    proxy = new FixtureProxyServer(client);
+    proxy.start();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    proxy.stop();
+    TmmHttpClient.setHttpClientOverride(null);
+  }
+
+  @Ignore("benchmark - needs recorded fixtures (-Dtmm.fixtures.record=true)")
+  @Test
+  public void benchmark() throws Exception {
+    List<Workload> workloads = new ArrayList<Workload>();
+    workloads.add(new MovieWorkload("tmdb") {
+      @Override
+      IMediaMetadataProvider createProvider() throws Exception {
+        return new TmdbMetadataProvider();
+      }
+    });
+    workloads.add(new MovieWorkload("imdb") {
+      @Override
+      IMediaMetadataProvider createProvider() throws Exception {
+        return new ImdbMetadataProvider();
+      }
+    });
+    workloads.add(new MovieWorkload("ofdb") {
+      @Override
+      IMediaMetadataProvider createProvider() throws Exception {
+        return new OfdbMetadataProvider();
+      }
+    });
+    workloads.add(new MovieWorkload("zelluloid") {
+      @Override
+      IMediaMetadataProvider createProvider() throws Exception {
+        return new ZelluloidMetadataProvider();
+      }
+    });
+    workloads.add(new MovieWorkload("moviemeter") {
+      @Override
+      IMediaMetadataProvider createProvider() throws Exception {
+        return new MoviemeterMetadataProvider();
+      }
+    });
+    workloads.add(new TvShowWorkload("tvdb", "Psych") {
+      @Override
+      ITvShowMetadataProvider createProvider() throws Exception {
+        return new TheTvDbMetadataProvider();
+      }
+    });
+    workloads.add(new TvShowWorkload("anidb", "Spider Riders") {
+      @Override
+      ITvShowMetadataProvider createProvider() throws Exception {
+        return new AniDBMetadataProvider();
+      }
+    });
+
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("%-12s %6s %12s %12s %14s %12s %s%n", "provider", "ops", "parse ms/op", "wall ms/op", "alloc KB/op", "ops/cpu-s",
+        "fixtures"));
+    for (Workload workload : workloads) {
+      if (PROVIDERS.isEmpty() || PROVIDERS.contains(workload.name)) {
+        report.append(run(workload)).append("\n");
+      }
+    }
+    LOGGER.info((RECORD ? "recorded fixtures in " : "scraper benchmark (fixtures: ") + FIXTURES + ")\n" + report);
+  }
+
+  private String run(Workload workload) throws Exception {
+    store.resetStatistics();
+    clearUrlCache();
+    workload.setUp();
+    for (int i = 0; i < WARMUP; i++) {
+      clearUrlCache();
+      workload.run();
+    }
+    // the providers catch most of the errors themselves - so check that every request has been answered from a fixture
+    if (!RECORD) {
+      Assert.assertEquals("missing fixtures for " + workload.name + " in " + FIXTURES + " (" + store.getStatistics() + ")", 0, store.getMisses());
+    }
+
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    long cpu = 0;
+    long wall = 0;
+    long allocated = 0;
+    int ops = RECORD ? 1 : ITERATIONS;
+    for (int i = 0; i < ops; i++) {
+      clearUrlCache();
+      long allocatedStart = getAllocatedBytes(threadBean);
+      long cpuStart = threadBean.getCurrentThreadCpuTime();
+      long wallStart = System.nanoTime();
+      workload.run();
+      wall += System.nanoTime() - wallStart;
+      cpu += threadBean.getCurrentThreadCpuTime() - cpuStart;
+      allocated += getAllocatedBytes(threadBean) - allocatedStart;
+    }
+    if (!RECORD) {
+      Assert.assertEquals("missing fixtures for " + workload.name + " in " + FIXTURES + " (" + store.getStatistics() + ")", 0, store.getMisses());
+    }
+
+    return String.format("%-12s %6d %12.2f %12.2f %14d %12.1f %s", workload.name, ops, cpu / 1e6 / ops, wall / 1e6 / ops, allocated / 1024 / ops,
+        ops * 1e9 / Math.max(1, cpu), store.getStatistics());
+  }
+
+  private static long getAllocatedBytes(ThreadMXBean threadBean) {
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return 0;
+  }
+
+  private static void clearUrlCache() {
+    FileUtils.deleteQuietly(new File(CachedUrl.CACHE_DIR));
+  }
+
+  private abstract static class Workload {
+    final String name;
+
+    Workload(String name) {
+      this.name = name;
+    }
+
+    abstract void setUp() throws Exception;
+
+    abstract void run() throws Exception;
+  }
+
+  private abstract static class MovieWorkload extends Workload {
+    IMediaMetadataProvider provider;
+
+    MovieWorkload(String name) {
+      super(name);
+    }
+
+    abstract IMediaMetadataProvider createProvider() throws Exception;
+
+    @Override
+    void setUp() throws Exception {
+      provider = createProvider();
+    }
+
+    @Override
+    void run() throws Exception {
+      MediaSearchOptions options = new MediaSearchOptions(MediaType.MOVIE);
+      options.set(SearchParam.QUERY, "Avatar");
+      options.set(SearchParam.TITLE, "Avatar");
+      options.set(SearchParam.YEAR, "2009");
+      options.set(SearchParam.LANGUAGE, "en");
+      List<MediaSearchResult> results = provider.search(options);
+      if (results.isEmpty()) {
+        throw new Exception("no search result");
+      }
+
+      MediaScrapeOptions scrapeOptions = new MediaScrapeOptions();
+      scrapeOptions.setType(MediaType.MOVIE);
+      scrapeOptions.setResult(results.get(0));
+      scrapeOptions.setId(provider.getProviderInfo().getId(), results.get(0).getId());
+      provider.getMetadata(scrapeOptions);
+    }
+  }
+
+  private abstract static class TvShowWorkload extends Workload {
+    final String            title;
+    ITvShowMetadataProvider provider;
+
+    TvShowWorkload(String name, String title) {
+      super(name);
+      this.title = title;
+    }
+
+    abstract ITvShowMetadataProvider createProvider() throws Exception;
+
+    @Override
+    void setUp() throws Exception {
+      provider = createProvider();
+    }
+
+    @Override
+    void run() throws Exception {
+      MediaSearchOptions options = new MediaSearchOptions(MediaType.TV_SHOW);
+      options.set(SearchParam.TITLE, title);
+      options.set(SearchParam.LANGUAGE, "en");
+      List<MediaSearchResult> results = provider.search(options);
+      if (results.isEmpty()) {
+        throw new Exception("no search result");
+      }
+
+      MediaScrapeOptions scrapeOptions = new MediaScrapeOptions();
+      scrapeOptions.setType(MediaType.TV_SHOW);
+      scrapeOptions.setResult(results.get(0));
+      scrapeOptions.setId(provider.getProviderInfo().getId(), results.get(0).getId());
+      provider.getTvShowMetadata(scrapeOptions);
+    }
+  }
+}
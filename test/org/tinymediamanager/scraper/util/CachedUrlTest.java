@@ -0,0 +1,168 @@
+package org.tinymediamanager.scraper.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class CachedUrlTest {
+  private final AtomicInteger requests = new AtomicInteger();
+  private HttpServer          server;
+  private String              url;
+
+  // the response of the server
+  private volatile String     content  = "cached content";
+  private volatile String     etag     = null;
+  private volatile int        status   = 200;
+  // the validator sent by the last request
+  private volatile String     ifNoneMatch;
+
+  @Before
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (etag != null) {
+          exchange.getResponseHeaders().add("ETag", etag);
+          if (etag.equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+          }
+        }
+        byte[] body = content.getBytes("UTF-8");
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(body);
+        os.close();
+      }
+    });
+    server.start();
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/expiry";
+    CachedUrl.removeCachedFileForUrl(url);
+  }
+
+  @After
+  public void tearDown() {
+    CachedUrl.setCacheExpiry("127.0.0.1", 0);
+    CachedUrl.removeCachedFileForUrl(url);
+    server.stop(0);
+  }
+
+  @Test
+  public void expiryPerHost() throws Exception {
+    Assert.assertEquals("cached content", read(new CachedUrl(url)));
+    Assert.assertEquals(1, requests.get());
+
+    // the entry is an hour old - older than the default expiry
+    expire();
+
+    // still valid with a longer expiry for this host
+    CachedUrl.setCacheExpiry("127.0.0.1", 2 * 3600);
+    long hits = CachedUrl.getCacheHits();
+    Assert.assertEquals("cached content", read(new CachedUrl(url)));
+    Assert.assertEquals(1, requests.get());
+    Assert.assertEquals(hits + 1, CachedUrl.getCacheHits());
+
+    // back to the default expiry: downloaded again (there are no validators to revalidate the entry)
+    CachedUrl.setCacheExpiry("127.0.0.1", 0);
+    Assert.assertEquals("cached content", read(new CachedUrl(url)));
+    Assert.assertEquals(2, requests.get());
+  }
+
+  @Test
+  public void notModified() throws Exception {
+    etag = "\"v1\"";
+    Assert.assertEquals("cached content", read(new CachedUrl(url)));
+    Assert.assertNull(ifNoneMatch);
+
+    // expired: revalidated with the stored etag, the server answers 304 without a body
+    expire();
+    content = "not sent";
+    long revalidated = CachedUrl.getCacheRevalidations();
+    long misses = CachedUrl.getCacheMisses();
+    Assert.assertEquals("cached content", read(new CachedUrl(url)));
+    Assert.assertEquals("\"v1\"", ifNoneMatch);
+    Assert.assertEquals(2, requests.get());
+    Assert.assertEquals(revalidated + 1, CachedUrl.getCacheRevalidations());
+    Assert.assertEquals(misses, CachedUrl.getCacheMisses());
+
+    // the entry has been renewed
+    Assert.assertEquals("cached content", read(new CachedUrl(url)));
+    Assert.assertEquals(2, requests.get());
+  }
+
+  @Test
+  public void modified() throws Exception {
+    etag = "\"v1\"";
+    Assert.assertEquals("cached content", read(new CachedUrl(url)));
+
+    // expired and changed on the server: the new content and etag replace the cached ones
+    expire();
+    etag = "\"v2\"";
+    content = "new content";
+    long revalidated = CachedUrl.getCacheRevalidations();
+    long misses = CachedUrl.getCacheMisses();
+    Assert.assertEquals("new content", read(new CachedUrl(url)));
+    Assert.assertEquals("\"v1\"", ifNoneMatch);
+    Assert.assertEquals(revalidated, CachedUrl.getCacheRevalidations());
+    Assert.assertEquals(misses + 1, CachedUrl.getCacheMisses());
+
+    // the next revalidation sends the new etag
+    expire();
+    Assert.assertEquals("new content", read(new CachedUrl(url)));
+    Assert.assertEquals("\"v2\"", ifNoneMatch);
+    Assert.assertEquals(revalidated + 1, CachedUrl.getCacheRevalidations());
+  }
+
+  @Test
+  public void revalidationFailed() throws Exception {
+    etag = "\"v1\"";
+    Assert.assertEquals("cached content", read(new CachedUrl(url)));
+
+    // server error: the stale entry is served
+    expire();
+    etag = null;
+    status = 500;
+    content = "error page";
+    Assert.assertEquals("cached content", read(new CachedUrl(url)));
+    Assert.assertEquals(2, requests.get());
+
+    // server not reachable: the stale entry is served
+    server.stop(0);
+    Assert.assertEquals("cached content", read(new CachedUrl(url)));
+    Assert.assertTrue(new CachedUrl(url).getCachedFile().exists());
+  }
+
+  /**
+   * make the cached entry an hour old - older than the default expiry
+   */
+  private void expire() throws Exception {
+    Assert.assertTrue(new CachedUrl(url).getCachedFile().setLastModified(System.currentTimeMillis() - 3600 * 1000L));
+  }
+
+  private static String read(CachedUrl cachedUrl) throws Exception {
+    InputStream is = cachedUrl.getInputStream();
+    try {
+      return IOUtils.toString(is, "UTF-8");
+    }
+    finally {
+      is.close();
+    }
+  }
+}
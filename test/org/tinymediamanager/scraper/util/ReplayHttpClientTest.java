@@ -0,0 +1,117 @@
+package org.tinymediamanager.scraper.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class ReplayHttpClientTest {
+  private final AtomicInteger requests = new AtomicInteger();
+  private HttpServer          server;
+  private String              baseUrl;
+  private File                dir;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = new File(FileUtils.getTempDirectory(), "tmm_fixtures_" + System.currentTimeMillis());
+    FileUtils.deleteQuietly(dir);
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        byte[] body = ("response to " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + " "
+            + IOUtils.toString(exchange.getRequestBody(), "UTF-8")).getBytes("UTF-8");
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=UTF-8");
+        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream os = new GZIPOutputStream(exchange.getResponseBody());
+        os.write(body);
+        os.close();
+      }
+    });
+    server.start();
+    baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  @After
+  public void tearDown() {
+    TmmHttpClient.setHttpClientOverride(null);
+    server.stop(0);
+    FileUtils.deleteQuietly(dir);
+  }
+
+  @Test
+  public void recordAndReplay() throws Exception {
+    HttpFixtureStore store = new HttpFixtureStore(dir);
+
+    // record
+    TmmHttpClient.setHttpClientOverride(ReplayHttpClient.createHttpClient(store, TmmHttpClient.createHttpClient()));
+    String recorded = new String(new Url(baseUrl + "/search?q=avatar").getBytes(), "UTF-8");
+    Assert.assertEquals("response to GET /search?q=avatar ", recorded);
+    Assert.assertEquals(1, store.getRecorded());
+    Assert.assertEquals(1, requests.get());
+
+    // replay without server
+    server.stop(0);
+    TmmHttpClient.setHttpClientOverride(ReplayHttpClient.createHttpClient(store, null));
+    Url url = new Url(baseUrl + "/search?q=avatar");
+    Assert.assertEquals(recorded, new String(url.getBytes(), "UTF-8"));
+    Assert.assertEquals(200, url.getStatusCode());
+    Assert.assertEquals("UTF-8", url.getCharset().name());
+    Assert.assertNull(url.getContentEncoding());
+    Assert.assertEquals(1, store.getHits());
+
+    // no fixture
+    url = new Url(baseUrl + "/search?q=alien");
+    Assert.assertNull(url.getInputStream());
+    Assert.assertEquals(1, store.getMisses());
+    Assert.assertEquals(1, requests.get());
+  }
+
+  @Test
+  public void postBodyIsPartOfTheKey() throws Exception {
+    HttpFixtureStore store = new HttpFixtureStore(dir);
+    CloseableHttpClient recorder = ReplayHttpClient.createHttpClient(store, TmmHttpClient.createHttpClient());
+    Assert.assertEquals("response to POST /rpc first", post(recorder, "first"));
+    Assert.assertEquals("response to POST /rpc second", post(recorder, "second"));
+    Assert.assertEquals(2, store.getRecorded());
+
+    server.stop(0);
+    CloseableHttpClient player = ReplayHttpClient.createHttpClient(store, null);
+    Assert.assertEquals("response to POST /rpc second", post(player, "second"));
+    Assert.assertEquals("response to POST /rpc first", post(player, "first"));
+    Assert.assertEquals(2, store.getHits());
+  }
+
+  private String post(CloseableHttpClient client, String body) throws Exception {
+    HttpPost post = new HttpPost(baseUrl + "/rpc");
+    post.setEntity(new StringEntity(body, "UTF-8"));
+    CloseableHttpResponse response = client.execute(post);
+    try {
+      return EntityUtils.toString(response.getEntity(), "UTF-8");
+    }
+    finally {
+      response.close();
+    }
+  }
+}
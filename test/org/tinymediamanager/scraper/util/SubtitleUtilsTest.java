@@ -0,0 +1,36 @@
+package org.tinymediamanager.scraper.util;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SubtitleUtilsTest {
+
+  @Test
+  public void hashes() throws Exception {
+    // the expected values have been computed independently of SubtitleUtils
+    assertHashes(200 * 1024, "6ce251c63bae1e37", "57d4d70375e855c318cc02aba0391851");
+    // smaller than one chunk: head and tail are the whole file
+    assertHashes(1000, "a4f03d8ca79a8eda", "26697fe9c74ab3b6e29a4133c78cdc48");
+  }
+
+  private static void assertHashes(int size, String openSubtitlesHash, String subDbHash) throws Exception {
+    File file = File.createTempFile("tmm_hash", ".avi");
+    try {
+      byte[] content = new byte[size];
+      for (int i = 0; i < size; i++) {
+        content[i] = (byte) ((i * 31 + 7) % 251);
+      }
+      FileUtils.writeByteArrayToFile(file, content);
+
+      Assert.assertArrayEquals(new String[] { openSubtitlesHash, subDbHash }, SubtitleUtils.computeHashes(file));
+      Assert.assertEquals(openSubtitlesHash, SubtitleUtils.computeOpenSubtitlesHash(file));
+      Assert.assertEquals(subDbHash, SubtitleUtils.computeSubDBHash(file));
+    }
+    finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package org.tinymediamanager.scraper.xbmc;
 
 import java.io.File;
+import java.util.ArrayList;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
 import org.junit.Test;
 import org.tinymediamanager.scraper.MediaSearchResult;
 import org.tinymediamanager.scraper.MediaType;
@@ -53,4 +56,34 @@ public class XbmcMetadataProviderTest {
     }
 
   }
+
+  /**
+   * runs the bundled offline scraper (metadata.test.local) against saved html pages; checks the results, also of further processors sharing the
+   * compiled expressions of the scraper
+   */
+  @Test
+  public void testOfflineScraper() throws Exception {
+    File folder = new File(XbmcMetadataProviderTest.class.getResource("metadata.test.local").toURI());
+    XbmcScraper scraper = new XbmcScraperParser().parseScraper(new XbmcScraper(folder), new ArrayList<File>());
+
+    String searchPage = FileUtils.readFileToString(new File(folder, "search.html"), "UTF-8");
+    String detailsPage = FileUtils.readFileToString(new File(folder, "details.html"), "UTF-8");
+    String searchExpected = FileUtils.readFileToString(new File(folder, "search.expected"), "UTF-8");
+    String detailsExpected = FileUtils.readFileToString(new File(folder, "details.expected"), "UTF-8");
+
+    XbmcScraperProcessor processor = new XbmcScraperProcessor(scraper);
+    Assert.assertEquals("<url>http://movies.example.org/find?q=spider+man</url>",
+        processor.executeFunction("CreateSearchUrl", new String[] { "", "spider+man" }));
+    Assert.assertEquals(searchExpected, processor.executeFunction("GetSearchResults", new String[] { "", searchPage, "http://movies.example.org" }));
+    Assert.assertEquals(detailsExpected,
+        processor.executeFunction("GetDetails", new String[] { "", detailsPage, "tt0413300", "http://movies.example.org/title/tt0413300/" }));
+
+    for (int i = 0; i < 100; i++) {
+      processor = new XbmcScraperProcessor(scraper);
+      Assert.assertEquals(searchExpected,
+          processor.executeFunction("GetSearchResults", new String[] { "", searchPage, "http://movies.example.org" }));
+      Assert.assertEquals(detailsExpected,
+          processor.executeFunction("GetDetails", new String[] { "", detailsPage, "tt0413300", "http://movies.example.org/title/tt0413300/" }));
+    }
+  }
 }
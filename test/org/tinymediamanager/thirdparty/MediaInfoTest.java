@@ -1,11 +1,19 @@
 package org.tinymediamanager.thirdparty;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.thirdparty.MediaInfo.StreamKind;
 
 import com.sun.jna.Platform;
 
@@ -143,4 +151,74 @@ public class MediaInfoTest {
 
     System.out.println(To_Display);
   }
+
+  /**
+   * compares the cost of the full snapshot with the snapshot of the parameters declared by MediaFile; the sample files are taken from
+   * -Dtmm.mediainfo.samples=<dir>. Needs the native mediainfo lib and sample files, so it has to be run manually
+   */
+  @Ignore("needs libmediainfo and sample files (-Dtmm.mediainfo.samples=<dir>)")
+  @Test
+  public void benchmarkSnapshot() throws Exception {
+    File[] files = new File(System.getProperty("tmm.mediainfo.samples", "")).listFiles();
+    Assert.assertNotNull("no samples found; set -Dtmm.mediainfo.samples=<dir>", files);
+
+    Logger logger = LoggerFactory.getLogger(MediaInfoTest.class);
+    int iterations = 20;
+    int samples = 0;
+    long[] full = new long[2];
+    long[] selective = new long[2];
+    for (File file : files) {
+      MediaInfo mediaInfo = new MediaInfo();
+      if (!file.isFile() || !mediaInfo.open(file)) {
+        continue;
+      }
+      samples++;
+
+      // the selective snapshot must deliver exactly the declared values of the full snapshot
+      Map<StreamKind, List<Map<String, String>>> fullSnapshot = mediaInfo.snapshot();
+      Map<StreamKind, List<Map<String, String>>> selectiveSnapshot = mediaInfo.snapshot(MediaFile.MEDIAINFO_KEYS);
+      for (StreamKind streamKind : MediaFile.MEDIAINFO_KEYS.getStreamKinds()) {
+        List<Map<String, String>> expectedStreams = fullSnapshot.get(streamKind);
+        List<Map<String, String>> actualStreams = selectiveSnapshot.get(streamKind);
+        Assert.assertEquals(file + " " + streamKind, expectedStreams == null ? 0 : expectedStreams.size(),
+            actualStreams == null ? 0 : actualStreams.size());
+        for (int i = 0; actualStreams != null && i < actualStreams.size(); i++) {
+          for (String parameter : MediaFile.MEDIAINFO_KEYS.getParameters(streamKind)) {
+            Assert.assertEquals(file + " " + streamKind + "/" + i + "/" + parameter, expectedStreams.get(i).get(parameter),
+                actualStreams.get(i).get(parameter));
+          }
+        }
+      }
+
+      long[] fileFull = measure(mediaInfo, null, iterations);
+      long[] fileSelective = measure(mediaInfo, MediaFile.MEDIAINFO_KEYS, iterations);
+      Assert.assertTrue(file + ": the selective snapshot allocates more than the full one", fileSelective[1] < fileFull[1]);
+      logger.info(String.format("%s: full %.2fms / %dKB, selective %.2fms / %dKB", file.getName(), fileFull[0] / 1e6 / iterations,
+          fileFull[1] / 1024 / iterations, fileSelective[0] / 1e6 / iterations, fileSelective[1] / 1024 / iterations));
+      for (int i = 0; i < 2; i++) {
+        full[i] += fileFull[i];
+        selective[i] += fileSelective[i];
+      }
+      mediaInfo.close();
+    }
+    Assert.assertTrue("no readable samples in " + System.getProperty("tmm.mediainfo.samples"), samples > 0);
+    logger.info(String.format("total: full %.2fms / %dKB, selective %.2fms / %dKB", full[0] / 1e6, full[1] / 1024, selective[0] / 1e6,
+        selective[1] / 1024));
+  }
+
+  private long[] measure(MediaInfo mediaInfo, MediaInfoKeySet keys, int iterations) {
+    com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long allocated = threadBean.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      if (keys == null) {
+        mediaInfo.snapshot();
+      }
+      else {
+        mediaInfo.snapshot(keys);
+      }
+    }
+    return new long[] { System.nanoTime() - start, threadBean.getThreadAllocatedBytes(threadId) - allocated };
+  }
 }
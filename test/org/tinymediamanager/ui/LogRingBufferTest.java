@@ -0,0 +1,181 @@
+package org.tinymediamanager.ui;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LogRingBufferTest {
+  private static final Pattern DROPPED = Pattern.compile("\\.\\.\\. (\\d+) older messages dropped \\.\\.\\.");
+
+  @Test
+  public void wrapAround() {
+    LogRingBuffer buffer = new LogRingBuffer(2, 4, 100);
+    Assert.assertEquals(8, buffer.getCapacity());
+    for (int i = 0; i < 12; i++) {
+      Assert.assertEquals(i, buffer.append("m" + i + "\n"));
+    }
+
+    // the first four messages have been overwritten
+    StringBuilder sb = new StringBuilder();
+    Assert.assertEquals(12, buffer.read(0, sb));
+    Assert.assertEquals("... 4 older messages dropped ...\nm4\nm5\nm6\nm7\nm8\nm9\nm10\nm11\n", sb.toString());
+
+    // nothing new
+    sb = new StringBuilder();
+    Assert.assertEquals(12, buffer.read(12, sb));
+    Assert.assertEquals("", sb.toString());
+
+    // read from the middle
+    sb = new StringBuilder();
+    Assert.assertEquals(12, buffer.read(10, sb));
+    Assert.assertEquals("m10\nm11\n", sb.toString());
+  }
+
+  @Test
+  public void readWithDroppedMessages() {
+    LogRingBuffer buffer = new LogRingBuffer(2, 4, 100);
+    for (int i = 0; i < 3; i++) {
+      buffer.append("m" + i + "\n");
+    }
+    StringBuilder sb = new StringBuilder();
+    long next = buffer.read(0, sb);
+    Assert.assertEquals("m0\nm1\nm2\n", sb.toString());
+
+    // the reader falls behind: messages 3 and 4 are lost for it
+    for (int i = 3; i < 13; i++) {
+      buffer.append("m" + i + "\n");
+    }
+    sb = new StringBuilder();
+    Assert.assertEquals(13, buffer.read(next, sb));
+    Assert.assertEquals("... 2 older messages dropped ...\nm5\nm6\nm7\nm8\nm9\nm10\nm11\nm12\n", sb.toString());
+  }
+
+  @Test
+  public void truncate() {
+    LogRingBuffer buffer = new LogRingBuffer(1, 4, 5);
+    buffer.append("0123456789\n");
+    StringBuilder sb = new StringBuilder();
+    buffer.read(0, sb);
+    Assert.assertEquals("01234...\n", sb.toString());
+  }
+
+  @Test
+  public void concurrentAppend() throws Exception {
+    final LogRingBuffer buffer = new LogRingBuffer(16, 256, 100);
+    final int threads = 4;
+    final int messages = 1000;
+    final CountDownLatch start = new CountDownLatch(1);
+
+    List<Thread> writers = new ArrayList<Thread>();
+    for (int t = 0; t < threads; t++) {
+      final int writer = t;
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          }
+          catch (InterruptedException e) {
+            return;
+          }
+          for (int i = 0; i < messages; i++) {
+            buffer.append(writer + "-" + i + "\n");
+          }
+        }
+      });
+      thread.start();
+      writers.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : writers) {
+      thread.join();
+    }
+
+    // everything fits into the buffer: every message is there exactly once
+    StringBuilder sb = new StringBuilder();
+    Assert.assertEquals(threads * messages, buffer.read(0, sb));
+    String[] lines = sb.toString().split("\n");
+    Assert.assertEquals(threads * messages, lines.length);
+    Assert.assertEquals(threads * messages, new HashSet<String>(Arrays.asList(lines)).size());
+  }
+
+  @Test
+  public void concurrentReadAndOverwrite() throws Exception {
+    final LogRingBuffer buffer = new LogRingBuffer(2, 8, 100);
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final int messages = 200000;
+
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < messages; i++) {
+          buffer.append(i + "\n");
+        }
+        running.set(false);
+      }
+    });
+    writer.start();
+
+    // every message is either read or reported as dropped - also if it is overwritten while reading
+    long next = 0;
+    long seen = 0;
+    Set<String> read = new HashSet<String>();
+    boolean last = false;
+    while (!last) {
+      last = !running.get();
+      StringBuilder sb = new StringBuilder();
+      next = buffer.read(next, sb);
+      for (String line : sb.toString().split("\n")) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        Matcher matcher = DROPPED.matcher(line);
+        if (matcher.matches()) {
+          seen += Long.parseLong(matcher.group(1));
+        }
+        else {
+          Assert.assertTrue(read.add(line));
+          seen++;
+        }
+      }
+    }
+    writer.join();
+    Assert.assertEquals(messages, next);
+    Assert.assertEquals(messages, seen);
+  }
+
+  @Test
+  public void spill() throws Exception {
+    File file = File.createTempFile("tmm_spill", ".log");
+    try {
+      LogRingBuffer buffer = new LogRingBuffer(1, 4, 100);
+      buffer.setSpillFile(file, 1024 * 1024);
+      for (int i = 0; i < 8; i++) {
+        buffer.append("m" + i + "\n");
+      }
+
+      // the overwritten messages are written in the background
+      String expected = "m0\nm1\nm2\nm3\n";
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!expected.equals(FileUtils.readFileToString(file, "UTF-8")) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertEquals(expected, FileUtils.readFileToString(file, "UTF-8"));
+      buffer.setSpillFile(null, 0);
+    }
+    finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+}